@@ -68,7 +68,7 @@ public class BT implements GlobalConst {
 			return ((StringKey) key1).getKey().compareTo(((StringKey) key2).getKey());
 		}
 		else if ((key1 instanceof DescriptorKey) && (key2 instanceof DescriptorKey)) {
-			return ((DescriptorKey) key1).getDescString().compareTo(((DescriptorKey) key2).getDescString());
+			return ((DescriptorKey) key1).compareTo((DescriptorKey) key2);
 		}
 
 		else {
@@ -98,7 +98,7 @@ public class BT implements GlobalConst {
 		} else if (key instanceof IntegerKey) {
 			return 4;
 		} else if (key instanceof DescriptorKey)
-			return 20;
+			return DescriptorKey.KEY_SIZE;
 		else
 			throw new KeyNotMatchException(null, "key types do not match");
 	}
@@ -193,7 +193,7 @@ public class BT implements GlobalConst {
 				// "+n);
 				key = new StringKey(Convert.getStrValue(offset, from, length - n));
 			} else if (keyType == AttrType.attrDesc) {
-				key = new DescriptorKey(Convert.getDescValue(offset, from));
+				key = new DescriptorKey(from, offset);
 			} else
 				throw new KeyNotMatchException(null, "key types do not match");
 
@@ -236,7 +236,7 @@ public class BT implements GlobalConst {
 			} else if (entry.key instanceof StringKey) {
 				Convert.setStrValue(((StringKey) entry.key).getKey(), 0, data);
 			} else if (entry.key instanceof DescriptorKey) {
-				Convert.setDescValue(((DescriptorKey) entry.key).getKey(), 0, data);
+				((DescriptorKey) entry.key).writeTo(data, 0);
 			}else
 				throw new KeyNotMatchException(null, "key types do not match"); 
 			
@@ -119,6 +119,54 @@ public class BTFileScan extends IndexFileScan implements GlobalConst {
 		}
 	}
 
+	/**
+	 * Move the scan forward to the first entry whose key is not less than
+	 * the given key; the next get_next returns that entry. If the key is on
+	 * the current leaf page the scan moves within the page, otherwise it
+	 * descends the tree again from the root. Keys behind the current
+	 * position are not revisited.
+	 *
+	 * @param key
+	 *            the key to move to
+	 * @exception ScanIteratorException
+	 *                iterator error
+	 */
+	public void skip_to(KeyClass key) throws ScanIteratorException {
+		try {
+			if (leafPage == null)
+				return;
+
+			int cnt = leafPage.getSlotCnt();
+			KeyDataEntry last = cnt > 0 ? BT.getEntryFromBytes(leafPage.getpage(), leafPage.getSlotOffset(cnt - 1),
+					leafPage.getSlotLength(cnt - 1), keyType, NodeType.LEAF) : null;
+
+			if (last != null && BT.keyCompare(last.key, key) >= 0) {
+				// binary search for the first slot >= key behind the
+				// current position
+				int lo = (didfirst && !deletedcurrent) ? curRid.slotNo + 1 : curRid.slotNo;
+				int hi = cnt - 1;
+				while (lo < hi) {
+					int mid = (lo + hi) >>> 1;
+					KeyDataEntry entry = BT.getEntryFromBytes(leafPage.getpage(), leafPage.getSlotOffset(mid),
+							leafPage.getSlotLength(mid), keyType, NodeType.LEAF);
+					if (BT.keyCompare(entry.key, key) < 0)
+						lo = mid + 1;
+					else
+						hi = mid;
+				}
+				curRid.slotNo = lo;
+			} else {
+				SystemDefs.JavabaseBM.unpinPage(leafPage.getCurPage(), false);
+				leafPage = bfile.findRunStart(key, curRid);
+			}
+			didfirst = false;
+			deletedcurrent = false;
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new ScanIteratorException();
+		}
+	}
+
 	/**
 	 * max size of the key
 	 * 
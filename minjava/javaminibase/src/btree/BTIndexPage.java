@@ -420,7 +420,7 @@ public class BTIndexPage extends BTSortedPage {
 		try {
 			boolean st;
 			if (direction == -1) { // 'this' is the left sibling of indexPage
-				if ((getSlotLength(getSlotCnt() - 1) + available_space()) > ((MAX_SPACE - DPFIXED) / 2)) {
+				if ((getSlotLength(getSlotCnt() - 1) + available_space()) > ((getpagesize() - DPFIXED) / 2)) {
 					// cannot spare a record for its underflow sibling
 					return false;
 				} else {
@@ -465,7 +465,7 @@ public class BTIndexPage extends BTSortedPage {
 					return true;
 				}
 			} else { // 'this' is the right sibling of indexPage
-				if ((getSlotLength(0) + available_space()) > ((MAX_SPACE - DPFIXED) / 2)) {
+				if ((getSlotLength(0) + available_space()) > ((getpagesize() - DPFIXED) / 2)) {
 					// cannot spare a record for its underflow sibling
 					return false;
 				} else {
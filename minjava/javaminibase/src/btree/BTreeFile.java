@@ -8,6 +8,8 @@
 package btree;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
 import diskmgr.*;
 import bufmgr.*;
 import global.*;
@@ -72,6 +74,18 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 		return headerPage;
 	}
 
+	/**
+	 * Access method to the root of the tree.
+	 * 
+	 * @return the page id of the root page, INVALID_PAGE if the tree is
+	 *         empty
+	 * @exception IOException
+	 *                error from the lower layer
+	 */
+	public PageId getRootId() throws IOException {
+		return headerPage.get_rootId();
+	}
+
 	private PageId get_file_entry(String filename) throws GetFileEntryException {
 		try {
 			return SystemDefs.JavabaseDB.get_file_entry(filename);
@@ -278,12 +292,12 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 				childId = ((IndexData) (entry.data)).getData();
 				_destroyFile(childId);
 			}
-		} else { // BTLeafPage
-
-			unpinPage(pageno);
-			freePage(pageno);
+			_destroyFile(indexPage.getLeftLink());
 		}
 
+		unpinPage(pageno);
+		freePage(pageno);
+
 	}
 
 	private void updateHeader(PageId newRoot) throws IOException, PinPageException, UnpinPageException {
@@ -350,24 +364,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 	{
 		KeyDataEntry newRootEntry;
 
-		if (BT.getKeyLength(key) > headerPage.get_maxKeySize())
-			throw new KeyTooLongException(null, "");
-
-		if (key instanceof StringKey) {
-			if (headerPage.get_keyType() != AttrType.attrString) {
-				throw new KeyNotMatchException(null, "");
-			}
-		} else if (key instanceof IntegerKey) {
-			if (headerPage.get_keyType() != AttrType.attrInteger) {
-				throw new KeyNotMatchException(null, "");
-			}
-		}else if (key instanceof DescriptorKey) {
-			if (headerPage.get_keyType() != AttrType.attrDesc) {
-				throw new KeyNotMatchException(null, "");
-			}
-		} else
-			throw new KeyNotMatchException(null, "");
-		
+		checkKey(key);
 
 		// TWO CASES:
 		// 1. headerPage.root == INVALID_PAGE:
@@ -481,6 +478,160 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 		return;
 	}
 
+	/**
+	 * Build the tree bottom-up from entries sorted on their key. The leaves
+	 * are filled left to right up to the fill factor, and every level of
+	 * index pages above them is filled the same way as its children are
+	 * completed, so the input is read once and every page is written once.
+	 * The tree must be empty.
+	 * 
+	 * @param sorted
+	 *            the entries, in ascending key order; their data is the rid
+	 *            of the record. Input parameter.
+	 * @param fillFactor
+	 *            the part of a page filled before the next one is started,
+	 *            greater than 0 and at most 1. Input parameter.
+	 * @exception KeyTooLongException
+	 *                key size exceeds the max keysize.
+	 * @exception KeyNotMatchException
+	 *                key does not match the key type of the tree
+	 * @exception NodeNotMatchException
+	 *                node not match index page nor leaf page
+	 * @exception InsertException
+	 *                the tree is not empty, or the entries are not sorted
+	 * @exception LeafInsertRecException
+	 *                insert error in leaf page
+	 * @exception IndexInsertRecException
+	 *                insert error in index page
+	 * @exception ConstructPageException
+	 *                error in BT page constructor
+	 * @exception UnpinPageException
+	 *                error when unpin a page
+	 * @exception PinPageException
+	 *                error when pin a page
+	 * @exception FreePageException
+	 *                error when free a page
+	 * @exception IOException
+	 *                error from the lower layer
+	 */
+	public void bulkLoad(Iterator<KeyDataEntry> sorted, double fillFactor) throws KeyTooLongException,
+			KeyNotMatchException, NodeNotMatchException, InsertException, LeafInsertRecException,
+			IndexInsertRecException, ConstructPageException, UnpinPageException, PinPageException, FreePageException,
+			IOException {
+		if (headerPage.get_rootId().pid != INVALID_PAGE)
+			throw new InsertException(null, "bulk load into a tree that is not empty");
+		if (!(fillFactor > 0 && fillFactor <= 1))
+			throw new InsertException(null, "bad fill factor " + fillFactor);
+
+		int keyType = headerPage.get_keyType();
+
+		// the page being filled on every level, the leaf level first
+		ArrayList<BTSortedPage> levels = new ArrayList<BTSortedPage>();
+		BTLeafPage leaf = new BTLeafPage(keyType);
+		leaf.setNextPage(new PageId(INVALID_PAGE));
+		leaf.setPrevPage(new PageId(INVALID_PAGE));
+		levels.add(leaf);
+
+		// free space left on a full page
+		int reserve = leaf.available_space() - (int) (leaf.available_space() * fillFactor);
+		KeyClass lastKey = null;
+
+		while (sorted.hasNext()) {
+			KeyDataEntry entry = sorted.next();
+			checkKey(entry.key);
+			if (lastKey != null && BT.keyCompare(entry.key, lastKey) < 0)
+				throw new InsertException(null, "bulk load entries are not sorted");
+			lastKey = entry.key;
+
+			if (!fits(leaf, BT.getKeyDataLength(entry.key, NodeType.LEAF), reserve)) {
+				BTLeafPage newLeaf = new BTLeafPage(keyType);
+				PCounter.writeIncrement();
+				newLeaf.setNextPage(new PageId(INVALID_PAGE));
+				newLeaf.setPrevPage(leaf.getCurPage());
+				leaf.setNextPage(newLeaf.getCurPage());
+				unpinPage(leaf.getCurPage(), true /* = DIRTY */);
+
+				levels.set(0, newLeaf);
+				_bulkLoadIndex(levels, 1, entry.key, newLeaf.getCurPage(), leaf.getCurPage(), reserve);
+				leaf = newLeaf;
+			}
+			leaf.insertRecord(entry.key, ((LeafData) entry.data).getData());
+		}
+
+		PageId rootId = levels.get(levels.size() - 1).getCurPage();
+		for (BTSortedPage page : levels)
+			unpinPage(page.getCurPage(), true /* = DIRTY */);
+
+		if (lastKey == null) {
+			// no entries, the tree stays empty
+			freePage(rootId);
+			return;
+		}
+		updateHeader(rootId);
+	}
+
+	/*
+	 * add the entry of a new child to the index page being filled on a level
+	 * of a bulk load, starting a new index page, and a new level on top, as
+	 * needed. left is the page before the new child on its level.
+	 */
+	private void _bulkLoadIndex(ArrayList<BTSortedPage> levels, int level, KeyClass key, PageId child, PageId left,
+			int reserve) throws KeyNotMatchException, NodeNotMatchException, IndexInsertRecException,
+			ConstructPageException, UnpinPageException, IOException {
+		int keyType = headerPage.get_keyType();
+
+		if (level == levels.size()) {
+			// the level below got its second page: its first one is the
+			// leftmost child of the new level
+			BTIndexPage top = new BTIndexPage(keyType);
+			PCounter.writeIncrement();
+			top.setLeftLink(left);
+			levels.add(top);
+		}
+
+		BTIndexPage indexPage = (BTIndexPage) levels.get(level);
+		if (fits(indexPage, BT.getKeyDataLength(key, NodeType.INDEX), reserve)) {
+			indexPage.insertKey(key, child);
+			return;
+		}
+
+		// start a new index page with the child as its leftmost one; the key
+		// goes up to the level above
+		BTIndexPage newIndexPage = new BTIndexPage(keyType);
+		PCounter.writeIncrement();
+		newIndexPage.setLeftLink(child);
+		unpinPage(indexPage.getCurPage(), true /* = DIRTY */);
+
+		levels.set(level, newIndexPage);
+		_bulkLoadIndex(levels, level + 1, key, newIndexPage.getCurPage(), indexPage.getCurPage(), reserve);
+	}
+
+	// whether an entry of the given length goes on a page being bulk loaded,
+	// leaving reserve bytes free; an empty page takes any entry
+	private static boolean fits(BTSortedPage page, int length, int reserve) throws IOException {
+		return page.getSlotCnt() == 0 || page.available_space() - length >= reserve;
+	}
+
+	private void checkKey(KeyClass key) throws KeyTooLongException, KeyNotMatchException, IOException {
+		if (BT.getKeyLength(key) > headerPage.get_maxKeySize())
+			throw new KeyTooLongException(null, "");
+
+		if (key instanceof StringKey) {
+			if (headerPage.get_keyType() != AttrType.attrString) {
+				throw new KeyNotMatchException(null, "");
+			}
+		} else if (key instanceof IntegerKey) {
+			if (headerPage.get_keyType() != AttrType.attrInteger) {
+				throw new KeyNotMatchException(null, "");
+			}
+		} else if (key instanceof DescriptorKey) {
+			if (headerPage.get_keyType() != AttrType.attrDesc) {
+				throw new KeyNotMatchException(null, "");
+			}
+		} else
+			throw new KeyNotMatchException(null, "");
+	}
+
 	private KeyDataEntry _insert(KeyClass key, RID rid, PageId currentPageId)
 			throws PinPageException, IOException, ConstructPageException, LeafDeleteException, ConstructPageException,
 			DeleteRecException, IndexSearchException, UnpinPageException, LeafInsertRecException, ConvertException,
@@ -1168,7 +1319,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 					}
 
 					PageId leafPage_no = leafPage.getCurPage();
-					if ((4 + leafPage.available_space()) <= ((MAX_SPACE - HFPage.DPFIXED) / 2)) {
+					if ((4 + leafPage.available_space()) <= ((leafPage.getpagesize() - HFPage.DPFIXED) / 2)) {
 						// the leaf page is at least half full after the
 						// deletion
 						unpinPage(leafPage.getCurPage(), true /* = DIRTY */);
@@ -1228,7 +1379,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 							unpinPage(parentPageId, true);
 							return null;
 						} else if ((siblingPage.available_space()
-								+ 8 /* 2*sizeof(slot) */ ) >= ((MAX_SPACE - HFPage.DPFIXED)
+								+ 8 /* 2*sizeof(slot) */ ) >= ((leafPage.getpagesize() - HFPage.DPFIXED)
 										- leafPage.available_space())) {
 
 							// we can merge these two children
@@ -1369,7 +1520,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 			}
 
 			// now we know the current index page is not a root
-			if ((4 /* sizeof slot */ + indexPage.available_space()) <= ((MAX_SPACE - HFPage.DPFIXED) / 2)) {
+			if ((4 /* sizeof slot */ + indexPage.available_space()) <= ((indexPage.getpagesize() - HFPage.DPFIXED) / 2)) {
 				// the index page is at least half full after the deletion
 				unpinPage(currentPageId, true);
 
@@ -1419,7 +1570,7 @@ public class BTreeFile extends IndexFile implements GlobalConst {
 					unpinPage(parentPageId, true);
 
 					return null;
-				} else if (siblingPage.available_space() + 4 /* slot size */ >= ((MAX_SPACE - HFPage.DPFIXED)
+				} else if (siblingPage.available_space() + 4 /* slot size */ >= ((indexPage.getpagesize() - HFPage.DPFIXED)
 						- (indexPage.available_space() + 4 /* slot size */) + pushKeySize
 						+ 4 /* slot size */ + 4 /* pageId size */)) {
 
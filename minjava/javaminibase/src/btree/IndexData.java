@@ -38,7 +38,7 @@ public class IndexData extends DataClass {
 	 * 
 	 * @return the reference of the copy
 	 */
-	protected PageId getData() {
+	public PageId getData() {
 		return new PageId(pageId.pid);
 	};
 
@@ -41,7 +41,7 @@ public class KeyDataEntry {
 		else if (key instanceof StringKey)
 			this.key = new StringKey(((StringKey) key).getKey());
 		else if (key instanceof DescriptorKey)
-			this.key = new DescriptorKey(((DescriptorKey) key).getKey());
+			this.key = new DescriptorKey((DescriptorKey) key);
 	};
 
 	/**
@@ -70,7 +70,7 @@ public class KeyDataEntry {
 		else if (key instanceof StringKey)
 			this.key = new StringKey(((StringKey) key).getKey());
 		else if (key instanceof DescriptorKey)
-			this.key = new DescriptorKey(((DescriptorKey) key).getKey());
+			this.key = new DescriptorKey((DescriptorKey) key);
 		
 	};
 
@@ -91,7 +91,7 @@ public class KeyDataEntry {
 		else if (key instanceof StringKey)
 			this.key = new StringKey(((StringKey) key).getKey());
 		else if (key instanceof DescriptorKey)
-			this.key = new DescriptorKey(((DescriptorKey) key).getKey());
+			this.key = new DescriptorKey((DescriptorKey) key);
 
 		if (data instanceof IndexData)
 			this.data = new IndexData(((IndexData) data).getData());
@@ -111,6 +111,8 @@ public class KeyDataEntry {
 
 		if (key instanceof IntegerKey)
 			st1 = ((IntegerKey) key).getKey().equals(((IntegerKey) entry.key).getKey());
+		else if (key instanceof DescriptorKey)
+			st1 = ((DescriptorKey) key).compareTo((DescriptorKey) entry.key) == 0;
 		else
 			st1 = ((StringKey) key).getKey().equals(((StringKey) entry.key).getKey());
 
@@ -0,0 +1,207 @@
+/* File ARC.java */
+
+package bufmgr;
+
+import global.*;
+
+/**
+ * class ARC is a subclass of class Replacer using the Adaptive Replacement
+ * Cache algorithm of Megiddo and Modha for page replacement.
+ * <p>
+ * Pages seen once since they were read are on the LRU list T1, pages seen
+ * again on the LRU list T2. The page numbers of pages evicted from them are
+ * remembered on the ghost lists B1 and B2. The target size p of T1 adapts:
+ * a miss on a page in B1 means T1 was too small and p grows, a miss on a
+ * page in B2 means T2 was too small and p shrinks. The victim comes from T1
+ * when T1 is larger than p, from T2 otherwise. A scan only goes through T1,
+ * so it can not push the pages on T2 out.
+ * <p>
+ * Pinning a page that is already pinned is treated as part of the same
+ * reference. Pinned frames stay on their list and are stepped over when a
+ * victim is picked, so every operation takes constant time apart from
+ * skipping the pages pinned at that moment.
+ */
+class ARC extends Replacer {
+
+	/** number of frames */
+	private int c;
+
+	/** target size of T1 */
+	private int p;
+
+	/** pages seen once, least recently used first */
+	private FrameList t1;
+
+	/** pages seen at least twice, least recently used first */
+	private FrameList t2;
+
+	/** pages evicted from T1 and T2 */
+	private GhostList b1;
+	private GhostList b2;
+
+	/** frames that have never been used or were freed */
+	private FrameList free;
+
+	/**
+	 * Class constructor.
+	 */
+	public ARC(BufMgr mgrArg) {
+		super(mgrArg);
+	}
+
+	/**
+	 * Calling super class the same method Initializing the lists with number
+	 * of buffer allocated by buffer manager, all frames free
+	 *
+	 * @param mgr
+	 *            a BufMgr object
+	 * @see BufMgr
+	 * @see Replacer
+	 */
+	public void setBufferManager(BufMgr mgr) {
+		super.setBufferManager(mgr);
+
+		c = mgr.getNumBuffers();
+		p = 0;
+		t1 = new FrameList(c);
+		t2 = new FrameList(c);
+		b1 = new GhostList(c);
+		b2 = new GhostList(c);
+		free = new FrameList(c);
+		for (int i = 0; i < c; i++)
+			free.addLast(i);
+	}
+
+	/**
+	 * pin the page in the given frame number; a page that was not pinned
+	 * becomes the most recently used page of T2
+	 *
+	 * @param frameNo
+	 *            the frame number to pin
+	 * @exception InvalidFrameNumberException
+	 */
+	public void pin(int frameNo) throws InvalidFrameNumberException {
+		boolean wasPinned = frameNo >= 0 && frameNo < mgr.getNumBuffers() && isPinned(frameNo);
+		super.pin(frameNo);
+
+		if (!wasPinned) {
+			t1.remove(frameNo);
+			t2.moveToLast(frameNo);
+		}
+	}
+
+	/**
+	 * call super class the same method and put the frame back on the free
+	 * list
+	 *
+	 * @param frameNo
+	 *            the frame number to free
+	 * @exception PagePinnedException
+	 */
+	public void free(int frameNo) throws PagePinnedException {
+		super.free(frameNo);
+
+		t1.remove(frameNo);
+		t2.remove(frameNo);
+		free.moveToLast(frameNo);
+	}
+
+	public int pick_victim() {
+		return pick_victim(INVALID_PAGE);
+	}
+
+	/**
+	 * Finding a free frame in the buffer pool or choosing a page to replace
+	 * using ARC policy; adapts the target size of T1 when the incoming page
+	 * is on a ghost list
+	 *
+	 * @param pid
+	 *            the page about to be read into the frame
+	 * @return return the frame number return -1 if failed
+	 */
+	public int pick_victim(int pid) {
+		boolean inB1 = pid != INVALID_PAGE && b1.contains(pid);
+		boolean inB2 = !inB1 && pid != INVALID_PAGE && b2.contains(pid);
+
+		if (inB1) {
+			p = Math.min(c, p + Math.max(b2.size() / b1.size(), 1));
+			b1.remove(pid);
+		} else if (inB2) {
+			p = Math.max(0, p - Math.max(b1.size() / b2.size(), 1));
+			b2.remove(pid);
+		}
+
+		int frame = free.first();
+		if (frame >= 0) {
+			free.remove(frame);
+		} else {
+			frame = replace(inB2);
+			if (frame < 0)
+				return -1;
+		}
+
+		if (inB1 || inB2)
+			t2.addLast(frame);
+		else
+			t1.addLast(frame);
+
+		// keep |T1| + |B1| <= c and the whole directory within 2c
+		while (t1.size() + b1.size() > c && b1.size() > 0)
+			b1.removeOldest();
+		while (t1.size() + t2.size() + b1.size() + b2.size() > 2 * c)
+			if (b2.size() > 0)
+				b2.removeOldest();
+			else
+				b1.removeOldest();
+
+		return claim(frame);
+	}
+
+	// evict the least recently used unpinned page of T1 or T2
+	private int replace(boolean inB2) {
+		int fromT1 = firstUnpinned(t1);
+		int fromT2 = firstUnpinned(t2);
+		int frame;
+		GhostList ghost;
+
+		if (fromT1 >= 0 && (t1.size() > p || (inB2 && t1.size() == p) || fromT2 < 0)) {
+			frame = fromT1;
+			ghost = b1;
+			t1.remove(frame);
+		} else if (fromT2 >= 0) {
+			frame = fromT2;
+			ghost = b2;
+			t2.remove(frame);
+		} else {
+			return -1;
+		}
+
+		int oldPid = (mgr.frameTable())[frame].pageNo.pid;
+		if (oldPid != INVALID_PAGE)
+			ghost.add(oldPid);
+		return frame;
+	}
+
+	/**
+	 * get the page replacement policy name
+	 *
+	 * @return return the name of replacement policy used
+	 */
+	public String name() {
+		return "ARC";
+	}
+
+	/**
+	 * print out the information of frame usage
+	 */
+	public void info() {
+		super.info();
+
+		System.out.println("ARC REPLACEMENT");
+		System.out.println("T1:\t" + t1.size() + " (target " + p + ")");
+		System.out.println("T2:\t" + t2.size());
+		System.out.println("B1:\t" + b1.size());
+		System.out.println("B2:\t" + b2.size());
+	}
+
+}
@@ -0,0 +1,190 @@
+package bufmgr;
+
+import java.util.*;
+import global.*;
+
+/**
+ * A buffer hashtable to keep track of pages in the buffer pool. It inserts,
+ * retrieves and removes pages from the hash table.
+ * <p>
+ * The table maps page numbers to frame numbers with open addressing and
+ * linear probing over two parallel int arrays, so lookups and updates never
+ * allocate. The table never holds more entries than there are frames, so it
+ * is sized once from the pool size, to a power of two at least twice the
+ * number of frames, which keeps the load factor at or below one half.
+ * Removal shifts the following entries of the probe run back instead of
+ * leaving tombstones, so probe runs stay short however long the pool lives.
+ */
+class BufHashTbl implements GlobalConst {
+
+	/** The page numbers, INVALID_PAGE for an empty slot. */
+	private int keys[];
+
+	/** The frame of the page in the same slot. */
+	private int frames[];
+
+	/** Table size minus one, the table size is a power of two. */
+	private int mask;
+
+	/**
+	 * Returns the home slot of a page, value between 0 and the table size
+	 * minus one. The page number is scrambled with a multiplicative hash so
+	 * that runs of consecutive page numbers spread over the table.
+	 *
+	 * @param pid
+	 *            the page number for the page in file.
+	 * @return the slot number in the hash table.
+	 */
+	private int hash(int pid) {
+		int h = pid * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	/**
+	 * Creates a buffer hash table object.
+	 *
+	 * @param numbufs
+	 *            number of buffers in the buffer pool.
+	 */
+	public BufHashTbl(int numbufs) {
+		int size = Integer.highestOneBit(Math.max(numbufs, 1)) << 2;
+		keys = new int[size];
+		frames = new int[size];
+		mask = size - 1;
+		Arrays.fill(keys, INVALID_PAGE);
+	}
+
+	/**
+	 * Insert association between page pageNo and frame frameNo into the hash
+	 * table.
+	 *
+	 * @param pageNo
+	 *            page number in the bucket.
+	 * @param frameNo
+	 *            frame number in the bucket.
+	 * @return true if successful.
+	 */
+	public boolean insert(PageId pageNo, int frameNo) {
+		return insert(pageNo.pid, frameNo);
+	}
+
+	/**
+	 * Insert association between page pid and frame frameNo into the hash
+	 * table.
+	 *
+	 * @param pid
+	 *            page number in the bucket.
+	 * @param frameNo
+	 *            frame number in the bucket.
+	 * @return true if successful.
+	 */
+	public boolean insert(int pid, int frameNo) {
+
+		int i = hash(pid);
+		while (keys[i] != INVALID_PAGE) {
+			if (keys[i] == pid)
+				break;
+			i = (i + 1) & mask;
+		}
+
+		keys[i] = pid;
+		frames[i] = frameNo;
+
+		return true;
+	}
+
+	/**
+	 * Find a page in the hashtable, return INVALID_PAGE on failure, otherwise
+	 * the frame number.
+	 * 
+	 * @param pageNo
+	 *            page number in the bucket.
+	 */
+	public int lookup(PageId pageNo) {
+		return lookup(pageNo.pid);
+	}
+
+	/**
+	 * Find a page in the hashtable, return INVALID_PAGE on failure, otherwise
+	 * the frame number.
+	 * 
+	 * @param pid
+	 *            page number in the bucket.
+	 */
+	public int lookup(int pid) {
+
+		if (pid == INVALID_PAGE)
+			return INVALID_PAGE;
+
+		for (int i = hash(pid); keys[i] != INVALID_PAGE; i = (i + 1) & mask) {
+			if (keys[i] == pid)
+				return frames[i];
+		}
+
+		return (INVALID_PAGE);
+
+	}
+
+	/**
+	 * Remove the page from the hashtable.
+	 * 
+	 * @param pageNo
+	 *            page number of the bucket.
+	 */
+	public boolean remove(PageId pageNo) {
+		return remove(pageNo.pid);
+	}
+
+	/**
+	 * Remove the page from the hashtable.
+	 * 
+	 * @param pid
+	 *            page number of the bucket.
+	 */
+	public boolean remove(int pid) {
+
+		// Allow INVALID_PAGE to be removed all they want.
+		if (pid == INVALID_PAGE)
+			return true;
+
+		int i = hash(pid);
+		while (keys[i] != pid) {
+			if (keys[i] == INVALID_PAGE) {
+				System.err.println("ERROR: Page " + pid + " was not found in hashtable.\n");
+
+				return false;
+			}
+			i = (i + 1) & mask;
+		}
+
+		// Close the hole: pull back every later entry of the run whose home
+		// slot does not lie cyclically in (hole, j].
+		int hole = i;
+		for (int j = (i + 1) & mask; keys[j] != INVALID_PAGE; j = (j + 1) & mask) {
+			int home = hash(keys[j]);
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				keys[hole] = keys[j];
+				frames[hole] = frames[j];
+				hole = j;
+			}
+		}
+		keys[hole] = INVALID_PAGE;
+
+		return true;
+
+	}
+
+	/** Show hashtable contents. */
+	public void display() {
+
+		System.out.println("HASH Table contents :FrameNo[PageNo]");
+
+		for (int i = 0; i <= mask; i++) {
+			if (keys[i] != INVALID_PAGE)
+				System.out.println(frames[i] + "[" + keys[i] + "]-");
+		}
+		System.out.println("");
+
+	}
+
+}
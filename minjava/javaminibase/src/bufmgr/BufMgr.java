@@ -72,167 +72,6 @@ class FrameDesc implements GlobalConst {
 
 // *****************************************************
 
-/**
- * A buffer hashtable entry description class. It describes each entry for the
- * buffer hash table, the page number and frame number for that page, the
- * pointer points to the next hash table entry.
- */
-class BufHTEntry {
-	/** The next entry in this hashtable bucket. */
-	public BufHTEntry next;
-
-	/** This page number. */
-	public PageId pageNo = new PageId();
-
-	/** The frame we are stored in. */
-	public int frameNo;
-}
-
-// *****************************************************
-
-/**
- * A buffer hashtable to keep track of pages in the buffer pool. It inserts,
- * retrieves and removes pages from the h ash table.
- */
-class BufHashTbl implements GlobalConst {
-
-	/** Hash Table size, small number for debugging. */
-	private static final int HTSIZE = 20;
-
-	/**
-	 * Each slot holds a linked list of BufHTEntrys, NULL means none.
-	 */
-	private BufHTEntry ht[] = new BufHTEntry[HTSIZE];
-
-	/**
-	 * Returns the number of hash bucket used, value between 0 and HTSIZE-1
-	 *
-	 * @param pageNo
-	 *            the page number for the page in file.
-	 * @return the bucket number in the hash table.
-	 */
-	private int hash(PageId pageNo) {
-		return (pageNo.pid % HTSIZE);
-	}
-
-	/** Creates a buffer hash table object. */
-	public BufHashTbl() {
-		for (int i = 0; i < HTSIZE; i++)
-			ht[i] = null;
-	}
-
-	/**
-	 * Insert association between page pageNo and frame frameNo into the hash
-	 * table.
-	 *
-	 * @param pageNo
-	 *            page number in the bucket.
-	 * @param frameNo
-	 *            frame number in the bucket.
-	 * @return true if successful.
-	 */
-	public boolean insert(PageId pageNo, int frameNo) {
-
-		BufHTEntry ent = new BufHTEntry();
-		int index = hash(pageNo);
-
-		ent.pageNo.pid = pageNo.pid;
-		ent.frameNo = frameNo;
-
-		ent.next = ht[index]; // insert this page at the top
-		ht[index] = ent;
-
-		return true;
-	}
-
-	/**
-	 * Find a page in the hashtable, return INVALID_PAGE on failure, otherwise
-	 * the frame number.
-	 * 
-	 * @param pageNo
-	 *            page number in the bucket.
-	 */
-	public int lookup(PageId pageNo) {
-
-		BufHTEntry ent;
-		if (pageNo.pid == INVALID_PAGE)
-			return INVALID_PAGE;
-
-		for (ent = ht[hash(pageNo)]; ent != null; ent = ent.next) {
-			if (ent.pageNo.pid == pageNo.pid) {
-				return (ent.frameNo);
-			}
-		}
-
-		return (INVALID_PAGE);
-
-	}
-
-	/**
-	 * Remove the page from the hashtable.
-	 * 
-	 * @param pageNo
-	 *            page number of the bucket.
-	 */
-	public boolean remove(PageId pageNo) {
-
-		BufHTEntry cur, prev = null;
-
-		// Allow INVALID_PAGE to be removed all they want.
-		if (pageNo.pid == INVALID_PAGE)
-			return true;
-
-		int indx = hash(pageNo);
-		for (cur = ht[indx]; cur != null; cur = cur.next) {
-
-			if (cur.pageNo.pid == pageNo.pid)
-				break;
-			prev = cur;
-		}
-
-		if (cur != null) {
-			if (prev != null)
-				prev.next = cur.next;
-			else
-				ht[indx] = cur.next;
-
-		} else {
-			System.err.println("ERROR: Page " + pageNo.pid + " was not found in hashtable.\n");
-
-			return false;
-		}
-
-		return true;
-
-	}
-
-	/** Show hashtable contents. */
-	public void display() {
-		BufHTEntry cur;
-
-		System.out.println("HASH Table contents :FrameNo[PageNo]");
-
-		for (int i = 0; i < HTSIZE; i++) {
-			// System.out.println ( "\nindex: " + i + "-" );
-			if (ht[i] != null) {
-
-				for (cur = ht[i]; cur != null; cur = cur.next) {
-					System.out.println(cur.frameNo + "[" + cur.pageNo.pid + "]-");
-				}
-				System.out.println("\t\t");
-
-			} else {
-				System.out.println("NONE\t");
-			}
-		}
-		System.out.println("");
-
-	}
-
-}
-
-// *****************************************************
-
 /**
  * A clock algorithm for buffer pool replacement policy. It picks up the frame
  * in the buffer pool to be replaced. This is the default replacement policy.
@@ -314,13 +153,13 @@ class Clock extends Replacer {
 public class BufMgr implements GlobalConst {
 
 	/** The hash table, only allocated once. */
-	private BufHashTbl hashTable = new BufHashTbl();
+	private BufHashTbl hashTable;
 
 	/** Total number of buffer frames in the buffer pool. */
 	private int numBuffers;
 
 	/** physical buffer pool. */
-	private byte[][] bufPool; // default = byte[NUMBUF][MAX_SPACE];
+	private byte[][] bufPool; // default = byte[NUMBUF][page size];
 
 	/** An array of Descriptors one per frame. */
 	private FrameDesc[] frmeTable; // default = new FrameDesc[NUMBUF];
@@ -328,6 +167,12 @@ public class BufMgr implements GlobalConst {
 	/** The replacer object, which is only used in this class. */
 	private Replacer replacer;
 
+	/** Number of pins that found the page in the pool. */
+	private long hits;
+
+	/** Number of pins that had to bring the page into the pool. */
+	private long misses;
+
 	/**
 	 * Factor out the common code for the two versions of Flush
 	 *
@@ -399,6 +244,18 @@ public class BufMgr implements GlobalConst {
 		}
 	}
 
+	/**
+	 * Create a buffer manager object with frames of the current page size.
+	 *
+	 * @param numbufs
+	 *            number of buffers in the buffer pool.
+	 * @param replacerArg
+	 *            name of the buffer replacement policy.
+	 */
+	public BufMgr(int numbufs, String replacerArg) {
+		this(numbufs, replacerArg, SystemDefs.JavabasePageSize);
+	}
+
 	/**
 	 * Create a buffer manager object.
 	 *
@@ -406,15 +263,18 @@ public class BufMgr implements GlobalConst {
 	 *            number of buffers in the buffer pool.
 	 * @param replacerArg
 	 *            name of the buffer replacement policy.
+	 * @param pageSize
+	 *            size of a frame, the page size of the database.
 	 */
-	public BufMgr(int numbufs, String replacerArg)
+	public BufMgr(int numbufs, String replacerArg, int pageSize)
 
 	{
 
 		numBuffers = numbufs;
 		frmeTable = new FrameDesc[numBuffers];
-		bufPool = new byte[numBuffers][MAX_SPACE];
+		bufPool = new byte[numBuffers][pageSize];
 		frmeTable = new FrameDesc[numBuffers];
+		hashTable = new BufHashTbl(numBuffers);
 
 		for (int i = 0; i < numBuffers; i++) // initialize frameTable
 			frmeTable[i] = new FrameDesc();
@@ -432,8 +292,20 @@ public class BufMgr implements GlobalConst {
 				replacer = new LRU(this);
 				System.out.println("Replacer: LRU\n");
 			} else if (replacerArg.compareTo("MRU") == 0) {
-				replacer = new LRU(this);
+				replacer = new MRU(this);
 				System.out.println("Replacer: MRU\n");
+			} else if (replacerArg.compareTo("LRU-K") == 0) {
+				replacer = new LRUK(this, 2);
+				System.out.println("Replacer: LRU-2\n");
+			} else if (replacerArg.matches("LRU-[1-9][0-9]*")) {
+				replacer = new LRUK(this, Integer.parseInt(replacerArg.substring(4)));
+				System.out.println("Replacer: " + replacerArg + "\n");
+			} else if (replacerArg.compareTo("2Q") == 0) {
+				replacer = new TwoQ(this);
+				System.out.println("Replacer: 2Q\n");
+			} else if (replacerArg.compareTo("ARC") == 0) {
+				replacer = new ARC(this);
+				System.out.println("Replacer: ARC\n");
 			} else {
 				replacer = new Clock(this);
 				System.out.println("Replacer:Unknown, Use Clock\n");
@@ -485,6 +357,46 @@ public class BufMgr implements GlobalConst {
 	public void pinPage(PageId pin_pgid, Page page, boolean emptyPage)
 			throws ReplacerException, HashOperationException, PageUnpinnedException, InvalidFrameNumberException,
 			PageNotReadException, BufferPoolExceededException, PagePinnedException, BufMgrException, IOException {
+		pinPage(pin_pgid, page, emptyPage, null);
+	}
+
+	/**
+	 * Same as pinPage(PageId, Page, boolean), except that a page not in the
+	 * buffer pool is brought into a frame of the given ring, so that a
+	 * sequential scan or a sort recycles its own few frames instead of
+	 * evicting pages other users need.
+	 *
+	 * @param pin_pgid
+	 *            page number in the minibase.
+	 * @param page
+	 *            the pointer poit to the page.
+	 * @param emptyPage
+	 *            true (empty page); false (non-empty page)
+	 * @param ring
+	 *            the buffer ring of the caller, null to use the whole pool.
+	 *
+	 * @exception ReplacerException
+	 *                if there is a replacer error.
+	 * @exception HashOperationException
+	 *                if there is a hashtable error.
+	 * @exception PageUnpinnedException
+	 *                if there is a page that is already unpinned.
+	 * @exception InvalidFrameNumberException
+	 *                if there is an invalid frame number .
+	 * @exception PageNotReadException
+	 *                if a page cannot be read.
+	 * @exception BufferPoolExceededException
+	 *                if the buffer pool is full.
+	 * @exception PagePinnedException
+	 *                if a page is left pinned .
+	 * @exception BufMgrException
+	 *                other error occured in bufmgr layer
+	 * @exception IOException
+	 *                if there is other kinds of I/O error.
+	 */
+	public void pinPage(PageId pin_pgid, Page page, boolean emptyPage, BufferRing ring)
+			throws ReplacerException, HashOperationException, PageUnpinnedException, InvalidFrameNumberException,
+			PageNotReadException, BufferPoolExceededException, PagePinnedException, BufMgrException, IOException {
 		int frameNo;
 		boolean bst, bst2;
 		PageId oldpageNo = new PageId(-1);
@@ -493,8 +405,15 @@ public class BufMgr implements GlobalConst {
 		frameNo = hashTable.lookup(pin_pgid);
 
 		if (frameNo < 0) { // Not in the buffer pool
+			misses++;
 
-			frameNo = replacer.pick_victim(); // frameNo is pinned
+			frameNo = ring == null ? -1 : ring.current();
+			if (frameNo >= 0 && frmeTable[frameNo].pageNo.pid == ring.currentPid()
+					&& frmeTable[frameNo].pin_count() == 0) {
+				replacer.reuse(frameNo); // recycle the ring's oldest frame
+			} else {
+				frameNo = replacer.pick_victim(pin_pgid.pid); // frameNo is pinned
+			}
 			if (frameNo < 0) {
 				page = null;
 				throw new ReplacerException(null, "BUFMGR: REPLACER_ERROR.");
@@ -556,10 +475,14 @@ public class BufMgr implements GlobalConst {
 
 			page.setpage(bufPool[frameNo]);
 
+			if (ring != null)
+				ring.record(frameNo, pin_pgid.pid);
+
 			// return true;
 
 		} else { // the page is in the buffer pool ( frameNo > 0 )
 
+			hits++;
 			page.setpage(bufPool[frameNo]);
 			replacer.pin(frameNo);
 
@@ -648,6 +571,48 @@ public class BufMgr implements GlobalConst {
 	public PageId newPage(Page firstpage, int howmany) throws BufferPoolExceededException, HashOperationException,
 			ReplacerException, HashEntryNotFoundException, InvalidFrameNumberException, PagePinnedException,
 			PageUnpinnedException, PageNotReadException, BufMgrException, DiskMgrException, IOException {
+		return newPage(firstpage, howmany, null);
+	}
+
+	/**
+	 * Same as newPage(Page, int), except that the first page is pinned
+	 * through the given buffer ring.
+	 *
+	 * @param firstpage
+	 *            the address of the first page.
+	 * @param howmany
+	 *            total number of allocated new pages.
+	 * @param ring
+	 *            the buffer ring of the caller, null to use the whole pool.
+	 * @return the first page id of the new pages.
+	 *
+	 * @exception BufferPoolExceededException
+	 *                if the buffer pool is full.
+	 * @exception HashOperationException
+	 *                if there is a hashtable error.
+	 * @exception ReplacerException
+	 *                if there is a replacer error.
+	 * @exception HashEntryNotFoundException
+	 *                if there is no entry of page in the hash table.
+	 * @exception InvalidFrameNumberException
+	 *                if there is an invalid frame number.
+	 * @exception PageUnpinnedException
+	 *                if there is a page that is already unpinned.
+	 * @exception PagePinnedException
+	 *                if a page is left pinned.
+	 * @exception PageNotReadException
+	 *                if a page cannot be read.
+	 * @exception IOException
+	 *                if there is other kinds of I/O error.
+	 * @exception BufMgrException
+	 *                other error occured in bufmgr layer
+	 * @exception DiskMgrException
+	 *                other error occured in diskmgr layer
+	 */
+	public PageId newPage(Page firstpage, int howmany, BufferRing ring) throws BufferPoolExceededException,
+			HashOperationException, ReplacerException, HashEntryNotFoundException, InvalidFrameNumberException,
+			PagePinnedException, PageUnpinnedException, PageNotReadException, BufMgrException, DiskMgrException,
+			IOException {
 		int i;
 
 		PageId firstPageId = new PageId();
@@ -655,7 +620,7 @@ public class BufMgr implements GlobalConst {
 		allocate_page(firstPageId, howmany);
 
 		try {
-			pinPage(firstPageId, firstpage, true);
+			pinPage(firstPageId, firstpage, true, ring);
 		}
 
 		// rollback because pin failed
@@ -798,6 +763,15 @@ public class BufMgr implements GlobalConst {
 		return numBuffers;
 	}
 
+	/**
+	 * Gets the size of a buffer frame.
+	 *
+	 * @return the page size the pool was created with.
+	 */
+	public int getPageSize() {
+		return bufPool.length > 0 ? bufPool[0].length : SystemDefs.JavabasePageSize;
+	}
+
 	/**
 	 * Gets the total number of unpinned buffer frames.
 	 * 
@@ -807,6 +781,34 @@ public class BufMgr implements GlobalConst {
 		return replacer.getNumUnpinnedBuffers();
 	}
 
+	/**
+	 * Gets the number of pins that found their page in the buffer pool.
+	 *
+	 * @return the number of buffer hits.
+	 */
+	public long getNumHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of pins that had to bring their page into the buffer
+	 * pool, whether it was read from disk or is a new empty page.
+	 *
+	 * @return the number of buffer misses.
+	 */
+	public long getNumMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the name of the replacement policy.
+	 *
+	 * @return the name of the replacer.
+	 */
+	public String getReplacerName() {
+		return replacer.name();
+	}
+
 	/** A few routines currently need direct access to the FrameTable. */
 	public FrameDesc[] frameTable() {
 		return frmeTable;
@@ -0,0 +1,85 @@
+/* File BufferRing.java */
+
+package bufmgr;
+
+import global.GlobalConst;
+
+/**
+ * A buffer access strategy for sequential work such as a full file scan or
+ * writing and reading back sort runs. A ring is a small private set of
+ * frames that its owner recycles: when a page pinned through the ring is not
+ * in the buffer pool, the buffer manager reuses the frame the ring loaded
+ * longest ago, as long as nobody has it pinned and it still holds the page
+ * the ring put there. Only when the ring is not full yet, or its frame has
+ * been taken over, does the replacer pick a victim. A large scan thus
+ * touches at most as many frames as the ring has and leaves the rest of the
+ * pool, the index pages in particular, alone.
+ * <p>
+ * A ring belongs to one scan or one sort and is passed to
+ * BufMgr.pinPage/newPage; pages that are already in the pool are pinned as
+ * usual and do not enter the ring.
+ */
+public class BufferRing implements GlobalConst {
+
+	/** Default number of frames in a ring. */
+	public static final int DEFAULT_SIZE = 32;
+
+	private int frames[];
+	private int pids[];
+	private int next = 0;
+
+	/** Creates a ring of the default size. */
+	public BufferRing() {
+		this(DEFAULT_SIZE);
+	}
+
+	/**
+	 * Creates a ring.
+	 *
+	 * @param size
+	 *            the number of frames the ring recycles, at least 1.
+	 */
+	public BufferRing(int size) {
+		size = Math.max(size, 1);
+		frames = new int[size];
+		pids = new int[size];
+		for (int i = 0; i < size; i++) {
+			frames[i] = -1;
+			pids[i] = INVALID_PAGE;
+		}
+	}
+
+	/** @return the number of frames the ring recycles. */
+	public int size() {
+		return frames.length;
+	}
+
+	/**
+	 * Returns the frame to reuse next, -1 if the ring is not full yet.
+	 */
+	int current() {
+		return frames[next];
+	}
+
+	/**
+	 * Returns the page the ring put in the frame to reuse next.
+	 */
+	int currentPid() {
+		return pids[next];
+	}
+
+	/**
+	 * Records that a page was read into a frame for the ring and moves on to
+	 * the next slot.
+	 *
+	 * @param frameNo
+	 *            the frame.
+	 * @param pid
+	 *            the page now in the frame.
+	 */
+	void record(int frameNo, int pid) {
+		frames[next] = frameNo;
+		pids[next] = pid;
+		next = (next + 1) % frames.length;
+	}
+}
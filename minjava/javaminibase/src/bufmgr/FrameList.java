@@ -0,0 +1,114 @@
+/* File FrameList.java */
+
+package bufmgr;
+
+/**
+ * A doubly linked list of buffer frames, kept in arrays indexed by frame
+ * number so that adding, removing and moving a frame take constant time and
+ * never allocate. A frame is on a list at most once. The first frame is the
+ * one added longest ago (the cold end), the last frame the one added most
+ * recently (the hot end).
+ */
+class FrameList {
+
+	private int prev[];
+	private int next[];
+	private boolean member[];
+	private int first = -1;
+	private int last = -1;
+	private int size = 0;
+
+	/**
+	 * Creates an empty list for a buffer pool.
+	 *
+	 * @param numBuffers
+	 *            number of frames in the buffer pool.
+	 */
+	public FrameList(int numBuffers) {
+		prev = new int[numBuffers];
+		next = new int[numBuffers];
+		member = new boolean[numBuffers];
+	}
+
+	/** @return true if the frame is on this list. */
+	public boolean contains(int frameNo) {
+		return member[frameNo];
+	}
+
+	/** @return the number of frames on the list. */
+	public int size() {
+		return size;
+	}
+
+	/** @return the frame at the cold end, -1 if the list is empty. */
+	public int first() {
+		return first;
+	}
+
+	/** @return the frame at the hot end, -1 if the list is empty. */
+	public int last() {
+		return last;
+	}
+
+	/** @return the frame after the given one, -1 at the hot end. */
+	public int next(int frameNo) {
+		return next[frameNo];
+	}
+
+	/** @return the frame before the given one, -1 at the cold end. */
+	public int prev(int frameNo) {
+		return prev[frameNo];
+	}
+
+	/**
+	 * Adds a frame at the hot end of the list.
+	 *
+	 * @param frameNo
+	 *            a frame not on the list.
+	 */
+	public void addLast(int frameNo) {
+		prev[frameNo] = last;
+		next[frameNo] = -1;
+		if (last >= 0)
+			next[last] = frameNo;
+		else
+			first = frameNo;
+		last = frameNo;
+		member[frameNo] = true;
+		size++;
+	}
+
+	/**
+	 * Removes a frame from the list; does nothing if it is not on the list.
+	 *
+	 * @param frameNo
+	 *            the frame number.
+	 */
+	public void remove(int frameNo) {
+		if (!member[frameNo])
+			return;
+		if (prev[frameNo] >= 0)
+			next[prev[frameNo]] = next[frameNo];
+		else
+			first = next[frameNo];
+		if (next[frameNo] >= 0)
+			prev[next[frameNo]] = prev[frameNo];
+		else
+			last = prev[frameNo];
+		member[frameNo] = false;
+		size--;
+	}
+
+	/**
+	 * Moves a frame to the hot end of the list, adding it if needed.
+	 *
+	 * @param frameNo
+	 *            the frame number.
+	 */
+	public void moveToLast(int frameNo) {
+		if (member[frameNo] && last == frameNo)
+			return;
+		remove(frameNo);
+		addLast(frameNo);
+	}
+}
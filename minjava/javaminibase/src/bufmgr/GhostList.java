@@ -0,0 +1,130 @@
+/* File GhostList.java */
+
+package bufmgr;
+
+import global.GlobalConst;
+
+/**
+ * A bounded list of page numbers of pages that have recently left the buffer
+ * pool, used by the replacement policies that adapt to what they evicted.
+ * Pages are kept in the order they were added, and once the list is full
+ * adding a page drops the oldest one. The list is a doubly linked list of
+ * nodes held in arrays, with a BufHashTbl from page number to node, so every
+ * operation takes constant time and none allocates.
+ * <p>
+ * Nodes are numbered from 0 to the capacity minus one; a policy that keeps
+ * more per page than the page number stores it in its own arrays indexed by
+ * node number.
+ */
+class GhostList implements GlobalConst {
+
+	private BufHashTbl index;
+	private int pids[];
+	private int prev[];
+	private int next[];
+	private int first = -1;
+	private int last = -1;
+	private int freeNode = -1;
+	private int size = 0;
+
+	/**
+	 * Creates an empty list.
+	 *
+	 * @param capacity
+	 *            the most pages the list remembers.
+	 */
+	public GhostList(int capacity) {
+		capacity = Math.max(capacity, 1);
+		index = new BufHashTbl(capacity);
+		pids = new int[capacity];
+		prev = new int[capacity];
+		next = new int[capacity];
+		for (int i = capacity - 1; i >= 0; i--) {
+			next[i] = freeNode;
+			freeNode = i;
+		}
+	}
+
+	/** @return the number of pages on the list. */
+	public int size() {
+		return size;
+	}
+
+	/** @return true if the page is on the list. */
+	public boolean contains(int pid) {
+		return find(pid) >= 0;
+	}
+
+	/**
+	 * Finds the node of a page.
+	 *
+	 * @param pid
+	 *            the page number.
+	 * @return the node number, -1 if the page is not on the list.
+	 */
+	public int find(int pid) {
+		int node = index.lookup(pid);
+		return node == INVALID_PAGE ? -1 : node;
+	}
+
+	/**
+	 * Adds a page as the newest on the list, dropping the oldest one if the
+	 * list is full. A page already on the list is moved to the newest end.
+	 *
+	 * @param pid
+	 *            the page number, not INVALID_PAGE.
+	 * @return the node now holding the page.
+	 */
+	public int add(int pid) {
+		remove(pid);
+		if (freeNode < 0)
+			removeOldest();
+
+		int node = freeNode;
+		freeNode = next[node];
+
+		pids[node] = pid;
+		prev[node] = last;
+		next[node] = -1;
+		if (last >= 0)
+			next[last] = node;
+		else
+			first = node;
+		last = node;
+		index.insert(pid, node);
+		size++;
+		return node;
+	}
+
+	/**
+	 * Removes a page from the list; does nothing if it is not on the list.
+	 *
+	 * @param pid
+	 *            the page number.
+	 */
+	public void remove(int pid) {
+		int node = find(pid);
+		if (node < 0)
+			return;
+
+		if (prev[node] >= 0)
+			next[prev[node]] = next[node];
+		else
+			first = next[node];
+		if (next[node] >= 0)
+			prev[next[node]] = prev[node];
+		else
+			last = prev[node];
+
+		index.remove(pid);
+		next[node] = freeNode;
+		freeNode = node;
+		size--;
+	}
+
+	/** Drops the oldest page of the list, if any. */
+	public void removeOldest() {
+		if (first >= 0)
+			remove(pids[first]);
+	}
+}
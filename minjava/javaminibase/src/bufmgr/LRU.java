@@ -8,40 +8,25 @@ import global.*;
 /**
  * class LRU is a subclass of class Replacer using LRU algorithm for page
  * replacement
+ * <p>
+ * The frames in use are kept on a FrameList in the order they were last
+ * pinned, so pinning a page and picking a victim take constant time.
  */
 class LRU extends Replacer {
 
 	/**
-	 * private field An array to hold number of frames in the buffer pool
+	 * private field frames in use, least recently used first
 	 */
-
-	private int frames[];
+	private FrameList frames;
 
 	/**
-	 * private field number of frames used
+	 * private field frames that have never been used or were freed
 	 */
-	private int nframes;
-
-	/**
-	 * This pushes the given frame to the end of the list.
-	 * 
-	 * @param frameNo
-	 *            the frame number
-	 */
-	private void update(int frameNo) {
-		int index;
-		for (index = 0; index < nframes; ++index)
-			if (frames[index] == frameNo)
-				break;
-
-		while (++index < nframes)
-			frames[index - 1] = frames[index];
-		frames[nframes - 1] = frameNo;
-	}
+	private FrameList free;
 
 	/**
-	 * Calling super class the same method Initializing the frames[] with number
-	 * of buffer allocated by buffer manager set number of frame used to zero
+	 * Calling super class the same method Initializing the frame lists with
+	 * number of buffer allocated by buffer manager, all frames free
 	 *
 	 * @param mgr
 	 *            a BufMgr object
@@ -50,18 +35,22 @@ class LRU extends Replacer {
 	 */
 	public void setBufferManager(BufMgr mgr) {
 		super.setBufferManager(mgr);
-		frames = new int[mgr.getNumBuffers()];
-		nframes = 0;
+		int numBuffers = mgr.getNumBuffers();
+		frames = new FrameList(numBuffers);
+		free = new FrameList(numBuffers);
+		for (int i = 0; i < numBuffers; i++)
+			free.addLast(i);
 	}
 
 	/* public methods */
 
 	/**
-	 * Class constructor Initializing frames[] pinter = null.
+	 * Class constructor Initializing frame lists = null.
 	 */
 	public LRU(BufMgr mgrArg) {
 		super(mgrArg);
 		frames = null;
+		free = null;
 	}
 
 	/**
@@ -75,10 +64,37 @@ class LRU extends Replacer {
 	public void pin(int frameNo) throws InvalidFrameNumberException {
 		super.pin(frameNo);
 
-		update(frameNo);
+		frames.moveToLast(frameNo);
 
 	}
 
+	/**
+	 * pin a frame recycled by a buffer ring and move it to the end of list
+	 *
+	 * @param frameNo
+	 *            the frame number
+	 */
+	public void reuse(int frameNo) {
+		super.reuse(frameNo);
+
+		frames.moveToLast(frameNo);
+	}
+
+	/**
+	 * call super class the same method and put the frame back on the free
+	 * list
+	 *
+	 * @param frameNo
+	 *            the frame number to free
+	 * @exception PagePinnedException
+	 */
+	public void free(int frameNo) throws PagePinnedException {
+		super.free(frameNo);
+
+		frames.remove(frameNo);
+		free.moveToLast(frameNo);
+	}
+
 	/**
 	 * Finding a free frame in the buffer pool or choosing a page to replace
 	 * using LRU policy
@@ -87,28 +103,18 @@ class LRU extends Replacer {
 	 */
 
 	public int pick_victim() {
-		int numBuffers = mgr.getNumBuffers();
-		int frame;
-
-		if (nframes < numBuffers) {
-			frame = nframes++;
-			frames[frame] = frame;
-			state_bit[frame].state = Pinned;
-			(mgr.frameTable())[frame].pin();
-			return frame;
-		}
+		int frame = free.first();
 
-		for (int i = 0; i < numBuffers; ++i) {
-			frame = frames[i];
-			if (state_bit[frame].state != Pinned) {
-				state_bit[frame].state = Pinned;
-				(mgr.frameTable())[frame].pin();
-				update(frame);
-				return frame;
-			}
-		}
+		if (frame >= 0)
+			free.remove(frame);
+		else
+			frame = firstUnpinned(frames);
+
+		if (frame < 0)
+			return -1;
 
-		return -1;
+		frames.moveToLast(frame);
+		return claim(frame);
 	}
 
 	/**
@@ -128,10 +134,11 @@ class LRU extends Replacer {
 
 		System.out.print("LRU REPLACEMENT");
 
-		for (int i = 0; i < nframes; i++) {
+		int i = 0;
+		for (int frame = frames.first(); frame >= 0; frame = frames.next(frame), i++) {
 			if (i % 5 == 0)
 				System.out.println();
-			System.out.print("\t" + frames[i]);
+			System.out.print("\t" + frame);
 
 		}
 		System.out.println();
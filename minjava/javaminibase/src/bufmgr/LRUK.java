@@ -0,0 +1,313 @@
+/* File LRUK.java */
+
+package bufmgr;
+
+import global.*;
+
+/**
+ * class LRUK is a subclass of class Replacer using the LRU-K algorithm of
+ * O'Neil, O'Neil and Weikum for page replacement.
+ * <p>
+ * Every page keeps the times of its last K references, time being counted
+ * in page references. The victim is the unpinned page whose K-th most
+ * recent reference is the oldest; pages referenced fewer than K times count
+ * as infinitely old and go first, least recently used first. A page touched
+ * once by a scan is therefore evicted before any page the index lookups
+ * keep coming back to.
+ * <p>
+ * Pinning a page that is already pinned is treated as part of the same
+ * reference, so the pins and unpins of a single operation do not make a
+ * page look hot. The history of an evicted page is kept in a GhostList as
+ * large as the pool, and it is restored if the page is read again soon.
+ * <p>
+ * Unpinned pages with fewer than K references are on a FrameList, the
+ * others on a heap ordered by their K-th reference. Pinning and picking a
+ * victim from the list take constant time, the heap costs O(log n).
+ */
+class LRUK extends Replacer {
+
+	/** number of references remembered per page */
+	private int k;
+
+	/** the reference clock */
+	private long now;
+
+	/** the last k references of each frame, most recent first */
+	private long hist[];
+
+	/** the number of references recorded for each frame, at most k */
+	private int count[];
+
+	/** the history of evicted pages, by GhostList node */
+	private GhostList ghosts;
+	private long ghostHist[];
+	private int ghostCount[];
+
+	/** scratch copy of the history of the page being read in */
+	private long incoming[];
+
+	/** unpinned frames referenced fewer than k times */
+	private FrameList young;
+
+	/** frames that have never been used or were freed */
+	private FrameList free;
+
+	/** unpinned frames referenced k times, ordered by their k-th reference */
+	private int heap[];
+	private int heapSize;
+	private int heapPos[];
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param mgrArg
+	 *            a BufMgr object
+	 * @param k
+	 *            number of references remembered per page, at least 1
+	 */
+	public LRUK(BufMgr mgrArg, int k) {
+		super(mgrArg);
+		this.k = Math.max(k, 1);
+	}
+
+	/**
+	 * Calling super class the same method Initializing the histories and
+	 * lists with number of buffer allocated by buffer manager, all frames
+	 * free
+	 *
+	 * @param mgr
+	 *            a BufMgr object
+	 * @see BufMgr
+	 * @see Replacer
+	 */
+	public void setBufferManager(BufMgr mgr) {
+		super.setBufferManager(mgr);
+		int numBuffers = mgr.getNumBuffers();
+
+		now = 0;
+		hist = new long[numBuffers * k];
+		count = new int[numBuffers];
+		ghosts = new GhostList(numBuffers);
+		ghostHist = new long[numBuffers * k];
+		ghostCount = new int[numBuffers];
+		incoming = new long[k];
+
+		young = new FrameList(numBuffers);
+		free = new FrameList(numBuffers);
+		heap = new int[numBuffers];
+		heapPos = new int[numBuffers];
+		heapSize = 0;
+		for (int i = 0; i < numBuffers; i++) {
+			free.addLast(i);
+			heapPos[i] = -1;
+		}
+	}
+
+	/**
+	 * pin the page in the given frame number and record a reference unless
+	 * the page is already pinned
+	 *
+	 * @param frameNo
+	 *            the frame number to pin
+	 * @exception InvalidFrameNumberException
+	 */
+	public void pin(int frameNo) throws InvalidFrameNumberException {
+		boolean wasPinned = frameNo >= 0 && frameNo < mgr.getNumBuffers() && isPinned(frameNo);
+		super.pin(frameNo);
+
+		if (!wasPinned) {
+			detach(frameNo);
+			reference(frameNo);
+		}
+	}
+
+	/**
+	 * unpin the page in the given frame number; a page no longer pinned
+	 * becomes a replacement candidate
+	 *
+	 * @param frameNo
+	 *            the frame number to unpin
+	 * @exception InvalidFrameNumberException
+	 * @exception PageUnpinnedException
+	 */
+	public boolean unpin(int frameNo) throws InvalidFrameNumberException, PageUnpinnedException {
+		super.unpin(frameNo);
+
+		if (!isPinned(frameNo))
+			attach(frameNo);
+		return true;
+	}
+
+	/**
+	 * call super class the same method and put the frame back on the free
+	 * list
+	 *
+	 * @param frameNo
+	 *            the frame number to free
+	 * @exception PagePinnedException
+	 */
+	public void free(int frameNo) throws PagePinnedException {
+		super.free(frameNo);
+
+		detach(frameNo);
+		count[frameNo] = 0;
+		free.moveToLast(frameNo);
+	}
+
+	/**
+	 * pin a frame recycled by a buffer ring; the new page starts with a
+	 * single reference
+	 *
+	 * @param frameNo
+	 *            the frame number
+	 */
+	public void reuse(int frameNo) {
+		detach(frameNo);
+		count[frameNo] = 0;
+		reference(frameNo);
+		super.reuse(frameNo);
+	}
+
+	public int pick_victim() {
+		return pick_victim(INVALID_PAGE);
+	}
+
+	/**
+	 * Finding a free frame in the buffer pool or choosing a page to replace
+	 * using LRU-K policy; the history of the victim is saved and the one of
+	 * the incoming page restored
+	 *
+	 * @param pid
+	 *            the page about to be read into the frame
+	 * @return return the frame number return -1 if failed
+	 */
+	public int pick_victim(int pid) {
+		int frame = free.first();
+		if (frame < 0)
+			frame = young.first();
+		if (frame < 0 && heapSize > 0)
+			frame = heap[0];
+		if (frame < 0)
+			return -1;
+
+		free.remove(frame);
+		detach(frame);
+
+		// look the incoming page up before the victim goes into the ghosts
+		int incomingCount = 0;
+		int node = pid == INVALID_PAGE ? -1 : ghosts.find(pid);
+		if (node >= 0) {
+			incomingCount = ghostCount[node];
+			System.arraycopy(ghostHist, node * k, incoming, 0, incomingCount);
+			ghosts.remove(pid);
+		}
+
+		int oldPid = (mgr.frameTable())[frame].pageNo.pid;
+		if (oldPid != INVALID_PAGE && count[frame] > 0) {
+			node = ghosts.add(oldPid);
+			ghostCount[node] = count[frame];
+			System.arraycopy(hist, frame * k, ghostHist, node * k, count[frame]);
+		}
+
+		count[frame] = incomingCount;
+		System.arraycopy(incoming, 0, hist, frame * k, incomingCount);
+		reference(frame);
+
+		return claim(frame);
+	}
+
+	// record a reference to the page in a frame
+	private void reference(int frame) {
+		int base = frame * k;
+		int n = Math.min(count[frame], k - 1);
+		System.arraycopy(hist, base, hist, base + 1, n);
+		hist[base] = ++now;
+		count[frame] = n + 1;
+	}
+
+	// make an unpinned frame a replacement candidate
+	private void attach(int frame) {
+		if (count[frame] < k)
+			young.moveToLast(frame);
+		else if (heapPos[frame] < 0) {
+			heapPos[frame] = heapSize;
+			heap[heapSize++] = frame;
+			siftUp(heapPos[frame]);
+		}
+	}
+
+	// take a frame off the candidates
+	private void detach(int frame) {
+		young.remove(frame);
+		int i = heapPos[frame];
+		if (i < 0)
+			return;
+		heapPos[frame] = -1;
+		int moved = heap[--heapSize];
+		if (i == heapSize)
+			return;
+		heap[i] = moved;
+		heapPos[moved] = i;
+		siftDown(siftUp(i));
+	}
+
+	// the k-th most recent reference of a frame
+	private long key(int frame) {
+		return hist[frame * k + k - 1];
+	}
+
+	private int siftUp(int i) {
+		int frame = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (key(heap[parent]) <= key(frame))
+				break;
+			heap[i] = heap[parent];
+			heapPos[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = frame;
+		heapPos[frame] = i;
+		return i;
+	}
+
+	private void siftDown(int i) {
+		int frame = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize)
+				break;
+			if (child + 1 < heapSize && key(heap[child + 1]) < key(heap[child]))
+				child++;
+			if (key(frame) <= key(heap[child]))
+				break;
+			heap[i] = heap[child];
+			heapPos[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = frame;
+		heapPos[frame] = i;
+	}
+
+	/**
+	 * get the page replacement policy name
+	 *
+	 * @return return the name of replacement policy used
+	 */
+	public String name() {
+		return "LRU-" + k;
+	}
+
+	/**
+	 * print out the information of frame usage
+	 */
+	public void info() {
+		super.info();
+
+		System.out.println("LRU-" + k + " REPLACEMENT");
+		System.out.println("Candidates referenced less than " + k + " times:\t" + young.size());
+		System.out.println("Candidates referenced " + k + " times:\t" + heapSize);
+		System.out.println("Evicted pages remembered:\t" + ghosts.size());
+	}
+
+}
@@ -8,20 +8,30 @@ import global.*;
 /**
  * class MRU is a subclass of class Replacer using MRU algorithm for page
  * replacement
+ * <p>
+ * The frames in use are kept on a FrameList in the order they were last
+ * pinned and the victim is taken from the most recently used end, which
+ * suits a file read over and over in the same order that does not fit in
+ * the pool.
  */
 class MRU extends Replacer {
 
 	/* private fields and methods */
 
 	/**
-	 * private field An array to hold number of frames in the buffer pool
+	 * private field frames in use, least recently used first
 	 */
-	private int frames[];
+	private FrameList frames;
 
 	/**
-	 * 
-	 * Calling super class the same method Initializing the frames[] with number
-	 * of buffer allocated by buffer manager set each element of frame[] < 0
+	 * private field frames that have never been used or were freed
+	 */
+	private FrameList free;
+
+	/**
+	 *
+	 * Calling super class the same method Initializing the frame lists with
+	 * number of buffer allocated by buffer manager, all frames free
 	 *
 	 * @param mgr
 	 *            Buffer manager
@@ -33,100 +43,84 @@ class MRU extends Replacer {
 		super.setBufferManager(mgr);
 
 		int numBuffers = mgr.getNumBuffers();
-		frames = new int[numBuffers];
-
+		frames = new FrameList(numBuffers);
+		free = new FrameList(numBuffers);
 		for (int index = 0; index < numBuffers; ++index)
-			frames[index] = -index;
-
-		frames[0] = -numBuffers;
+			free.addLast(index);
 	}
 
 	/**
-	 * Class constructor Initializing frames[] pointer = null.
+	 * Class constructor Initializing frame lists = null.
 	 */
 
 	public MRU(BufMgr mgrArg) {
 		super(mgrArg);
 		frames = null;
+		free = null;
 
 	}
 
 	/**
-	 * Adding the frame with given frame number to buffer pool putting it in
-	 * front of the list
+	 * pin the page with the given frame number update the buffer pool
 	 *
 	 * @param frameNo
-	 *            the frame number
-	 * @see BufMgr
+	 *            the frame number to pin
+	 * @@exception InvalidFrameNumberException
 	 */
 
-	private void update(int frameNo) {
-		int index;
-		int numBuffers = mgr.getNumBuffers();
-		for (index = 0; index < numBuffers; ++index)
-			if (frames[index] < 0 || frames[index] == frameNo)
-				break;
+	public void pin(int frameNo) throws InvalidFrameNumberException {
+		super.pin(frameNo);
 
-		// If buffer pool is not yet full, add this frame to it...
-		if (frames[index] < 0)
-			frames[index] = frameNo;
+		frames.moveToLast(frameNo);
+	}
 
-		int frame = frames[index];
-		while (index-- > 0)
-			frames[index + 1] = frames[index];
+	/**
+	 * pin a frame recycled by a buffer ring and move it to the end of list
+	 *
+	 * @param frameNo
+	 *            the frame number
+	 */
+	public void reuse(int frameNo) {
+		super.reuse(frameNo);
 
-		frames[0] = frame;
+		frames.moveToLast(frameNo);
 	}
 
 	/**
-	 * pin the page with the given frame number update the buffer pool
+	 * call super class the same method and put the frame back on the free
+	 * list
 	 *
 	 * @param frameNo
-	 *            the frame number to pin
-	 * @@exception InvalidFrameNumberException
+	 *            the frame number to free
+	 * @exception PagePinnedException
 	 */
+	public void free(int frameNo) throws PagePinnedException {
+		super.free(frameNo);
 
-	public void pin(int frameNo) throws InvalidFrameNumberException {
-		super.pin(frameNo);
-
-		update(frameNo);
+		frames.remove(frameNo);
+		free.moveToLast(frameNo);
 	}
 
 	/**
 	 * Finding a free frame in the buffer pool or choosing a page to replace
 	 * using MRU policy Update the buffer pool
-	 * 
+	 *
 	 * @return return the frame number return -1 if No victims found
 	 */
 
 	public int pick_victim() {
-		int numBuffers = mgr.getNumBuffers();
-		int i, frame;
-
-		for (i = 0; i < numBuffers; ++i)
-			if (frames[i] < 0) {
-				if (i == 0)
-					frames[i] = 0;
-				else
-					frames[i] *= -1;
-				frame = frames[i];
-				state_bit[frame].state = Pinned;
-				(mgr.frameTable())[frame].pin();
-				update(frame);
-				return frame;
-			}
-
-		for (i = 0; i < numBuffers; ++i) {
-			frame = frames[i];
-			if (state_bit[frame].state != Pinned) {
-				state_bit[frame].state = Pinned;
-				(mgr.frameTable())[frame].pin();
-				update(frame);
-				return frame;
-			}
-		}
+		int frame = free.first();
+
+		if (frame >= 0)
+			free.remove(frame);
+		else
+			frame = lastUnpinned(frames);
+
+		if (frame < 0)
+			return -1; // No victims found!!
 
-		return -1; // No victims found!!
+		frames.moveToLast(frame);
+		return claim(frame);
 	}
 
 	/**
@@ -148,10 +142,11 @@ class MRU extends Replacer {
 
 		System.out.print("MRU REPLACEMENT");
 
-		for (int i = 0; i < mgr.getNumBuffers(); i++) {
+		int i = 0;
+		for (int frame = frames.last(); frame >= 0; frame = frames.prev(frame), i++) {
 			if (i % 5 == 0)
 				System.out.println();
-			System.out.print("\t" + frames[i]);
+			System.out.print("\t" + frame);
 
 		}
 		System.out.println();
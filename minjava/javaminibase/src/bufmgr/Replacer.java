@@ -98,6 +98,31 @@ abstract class Replacer implements GlobalConst {
 	/** Must pin the returned frame. */
 	public abstract int pick_victim() throws BufferPoolExceededException, PagePinnedException;
 
+	/**
+	 * Pins a frame that a buffer ring recycles for a new page, bypassing the
+	 * choice of a victim. The frame must not be pinned.
+	 *
+	 * @param frameNo
+	 *            frame number of the page.
+	 */
+	public void reuse(int frameNo) {
+		claim(frameNo);
+	}
+
+	/**
+	 * Picks the frame the given page is read into. Policies that remember
+	 * recently evicted pages use the page number to tell a page that comes
+	 * back from one that is new; the others ignore it. Must pin the returned
+	 * frame.
+	 *
+	 * @param pid
+	 *            the page about to be read into the frame.
+	 * @return the frame number, -1 if no frame is available.
+	 */
+	public int pick_victim(int pid) throws BufferPoolExceededException, PagePinnedException {
+		return pick_victim();
+	}
+
 	/** Retruns the name of the replacer algorithm. */
 	public abstract String name();
 
@@ -147,6 +172,61 @@ abstract class Replacer implements GlobalConst {
 		return answer;
 	}
 
+	/**
+	 * Tells whether a frame is pinned and thus can not be replaced.
+	 *
+	 * @param frameNo
+	 *            frame number of the page.
+	 * @return true if the pin count of the frame is not zero.
+	 */
+	protected boolean isPinned(int frameNo) {
+		return (mgr.frameTable())[frameNo].pin_count() != 0;
+	}
+
+	/**
+	 * Pins a frame picked as victim so that it can not be picked again.
+	 *
+	 * @param frameNo
+	 *            frame number of the victim.
+	 * @return the frame number.
+	 */
+	protected int claim(int frameNo) {
+		state_bit[frameNo].state = Pinned;
+		(mgr.frameTable())[frameNo].pin();
+		return frameNo;
+	}
+
+	/**
+	 * Returns the first frame of a list, counting from the cold end, that is
+	 * not pinned. Only pinned frames are skipped, so the cost is bounded by
+	 * the number of pages pinned at the same time, not by the pool size.
+	 *
+	 * @param list
+	 *            the list to search.
+	 * @return the frame number, -1 if every frame of the list is pinned.
+	 */
+	protected int firstUnpinned(FrameList list) {
+		int frame = list.first();
+		while (frame >= 0 && isPinned(frame))
+			frame = list.next(frame);
+		return frame;
+	}
+
+	/**
+	 * Returns the last frame of a list, counting from the hot end, that is
+	 * not pinned.
+	 *
+	 * @param list
+	 *            the list to search.
+	 * @return the frame number, -1 if every frame of the list is pinned.
+	 */
+	protected int lastUnpinned(FrameList list) {
+		int frame = list.last();
+		while (frame >= 0 && isPinned(frame))
+			frame = list.prev(frame);
+		return frame;
+	}
+
 	/** Creates a replacer object. */
 	protected Replacer(BufMgr javamgr) {
 		mgr = javamgr;
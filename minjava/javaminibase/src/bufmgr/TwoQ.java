@@ -0,0 +1,167 @@
+/* File TwoQ.java */
+
+package bufmgr;
+
+import global.*;
+
+/**
+ * class TwoQ is a subclass of class Replacer using the full 2Q algorithm of
+ * Johnson and Shasha for page replacement.
+ * <p>
+ * A page read for the first time goes to the FIFO queue A1in. When A1in
+ * holds more than a quarter of the pool its oldest page is evicted and its
+ * page number remembered on the ghost queue A1out, which holds up to half
+ * the pool. A page read again while it is on A1out has proved it is reused
+ * and goes to the LRU queue Am; otherwise victims are taken from Am. A scan
+ * thus only ever cycles through A1in and leaves the pages on Am alone.
+ * <p>
+ * Pinning a page that is already pinned is treated as part of the same
+ * reference. Pinned frames stay on their queue and are stepped over when a
+ * victim is picked, so every operation takes constant time apart from
+ * skipping the pages pinned at that moment.
+ */
+class TwoQ extends Replacer {
+
+	/** target size of A1in */
+	private int kin;
+
+	/** first-time pages, oldest first */
+	private FrameList a1in;
+
+	/** reused pages, least recently used first */
+	private FrameList am;
+
+	/** pages recently evicted from A1in */
+	private GhostList a1out;
+
+	/** frames that have never been used or were freed */
+	private FrameList free;
+
+	/**
+	 * Class constructor.
+	 */
+	public TwoQ(BufMgr mgrArg) {
+		super(mgrArg);
+	}
+
+	/**
+	 * Calling super class the same method Initializing the queues with number
+	 * of buffer allocated by buffer manager, all frames free
+	 *
+	 * @param mgr
+	 *            a BufMgr object
+	 * @see BufMgr
+	 * @see Replacer
+	 */
+	public void setBufferManager(BufMgr mgr) {
+		super.setBufferManager(mgr);
+		int numBuffers = mgr.getNumBuffers();
+
+		kin = Math.max(numBuffers / 4, 1);
+		a1in = new FrameList(numBuffers);
+		am = new FrameList(numBuffers);
+		a1out = new GhostList(numBuffers / 2);
+		free = new FrameList(numBuffers);
+		for (int i = 0; i < numBuffers; i++)
+			free.addLast(i);
+	}
+
+	/**
+	 * pin the page in the given frame number; a page on Am that was not
+	 * pinned becomes its most recently used page, a page on A1in keeps its
+	 * place
+	 *
+	 * @param frameNo
+	 *            the frame number to pin
+	 * @exception InvalidFrameNumberException
+	 */
+	public void pin(int frameNo) throws InvalidFrameNumberException {
+		boolean wasPinned = frameNo >= 0 && frameNo < mgr.getNumBuffers() && isPinned(frameNo);
+		super.pin(frameNo);
+
+		if (!wasPinned && am.contains(frameNo))
+			am.moveToLast(frameNo);
+	}
+
+	/**
+	 * call super class the same method and put the frame back on the free
+	 * list
+	 *
+	 * @param frameNo
+	 *            the frame number to free
+	 * @exception PagePinnedException
+	 */
+	public void free(int frameNo) throws PagePinnedException {
+		super.free(frameNo);
+
+		a1in.remove(frameNo);
+		am.remove(frameNo);
+		free.moveToLast(frameNo);
+	}
+
+	public int pick_victim() {
+		return pick_victim(INVALID_PAGE);
+	}
+
+	/**
+	 * Finding a free frame in the buffer pool or choosing a page to replace
+	 * using 2Q policy
+	 *
+	 * @param pid
+	 *            the page about to be read into the frame
+	 * @return return the frame number return -1 if failed
+	 */
+	public int pick_victim(int pid) {
+		boolean reused = pid != INVALID_PAGE && a1out.contains(pid);
+		if (reused)
+			a1out.remove(pid);
+
+		int frame = free.first();
+		if (frame >= 0) {
+			free.remove(frame);
+		} else {
+			int fromIn = firstUnpinned(a1in);
+			int fromM = firstUnpinned(am);
+			if (fromIn >= 0 && (a1in.size() > kin || fromM < 0)) {
+				frame = fromIn;
+				int oldPid = (mgr.frameTable())[frame].pageNo.pid;
+				if (oldPid != INVALID_PAGE)
+					a1out.add(oldPid);
+			} else {
+				frame = fromM;
+			}
+			if (frame < 0)
+				return -1;
+			a1in.remove(frame);
+			am.remove(frame);
+		}
+
+		if (reused)
+			am.addLast(frame);
+		else
+			a1in.addLast(frame);
+		return claim(frame);
+	}
+
+	/**
+	 * get the page replacement policy name
+	 *
+	 * @return return the name of replacement policy used
+	 */
+	public String name() {
+		return "2Q";
+	}
+
+	/**
+	 * print out the information of frame usage
+	 */
+	public void info() {
+		super.info();
+
+		System.out.println("2Q REPLACEMENT");
+		System.out.println("A1in:\t" + a1in.size() + " (target " + kin + ")");
+		System.out.println("Am:\t" + am.size());
+		System.out.println("A1out:\t" + a1out.size());
+	}
+
+}
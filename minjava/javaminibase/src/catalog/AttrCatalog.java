@@ -20,7 +20,7 @@ public class AttrCatalog extends Heapfile implements GlobalConst, Catalogglobal
 
 		int sizeOfInt = 4;
 		int sizeOfFloat = 4;
-		tuple = new Tuple(Tuple.max_size);
+		tuple = new Tuple(Tuple.max_size());
 		attrs = new AttrType[9];
 
 		attrs[0] = new AttrType(AttrType.attrString);
@@ -33,7 +33,7 @@ public class IndexCatalog extends Heapfile implements GlobalConst, Catalogglobal
 	IndexCatalog(String filename) throws IOException, BufMgrException, DiskMgrException, Exception {
 		super(filename);
 
-		tuple = new Tuple(Tuple.max_size);
+		tuple = new Tuple(Tuple.max_size());
 		attrs = new AttrType[7];
 
 		attrs[0] = new AttrType(AttrType.attrString);
@@ -466,7 +466,7 @@ public class IndexCatalog extends Heapfile implements GlobalConst, Catalogglobal
 			throw new IndexCatalogException(e, "getTupleStructure");
 		}
 
-		tuple = new Tuple(Tuple.max_size);
+		tuple = new Tuple(Tuple.max_size());
 		if (tuple == null)
 			throw new Catalognomem(null, "Catalog, No Enough Memory!");
 
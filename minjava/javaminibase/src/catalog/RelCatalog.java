@@ -21,7 +21,7 @@ public class RelCatalog extends Heapfile implements GlobalConst, Catalogglobal {
 	RelCatalog(String filename) throws IOException, BufMgrException, DiskMgrException, Exception {
 		super(filename);
 
-		tuple = new Tuple(Tuple.max_size);
+		tuple = new Tuple(Tuple.max_size());
 
 		attrs = new AttrType[5];
 		attrs[0] = new AttrType(AttrType.attrString);
@@ -142,7 +142,7 @@ public class Utility implements Catalogglobal {
 
 		// CREATE TUPLE
 
-		tuple = new Tuple(Tuple.max_size);
+		tuple = new Tuple(Tuple.max_size());
 
 		count = ExtendedSystemDefs.MINIBASE_ATTRCAT.getTupleStructure(relation, count, typeArray, sizeArray);
 
@@ -0,0 +1,42 @@
+/* File ChannelPageIO.java */
+
+package diskmgr;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Page I/O with positional FileChannel reads and writes: one system call
+ * per page and the file pointer is never moved.
+ */
+class ChannelPageIO extends PageIO {
+
+	private FileChannel channel;
+
+	public void open(RandomAccessFile file, int numPages, int pageSize) throws IOException {
+		super.open(file, numPages, pageSize);
+		channel = file.getChannel();
+	}
+
+	public void read(int pid, byte[] data) throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		long pos = offset(pid);
+		while (buf.hasRemaining()) {
+			int n = channel.read(buf, pos + buf.position());
+			if (n < 0)
+				break; // past the end of the file, like RandomAccessFile.read
+		}
+	}
+
+	public void write(int pid, byte[] data) throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		long pos = offset(pid);
+		while (buf.hasRemaining())
+			channel.write(buf, pos + buf.position());
+	}
+
+	public String name() {
+		return "Channel";
+	}
+}
@@ -3,12 +3,12 @@
 package diskmgr;
 
 import java.io.*;
+import java.util.ArrayDeque;
+import java.util.HashMap;
 import global.*;
 
 public class DB implements GlobalConst {
 
-	private static final int bits_per_page = MAX_SPACE * 8;
-
 	//task 9
 	private PCounter pCounter;
 
@@ -33,23 +33,33 @@ public class DB implements GlobalConst {
 
 
 		name = fname;
+		free_in_map = null;
+		next_fit = 0;
 
 		// Creaat a random access file
 		fp = new RandomAccessFile(fname, "rw");
 
+		// The page size has to be known before the first page can be read
+		fp.seek(DBFirstPage.PAGE_SIZE);
+		setPageSize(fp.readInt());
+
 		PageId pageId = new PageId();
 		Page apage = new Page();
 		pageId.pid = 0;
 
 		num_pages = 1; // temporary num_page value for pinpage to work
+		io.open(fp, num_pages, page_size);
 
 		pinPage(pageId, apage, false /* read disk */);
 
 		DBFirstPage firstpg = new DBFirstPage();
 		firstpg.openPage(apage);
 		num_pages = firstpg.getNumDBPages();
+		io.setNumPages(num_pages);
 
 		unpinPage(pageId, false /* undirty */);
+
+		load_file_directory();
 	}
 
 	/**
@@ -59,14 +69,63 @@ public class DB implements GlobalConst {
 		this.resetPageCounter();
 	}
 	
+	/**
+	 * Choose the page I/O backend; takes effect when the DB is next opened.
+	 *
+	 * @param pageio
+	 *            "File", "Channel" or "Mmap"; null for the default
+	 * @see PageIO
+	 */
+	public void setPageIO(String pageio) {
+		io = PageIO.create(pageio);
+	}
+
+	/** @return the page I/O backend in use. */
+	public PageIO getPageIO() {
+		return io;
+	}
+
 	@SuppressWarnings("static-access")
 	public void resetPageCounter() {
 		pCounter.initialize();
 	}
 
+	/**
+	 * Return the page size stored in an existing database file.
+	 *
+	 * @param fname
+	 *            DB name
+	 * @return the page size
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public static int readPageSize(String fname) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fname, "r");
+		try {
+			file.seek(DBFirstPage.PAGE_SIZE);
+			return file.readInt();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Check that a page size is supported: a power of two from
+	 * MINIBASE_PAGESIZE to MINIBASE_MAX_PAGESIZE.
+	 *
+	 * @param pageSize
+	 *            the page size
+	 * @exception DiskMgrException
+	 *                unsupported page size
+	 */
+	public static void checkPageSize(int pageSize) throws DiskMgrException {
+		if (pageSize < MINIBASE_PAGESIZE || pageSize > MINIBASE_MAX_PAGESIZE || Integer.bitCount(pageSize) != 1)
+			throw new DiskMgrException(null, "DB.java: unsupported page size " + pageSize);
+	}
+
 	/**
 	 * DB Constructors. Create a database with the specified number of pages
-	 * where the page size is the default page size.
+	 * where the page size is the one of the buffer pool.
 	 *
 	 * @param name
 	 *            DB name
@@ -84,8 +143,38 @@ public class DB implements GlobalConst {
 	 */
 	public void openDB(String fname, int num_pgs)
 			throws IOException, InvalidPageNumberException, FileIOException, DiskMgrException {
+		openDB(fname, num_pgs, SystemDefs.JavabasePageSize);
+	}
+
+	/**
+	 * DB Constructors. Create a database with the specified number of pages
+	 * and page size. The buffer manager must have been created with the same
+	 * page size.
+	 *
+	 * @param name
+	 *            DB name
+	 * @param num_pages
+	 *            number of pages in DB
+	 * @param page_size
+	 *            size of a page in bytes, a power of two from
+	 *            MINIBASE_PAGESIZE to MINIBASE_MAX_PAGESIZE
+	 *
+	 * @exception IOException
+	 *                I/O errors
+	 * @exception InvalidPageNumberException
+	 *                invalid page number
+	 * @exception FileIOException
+	 *                file I/O error
+	 * @exception DiskMgrException
+	 *                error caused by other layers
+	 */
+	public void openDB(String fname, int num_pgs, int page_size)
+			throws IOException, InvalidPageNumberException, FileIOException, DiskMgrException {
 
+		setPageSize(page_size);
 		name = new String(fname);
+		free_in_map = null;
+		next_fit = 0;
 		num_pages = (num_pgs > 2) ? num_pgs : 2;
 
 		File DBfile = new File(name);
@@ -96,8 +185,9 @@ public class DB implements GlobalConst {
 		fp = new RandomAccessFile(fname, "rw");
 
 		// Make the file num_pages pages long, filled with zeroes.
-		fp.seek((long) (num_pages * MINIBASE_PAGESIZE - 1));
+		fp.seek((long) num_pages * page_size - 1);
 		fp.writeByte(0);
+		io.open(fp, num_pages, page_size);
 
 		// Initialize space map and directory pages.
 
@@ -110,6 +200,7 @@ public class DB implements GlobalConst {
 		DBFirstPage firstpg = new DBFirstPage(apage);
 
 		firstpg.setNumDBPages(num_pages);
+		firstpg.setPageSize(page_size);
 		unpinPage(pageId, true /* dirty */);
 
 		// Calculate how many pages are needed for the space map. Reserve pages
@@ -118,6 +209,8 @@ public class DB implements GlobalConst {
 
 		set_bits(pageId, 1 + num_map_pages, 1);
 
+		load_file_directory();
+
 	}
 
 	/**
@@ -127,7 +220,7 @@ public class DB implements GlobalConst {
 	 *                I/O errors.
 	 */
 	public void closeDB() throws IOException {
-		fp.close();
+		io.close();
 	}
 
 	/**
@@ -138,7 +231,7 @@ public class DB implements GlobalConst {
 	 */
 	public void DBDestroy() throws IOException {
 
-		fp.close();
+		io.close();
 		File DBfile = new File(name);
 		DBfile.delete();
 	}
@@ -163,13 +256,10 @@ public class DB implements GlobalConst {
 		if ((pageno.pid < 0) || (pageno.pid >= num_pages))
 			throw new InvalidPageNumberException(null, "BAD_PAGE_NUMBER");
 
-		// Seek to the correct page
-		fp.seek((long) (pageno.pid * MINIBASE_PAGESIZE));
-
 		// Read the appropriate number of bytes.
 		byte[] buffer = apage.getpage(); // new byte[MINIBASE_PAGESIZE];
 		try {
-			fp.read(buffer);
+			io.read(pageno.pid, buffer);
 		} catch (IOException e) {
 			throw new FileIOException(e, "DB file I/O error");
 		}
@@ -198,12 +288,9 @@ public class DB implements GlobalConst {
 		if ((pageno.pid < 0) || (pageno.pid >= num_pages))
 			throw new InvalidPageNumberException(null, "INVALID_PAGE_NUMBER");
 
-		// Seek to the correct page
-		fp.seek((long) (pageno.pid * MINIBASE_PAGESIZE));
-
 		// Write the appropriate number of bytes.
 		try {
-			fp.write(apage.getpage());
+			io.write(pageno.pid, apage.getpage());
 		} catch (IOException e) {
 			throw new FileIOException(e, "DB file I/O error");
 		}
@@ -240,6 +327,11 @@ public class DB implements GlobalConst {
 
 	/**
 	 * user specified run_size
+	 * <p>
+	 * The space map is searched next fit, starting after the run allocated
+	 * last, a 64 bit word at a time. The number of free pages of every
+	 * space-map page is kept in memory, so full map pages are skipped and
+	 * empty ones taken whole without being pinned.
 	 *
 	 * @param start_page_num
 	 *            the starting page id of the run of pages
@@ -266,66 +358,19 @@ public class DB implements GlobalConst {
 			throw new InvalidRunSizeException(null, "Negative run_size");
 
 		int run_size = runsize;
-		int num_map_pages = (num_pages + bits_per_page - 1) / bits_per_page;
-		int current_run_start = 0;
-		int current_run_length = 0;
+		if (free_in_map == null)
+			load_space_summary();
 
-		// This loop goes over each page in the space map.
-		PageId pgid = new PageId();
-		byte[] pagebuf;
-		int byteptr;
+		// Next fit: look from where the last run was taken to the end of the
+		// database, then wrap around to the start.
+		int start = find_free_run(next_fit, num_pages, run_size);
+		if (start < 0)
+			start = find_free_run(0, next_fit, run_size);
 
-		for (int i = 0; i < num_map_pages; ++i) {// start forloop01
-
-			pgid.pid = 1 + i;
-			// Pin the space-map page.
-
-			Page apage = new Page();
-			pinPage(pgid, apage, false /* read disk */);
-
-			pagebuf = apage.getpage();
-			byteptr = 0;
-
-			// get the num of bits on current page
-			int num_bits_this_page = num_pages - i * bits_per_page;
-			if (num_bits_this_page > bits_per_page)
-				num_bits_this_page = bits_per_page;
-
-			// Walk the page looking for a sequence of 0 bits of the appropriate
-			// length. The outer loop steps through the page's bytes, the inner
-			// one steps through each byte's bits.
-
-			for (; num_bits_this_page > 0 && current_run_length < run_size; ++byteptr) {// start
-																						// forloop02
-
-				Integer intmask = new Integer(1);
-				Byte mask = new Byte(intmask.byteValue());
-				byte tmpmask = mask.byteValue();
-
-				while (mask.intValue() != 0 && (num_bits_this_page > 0) && (current_run_length < run_size))
-
-				{
-					if ((pagebuf[byteptr] & tmpmask) != 0) {
-						current_run_start += current_run_length + 1;
-						current_run_length = 0;
-					} else
-						++current_run_length;
-
-					tmpmask <<= 1;
-					mask = new Byte(tmpmask);
-					--num_bits_this_page;
-				}
-
-			} // end of forloop02
-				// Unpin the space-map page.
-
-			unpinPage(pgid, false /* undirty */);
-
-		} // end of forloop01
-
-		if (current_run_length >= run_size) {
-			start_page_num.pid = current_run_start;
+		if (start >= 0) {
+			start_page_num.pid = start;
 			set_bits(start_page_num, run_size, 1);
+			next_fit = start + run_size;
 
 			return;
 		}
@@ -390,7 +435,9 @@ public class DB implements GlobalConst {
 	}
 
 	/**
-	 * Adds a file entry to the header page(s).
+	 * Adds a file entry to the header page(s). The file directory kept in
+	 * memory finds a duplicate and a free entry without reading the header
+	 * pages; only the page that receives the entry is written.
 	 *
 	 * @param fname
 	 *            file entry name
@@ -425,86 +472,23 @@ public class DB implements GlobalConst {
 
 		// Does the file already exist?
 
-		if (get_file_entry(fname) != null)
+		if (file_entries.containsKey(fname))
 			throw new DuplicateEntryException(null, "DB fileentry already exists");
 
-		Page apage = new Page();
-
-		boolean found = false;
-		int free_slot = 0;
-		PageId hpid = new PageId();
-		PageId nexthpid = new PageId(0);
-		DBHeaderPage dp;
-		do {// Start DO01
-			// System.out.println("start do01");
-			hpid.pid = nexthpid.pid;
-
-			// Pin the header page
-			pinPage(hpid, apage, false /* read disk */);
-
-			// This complication is because the first page has a different
-			// structure from that of subsequent pages.
-			if (hpid.pid == 0) {
-				dp = new DBFirstPage();
-				((DBFirstPage) dp).openPage(apage);
-			} else {
-				dp = new DBDirectoryPage();
-				((DBDirectoryPage) dp).openPage(apage);
-			}
-
-			nexthpid = dp.getNextPage();
-			int entry = 0;
-
-			PageId tmppid = new PageId();
-			while (entry < dp.getNumOfEntries()) {
-				dp.getFileEntry(tmppid, entry);
-				if (tmppid.pid == INVALID_PAGE)
-					break;
-				entry++;
-			}
-
-			if (entry < dp.getNumOfEntries()) {
-				free_slot = entry;
-				found = true;
-			} else if (nexthpid.pid != INVALID_PAGE) {
-				// We only unpin if we're going to continue looping.
-				unpinPage(hpid, false /* undirty */);
-			}
-
-		} while ((nexthpid.pid != INVALID_PAGE) && (!found)); // End of DO01
-
 		// Have to add a new header page if possible.
-		if (!found) {
-			try {
-				allocate_page(nexthpid);
-			} catch (Exception e) { // need rethrow an exception!!!!
-				unpinPage(hpid, false /* undirty */);
-				e.printStackTrace();
-			}
+		if (free_entries.isEmpty())
+			add_directory_page();
 
-			// Set the next-page pointer on the previous directory page.
-			dp.setNextPage(nexthpid);
-			unpinPage(hpid, true /* dirty */);
-
-			// Pin the newly-allocated directory page.
-			hpid.pid = nexthpid.pid;
-
-			pinPage(hpid, apage, true/* no diskIO */);
-			dp = new DBDirectoryPage(apage);
-
-			free_slot = 0;
-		}
-
-		// At this point, "hpid" has the page id of the header page with the
-		// free
-		// slot; "pg" points to the pinned page; "dp" has the directory_page
-		// pointer; "free_slot" is the entry number in the directory where we're
-		// going to put the new file entry.
-
-		dp.setFileEntry(start_page_num, fname, free_slot);
+		FileEntry entry = free_entries.poll();
+		entry.start = start_page_num.pid;
 
+		PageId hpid = new PageId(entry.hpid);
+		Page apage = new Page();
+		pinPage(hpid, apage, false /* read disk */);
+		open_header_page(hpid, apage).setFileEntry(start_page_num, fname, entry.slot);
 		unpinPage(hpid, true /* dirty */);
 
+		file_entries.put(fname, entry);
 	}
 
 	/**
@@ -527,60 +511,19 @@ public class DB implements GlobalConst {
 	public void delete_file_entry(String fname) throws FileEntryNotFoundException, IOException, FileIOException,
 			InvalidPageNumberException, DiskMgrException {
 
-		Page apage = new Page();
-		boolean found = false;
-		int slot = 0;
-		PageId hpid = new PageId();
-		PageId nexthpid = new PageId(0);
-		PageId tmppid = new PageId();
-		DBHeaderPage dp;
-
-		do { // startDO01
-			hpid.pid = nexthpid.pid;
-
-			// Pin the header page.
-			pinPage(hpid, apage, false/* read disk */);
-
-			// This complication is because the first page has a different
-			// structure from that of subsequent pages.
-			if (hpid.pid == 0) {
-				dp = new DBFirstPage();
-				((DBFirstPage) dp).openPage(apage);
-			} else {
-				dp = new DBDirectoryPage();
-				((DBDirectoryPage) dp).openPage(apage);
-			}
-			nexthpid = dp.getNextPage();
-
-			int entry = 0;
-
-			String tmpname;
-			while (entry < dp.getNumOfEntries()) {
-				tmpname = dp.getFileEntry(tmppid, entry);
-
-				if ((tmppid.pid != INVALID_PAGE) && (tmpname.compareTo(fname) == 0))
-					break;
-				entry++;
-			}
-
-			if (entry < dp.getNumOfEntries()) {
-				slot = entry;
-				found = true;
-			} else {
-				unpinPage(hpid, false /* undirty */);
-			}
-
-		} while ((nexthpid.pid != INVALID_PAGE) && (!found)); // EndDO01
-
-		if (!found) // Entry not found - nothing deleted
+		FileEntry entry = file_entries.remove(fname);
+		if (entry == null) // Entry not found - nothing deleted
 			throw new FileEntryNotFoundException(null, "DB file not found");
 
 		// Have to delete record at hpnum:slot
-		tmppid.pid = INVALID_PAGE;
-		dp.setFileEntry(tmppid, "\0", slot);
-
+		PageId hpid = new PageId(entry.hpid);
+		Page apage = new Page();
+		pinPage(hpid, apage, false /* read disk */);
+		open_header_page(hpid, apage).setFileEntry(new PageId(INVALID_PAGE), "\0", entry.slot);
 		unpinPage(hpid, true /* dirty */);
 
+		entry.start = INVALID_PAGE;
+		free_entries.add(entry);
 	}
 
 	/**
@@ -601,60 +544,83 @@ public class DB implements GlobalConst {
 	public PageId get_file_entry(String name)
 			throws IOException, FileIOException, InvalidPageNumberException, DiskMgrException {
 
+		FileEntry entry = file_entries.get(name);
+		if (entry == null) // Entry not found - don't post error, just fail.
+			return null;
+
+		return new PageId(entry.start);
+	}
+
+	/**
+	 * Read the file entries of all header pages into the file directory
+	 */
+	private void load_file_directory() throws IOException, DiskMgrException {
+		file_entries = new HashMap<String, FileEntry>();
+		free_entries = new ArrayDeque<FileEntry>();
+
 		Page apage = new Page();
-		boolean found = false;
-		int slot = 0;
 		PageId hpid = new PageId();
 		PageId nexthpid = new PageId(0);
-		DBHeaderPage dp;
-		
-		do {// Start DO01
-
-			// System.out.println("get_file_entry do-loop01: "+name);
+		PageId tmppid = new PageId();
+		do {
 			hpid.pid = nexthpid.pid;
-
-			// Pin the header page.
-			pinPage(hpid, apage, false /* no diskIO */);
-
-			// This complication is because the first page has a different
-			// structure from that of subsequent pages.
-			if (hpid.pid == 0) {
-				dp = new DBFirstPage();
-				((DBFirstPage) dp).openPage(apage);
-			} else {
-				dp = new DBDirectoryPage();
-				((DBDirectoryPage) dp).openPage(apage);
-			}
+			pinPage(hpid, apage, false /* read disk */);
+			DBHeaderPage dp = open_header_page(hpid, apage);
 			nexthpid = dp.getNextPage();
 
-			int entry = 0;
-			PageId tmppid = new PageId();
-			String tmpname;
-
-			while (entry < dp.getNumOfEntries()) {
-				tmpname = dp.getFileEntry(tmppid, entry);
-				if ((tmppid.pid != INVALID_PAGE) && (tmpname.compareTo(name) == 0))
-					break;
-				entry++;
-			}
-			if (entry < dp.getNumOfEntries()) {
-				slot = entry;
-				found = true;
+			// the name of an empty entry is not initialized, do not read it
+			for (int entry = 0; entry < dp.getNumOfEntries(); entry++) {
+				dp.getFileEntryPage(tmppid, entry);
+				if (tmppid.pid == INVALID_PAGE)
+					free_entries.add(new FileEntry(INVALID_PAGE, hpid.pid, entry));
+				else
+					file_entries.put(dp.getFileEntry(tmppid, entry), new FileEntry(tmppid.pid, hpid.pid, entry));
 			}
 
 			unpinPage(hpid, false /* undirty */);
+		} while (nexthpid.pid != INVALID_PAGE);
 
-		} while ((nexthpid.pid != INVALID_PAGE) && (!found));// End of DO01
+		last_dir_page = hpid.pid;
+	}
 
-		if (!found) // Entry not found - don't post error, just fail.
-		{
-			// System.out.println("entry NOT found");
-			return null;
-		}
+	/**
+	 * Chain a new directory page behind the last one and make its entries
+	 * free
+	 */
+	private void add_directory_page() throws OutOfSpaceException, InvalidRunSizeException,
+			InvalidPageNumberException, FileIOException, IOException, DiskMgrException {
+		PageId newpid = new PageId();
+		allocate_page(newpid);
 
-		PageId startpid = new PageId();
-		dp.getFileEntry(startpid, slot);
-		return startpid;
+		// Set the next-page pointer on the previous directory page.
+		PageId hpid = new PageId(last_dir_page);
+		Page apage = new Page();
+		pinPage(hpid, apage, false /* read disk */);
+		open_header_page(hpid, apage).setNextPage(newpid);
+		unpinPage(hpid, true /* dirty */);
+
+		pinPage(newpid, apage, true /* no diskIO */);
+		DBDirectoryPage dp = new DBDirectoryPage(apage);
+		for (int entry = 0; entry < dp.getNumOfEntries(); entry++)
+			free_entries.add(new FileEntry(INVALID_PAGE, newpid.pid, entry));
+		unpinPage(newpid, true /* dirty */);
+
+		last_dir_page = newpid.pid;
+	}
+
+	/**
+	 * The first page has a different structure from that of subsequent
+	 * pages
+	 */
+	private DBHeaderPage open_header_page(PageId hpid, Page apage) {
+		if (hpid.pid == 0) {
+			DBFirstPage dp = new DBFirstPage();
+			dp.openPage(apage);
+			return dp;
+		}
+		DBDirectoryPage dp = new DBDirectoryPage();
+		dp.openPage(apage);
+		return dp;
 	}
 
 	/**
@@ -669,7 +635,7 @@ public class DB implements GlobalConst {
 	}
 
 	public int db_page_size() {
-		return MINIBASE_PAGESIZE;
+		return page_size;
 	}
 
 	/**
@@ -751,8 +717,178 @@ public class DB implements GlobalConst {
 	}
 
 	private RandomAccessFile fp;
+	private PageIO io = PageIO.create(PageIO.DEFAULT);
 	private int num_pages;
 	private String name;
+	private int page_size = MINIBASE_PAGESIZE;
+	private int bits_per_page = MAX_SPACE * 8;
+
+	/** number of free pages tracked by each space-map page, null until loaded */
+	private int[] free_in_map;
+
+	/** where the next search for free pages starts */
+	private int next_fit = 0;
+
+	/**
+	 * The file directory, loaded from the header pages when the DB is opened
+	 * and written through to them: the entry of every file by name, the free
+	 * entries, and the last header page of the chain.
+	 */
+	private HashMap<String, FileEntry> file_entries;
+	private ArrayDeque<FileEntry> free_entries;
+	private int last_dir_page;
+
+	/**
+	 * A file entry slot on a header page and the first page of the file
+	 * stored there, INVALID_PAGE if the slot is free
+	 */
+	private static class FileEntry {
+		int start;
+		int hpid;
+		int slot;
+
+		FileEntry(int start, int hpid, int slot) {
+			this.start = start;
+			this.hpid = hpid;
+			this.slot = slot;
+		}
+	}
+
+	/**
+	 * Use a page size, which must be the one of the buffer pool
+	 */
+	private void setPageSize(int pageSize) throws DiskMgrException {
+		checkPageSize(pageSize);
+		if (SystemDefs.JavabaseBM != null && SystemDefs.JavabaseBM.getPageSize() != pageSize)
+			throw new DiskMgrException(null, "DB.java: page size " + pageSize
+					+ " differs from the buffer pool page size " + SystemDefs.JavabaseBM.getPageSize());
+		page_size = pageSize;
+		bits_per_page = pageSize * 8;
+	}
+
+	/**
+	 * Count the free pages of every space-map page
+	 */
+	private void load_space_summary() throws DiskMgrException, IOException {
+		int num_map_pages = (num_pages + bits_per_page - 1) / bits_per_page;
+		free_in_map = new int[num_map_pages];
+
+		PageId pgid = new PageId();
+		for (int i = 0; i < num_map_pages; ++i) {
+			pgid.pid = 1 + i;
+			Page apage = new Page();
+			pinPage(pgid, apage, false /* read disk */);
+			byte[] pagebuf = apage.getpage();
+
+			int num_bits_this_page = Math.min(num_pages - i * bits_per_page, bits_per_page);
+			int used = 0;
+			for (int bit = 0; bit < num_bits_this_page; bit += 64) {
+				long word = space_map_word(pagebuf, bit);
+				int n = num_bits_this_page - bit;
+				if (n < 64)
+					word &= (1L << n) - 1;
+				used += Long.bitCount(word);
+			}
+			free_in_map[i] = num_bits_this_page - used;
+
+			unpinPage(pgid, false /* undirty */);
+		}
+	}
+
+	/**
+	 * Find the first run of run_size free pages starting in [from, to)
+	 * 
+	 * @return the first page of the run, -1 if there is none
+	 */
+	private int find_free_run(int from, int to, int run_size) throws DiskMgrException, IOException {
+		if (run_size == 0)
+			return from;
+
+		int run_start = from;
+		int run_length = 0;
+		int pid = from;
+		// a run starting before to may end after it
+		int end = Math.min(to + run_size - 1, num_pages);
+
+		while (pid < end && (run_length > 0 || pid < to)) {
+			int map = pid / bits_per_page;
+			int map_end = Math.min((map + 1) * bits_per_page, num_pages);
+			int map_bits = map_end - map * bits_per_page;
+
+			if (free_in_map[map] == 0) {
+				// a full map page, no run goes through it
+				run_length = 0;
+				pid = map_end;
+				continue;
+			}
+			if (free_in_map[map] == map_bits) {
+				// an empty map page
+				if (run_length == 0)
+					run_start = pid;
+				run_length += map_end - pid;
+				if (run_length >= run_size)
+					return run_start;
+				pid = map_end;
+				continue;
+			}
+
+			PageId pgid = new PageId(1 + map);
+			Page apage = new Page();
+			pinPage(pgid, apage, false /* read disk */);
+			byte[] pagebuf = apage.getpage();
+
+			while (pid < map_end && (run_length > 0 || pid < to)) {
+				// the free pages among the next (at most) 64, starting at pid
+				int bit = pid - map * bits_per_page;
+				int shift = bit & 63;
+				int n = Math.min(64 - shift, map_end - pid);
+				long free = ~space_map_word(pagebuf, bit - shift) >>> shift;
+				if (n < 64)
+					free &= (1L << n) - 1;
+
+				int off = 0;
+				while (off < n) {
+					long rest = free >>> off;
+					if (run_length == 0) {
+						if (rest == 0)
+							break;
+						int skip = Long.numberOfTrailingZeros(rest);
+						off += skip;
+						rest >>>= skip;
+						run_start = pid + off;
+						if (run_start >= to)
+							break;
+					}
+					int ones = Math.min(Long.numberOfTrailingZeros(~rest), n - off);
+					run_length += ones;
+					off += ones;
+					if (run_length >= run_size) {
+						unpinPage(pgid, false /* undirty */);
+						return run_start;
+					}
+					if (off < n)
+						run_length = 0; // stopped by an allocated page
+				}
+				pid += n;
+			}
+
+			unpinPage(pgid, false /* undirty */);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * The 64 bits of a space-map page starting at a multiple of 64, page
+	 * bit_no in bit bit_no % 64
+	 */
+	private static long space_map_word(byte[] pagebuf, int bit_no) {
+		int pos = bit_no >>> 3;
+		long word = 0;
+		for (int i = 7; i >= 0; --i)
+			word = (word << 8) | (pagebuf[pos + i] & 0xff);
+		return word;
+	}
 
 	/**
 	 * Set runsize bits starting from start to value specified
@@ -798,22 +934,20 @@ public class DB implements GlobalConst {
 				int max_bits_this_byte = 8 - first_bit_offset;
 				int num_bits_this_byte = (run_size > max_bits_this_byte ? max_bits_this_byte : run_size);
 
-				int imask = 1;
+				int bytemask = ((1 << num_bits_this_byte) - 1) << first_bit_offset;
+				int old = pgbuf[cur_posi] & 0xff;
 				int temp;
-				imask = ((imask << num_bits_this_byte) - 1) << first_bit_offset;
-				Integer intmask = new Integer(imask);
-				Byte mask = new Byte(intmask.byteValue());
-				byte bytemask = mask.byteValue();
-
-				if (bit == 1) {
-					temp = (pgbuf[cur_posi] | bytemask);
-					intmask = new Integer(temp);
-					pgbuf[cur_posi] = intmask.byteValue();
-				} else {
-
-					temp = pgbuf[cur_posi] & (255 ^ bytemask);
-					intmask = new Integer(temp);
-					pgbuf[cur_posi] = intmask.byteValue();
+
+				if (bit == 1)
+					temp = old | bytemask;
+				else
+					temp = old & (255 ^ bytemask);
+				pgbuf[cur_posi] = (byte) temp;
+
+				// keep the free page count of the map page up to date
+				if (free_in_map != null) {
+					int flipped = Integer.bitCount(old ^ temp);
+					free_in_map[pgid.pid - 1] += (bit == 1) ? -flipped : flipped;
 				}
 				run_size -= num_bits_this_byte;
 
@@ -864,7 +998,7 @@ public class DB implements GlobalConst {
  */
 interface PageUsedBytes {
 	int DIR_PAGE_USED_BYTES = 8 + 8;
-	int FIRST_PAGE_USED_BYTES = DIR_PAGE_USED_BYTES + 4;
+	int FIRST_PAGE_USED_BYTES = DIR_PAGE_USED_BYTES + 4 + 4;
 }
 
 /**
@@ -902,13 +1036,20 @@ class DBHeaderPage implements PageUsedBytes, GlobalConst {
 
 		PageId temppid = getNextPage();
 
-		int num_entries = (MAX_SPACE - pageusedbytes) / SIZE_OF_FILE_ENTRY;
+		int num_entries = (data.length - pageusedbytes) / SIZE_OF_FILE_ENTRY;
 		setNumOfEntries(num_entries);
 
 		for (int index = 0; index < num_entries; ++index)
 			initFileEntry(INVALID_PAGE, index);
 	}
 
+	/**
+	 * return the offset of the first file entry on the page
+	 */
+	protected int firstFileEntry() {
+		return START_FILE_ENTRIES;
+	}
+
 	/**
 	 * set the next page number
 	 * 
@@ -969,7 +1110,7 @@ class DBHeaderPage implements PageUsedBytes, GlobalConst {
 	 *                I/O errors
 	 */
 	private void initFileEntry(int empty, int entryNo) throws IOException {
-		int position = START_FILE_ENTRIES + entryNo * SIZE_OF_FILE_ENTRY;
+		int position = firstFileEntry() + entryNo * SIZE_OF_FILE_ENTRY;
 		Convert.setIntValue(empty, position, data);
 	}
 
@@ -987,11 +1128,27 @@ class DBHeaderPage implements PageUsedBytes, GlobalConst {
 	 */
 	public void setFileEntry(PageId pageNo, String fname, int entryNo) throws IOException {
 
-		int position = START_FILE_ENTRIES + entryNo * SIZE_OF_FILE_ENTRY;
+		int position = firstFileEntry() + entryNo * SIZE_OF_FILE_ENTRY;
 		Convert.setIntValue(pageNo.pid, position, data);
 		Convert.setStrValue(fname, position + 4, data);
 	}
 
+	/**
+	 * return the page of a file entry without reading its name
+	 * 
+	 * @param pageno
+	 *            page Id
+	 * @param entryNo
+	 *            the file entry number
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void getFileEntryPage(PageId pageNo, int entryNo) throws IOException {
+
+		int position = firstFileEntry() + entryNo * SIZE_OF_FILE_ENTRY;
+		pageNo.pid = Convert.getIntValue(position, data);
+	}
+
 	/**
 	 * return file entry info
 	 * 
@@ -1005,7 +1162,7 @@ class DBHeaderPage implements PageUsedBytes, GlobalConst {
 	 */
 	public String getFileEntry(PageId pageNo, int entryNo) throws IOException {
 
-		int position = START_FILE_ENTRIES + entryNo * SIZE_OF_FILE_ENTRY;
+		int position = firstFileEntry() + entryNo * SIZE_OF_FILE_ENTRY;
 		pageNo.pid = Convert.getIntValue(position, data);
 		return (Convert.getStrValue(position + 4, data, MAX_NAME + 2));
 	}
@@ -1017,7 +1174,7 @@ class DBHeaderPage implements PageUsedBytes, GlobalConst {
  */
 class DBFirstPage extends DBHeaderPage {
 
-	protected static final int NUM_DB_PAGE = MINIBASE_PAGESIZE - 4;
+	protected static final int PAGE_SIZE = START_FILE_ENTRIES;
 
 	/**
 	 * Default construtor
@@ -1048,6 +1205,36 @@ class DBFirstPage extends DBHeaderPage {
 		data = page.getpage();
 	}
 
+	/**
+	 * the file entries follow the page size
+	 */
+	protected int firstFileEntry() {
+		return START_FILE_ENTRIES + 4;
+	}
+
+	/**
+	 * set the page size of the DB
+	 * 
+	 * @param pageSize
+	 *            the page size in bytes
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void setPageSize(int pageSize) throws IOException {
+		Convert.setIntValue(pageSize, PAGE_SIZE, data);
+	}
+
+	/**
+	 * return the page size of the DB
+	 * 
+	 * @return page size in bytes
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public int getPageSize() throws IOException {
+		return Convert.getIntValue(PAGE_SIZE, data);
+	}
+
 	/**
 	 * set number of pages in the DB
 	 * 
@@ -1057,7 +1244,7 @@ class DBFirstPage extends DBHeaderPage {
 	 *                I/O errors
 	 */
 	public void setNumDBPages(int num) throws IOException {
-		Convert.setIntValue(num, NUM_DB_PAGE, data);
+		Convert.setIntValue(num, data.length - 4, data);
 	}
 
 	/**
@@ -1069,7 +1256,7 @@ class DBFirstPage extends DBHeaderPage {
 	 */
 	public int getNumDBPages() throws IOException {
 
-		return (Convert.getIntValue(NUM_DB_PAGE, data));
+		return (Convert.getIntValue(data.length - 4, data));
 	}
 
 }
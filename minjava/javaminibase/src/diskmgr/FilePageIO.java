@@ -0,0 +1,26 @@
+/* File FilePageIO.java */
+
+package diskmgr;
+
+import java.io.*;
+
+/**
+ * Page I/O with RandomAccessFile.seek and read/write, two system calls per
+ * page.
+ */
+class FilePageIO extends PageIO {
+
+	public void read(int pid, byte[] data) throws IOException {
+		file.seek(offset(pid));
+		file.read(data);
+	}
+
+	public void write(int pid, byte[] data) throws IOException {
+		file.seek(offset(pid));
+		file.write(data);
+	}
+
+	public String name() {
+		return "File";
+	}
+}
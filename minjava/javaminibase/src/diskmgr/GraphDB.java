@@ -1,33 +1,76 @@
 package diskmgr;
 
+import java.io.BufferedReader;
+import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 
 import zIndex.ZTreeFile;
 
+import zIndex.DescriptorKey;
 import btree.AddFileEntryException;
+import btree.BT;
 import btree.BTreeFile;
 import btree.ConstructPageException;
 import btree.GetFileEntryException;
+import btree.IntegerKey;
+import btree.KeyClass;
+import btree.KeyDataEntry;
+import btree.KeyNotMatchException;
+import btree.LeafData;
 import btree.PinPageException;
+import btree.StringKey;
+import bufmgr.BufferRing;
 
+import edgeheap.AdjacencyFile;
+import edgeheap.EScan;
+import edgeheap.Edge;
 import edgeheap.EdgeHeapfile;
 import global.AttrType;
+import global.Descriptor;
+import global.EID;
 import global.GlobalConst;
+import global.NID;
+import global.PageId;
+import global.RID;
+import global.TupleOrder;
 import heap.FieldNumberOutOfBoundException;
+import heap.Heapfile;
 import heap.InvalidTypeException;
+import heap.Tuple;
+import iterator.FileScan;
+import iterator.FldSpec;
+import iterator.RelSpec;
+import iterator.Sort;
 import nodeheap.HFBufMgrException;
 import nodeheap.HFDiskMgrException;
 import nodeheap.HFException;
 import nodeheap.InvalidSlotNumberException;
 import nodeheap.InvalidTupleSizeException;
+import nodeheap.LabelHashFile;
+import nodeheap.NScan;
+import nodeheap.Node;
 import nodeheap.NodeHeapfile;
 
 
 public class GraphDB extends DB implements GlobalConst{
 	private static String NODEFILENAME = "nodeheapfile";
 	private static String EDGEFILENAME = "edgeheapfile";
+	private static String LABELFILENAME = "labeldictionary";
+	private static String ADJACENCYFILENAME = "edgeadjacency";
+	private static String LABELHASHFILENAME = "nodelabelhash";
+	/** the longest label, in the label indexes and wherever a label is a string field */
+	public static final short LABEL_SIZE = 44;
+	/** how full rebuildIndexes fills the index pages, leaving room for inserts */
+	public static final double INDEX_FILL_FACTOR = 0.9;
 	public NodeHeapfile nodeHeapfile;
 	public EdgeHeapfile edgeHeapfile;
+	public LabelDictionary labelDictionary;
+	public AdjacencyFile adjacencyFile;
+	public LabelHashFile nodeLabelHashFile;
 	public BTreeFile nodeLabelIndexFile;
 	public ZTreeFile nodeDescriptorIndexFile;
 	public BTreeFile edgeLabelIndexFile;
@@ -39,9 +82,9 @@ public class GraphDB extends DB implements GlobalConst{
 		super();
 	}
 	
-	public void openDB(String fname, int num_pgs)
+	public void openDB(String fname, int num_pgs, int page_size)
 			throws IOException, InvalidPageNumberException, FileIOException, DiskMgrException {
-		super.openDB(fname, num_pgs);
+		super.openDB(fname, num_pgs, page_size);
 		try {
 			createFiles();
 			createIndexFiles();
@@ -60,23 +103,264 @@ public class GraphDB extends DB implements GlobalConst{
 		}
 	}
 
-	private void createFiles() throws HFException, HFBufMgrException, HFDiskMgrException, IOException, 
-		GetFileEntryException, ConstructPageException, AddFileEntryException, edgeheap.HFException, 
-		edgeheap.HFBufMgrException, edgeheap.HFDiskMgrException, PinPageException {
+	private void createFiles() throws Exception {
 		this.nodeHeapfile = new NodeHeapfile(NODEFILENAME);
 		this.edgeHeapfile = new EdgeHeapfile(EDGEFILENAME);
+		// the dictionary and the two indexes take no page until the first
+		// label, edge or node is added
+		this.labelDictionary = new LabelDictionary(LABELFILENAME);
+		this.adjacencyFile = new AdjacencyFile(ADJACENCYFILENAME, labelDictionary);
+		this.edgeHeapfile.setAdjacencyFile(adjacencyFile);
+		this.nodeLabelHashFile = new LabelHashFile(LABELHASHFILENAME);
+		this.nodeHeapfile.setLabelHashFile(nodeLabelHashFile);
 	}
 	
 	private void createIndexFiles() throws GetFileEntryException, ConstructPageException, AddFileEntryException, IOException, PinPageException {
-		this.nodeLabelIndexFile = new BTreeFile("NodeLabel", AttrType.attrString, 44, 1);
+		this.nodeLabelIndexFile = new BTreeFile("NodeLabel", AttrType.attrString, LABEL_SIZE, 1);
 		this.nodeDescriptorIndexFile = new ZTreeFile("NodeDescriptor",AttrType.attrDesc,20,1);
-		this.edgeLabelIndexFile = new BTreeFile("EdgeLabel", AttrType.attrString, 44, 1);
+		this.edgeLabelIndexFile = new BTreeFile("EdgeLabel", AttrType.attrString, LABEL_SIZE, 1);
 		this.edgeWeightIndexFile = new BTreeFile("EdgeWeight", AttrType.attrInteger, 4, 0);
-		this.edgeSourceIndexFile = new BTreeFile("EdgeSourceLabel", AttrType.attrString, 44, 1);
-		this.edgeDestinationIndexFile = new BTreeFile("EdgeDestinationLabel", AttrType.attrString, 44, 1);
+		this.edgeSourceIndexFile = new BTreeFile("EdgeSourceLabel", AttrType.attrInteger, 4, 1);
+		this.edgeDestinationIndexFile = new BTreeFile("EdgeDestinationLabel", AttrType.attrInteger, 4, 1);
 		
 	}
+
+	/**
+	 * The key of a node label in the edge source and destination indexes:
+	 * the id of the label in the label dictionary. To look an edge up.
+	 *
+	 * @param label
+	 *            the label of the source or destination node
+	 * @return the key; it matches no edge if the label is not in the
+	 *         dictionary
+	 */
+	public IntegerKey endpointKey(String label) {
+		return new IntegerKey(labelDictionary.getId(label));
+	}
+
+	/**
+	 * The key of a node label in the edge source and destination indexes,
+	 * adding the label to the label dictionary if it is not there yet. To
+	 * insert an edge.
+	 *
+	 * @param label
+	 *            the label of the source or destination node
+	 * @return the key
+	 * @exception DiskMgrException
+	 *                error from the buffer manager
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public IntegerKey newEndpointKey(String label) throws DiskMgrException, IOException {
+		return new IntegerKey(labelDictionary.addLabel(label));
+	}
 	
+	/**
+	 * Load the nodes of a node file. Each line holds the label of a node
+	 * followed by the five values of its descriptor, separated by blanks.
+	 * The file is read a line at a time and the nodes are appended to the
+	 * node heap file; the indexes are left alone, call rebuildIndexes once
+	 * all the files are loaded. Lines that can not be parsed are reported
+	 * and skipped.
+	 *
+	 * @param fileName
+	 *            the node file
+	 * @return the number of nodes loaded
+	 * @exception Exception
+	 *                error reading the file or writing the nodes
+	 */
+	public int bulkLoadNodes(String fileName) throws Exception {
+		Node node = new Node();
+		Descriptor desc = new Descriptor();
+		int count = 0;
+
+		BufferedReader in = new BufferedReader(new FileReader(fileName));
+		try {
+			String line;
+			for (int lineNo = 1; (line = in.readLine()) != null; lineNo++) {
+				String[] vals = fields(line);
+				if (vals.length == 0)
+					continue;
+				try {
+					desc.set(Integer.parseInt(vals[1]), Integer.parseInt(vals[2]), Integer.parseInt(vals[3]),
+							Integer.parseInt(vals[4]), Integer.parseInt(vals[5]));
+				} catch (RuntimeException e) {
+					skipLine(fileName, lineNo, line);
+					continue;
+				}
+				node.setLabelId(labelDictionary.addLabel(vals[0]));
+				node.setDesc(desc);
+				nodeHeapfile.insertNode(node.getNodeByteArray());
+				count++;
+			}
+		} finally {
+			in.close();
+		}
+		return count;
+	}
+
+	/**
+	 * Load the edges of an edge file. Each line holds the labels of the
+	 * source and destination nodes, the label of the edge and its weight,
+	 * separated by blanks. The node labels are resolved through a map built
+	 * by one scan of the node heap file, so the nodes must be loaded first.
+	 * The edges are appended to the edge heap file and the adjacency file is
+	 * then built again from it in one go; the indexes are left alone, call
+	 * rebuildIndexes once all the files are loaded. Lines that can not be
+	 * parsed or name an unknown node are reported and skipped.
+	 *
+	 * @param fileName
+	 *            the edge file
+	 * @return the number of edges loaded
+	 * @exception Exception
+	 *                error reading the file or writing the edges
+	 */
+	public int bulkLoadEdges(String fileName) throws Exception {
+		HashMap<String, NID> nids = nodesByLabel();
+		Edge edge = new Edge();
+		int count = 0;
+
+		BufferedReader in = new BufferedReader(new FileReader(fileName));
+		edgeHeapfile.setAdjacencyFile(null);
+		try {
+			String line;
+			for (int lineNo = 1; (line = in.readLine()) != null; lineNo++) {
+				String[] vals = fields(line);
+				if (vals.length == 0)
+					continue;
+				NID source = null, dest = null;
+				int weight = 0;
+				if (vals.length >= 4) {
+					source = nids.get(vals[0]);
+					dest = nids.get(vals[1]);
+					try {
+						weight = Integer.parseInt(vals[3]);
+					} catch (NumberFormatException e) {
+						source = null;
+					}
+				}
+				if (source == null || dest == null) {
+					skipLine(fileName, lineNo, line);
+					continue;
+				}
+				edge.setLabelId(labelDictionary.addLabel(vals[2]));
+				edge.setSource(source);
+				edge.setDestination(dest);
+				edge.setWeight(weight);
+				edgeHeapfile.insertEdge(edge.getEdgeByteArray());
+				count++;
+			}
+		} finally {
+			in.close();
+			edgeHeapfile.setAdjacencyFile(adjacencyFile);
+		}
+		adjacencyFile.build(edgeHeapfile);
+		return count;
+	}
+
+	/**
+	 * Build the six indexes again from the node and edge heap files, after a
+	 * bulk load. One scan of each heap file collects the entries of its
+	 * indexes, which are sorted on the key in memory, or with the external
+	 * Sort through a temporary file when an index has too many of them; the
+	 * index is then built bottom-up from the sorted entries, its pages
+	 * filled to INDEX_FILL_FACTOR.
+	 *
+	 * @exception Exception
+	 *                error reading the heap files or writing the indexes
+	 */
+	public void rebuildIndexes() throws Exception {
+		IndexEntries nodeLabels = new IndexEntries("NodeLabel", AttrType.attrString);
+		IndexEntries nodeDescs = new IndexEntries("NodeDescriptor", AttrType.attrDesc);
+		IndexEntries edgeLabels = new IndexEntries("EdgeLabel", AttrType.attrString);
+		IndexEntries edgeWeights = new IndexEntries("EdgeWeight", AttrType.attrInteger);
+		IndexEntries edgeSources = new IndexEntries("EdgeSourceLabel", AttrType.attrInteger);
+		IndexEntries edgeDests = new IndexEntries("EdgeDestinationLabel", AttrType.attrInteger);
+
+		// the label id of every node, for the source and destination indexes
+		HashMap<Long, Integer> labels = new HashMap<Long, Integer>();
+
+		NScan nscan = nodeHeapfile.openScan(new BufferRing());
+		NID nid = new NID();
+		Node node;
+		try {
+			while ((node = nscan.getNextView(nid)) != null) {
+				nodeLabels.add(node.getLabel(), nid);
+				nodeDescs.add(node.getDesc(), nid);
+				labels.put(nodeKey(nid), node.getLabelId());
+			}
+		} finally {
+			nscan.closescan();
+		}
+
+		EScan escan = edgeHeapfile.openScan(new BufferRing());
+		EID eid = new EID();
+		Edge edge;
+		try {
+			while ((edge = escan.getNextView(eid)) != null) {
+				edgeLabels.add(edge.getLabel(), eid);
+				edgeWeights.add(edge.getWeight(), eid);
+				Integer source = labels.get(nodeKey(edge.getSource()));
+				if (source != null)
+					edgeSources.add(source.intValue(), eid);
+				Integer dest = labels.get(nodeKey(edge.getDestination()));
+				if (dest != null)
+					edgeDests.add(dest.intValue(), eid);
+			}
+		} finally {
+			escan.closescan();
+		}
+
+		nodeLabelIndexFile.destroyFile();
+		nodeDescriptorIndexFile.destroyFile();
+		edgeLabelIndexFile.destroyFile();
+		edgeWeightIndexFile.destroyFile();
+		edgeSourceIndexFile.destroyFile();
+		edgeDestinationIndexFile.destroyFile();
+		createIndexFiles();
+
+		nodeLabels.load(nodeLabelIndexFile);
+		nodeDescs.load(nodeDescriptorIndexFile);
+		edgeLabels.load(edgeLabelIndexFile);
+		edgeWeights.load(edgeWeightIndexFile);
+		edgeSources.load(edgeSourceIndexFile);
+		edgeDests.load(edgeDestinationIndexFile);
+	}
+
+	// the node with each label, the first one in the heap file if several
+	// have the same label
+	private HashMap<String, NID> nodesByLabel() throws Exception {
+		HashMap<String, NID> nids = new HashMap<String, NID>();
+		NScan scan = nodeHeapfile.openScan(new BufferRing());
+		NID nid = new NID();
+		Node node;
+		try {
+			while ((node = scan.getNextView(nid)) != null) {
+				String label = node.getLabel();
+				if (!nids.containsKey(label))
+					nids.put(label, new NID(new PageId(nid.pageNo.pid), nid.slotNo));
+			}
+		} finally {
+			scan.closescan();
+		}
+		return nids;
+	}
+
+	// the page number goes above the 16 bits of the slot number; shifted by
+	// 32 the key hashed to page ^ slot and the nodes fell into few buckets
+	private static long nodeKey(NID nid) {
+		return ((long) nid.pageNo.pid << 16) | nid.slotNo;
+	}
+
+	private static String[] fields(String line) {
+		line = line.trim();
+		return line.length() == 0 ? new String[0] : line.split("\\s+");
+	}
+
+	private static void skipLine(String fileName, int lineNo, String line) {
+		System.err.println("*** Skipping line " + lineNo + " of " + fileName + ": " + line);
+	}
+
 	public int getNodeCnt() throws InvalidSlotNumberException, InvalidTupleSizeException, HFDiskMgrException, 
 		HFBufMgrException, IOException, HFException, InvalidTypeException, heap.InvalidTupleSizeException{
 		int iNodeCnt = 0;
@@ -120,4 +404,164 @@ public class GraphDB extends DB implements GlobalConst{
 		iLabelCnt = nodeHeapfile.getLabelCnt() + edgeHeapfile.getLabelCnt();
 		return iLabelCnt;
 	}
+
+	/*
+	 * The entries of one index while it is rebuilt. Up to MEMORY_ENTRIES of
+	 * them are kept in memory and sorted there, on the key and then on the
+	 * record id. Past that they all go as (key, page, slot) tuples to a
+	 * temporary heap file, sorted on the key by the external Sort and handed
+	 * to the bulk load of the index; a descriptor is then sorted as the hex
+	 * string of its Z-order key, which sorts in the order of the key.
+	 */
+	private static class IndexEntries implements java.util.Iterator<KeyDataEntry> {
+		private static final int MIN_SORT_PAGES = 64;
+		private static final int MEMORY_ENTRIES = 1 << 18;
+
+		private String fileName;
+		private int keyType;
+		private AttrType[] types;
+		private short[] strSizes;
+		private ArrayList<KeyDataEntry> entries = new ArrayList<KeyDataEntry>();
+		private Heapfile file;
+		private Tuple tuple;
+		private int count = 0;
+		private Sort sort;
+		private Tuple next;
+
+		IndexEntries(String indexName, int keyType) throws Exception {
+			this.fileName = indexName + ".entries";
+			this.keyType = keyType;
+			int sortType = keyType == AttrType.attrInteger ? AttrType.attrInteger : AttrType.attrString;
+			types = new AttrType[] { new AttrType(sortType), new AttrType(AttrType.attrInteger),
+					new AttrType(AttrType.attrInteger) };
+			strSizes = sortType == AttrType.attrString ? new short[] { 44 } : new short[0];
+
+			// a file left behind by a rebuild that did not finish
+			new Heapfile(fileName).deleteFile();
+		}
+
+		void add(String key, RID rid) throws Exception {
+			add(new StringKey(key), rid);
+		}
+
+		void add(int key, RID rid) throws Exception {
+			add(new IntegerKey(key), rid);
+		}
+
+		void add(Descriptor key, RID rid) throws Exception {
+			add(new DescriptorKey(key), rid);
+		}
+
+		private void add(KeyClass key, RID rid) throws Exception {
+			count++;
+			if (file == null && entries.size() < MEMORY_ENTRIES) {
+				entries.add(new KeyDataEntry(key, new RID(new PageId(rid.pageNo.pid), rid.slotNo)));
+				return;
+			}
+			if (file == null)
+				spill();
+			write(key, rid);
+		}
+
+		// move the entries in memory to the file, where the others follow
+		private void spill() throws Exception {
+			file = new Heapfile(fileName);
+			tuple = new Tuple();
+			tuple.setHdr((short) 3, types, strSizes);
+			tuple = new Tuple(tuple.size());
+			tuple.setHdr((short) 3, types, strSizes);
+			for (KeyDataEntry entry : entries)
+				write(entry.key, ((LeafData) entry.data).getData());
+			entries = null;
+		}
+
+		private void write(KeyClass key, RID rid) throws Exception {
+			if (key instanceof IntegerKey) {
+				tuple.setIntFld(1, ((IntegerKey) key).getKey().intValue());
+			} else if (key instanceof DescriptorKey) {
+				byte[] code = new byte[DescriptorKey.KEY_SIZE];
+				((DescriptorKey) key).writeTo(code, 0);
+				StringBuilder hex = new StringBuilder(2 * code.length);
+				for (byte b : code)
+					hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+				tuple.setStrFld(1, hex.toString());
+			} else {
+				tuple.setStrFld(1, ((StringKey) key).getKey());
+			}
+			tuple.setIntFld(2, rid.pageNo.pid);
+			tuple.setIntFld(3, rid.slotNo);
+			file.insertRecord(tuple.getTupleByteArray());
+		}
+
+		// sort the entries, build the index from them and drop the file
+		void load(BTreeFile index) throws Exception {
+			if (file == null) {
+				Collections.sort(entries, new Comparator<KeyDataEntry>() {
+					public int compare(KeyDataEntry a, KeyDataEntry b) {
+						int c;
+						try {
+							c = BT.keyCompare(a.key, b.key);
+						} catch (KeyNotMatchException e) {
+							throw new IllegalStateException("GraphDB.java: comparing the index entries failed", e);
+						}
+						if (c != 0)
+							return c;
+						RID ra = ((LeafData) a.data).getData(), rb = ((LeafData) b.data).getData();
+						return ra.pageNo.pid != rb.pageNo.pid ? Integer.compare(ra.pageNo.pid, rb.pageNo.pid)
+								: Integer.compare(ra.slotNo, rb.slotNo);
+					}
+				});
+				index.bulkLoad(entries.iterator(), INDEX_FILL_FACTOR);
+				entries = null;
+				return;
+			}
+
+			FldSpec[] proj = { new FldSpec(new RelSpec(RelSpec.outer), 1),
+					new FldSpec(new RelSpec(RelSpec.outer), 2), new FldSpec(new RelSpec(RelSpec.outer), 3) };
+			// Sort merges all its runs at once with a buffer page per run,
+			// and a run holds at least 2000 tuples whatever the buffer size
+			int sortPages = Math.max(MIN_SORT_PAGES, count / 1000 + 8);
+
+			FileScan scan = new FileScan(fileName, types, strSizes, (short) 3, 3, proj, null);
+			sort = new Sort(types, (short) 3, strSizes, scan, 1, new TupleOrder(TupleOrder.Ascending),
+					strSizes.length > 0 ? strSizes[0] : 4, sortPages, 0, null);
+			try {
+				next = sort.get_next();
+				index.bulkLoad(this, INDEX_FILL_FACTOR);
+			} finally {
+				sort.close();
+			}
+			file.deleteFile();
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public KeyDataEntry next() {
+			try {
+				KeyClass key;
+				if (keyType == AttrType.attrInteger) {
+					key = new IntegerKey(next.getIntFld(1));
+				} else if (keyType == AttrType.attrDesc) {
+					String hex = next.getStrFld(1);
+					byte[] code = new byte[DescriptorKey.KEY_SIZE];
+					for (int i = 0; i < code.length; i++)
+						code[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+					key = new DescriptorKey(code, 0);
+				} else {
+					key = new StringKey(next.getStrFld(1));
+				}
+				RID rid = new RID(new PageId(next.getIntFld(2)), next.getIntFld(3));
+				next = sort.get_next();
+				return new KeyDataEntry(key, rid);
+			} catch (Exception e) {
+				throw new IllegalStateException("GraphDB.java: reading the sorted index entries failed", e);
+			}
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
 }
@@ -0,0 +1,242 @@
+/* File LabelDictionary.java */
+
+package diskmgr;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import global.Convert;
+import global.GlobalConst;
+import global.PageId;
+import global.SystemDefs;
+
+/**
+ * A persistent dictionary that maps label strings to dense integer ids.
+ * <p>
+ * The dictionary is kept in a chain of pages registered in the DB file
+ * directory. Every page starts with the id of the next page in the chain and
+ * the number of bytes in use; the labels follow, each one written as a
+ * modified UTF-8 string (2 byte length followed by the bytes). The id of a
+ * label is its position in the chain, so ids are stable and are never
+ * reused. The whole chain is loaded into memory when the dictionary is
+ * opened; new labels are appended to the last page and written through the
+ * buffer manager. The first page is only allocated when the first label is
+ * added, so a database without labels has no dictionary pages.
+ */
+public class LabelDictionary implements GlobalConst {
+
+	private static final int NEXT_PAGE = 0;
+	private static final int USED_PTR = 4;
+	private static final int DPFIXED = 8;
+
+	private String _fileName;
+	private PageId _firstPageId;
+	private PageId _lastPageId;
+	private int _lastPageUsed;
+
+	private HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	private ArrayList<String> labels = new ArrayList<String>();
+
+	/**
+	 * Open the dictionary with the given file name. If it does not exist yet
+	 * it is empty, and it is created when the first label is added.
+	 *
+	 * @param name
+	 *            the file name of the dictionary
+	 * @exception DiskMgrException
+	 *                error from the buffer manager or the file directory
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public LabelDictionary(String name) throws DiskMgrException, IOException {
+		_fileName = name;
+		_firstPageId = get_file_entry(name);
+		if (_firstPageId == null)
+			return;
+
+		// load the whole chain into memory
+		Page apage = new Page();
+		PageId pageId = new PageId(_firstPageId.pid);
+		while (true) {
+			pinPage(pageId, apage);
+			byte[] data = apage.getpage();
+			int used = Convert.getIntValue(USED_PTR, data);
+			int pos = DPFIXED;
+			while (pos < used) {
+				int len = Convert.getShortValue(pos, data) + 2;
+				register(Convert.getStrValue(pos, data, len));
+				pos += len;
+			}
+			int next = Convert.getIntValue(NEXT_PAGE, data);
+			unpinPage(pageId, false /* undirty */);
+
+			if (next == INVALID_PAGE) {
+				_lastPageId = pageId;
+				_lastPageUsed = used;
+				break;
+			}
+			pageId = new PageId(next);
+		}
+	}
+
+	/**
+	 * @return the id of the label, or -1 if the label is not in the
+	 *         dictionary
+	 */
+	public int getId(String label) {
+		Integer id = ids.get(label);
+		return id == null ? -1 : id.intValue();
+	}
+
+	/**
+	 * @return the label with the given id, or null if there is no such id
+	 */
+	public String getLabel(int id) {
+		if (id < 0 || id >= labels.size())
+			return null;
+		return labels.get(id);
+	}
+
+	/**
+	 * @return the number of labels in the dictionary
+	 */
+	public int size() {
+		return labels.size();
+	}
+
+	/**
+	 * Return the id of a label, adding it to the dictionary first if it is
+	 * not there yet.
+	 *
+	 * @param label
+	 *            the label to look up
+	 * @exception DiskMgrException
+	 *                error from the buffer manager
+	 * @exception IOException
+	 *                I/O errors
+	 * @return the id of the label
+	 */
+	public int addLabel(String label) throws DiskMgrException, IOException {
+		Integer id = ids.get(label);
+		if (id != null)
+			return id.intValue();
+
+		int len = Convert.getStrLength(label);
+		Page apage = new Page();
+		if (DPFIXED + len > apage.getpagesize())
+			throw new DiskMgrException(null, "LabelDictionary.java: label too long");
+
+		if (_firstPageId == null) {
+			// the first label, create the file
+			_firstPageId = newPage(apage);
+			add_file_entry(_fileName, _firstPageId);
+			initPage(apage);
+			unpinPage(_firstPageId, true /* dirty */);
+			_lastPageId = _firstPageId;
+			_lastPageUsed = DPFIXED;
+		}
+
+		if (_lastPageUsed + len > apage.getpagesize()) {
+			// last page is full, chain a new one behind it
+			PageId newPageId = newPage(apage);
+			initPage(apage);
+			unpinPage(newPageId, true /* dirty */);
+
+			pinPage(_lastPageId, apage);
+			Convert.setIntValue(newPageId.pid, NEXT_PAGE, apage.getpage());
+			unpinPage(_lastPageId, true /* dirty */);
+
+			_lastPageId = newPageId;
+			_lastPageUsed = DPFIXED;
+		}
+
+		pinPage(_lastPageId, apage);
+		byte[] data = apage.getpage();
+		Convert.setStrValue(label, _lastPageUsed, data);
+		_lastPageUsed += len;
+		Convert.setIntValue(_lastPageUsed, USED_PTR, data);
+		unpinPage(_lastPageId, true /* dirty */);
+
+		return register(label);
+	}
+
+	private int register(String label) {
+		int id = labels.size();
+		labels.add(label);
+		ids.put(label, id);
+		return id;
+	}
+
+	private void initPage(Page apage) throws IOException {
+		byte[] data = apage.getpage();
+		Convert.setIntValue(INVALID_PAGE, NEXT_PAGE, data);
+		Convert.setIntValue(DPFIXED, USED_PTR, data);
+	}
+
+	/**
+	 * short cut to access the pinPage function in bufmgr package.
+	 *
+	 * @see bufmgr.pinPage
+	 */
+	private void pinPage(PageId pageno, Page page) throws DiskMgrException {
+
+		try {
+			SystemDefs.JavabaseBM.pinPage(pageno, page, false /* read disk */);
+		} catch (Exception e) {
+			throw new DiskMgrException(e, "LabelDictionary.java: pinPage() failed");
+		}
+
+	} // end of pinPage
+
+	/**
+	 * short cut to access the unpinPage function in bufmgr package.
+	 *
+	 * @see bufmgr.unpinPage
+	 */
+	private void unpinPage(PageId pageno, boolean dirty) throws DiskMgrException {
+
+		try {
+			SystemDefs.JavabaseBM.unpinPage(pageno, dirty);
+		} catch (Exception e) {
+			throw new DiskMgrException(e, "LabelDictionary.java: unpinPage() failed");
+		}
+
+	} // end of unpinPage
+
+	private PageId newPage(Page page) throws DiskMgrException {
+
+		PageId tmpId;
+
+		try {
+			tmpId = SystemDefs.JavabaseBM.newPage(page, 1);
+		} catch (Exception e) {
+			throw new DiskMgrException(e, "LabelDictionary.java: newPage() failed");
+		}
+
+		if (tmpId == null)
+			throw new DiskMgrException(null, "LabelDictionary.java: can't new page");
+		return tmpId;
+
+	} // end of newPage
+
+	private PageId get_file_entry(String filename) throws DiskMgrException {
+
+		try {
+			return SystemDefs.JavabaseDB.get_file_entry(filename);
+		} catch (Exception e) {
+			throw new DiskMgrException(e, "LabelDictionary.java: get_file_entry() failed");
+		}
+
+	} // end of get_file_entry
+
+	private void add_file_entry(String filename, PageId pageno) throws DiskMgrException {
+
+		try {
+			SystemDefs.JavabaseDB.add_file_entry(filename, pageno);
+		} catch (Exception e) {
+			throw new DiskMgrException(e, "LabelDictionary.java: add_file_entry() failed");
+		}
+
+	} // end of add_file_entry
+}
@@ -0,0 +1,86 @@
+/* File MappedPageIO.java */
+
+package diskmgr;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Page I/O through a memory mapping of the database file. The file is
+ * mapped in segments of SEGMENT_SIZE bytes, each one the first time a page
+ * in it is touched, so a large database does not need one huge mapping up
+ * front. The last segment only covers the pages the DB has; when the DB
+ * grows it is mapped again, larger, the next time it is used.
+ * <p>
+ * Writes land in the operating system cache and reach the disk when the
+ * mapping is forced on close. A MappedByteBuffer cannot be unmapped
+ * explicitly, the mappings go away when they are garbage collected.
+ */
+class MappedPageIO extends PageIO {
+
+	/** Size of a mapped segment in bytes, a multiple of every page size. */
+	static final int SEGMENT_SIZE = 1 << 24;
+
+	private int segmentPages;
+	private FileChannel channel;
+	private MappedByteBuffer segments[] = new MappedByteBuffer[0];
+	private int numPages;
+
+	public void open(RandomAccessFile file, int numPages, int pageSize) throws IOException {
+		channel = file.getChannel();
+		segmentPages = SEGMENT_SIZE / pageSize;
+		super.open(file, numPages, pageSize);
+	}
+
+	public void setNumPages(int numPages) {
+		this.numPages = numPages;
+	}
+
+	public void read(int pid, byte[] data) throws IOException {
+		ByteBuffer buf = segment(pid).duplicate();
+		buf.position((pid % segmentPages) * pageSize);
+		buf.get(data, 0, pageSize);
+	}
+
+	public void write(int pid, byte[] data) throws IOException {
+		ByteBuffer buf = segment(pid).duplicate();
+		buf.position((pid % segmentPages) * pageSize);
+		buf.put(data, 0, pageSize);
+	}
+
+	public void close() throws IOException {
+		for (MappedByteBuffer seg : segments)
+			if (seg != null)
+				seg.force();
+		segments = new MappedByteBuffer[0];
+		super.close();
+	}
+
+	public String name() {
+		return "Mmap";
+	}
+
+	// the segment holding a page, mapped or mapped again as needed
+	private MappedByteBuffer segment(int pid) throws IOException {
+		int s = pid / segmentPages;
+		int off = (pid % segmentPages) * pageSize;
+
+		if (s >= segments.length) {
+			MappedByteBuffer grown[] = new MappedByteBuffer[s + 1];
+			System.arraycopy(segments, 0, grown, 0, segments.length);
+			segments = grown;
+		}
+
+		MappedByteBuffer seg = segments[s];
+		if (seg == null || seg.capacity() < off + pageSize) {
+			if (seg != null)
+				seg.force();
+			int pages = Math.min(segmentPages, Math.max(numPages, pid + 1) - s * segmentPages);
+			seg = channel.map(FileChannel.MapMode.READ_WRITE, (long) s * SEGMENT_SIZE, (long) pages * pageSize);
+			segments[s] = seg;
+		}
+		return seg;
+	}
+}
@@ -15,7 +15,7 @@ public class Page implements GlobalConst {
 	 */
 
 	public Page() {
-		data = new byte[MAX_SPACE];
+		data = new byte[SystemDefs.JavabasePageSize];
 
 	}
 
@@ -37,6 +37,15 @@ public class Page implements GlobalConst {
 
 	}
 
+	/**
+	 * return the size of the page
+	 * 
+	 * @return the number of bytes in the page
+	 */
+	public int getpagesize() {
+		return data.length;
+	}
+
 	/**
 	 * set the page with the given byte array
 	 * 
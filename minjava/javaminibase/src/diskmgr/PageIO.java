@@ -0,0 +1,125 @@
+/* File PageIO.java */
+
+package diskmgr;
+
+import java.io.*;
+import global.*;
+
+/**
+ * The way a DB moves pages between its file and the buffer pool. The DB
+ * opens the file and hands it over; from then on every page it reads or
+ * writes goes through its PageIO, which is closed with the DB.
+ * <p>
+ * Three backends are available, chosen by name when the database is opened:
+ * <ul>
+ * <li>"File": RandomAccessFile.seek followed by read or write, the way DB
+ * has always done it. This is the default.
+ * <li>"Channel": positional FileChannel reads and writes, one system call
+ * per page and no shared file pointer.
+ * <li>"Mmap": the file is mapped in large segments with MappedByteBuffer and
+ * pages are copied to and from the mapping, so a page already in the
+ * operating system cache costs no system call at all.
+ * </ul>
+ */
+public abstract class PageIO implements GlobalConst {
+
+	/** Name of the default backend. */
+	public static final String DEFAULT = "File";
+
+	/** the open database file */
+	protected RandomAccessFile file;
+
+	/** the page size of the database */
+	protected int pageSize;
+
+	/**
+	 * Create a backend by name, ignoring case.
+	 *
+	 * @param name
+	 *            "File", "Channel" or "Mmap"; null for the default.
+	 * @return the backend, not attached to a file yet.
+	 * @exception IllegalArgumentException
+	 *                unknown backend name
+	 */
+	public static PageIO create(String name) {
+		if (name == null || name.equalsIgnoreCase("File"))
+			return new FilePageIO();
+		if (name.equalsIgnoreCase("Channel"))
+			return new ChannelPageIO();
+		if (name.equalsIgnoreCase("Mmap"))
+			return new MappedPageIO();
+		throw new IllegalArgumentException("Unknown page I/O backend: " + name);
+	}
+
+	/**
+	 * Attach the backend to a database file.
+	 *
+	 * @param file
+	 *            the database file, open for reading and writing
+	 * @param numPages
+	 *            the number of pages in the file as far as the DB knows
+	 * @param pageSize
+	 *            the page size of the database
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void open(RandomAccessFile file, int numPages, int pageSize) throws IOException {
+		this.file = file;
+		this.pageSize = pageSize;
+		setNumPages(numPages);
+	}
+
+	/**
+	 * Tell the backend the database now has this many pages. Nothing to do
+	 * for the backends that go through the file itself.
+	 *
+	 * @param numPages
+	 *            the number of pages in the database
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void setNumPages(int numPages) throws IOException {
+	}
+
+	/**
+	 * Read a page.
+	 *
+	 * @param pid
+	 *            the page number, already checked by the DB
+	 * @param data
+	 *            the page, pageSize bytes to fill
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public abstract void read(int pid, byte[] data) throws IOException;
+
+	/**
+	 * Write a page.
+	 *
+	 * @param pid
+	 *            the page number, already checked by the DB
+	 * @param data
+	 *            the page, pageSize bytes to write
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public abstract void write(int pid, byte[] data) throws IOException;
+
+	/**
+	 * Flush what the backend holds and close the file.
+	 *
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/** @return the name the backend is created by. */
+	public abstract String name();
+
+	/** @return the byte offset of a page in the file. */
+	protected long offset(int pid) {
+		return (long) pid * pageSize;
+	}
+}
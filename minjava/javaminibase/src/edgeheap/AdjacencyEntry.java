@@ -0,0 +1,26 @@
+/* File AdjacencyEntry.java */
+
+package edgeheap;
+
+import global.EID;
+import global.NID;
+import global.PageId;
+
+/**
+ * One entry of an adjacency run: the node at the other end of the edge, the
+ * edge itself, its weight and the dictionary id of its label.
+ */
+public class AdjacencyEntry {
+
+	/** the node at the other end of the edge */
+	public NID neighbor = new NID(new PageId(), 0);
+
+	/** the id of the edge in the edge heap file */
+	public EID eid = new EID(new PageId(), 0);
+
+	/** the weight of the edge */
+	public int weight;
+
+	/** the dictionary id of the edge label */
+	public int labelId;
+}
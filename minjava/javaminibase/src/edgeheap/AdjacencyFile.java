@@ -0,0 +1,755 @@
+/* File AdjacencyFile.java */
+
+package edgeheap;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import bufmgr.BufferRing;
+import diskmgr.LabelDictionary;
+import diskmgr.Page;
+import global.EID;
+import global.GlobalConst;
+import global.NID;
+import global.PageId;
+import global.SystemDefs;
+
+/**
+ * A persistent adjacency index over the edges of the graph, in compressed
+ * sparse row form. For each direction, out-edges and in-edges, the entries
+ * of all the nodes are packed one run after the other in a segment of
+ * contiguous pages, and every node has the position and the length of its
+ * run in the segment. An entry holds the node at the other end, the EID of
+ * the edge, the edge weight and the dictionary id of the edge label, so
+ * expanding a node only reads the few segment pages its run is on and never
+ * touches the edge heap file.
+ * <p>
+ * The file is made of the pages described in AdjacencyPage. The file entry
+ * points to the header page; the map pages record, for every node data page,
+ * the directory page that holds the runs of the nodes on that page. The map
+ * is small (one pair per node page) and is loaded into memory when the file
+ * is opened, so finding the run of a node costs one directory page pin. The
+ * file is only created when the first edge is added or the index is built.
+ * <p>
+ * build writes the segments from the edge heap file in two passes: the first
+ * counts the entries of every run, the runs are then laid out one after the
+ * other, and the second puts every entry in its place. An edge inserted
+ * later goes to an overflow run of its node, a chain of pages of its own,
+ * which is read after the run in the segment. A deleted entry is replaced by
+ * the last entry of its run. When the overflow runs hold more than half as
+ * many entries as the segment (and at least MIN_OVERFLOW), the segment is
+ * written again with the overflow runs merged into it.
+ */
+public class AdjacencyFile implements GlobalConst {
+
+	/** direction of the run holding the edges leaving a node */
+	public static final int OUTGOING = 0;
+
+	/** direction of the run holding the edges entering a node */
+	public static final int INCOMING = 1;
+
+	/** the overflow entries a direction may have on top of half its segment */
+	private static final int MIN_OVERFLOW = 1024;
+
+	private String _fileName;
+	private PageId _headerPageId;
+	private PageId _lastMapPageId;
+	private int _lastMapCount;
+	private LabelDictionary _labels;
+
+	/** the number of entries on a segment page */
+	private int perPage = AdjacencyPage.segmentCapacity(SystemDefs.JavabasePageSize);
+
+	/** for each direction, as on the header page */
+	private int[] segFirst = new int[2];
+	private int[] segPages = new int[2];
+	private int[] segEntries = new int[2];
+	private int[] ovfEntries = new int[2];
+
+	// node data page -> directory page
+	private HashMap<Integer, Integer> dirPages = new HashMap<Integer, Integer>();
+
+	/**
+	 * Open the adjacency file with the given name. If it does not exist yet
+	 * it is empty, and it is created when the first edge is added.
+	 *
+	 * @param name
+	 *            the file name
+	 * @param labels
+	 *            the dictionary used to encode the edge labels
+	 * @exception HFException
+	 *                adjacency file exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public AdjacencyFile(String name, LabelDictionary labels)
+			throws HFException, HFBufMgrException, HFDiskMgrException, IOException {
+		_fileName = name;
+		_labels = labels;
+		_headerPageId = get_file_entry(_fileName);
+		if (_headerPageId == null)
+			return;
+
+		AdjacencyPage apage = new AdjacencyPage();
+		pinPage(_headerPageId, apage);
+		PageId pageId = apage.getFirstMapPage();
+		for (int direction = 0; direction < 2; direction++) {
+			segFirst[direction] = apage.getHeaderField(direction, AdjacencyPage.SEG_FIRST);
+			segPages[direction] = apage.getHeaderField(direction, AdjacencyPage.SEG_PAGES);
+			segEntries[direction] = apage.getHeaderField(direction, AdjacencyPage.SEG_ENTRIES);
+			ovfEntries[direction] = apage.getHeaderField(direction, AdjacencyPage.OVF_ENTRIES);
+		}
+		unpinPage(_headerPageId, false /* undirty */);
+
+		// load the node page -> directory page map
+		while (true) {
+			pinPage(pageId, apage);
+			int count = apage.getCount();
+			for (int i = 0; i < count; i++)
+				dirPages.put(apage.getMapKey(i), apage.getMapValue(i));
+			PageId nextPageId = apage.getNextPage();
+			unpinPage(pageId, false /* undirty */);
+
+			if (nextPageId.pid == INVALID_PAGE) {
+				_lastMapPageId = pageId;
+				_lastMapCount = count;
+				break;
+			}
+			pageId = nextPageId;
+		}
+	}
+
+	/**
+	 * @return the label with the given dictionary id
+	 */
+	public String getLabel(int labelId) {
+		return _labels.getLabel(labelId);
+	}
+
+	/**
+	 * Write the index again from the edges of an edge heap file, in place of
+	 * all its entries. Used after a bulk load.
+	 *
+	 * @param ehf
+	 *            the edge heap file
+	 * @exception Exception
+	 *                error reading the edges or writing the index
+	 */
+	public void build(EdgeHeapfile ehf) throws Exception {
+		if (_headerPageId == null)
+			create();
+		clear();
+
+		// the length of every run
+		EScan scan = ehf.openScan(new BufferRing());
+		EID eid = new EID();
+		Edge edge;
+		try {
+			while ((edge = scan.getNextView(eid)) != null) {
+				countEntry(edge.getSource(), OUTGOING);
+				countEntry(edge.getDestination(), INCOMING);
+			}
+		} finally {
+			scan.closescan();
+		}
+
+		// the runs one after the other, the count of every run being where
+		// its next entry goes from now on
+		int[] total = new int[2];
+		AdjacencyPage dirPage = new AdjacencyPage();
+		int slots = AdjacencyPage.dirCapacity(SystemDefs.JavabasePageSize);
+		for (PageId dirPageId : directoryPages()) {
+			pinPage(dirPageId, dirPage);
+			for (int slot = 0; slot < slots; slot++) {
+				for (int direction = 0; direction < 2; direction++) {
+					dirPage.setRun(slot, direction, AdjacencyPage.RUN_START, total[direction]);
+					total[direction] += dirPage.getRun(slot, direction, AdjacencyPage.RUN_COUNT);
+					dirPage.setRun(slot, direction, AdjacencyPage.RUN_COUNT, 0);
+				}
+			}
+			unpinPage(dirPageId, true /* dirty */);
+		}
+		for (int direction = 0; direction < 2; direction++) {
+			segPages[direction] = (total[direction] + perPage - 1) / perPage;
+			segFirst[direction] = newSegment(segPages[direction]);
+			segEntries[direction] = total[direction];
+		}
+
+		// every entry in its place
+		SegmentPage out = new SegmentPage(segFirst[OUTGOING]);
+		SegmentPage in = new SegmentPage(segFirst[INCOMING]);
+		scan = ehf.openScan(new BufferRing());
+		try {
+			while ((edge = scan.getNextView(eid)) != null) {
+				NID source = edge.getSource();
+				NID dest = edge.getDestination();
+				int weight = edge.getWeight();
+				int labelId = edge.getLabelId();
+				out.setEntry(placeEntry(source, OUTGOING), dest, eid, weight, labelId);
+				in.setEntry(placeEntry(dest, INCOMING), source, eid, weight, labelId);
+			}
+		} finally {
+			scan.closescan();
+			out.release();
+			in.release();
+		}
+		writeHeader();
+	}
+
+	/**
+	 * Add an edge to the out-run of its source and the in-run of its
+	 * destination.
+	 *
+	 * @param eid
+	 *            the id of the edge
+	 * @param edge
+	 *            the edge
+	 * @exception HFException
+	 *                adjacency file exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void insertEdge(EID eid, Edge edge)
+			throws HFException, HFBufMgrException, HFDiskMgrException, IOException {
+		NID source, dest;
+		int weight, labelId;
+		try {
+			source = edge.getSource();
+			dest = edge.getDestination();
+			weight = edge.getWeight();
+			labelId = edge.getLabelId();
+		} catch (Exception e) {
+			throw new HFException(e, "AdjacencyFile.java: can't read edge");
+		}
+
+		if (_headerPageId == null)
+			create();
+		addEntry(source, OUTGOING, dest, eid, weight, labelId);
+		addEntry(dest, INCOMING, source, eid, weight, labelId);
+		for (int direction = 0; direction < 2; direction++)
+			if (ovfEntries[direction] > segEntries[direction] / 2 + MIN_OVERFLOW)
+				compact(direction);
+		writeHeader();
+	}
+
+	/**
+	 * Remove an edge from the out-run of its source and the in-run of its
+	 * destination.
+	 *
+	 * @param eid
+	 *            the id of the edge
+	 * @param edge
+	 *            the edge, as it is stored in the edge heap file
+	 * @exception HFException
+	 *                adjacency file exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void deleteEdge(EID eid, Edge edge) throws HFException, HFBufMgrException, IOException {
+		if (_headerPageId == null)
+			return;
+
+		NID source, dest;
+		try {
+			source = edge.getSource();
+			dest = edge.getDestination();
+		} catch (Exception e) {
+			throw new HFException(e, "AdjacencyFile.java: can't read edge");
+		}
+
+		removeEntry(source, OUTGOING, eid);
+		removeEntry(dest, INCOMING, eid);
+		writeHeader();
+	}
+
+	/**
+	 * Open a scan on the out-run or the in-run of a node.
+	 *
+	 * @param nid
+	 *            the node
+	 * @param direction
+	 *            OUTGOING or INCOMING
+	 * @exception HFException
+	 *                adjacency file exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 * @return the scan; it returns no entry if the node has no such edge
+	 */
+	public AdjacencyScan openScan(NID nid, int direction) throws HFException, HFBufMgrException, IOException {
+		checkSlot(nid);
+		Integer dirPid = dirPages.get(nid.pageNo.pid);
+		if (dirPid == null)
+			return new AdjacencyScan(INVALID_PAGE, 0, 0, INVALID_PAGE);
+
+		AdjacencyPage dirPage = new AdjacencyPage();
+		PageId dirPageId = new PageId(dirPid);
+		pinPage(dirPageId, dirPage);
+		int start = dirPage.getRun(nid.slotNo, direction, AdjacencyPage.RUN_START);
+		int count = dirPage.getRun(nid.slotNo, direction, AdjacencyPage.RUN_COUNT);
+		int overflow = dirPage.getRun(nid.slotNo, direction, AdjacencyPage.RUN_OVERFLOW);
+		unpinPage(dirPageId, false /* undirty */);
+		return new AdjacencyScan(segFirst[direction], start, count, overflow);
+	}
+
+	// one more entry in the run of a node, before the runs are laid out
+	private void countEntry(NID node, int direction) throws HFException, HFBufMgrException, IOException {
+		checkSlot(node);
+		PageId dirPageId = getDirectoryPage(node.pageNo.pid);
+		AdjacencyPage dirPage = new AdjacencyPage();
+		pinPage(dirPageId, dirPage);
+		int count = dirPage.getRun(node.slotNo, direction, AdjacencyPage.RUN_COUNT);
+		dirPage.setRun(node.slotNo, direction, AdjacencyPage.RUN_COUNT, count + 1);
+		unpinPage(dirPageId, true /* dirty */);
+	}
+
+	// the position in the segment of the next entry of the run of a node
+	private int placeEntry(NID node, int direction) throws HFBufMgrException, IOException {
+		PageId dirPageId = new PageId(dirPages.get(node.pageNo.pid));
+		AdjacencyPage dirPage = new AdjacencyPage();
+		pinPage(dirPageId, dirPage);
+		int start = dirPage.getRun(node.slotNo, direction, AdjacencyPage.RUN_START);
+		int count = dirPage.getRun(node.slotNo, direction, AdjacencyPage.RUN_COUNT);
+		dirPage.setRun(node.slotNo, direction, AdjacencyPage.RUN_COUNT, count + 1);
+		unpinPage(dirPageId, true /* dirty */);
+		return start + count;
+	}
+
+	// add an entry to the overflow run of a node
+	private void addEntry(NID node, int direction, NID neighbor, EID eid, int weight, int labelId)
+			throws HFException, HFBufMgrException, IOException {
+		checkSlot(node);
+		PageId dirPageId = getDirectoryPage(node.pageNo.pid);
+		AdjacencyPage dirPage = new AdjacencyPage();
+		pinPage(dirPageId, dirPage);
+		ovfEntries[direction]++;
+
+		AdjacencyPage runPage = new AdjacencyPage();
+		PageId headId = new PageId(dirPage.getRun(node.slotNo, direction, AdjacencyPage.RUN_OVERFLOW));
+		if (headId.pid != INVALID_PAGE) {
+			pinPage(headId, runPage);
+			int count = runPage.getCount();
+			if (count < runPage.runCapacity()) {
+				runPage.setEntry(AdjacencyPage.runEntry(count), neighbor.pageNo.pid, neighbor.slotNo,
+						eid.pageNo.pid, eid.slotNo, weight, labelId);
+				runPage.setCount(count + 1);
+				unpinPage(headId, true /* dirty */);
+				unpinPage(dirPageId, false /* undirty */);
+				return;
+			}
+			unpinPage(headId, false /* undirty */);
+		}
+
+		// the run is empty or its first page is full: put a new page in front
+		PageId newId = newPage(runPage, 1);
+		runPage.initChained();
+		runPage.setNextPage(headId);
+		runPage.setEntry(AdjacencyPage.runEntry(0), neighbor.pageNo.pid, neighbor.slotNo, eid.pageNo.pid,
+				eid.slotNo, weight, labelId);
+		runPage.setCount(1);
+		unpinPage(newId, true /* dirty */);
+
+		dirPage.setRun(node.slotNo, direction, AdjacencyPage.RUN_OVERFLOW, newId.pid);
+		unpinPage(dirPageId, true /* dirty */);
+	}
+
+	private boolean removeEntry(NID node, int direction, EID eid)
+			throws HFException, HFBufMgrException, IOException {
+		checkSlot(node);
+		Integer dirPid = dirPages.get(node.pageNo.pid);
+		if (dirPid == null)
+			return false;
+
+		PageId dirPageId = new PageId(dirPid);
+		AdjacencyPage dirPage = new AdjacencyPage();
+		pinPage(dirPageId, dirPage);
+
+		// the run in the segment: fill the hole with the last entry of the run
+		int start = dirPage.getRun(node.slotNo, direction, AdjacencyPage.RUN_START);
+		int count = dirPage.getRun(node.slotNo, direction, AdjacencyPage.RUN_COUNT);
+		SegmentPage seg = new SegmentPage(segFirst[direction]);
+		try {
+			for (int i = start; i < start + count; i++) {
+				int pos = seg.at(i);
+				if (seg.page.getEntryField(pos, AdjacencyPage.EDGE_PAGE) != eid.pageNo.pid
+						|| seg.page.getEntryField(pos, AdjacencyPage.EDGE_SLOT) != eid.slotNo)
+					continue;
+
+				if (i != start + count - 1) {
+					SegmentPage last = new SegmentPage(segFirst[direction]);
+					int lastPos = last.at(start + count - 1);
+					seg.page.copyEntry(last.page, lastPos, pos);
+					seg.dirty = true;
+					last.release();
+				}
+				dirPage.setRun(node.slotNo, direction, AdjacencyPage.RUN_COUNT, count - 1);
+				segEntries[direction]--;
+				unpinPage(dirPageId, true /* dirty */);
+				return true;
+			}
+		} finally {
+			seg.release();
+		}
+
+		// the overflow run: fill the hole with the last entry of the page
+		AdjacencyPage runPage = new AdjacencyPage();
+		PageId prevId = new PageId(INVALID_PAGE);
+		PageId curId = new PageId(dirPage.getRun(node.slotNo, direction, AdjacencyPage.RUN_OVERFLOW));
+		while (curId.pid != INVALID_PAGE) {
+			pinPage(curId, runPage);
+			int runCount = runPage.getCount();
+			for (int i = 0; i < runCount; i++) {
+				int pos = AdjacencyPage.runEntry(i);
+				if (runPage.getEntryField(pos, AdjacencyPage.EDGE_PAGE) != eid.pageNo.pid
+						|| runPage.getEntryField(pos, AdjacencyPage.EDGE_SLOT) != eid.slotNo)
+					continue;
+
+				runPage.copyEntry(runPage, AdjacencyPage.runEntry(runCount - 1), pos);
+				runPage.setCount(runCount - 1);
+				ovfEntries[direction]--;
+				if (runCount > 1) {
+					unpinPage(curId, true /* dirty */);
+					unpinPage(dirPageId, false /* undirty */);
+					return true;
+				}
+
+				// the page is empty now: unlink and free it
+				PageId nextId = runPage.getNextPage();
+				unpinPage(curId, false /* undirty */);
+				freePage(curId);
+				if (prevId.pid == INVALID_PAGE) {
+					dirPage.setRun(node.slotNo, direction, AdjacencyPage.RUN_OVERFLOW, nextId.pid);
+					unpinPage(dirPageId, true /* dirty */);
+				} else {
+					pinPage(prevId, runPage);
+					runPage.setNextPage(nextId);
+					unpinPage(prevId, true /* dirty */);
+					unpinPage(dirPageId, false /* undirty */);
+				}
+				return true;
+			}
+			PageId nextId = runPage.getNextPage();
+			unpinPage(curId, false /* undirty */);
+			prevId = curId;
+			curId = nextId;
+		}
+
+		unpinPage(dirPageId, false /* undirty */);
+		return false;
+	}
+
+	/**
+	 * Write the segment of a direction again, with the run of every node
+	 * followed by its overflow run, and free the old segment and the
+	 * overflow pages.
+	 */
+	private void compact(int direction) throws HFBufMgrException, IOException {
+		SegmentPage from = new SegmentPage(segFirst[direction]);
+		int total = segEntries[direction] + ovfEntries[direction];
+		int oldPages = segPages[direction];
+		int newPages = (total + perPage - 1) / perPage;
+		SegmentPage to = new SegmentPage(newSegment(newPages));
+
+		AdjacencyPage dirPage = new AdjacencyPage();
+		AdjacencyPage runPage = new AdjacencyPage();
+		int slots = AdjacencyPage.dirCapacity(SystemDefs.JavabasePageSize);
+		int next = 0;
+		for (PageId dirPageId : directoryPages()) {
+			pinPage(dirPageId, dirPage);
+			for (int slot = 0; slot < slots; slot++) {
+				int start = dirPage.getRun(slot, direction, AdjacencyPage.RUN_START);
+				int count = dirPage.getRun(slot, direction, AdjacencyPage.RUN_COUNT);
+				PageId runId = new PageId(dirPage.getRun(slot, direction, AdjacencyPage.RUN_OVERFLOW));
+				dirPage.setRun(slot, direction, AdjacencyPage.RUN_START, next);
+
+				for (int i = start; i < start + count; i++)
+					to.copyEntry(from.page, from.at(i), next++);
+				while (runId.pid != INVALID_PAGE) {
+					pinPage(runId, runPage);
+					int runCount = runPage.getCount();
+					for (int i = 0; i < runCount; i++)
+						to.copyEntry(runPage, AdjacencyPage.runEntry(i), next++);
+					PageId nextId = runPage.getNextPage();
+					unpinPage(runId, false /* undirty */);
+					freePage(runId);
+					runId = nextId;
+				}
+
+				dirPage.setRun(slot, direction, AdjacencyPage.RUN_COUNT, next - dirPage.getRun(slot, direction,
+						AdjacencyPage.RUN_START));
+				dirPage.setRun(slot, direction, AdjacencyPage.RUN_OVERFLOW, INVALID_PAGE);
+			}
+			unpinPage(dirPageId, true /* dirty */);
+		}
+		from.release();
+		to.release();
+
+		freeSegment(from.first, oldPages);
+		segFirst[direction] = to.first;
+		segPages[direction] = newPages;
+		segEntries[direction] = next;
+		ovfEntries[direction] = 0;
+	}
+
+	/**
+	 * Drop all the entries: free the segments and the overflow pages, and
+	 * empty every run.
+	 */
+	private void clear() throws HFBufMgrException, IOException {
+		AdjacencyPage dirPage = new AdjacencyPage();
+		AdjacencyPage runPage = new AdjacencyPage();
+		int slots = AdjacencyPage.dirCapacity(SystemDefs.JavabasePageSize);
+		for (PageId dirPageId : directoryPages()) {
+			pinPage(dirPageId, dirPage);
+			for (int slot = 0; slot < slots; slot++) {
+				for (int direction = 0; direction < 2; direction++) {
+					PageId runId = new PageId(dirPage.getRun(slot, direction, AdjacencyPage.RUN_OVERFLOW));
+					while (runId.pid != INVALID_PAGE) {
+						pinPage(runId, runPage);
+						PageId nextId = runPage.getNextPage();
+						unpinPage(runId, false /* undirty */);
+						freePage(runId);
+						runId = nextId;
+					}
+				}
+			}
+			dirPage.initDirectory();
+			unpinPage(dirPageId, true /* dirty */);
+		}
+		for (int direction = 0; direction < 2; direction++) {
+			freeSegment(segFirst[direction], segPages[direction]);
+			segFirst[direction] = INVALID_PAGE;
+			segPages[direction] = 0;
+			segEntries[direction] = 0;
+			ovfEntries[direction] = 0;
+		}
+	}
+
+	// the first page of a new segment of contiguous pages
+	private int newSegment(int pages) throws HFBufMgrException {
+		if (pages == 0)
+			return INVALID_PAGE;
+		PageId first = newPage(new AdjacencyPage(), pages);
+		unpinPage(first, true /* dirty */);
+		return first.pid;
+	}
+
+	private void freeSegment(int first, int pages) throws HFBufMgrException {
+		for (int i = 0; i < pages; i++)
+			freePage(new PageId(first + i));
+	}
+
+	// the directory pages, in the order of their node pages
+	private PageId[] directoryPages() {
+		Integer[] nodePids = dirPages.keySet().toArray(new Integer[dirPages.size()]);
+		Arrays.sort(nodePids);
+		PageId[] pages = new PageId[nodePids.length];
+		for (int i = 0; i < nodePids.length; i++)
+			pages[i] = new PageId(dirPages.get(nodePids[i]));
+		return pages;
+	}
+
+	// the header page and an empty map page
+	private void create() throws HFBufMgrException, HFDiskMgrException, IOException {
+		AdjacencyPage apage = new AdjacencyPage();
+		PageId mapPageId = newPage(apage, 1);
+		apage.initChained();
+		unpinPage(mapPageId, true /* dirty */);
+
+		_headerPageId = newPage(apage, 1);
+		apage.initHeader();
+		apage.setFirstMapPage(mapPageId);
+		unpinPage(_headerPageId, true /* dirty */);
+		add_file_entry(_fileName, _headerPageId);
+
+		_lastMapPageId = mapPageId;
+		_lastMapCount = 0;
+		Arrays.fill(segFirst, INVALID_PAGE);
+	}
+
+	private void writeHeader() throws HFBufMgrException, IOException {
+		AdjacencyPage apage = new AdjacencyPage();
+		pinPage(_headerPageId, apage);
+		for (int direction = 0; direction < 2; direction++) {
+			apage.setHeaderField(direction, AdjacencyPage.SEG_FIRST, segFirst[direction]);
+			apage.setHeaderField(direction, AdjacencyPage.SEG_PAGES, segPages[direction]);
+			apage.setHeaderField(direction, AdjacencyPage.SEG_ENTRIES, segEntries[direction]);
+			apage.setHeaderField(direction, AdjacencyPage.OVF_ENTRIES, ovfEntries[direction]);
+		}
+		unpinPage(_headerPageId, true /* dirty */);
+	}
+
+	/**
+	 * Return the directory page of a node data page, creating it and
+	 * recording it in the map if it does not exist yet.
+	 */
+	private PageId getDirectoryPage(int nodePid) throws HFException, HFBufMgrException, IOException {
+		Integer dirPid = dirPages.get(nodePid);
+		if (dirPid != null)
+			return new PageId(dirPid);
+
+		AdjacencyPage apage = new AdjacencyPage();
+		PageId dirPageId = newPage(apage, 1);
+		apage.initDirectory();
+		unpinPage(dirPageId, true /* dirty */);
+
+		if (_lastMapCount == apage.mapCapacity()) {
+			// last map page is full, chain a new one behind it
+			PageId newMapId = newPage(apage, 1);
+			apage.initChained();
+			unpinPage(newMapId, true /* dirty */);
+
+			pinPage(_lastMapPageId, apage);
+			apage.setNextPage(newMapId);
+			unpinPage(_lastMapPageId, true /* dirty */);
+
+			_lastMapPageId = newMapId;
+			_lastMapCount = 0;
+		}
+
+		pinPage(_lastMapPageId, apage);
+		apage.setMapPair(_lastMapCount, nodePid, dirPageId.pid);
+		apage.setCount(++_lastMapCount);
+		unpinPage(_lastMapPageId, true /* dirty */);
+
+		dirPages.put(nodePid, dirPageId.pid);
+		return dirPageId;
+	}
+
+	private void checkSlot(NID nid) throws HFException {
+		if (nid.slotNo < 0 || nid.slotNo >= AdjacencyPage.dirCapacity(SystemDefs.JavabasePageSize))
+			throw new HFException(null, "AdjacencyFile.java: invalid node slot " + nid.slotNo);
+	}
+
+	/**
+	 * The segment page holding an entry, kept pinned while the entries next
+	 * to it are read or written.
+	 */
+	private class SegmentPage {
+		int first;
+		PageId pageId = new PageId(INVALID_PAGE);
+		AdjacencyPage page = new AdjacencyPage();
+		boolean dirty;
+
+		SegmentPage(int first) {
+			this.first = first;
+		}
+
+		/** @return where entry i of the segment starts on the page */
+		int at(int i) throws HFBufMgrException {
+			int pid = first + i / perPage;
+			if (pageId.pid != pid) {
+				release();
+				pageId.pid = pid;
+				pinPage(pageId, page);
+			}
+			return AdjacencyPage.segmentEntry(i % perPage);
+		}
+
+		void setEntry(int i, NID neighbor, EID eid, int weight, int labelId) throws HFBufMgrException, IOException {
+			page.setEntry(at(i), neighbor.pageNo.pid, neighbor.slotNo, eid.pageNo.pid, eid.slotNo, weight, labelId);
+			dirty = true;
+		}
+
+		/** copy the entry starting at from on a page over entry i */
+		void copyEntry(AdjacencyPage from, int pos, int i) throws HFBufMgrException {
+			page.copyEntry(from, pos, at(i));
+			dirty = true;
+		}
+
+		void release() throws HFBufMgrException {
+			if (pageId.pid != INVALID_PAGE)
+				unpinPage(pageId, dirty);
+			pageId.pid = INVALID_PAGE;
+			dirty = false;
+		}
+	}
+
+	/**
+	 * short cut to access the pinPage function in bufmgr package.
+	 *
+	 * @see bufmgr.pinPage
+	 */
+	private void pinPage(PageId pageno, Page page) throws HFBufMgrException {
+
+		try {
+			SystemDefs.JavabaseBM.pinPage(pageno, page, false /* Rdisk */);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "AdjacencyFile.java: pinPage() failed");
+		}
+
+	} // end of pinPage
+
+	/**
+	 * short cut to access the unpinPage function in bufmgr package.
+	 *
+	 * @see bufmgr.unpinPage
+	 */
+	private void unpinPage(PageId pageno, boolean dirty) throws HFBufMgrException {
+
+		try {
+			SystemDefs.JavabaseBM.unpinPage(pageno, dirty);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "AdjacencyFile.java: unpinPage() failed");
+		}
+
+	} // end of unpinPage
+
+	private void freePage(PageId pageno) throws HFBufMgrException {
+
+		try {
+			SystemDefs.JavabaseBM.freePage(pageno);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "AdjacencyFile.java: freePage() failed");
+		}
+
+	} // end of freePage
+
+	private PageId newPage(Page page, int howmany) throws HFBufMgrException {
+
+		PageId tmpId;
+
+		try {
+			tmpId = SystemDefs.JavabaseBM.newPage(page, howmany);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "AdjacencyFile.java: newPage() failed");
+		}
+
+		if (tmpId == null)
+			throw new HFBufMgrException(null, "AdjacencyFile.java: can't new page");
+		return tmpId;
+
+	} // end of newPage
+
+	private PageId get_file_entry(String filename) throws HFDiskMgrException {
+
+		try {
+			return SystemDefs.JavabaseDB.get_file_entry(filename);
+		} catch (Exception e) {
+			throw new HFDiskMgrException(e, "AdjacencyFile.java: get_file_entry() failed");
+		}
+
+	} // end of get_file_entry
+
+	private void add_file_entry(String filename, PageId pageno) throws HFDiskMgrException {
+
+		try {
+			SystemDefs.JavabaseDB.add_file_entry(filename, pageno);
+		} catch (Exception e) {
+			throw new HFDiskMgrException(e, "AdjacencyFile.java: add_file_entry() failed");
+		}
+
+	} // end of add_file_entry
+}
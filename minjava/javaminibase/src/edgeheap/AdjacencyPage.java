@@ -0,0 +1,214 @@
+/* File AdjacencyPage.java */
+
+package edgeheap;
+
+import java.io.IOException;
+
+import diskmgr.Page;
+import global.Convert;
+import global.GlobalConst;
+import global.PageId;
+
+/**
+ * Page layouts used by the AdjacencyFile. The same page class is used for
+ * the five kinds of pages of the file:
+ * <ul>
+ * <li>the header page: the first map page, and for each direction the first
+ * page and the number of pages of its segment, the number of entries in the
+ * segment runs and the number of entries in the overflow runs;</li>
+ * <li>map pages: a chain of (node page, directory page) pairs, starting with
+ * the next page id and the number of pairs;</li>
+ * <li>directory pages: one per node data page, holding for every slot of the
+ * node page and for each direction the position of its run in the segment,
+ * the length of the run and the first page of its overflow run;</li>
+ * <li>segment pages: the packed adjacency entries of all the nodes in one
+ * direction, the run of a node following the run of the node before it, so
+ * a page holds the runs of many nodes. The pages of a segment are
+ * contiguous, entry i being on page i / segmentCapacity of the
+ * segment;</li>
+ * <li>overflow pages: a chain of packed adjacency entries of a single node in
+ * a single direction, added since the segment was written, starting with the
+ * next page id and the number of entries.</li>
+ * </ul>
+ * An adjacency entry is (neighbor page, neighbor slot, edge page, edge slot,
+ * weight, label id), all stored as 4 byte integers.
+ */
+class AdjacencyPage extends Page implements GlobalConst {
+
+	static final int NEXT_PAGE = 0;
+	static final int COUNT = 4;
+	static final int DPFIXED = 8;
+
+	static final int FIRST_MAP = 0;
+	static final int SEG_FIRST = 4;
+	static final int SEG_PAGES = 8;
+	static final int SEG_ENTRIES = 12;
+	static final int OVF_ENTRIES = 16;
+	static final int HEADER_SIZE = 16;
+
+	static final int PAIR_SIZE = 8;
+	static final int SLOT_SIZE = 24;
+	static final int RUN_SIZE = 12;
+	static final int ENTRY_SIZE = 24;
+
+	static final int RUN_START = 0;
+	static final int RUN_COUNT = 4;
+	static final int RUN_OVERFLOW = 8;
+
+	static final int NBR_PAGE = 0;
+	static final int NBR_SLOT = 4;
+	static final int EDGE_PAGE = 8;
+	static final int EDGE_SLOT = 12;
+	static final int WEIGHT = 16;
+	static final int LABEL = 20;
+
+	/** number of (node page, directory page) pairs on a map page */
+	int mapCapacity() {
+		return (data.length - DPFIXED) / PAIR_SIZE;
+	}
+
+	/** number of node slots covered by a directory page of a page size */
+	static int dirCapacity(int pageSize) {
+		return pageSize / SLOT_SIZE;
+	}
+
+	/** number of adjacency entries on a segment page of a page size */
+	static int segmentCapacity(int pageSize) {
+		return pageSize / ENTRY_SIZE;
+	}
+
+	/** number of adjacency entries on an overflow page */
+	int runCapacity() {
+		return (data.length - DPFIXED) / ENTRY_SIZE;
+	}
+
+	/** where the i-th entry of a segment page starts */
+	static int segmentEntry(int i) {
+		return i * ENTRY_SIZE;
+	}
+
+	/** where the i-th entry of an overflow page starts */
+	static int runEntry(int i) {
+		return DPFIXED + i * ENTRY_SIZE;
+	}
+
+	/**
+	 * initialize the header page: no map page and empty segments
+	 */
+	void initHeader() throws IOException {
+		Convert.setIntValue(INVALID_PAGE, FIRST_MAP, data);
+		for (int direction = 0; direction < 2; direction++) {
+			setHeaderField(direction, SEG_FIRST, INVALID_PAGE);
+			setHeaderField(direction, SEG_PAGES, 0);
+			setHeaderField(direction, SEG_ENTRIES, 0);
+			setHeaderField(direction, OVF_ENTRIES, 0);
+		}
+	}
+
+	/**
+	 * initialize a map or overflow page: no next page and no entries
+	 */
+	void initChained() throws IOException {
+		Convert.setIntValue(INVALID_PAGE, NEXT_PAGE, data);
+		Convert.setIntValue(0, COUNT, data);
+	}
+
+	/**
+	 * initialize a directory page: no slot has any run
+	 */
+	void initDirectory() throws IOException {
+		for (int slot = 0; slot < dirCapacity(data.length); slot++) {
+			for (int direction = 0; direction < 2; direction++) {
+				setRun(slot, direction, RUN_START, 0);
+				setRun(slot, direction, RUN_COUNT, 0);
+				setRun(slot, direction, RUN_OVERFLOW, INVALID_PAGE);
+			}
+		}
+	}
+
+	PageId getFirstMapPage() throws IOException {
+		return new PageId(Convert.getIntValue(FIRST_MAP, data));
+	}
+
+	void setFirstMapPage(PageId pageNo) throws IOException {
+		Convert.setIntValue(pageNo.pid, FIRST_MAP, data);
+	}
+
+	/**
+	 * @return the given field of the header of a direction
+	 */
+	int getHeaderField(int direction, int field) throws IOException {
+		return Convert.getIntValue(direction * HEADER_SIZE + field, data);
+	}
+
+	void setHeaderField(int direction, int field, int value) throws IOException {
+		Convert.setIntValue(value, direction * HEADER_SIZE + field, data);
+	}
+
+	PageId getNextPage() throws IOException {
+		return new PageId(Convert.getIntValue(NEXT_PAGE, data));
+	}
+
+	void setNextPage(PageId pageNo) throws IOException {
+		Convert.setIntValue(pageNo.pid, NEXT_PAGE, data);
+	}
+
+	int getCount() throws IOException {
+		return Convert.getIntValue(COUNT, data);
+	}
+
+	void setCount(int count) throws IOException {
+		Convert.setIntValue(count, COUNT, data);
+	}
+
+	/**
+	 * @return the given field of the run of a slot in a direction on a
+	 *         directory page: RUN_START, RUN_COUNT or RUN_OVERFLOW
+	 */
+	int getRun(int slot, int direction, int field) throws IOException {
+		return Convert.getIntValue(slot * SLOT_SIZE + direction * RUN_SIZE + field, data);
+	}
+
+	void setRun(int slot, int direction, int field, int value) throws IOException {
+		Convert.setIntValue(value, slot * SLOT_SIZE + direction * RUN_SIZE + field, data);
+	}
+
+	int getMapKey(int i) throws IOException {
+		return Convert.getIntValue(DPFIXED + i * PAIR_SIZE, data);
+	}
+
+	int getMapValue(int i) throws IOException {
+		return Convert.getIntValue(DPFIXED + i * PAIR_SIZE + 4, data);
+	}
+
+	void setMapPair(int i, int key, int value) throws IOException {
+		Convert.setIntValue(key, DPFIXED + i * PAIR_SIZE, data);
+		Convert.setIntValue(value, DPFIXED + i * PAIR_SIZE + 4, data);
+	}
+
+	/**
+	 * @return the given field of the entry starting at pos, see
+	 *         segmentEntry and runEntry
+	 */
+	int getEntryField(int pos, int field) throws IOException {
+		return Convert.getIntValue(pos + field, data);
+	}
+
+	void setEntry(int pos, int nbrPage, int nbrSlot, int edgePage, int edgeSlot, int weight, int labelId)
+			throws IOException {
+		Convert.setIntValue(nbrPage, pos + NBR_PAGE, data);
+		Convert.setIntValue(nbrSlot, pos + NBR_SLOT, data);
+		Convert.setIntValue(edgePage, pos + EDGE_PAGE, data);
+		Convert.setIntValue(edgeSlot, pos + EDGE_SLOT, data);
+		Convert.setIntValue(weight, pos + WEIGHT, data);
+		Convert.setIntValue(labelId, pos + LABEL, data);
+	}
+
+	/**
+	 * copy the entry starting at from on a page over the entry starting at
+	 * to on this page
+	 */
+	void copyEntry(AdjacencyPage page, int from, int to) {
+		System.arraycopy(page.data, from, data, to, ENTRY_SIZE);
+	}
+}
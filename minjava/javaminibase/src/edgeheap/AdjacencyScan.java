@@ -0,0 +1,139 @@
+/* File AdjacencyScan.java */
+
+package edgeheap;
+
+import java.io.IOException;
+
+import global.GlobalConst;
+import global.PageId;
+import global.SystemDefs;
+
+/**
+ * A scan over the adjacency run of one node in one direction. The entries of
+ * the run are read from the segment first, where they are packed next to
+ * the runs of the other nodes, and then from the chain of overflow pages of
+ * the node, with only one page pinned at a time.
+ * <p>
+ * The entry returned by getNext is reused by the scan; it is only valid until
+ * the next call.
+ */
+public class AdjacencyScan implements GlobalConst {
+
+	private int segFirst;
+	private int perPage;
+	private int next;
+	private int end;
+
+	private PageId curPageId = new PageId(INVALID_PAGE);
+	private AdjacencyPage curPage = new AdjacencyPage();
+	private int curCount;
+	private int nextEntry;
+	private PageId overflowId;
+	private boolean pinned = false;
+	private AdjacencyEntry entry = new AdjacencyEntry();
+
+	/**
+	 * Open a scan on a run.
+	 *
+	 * @param segFirst
+	 *            the first page of the segment
+	 * @param start
+	 *            the position of the run in the segment
+	 * @param count
+	 *            the number of entries of the run in the segment
+	 * @param overflow
+	 *            the first overflow page of the run, or INVALID_PAGE
+	 */
+	AdjacencyScan(int segFirst, int start, int count, int overflow) {
+		this.segFirst = segFirst;
+		this.perPage = AdjacencyPage.segmentCapacity(SystemDefs.JavabasePageSize);
+		this.next = start;
+		this.end = start + count;
+		this.overflowId = new PageId(overflow);
+	}
+
+	/**
+	 * Retrieve the next entry of the run.
+	 *
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 * @return the next entry, or null if the run is exhausted
+	 */
+	public AdjacencyEntry getNext() throws HFBufMgrException, IOException {
+		// the entries in the segment
+		if (next < end) {
+			int pid = segFirst + next / perPage;
+			if (curPageId.pid != pid) {
+				if (pinned)
+					unpinPage(curPageId);
+				curPageId.pid = pid;
+				pinPage(curPageId);
+			}
+			read(AdjacencyPage.segmentEntry(next % perPage));
+			next++;
+			return entry;
+		}
+
+		// then those of the overflow pages
+		while (true) {
+			if (pinned && nextEntry < curCount) {
+				read(AdjacencyPage.runEntry(nextEntry));
+				nextEntry++;
+				return entry;
+			}
+			if (pinned)
+				unpinPage(curPageId);
+			if (overflowId.pid == INVALID_PAGE)
+				return null;
+			curPageId.pid = overflowId.pid;
+			pinPage(curPageId);
+			curCount = curPage.getCount();
+			nextEntry = 0;
+			overflowId = curPage.getNextPage();
+		}
+	}
+
+	private void read(int pos) throws IOException {
+		entry.neighbor.pageNo.pid = curPage.getEntryField(pos, AdjacencyPage.NBR_PAGE);
+		entry.neighbor.slotNo = curPage.getEntryField(pos, AdjacencyPage.NBR_SLOT);
+		entry.eid.pageNo.pid = curPage.getEntryField(pos, AdjacencyPage.EDGE_PAGE);
+		entry.eid.slotNo = curPage.getEntryField(pos, AdjacencyPage.EDGE_SLOT);
+		entry.weight = curPage.getEntryField(pos, AdjacencyPage.WEIGHT);
+		entry.labelId = curPage.getEntryField(pos, AdjacencyPage.LABEL);
+	}
+
+	/**
+	 * Closes the scan and unpins the current page.
+	 */
+	public void closescan() {
+		if (pinned) {
+			try {
+				unpinPage(curPageId);
+			} catch (Exception e) {
+				// the page has already been unpinned
+			}
+		}
+		next = end;
+		overflowId.pid = INVALID_PAGE;
+	}
+
+	private void pinPage(PageId pageno) throws HFBufMgrException {
+		try {
+			SystemDefs.JavabaseBM.pinPage(pageno, curPage, false);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "AdjacencyScan.java: pinPage() failed");
+		}
+		pinned = true;
+	}
+
+	private void unpinPage(PageId pageno) throws HFBufMgrException {
+		pinned = false;
+		try {
+			SystemDefs.JavabaseBM.unpinPage(pageno, false);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "AdjacencyScan.java: unpinPage() failed");
+		}
+	}
+}
@@ -132,10 +132,10 @@ public class EHFPage extends Page implements ConstSlot, GlobalConst {
 		Convert.setIntValue(prevPage.pid, PREV_PAGE, data);
 		Convert.setIntValue(nextPage.pid, NEXT_PAGE, data);
 
-		usedPtr = (short) MAX_SPACE; // offset in data array (grow backwards)
+		usedPtr = (short) data.length; // offset in data array (grow backwards)
 		Convert.setShortValue(usedPtr, USED_PTR, data);
 
-		freeSpace = (short) (MAX_SPACE - DPFIXED); // amount of space available
+		freeSpace = (short) (data.length - DPFIXED); // amount of space available
 		Convert.setShortValue(freeSpace, FREE_SPACE, data);
 
 	}
@@ -520,6 +520,50 @@ public class EHFPage extends Page implements ConstSlot, GlobalConst {
 		return eid;
 	}
 
+	/**
+	 * @return the slot number of the next edge on the page after the given
+	 *         slot, -1 if no more edges exist on the page
+	 * @param slotNo
+	 *            the current slot number, -1 to find the first edge
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public int nextSlot(int slotNo) throws IOException {
+		slotCnt = Convert.getShortValue(SLOT_CNT, data);
+		for (int i = slotNo + 1; i < slotCnt; i++) {
+			if (getSlotLength(i) != EMPTY_SLOT)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * points edge at the edge in the given slot, in place on the page
+	 * instead of in a copy. It sees the edge only while the page stays
+	 * pinned.
+	 *
+	 * @param slotNo
+	 *            the slot number
+	 * @param edge
+	 *            the Edge to point at the record
+	 * @exception InvalidSlotNumberException
+	 *                Invalid slot number
+	 * @exception InvalidTupleSizeException
+	 *                the record is not the size of a edge
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void viewEdge(int slotNo, Edge edge)
+			throws IOException, InvalidSlotNumberException, InvalidTupleSizeException {
+		short recLen = getSlotLength(slotNo);
+		slotCnt = Convert.getShortValue(SLOT_CNT, data);
+		if ((slotNo < 0) || (slotNo >= slotCnt) || (recLen <= 0))
+			throw new InvalidSlotNumberException(null, "HEAPFILE: INVALID_SLOTNO");
+		if (recLen != Edge.max_size)
+			throw new InvalidTupleSizeException(null, "HEAPFILE: EDGE_SIZE_ERROR");
+		edge.edgeView(data, getSlotOffset(slotNo));
+	}
+
 	/**
 	 * copies out edge with EID rid into edge pointer. <br>
 	 * Status getRecord(RID rid, char *recPtr, int& recLen)
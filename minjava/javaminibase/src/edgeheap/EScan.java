@@ -7,6 +7,7 @@ package edgeheap;
  */
 import java.io.IOException;
 
+import bufmgr.BufferRing;
 import diskmgr.PCounter;
 import diskmgr.Page;
 import global.EID;
@@ -51,12 +52,21 @@ public class EScan implements GlobalConst {
 	/** in-core copy (pinned) of the same */
 	private EHFPage datapage = new EHFPage();
 
+	/** the page object datapage is pinned into, reused from page to page */
+	private EHFPage datapageFrame = datapage;
+
 	/** Edge ID of the current edge (from the current data page) */
 	private EID usereid = new EID();
 
 	/** Status of next user status */
 	private boolean nextUserStatus;
 
+	/** the buffer ring the pages are read through, null for none */
+	private BufferRing ring;
+
+	/** the edge getNextView points at each record in turn */
+	private Edge view;
+
 	/**
 	 * The constructor pins the first directory page in the file and initializes
 	 * its private data members from the private data member from ehf
@@ -73,6 +83,26 @@ public class EScan implements GlobalConst {
 		init(hf);
 	}
 
+	/**
+	 * Same as the constructor without a ring, except that the pages are read
+	 * through the given buffer ring, so that a scan of a large file recycles a
+	 * few frames instead of flushing the buffer pool.
+	 *
+	 * @exception InvalidTupleSizeException
+	 *                Invalid tuple size
+	 * @exception IOException
+	 *                I/O errors
+	 *
+	 * @param hf
+	 *            A EdgeHeapfile object
+	 * @param ring
+	 *            the buffer ring of the scan, null to use the whole pool
+	 */
+	public EScan(EdgeHeapfile hf, BufferRing ring) throws InvalidTupleSizeException, IOException {
+		this.ring = ring;
+		init(hf);
+	}
+
 	/**
 	 * Retrieve the next record in a sequential scan
 	 *
@@ -118,6 +148,58 @@ public class EScan implements GlobalConst {
 		return recptrEdge;
 	}
 
+	/**
+	 * Retrieve the next edge in a sequential scan without copying it. The
+	 * edge returned is the same object on every call, pointed at the record
+	 * in place on the pinned data page, so it is only valid until the next
+	 * call or closescan, and must not be modified. The scan allocates nothing
+	 * per record this way.
+	 *
+	 * @exception InvalidTupleSizeException
+	 *                a record that is not an edge, or a page that cannot be
+	 *                read
+	 * @exception IOException
+	 *                I/O errors
+	 *
+	 * @param eid
+	 *            Edge ID of the edge
+	 * @return the edge, null at the end of the scan
+	 */
+	public Edge getNextView(EID eid) throws InvalidTupleSizeException, IOException {
+		if (nextUserStatus != true) {
+			nextDataPage();
+		}
+
+		if (datapage == null)
+			return null;
+
+		PCounter.preadIncrement();
+
+		eid.pageNo.pid = usereid.pageNo.pid;
+		eid.slotNo = usereid.slotNo;
+
+		try {
+			if (view == null)
+				view = new Edge();
+			datapage.viewEdge(eid.slotNo, view);
+		} catch (Exception e) {
+			throw new InvalidTupleSizeException(e, "Scan.java: getNextView() failed");
+		}
+
+		// step to the next slot in place, the page id stays the same
+		int next = datapage.nextSlot(eid.slotNo);
+		if (next < 0) {
+			nextUserStatus = false;
+		} else {
+			if (usereid == null)
+				usereid = new EID(new PageId(eid.pageNo.pid), next);
+			usereid.slotNo = next;
+			nextUserStatus = true;
+		}
+
+		return view;
+	}
+
 	/**
 	 * Position the scan cursor to the record with the given eid.
 	 * 
@@ -427,7 +509,7 @@ public class EScan implements GlobalConst {
 
 				// pin first data page
 				try {
-					datapage = new EHFPage();
+					datapage = datapageFrame;
 					pinPage(datapageId, (Page) datapage, false);
 				} catch (Exception e) {
 					e.printStackTrace();
@@ -536,7 +618,7 @@ public class EScan implements GlobalConst {
 		datapageId.pid = dpinfo.pageId.pid;
 
 		try {
-			datapage = new EHFPage();
+			datapage = datapageFrame;
 			pinPage(dpinfo.pageId, (Page) datapage, false);
 		}
 
@@ -605,7 +687,7 @@ public class EScan implements GlobalConst {
 	private void pinPage(PageId pageno, Page page, boolean emptyPage) throws HFBufMgrException {
 
 		try {
-			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage);
+			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage, ring);
 		} catch (Exception e) {
 			throw new HFBufMgrException(e, "Scan.java: pinPage() failed");
 		}
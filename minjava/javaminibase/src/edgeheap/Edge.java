@@ -1,6 +1,7 @@
 /* File Edge.java */
 
 package edgeheap;
+import diskmgr.DiskMgrException;
 import heap.FieldNumberOutOfBoundException;
 import heap.InvalidTupleSizeException;
 import heap.InvalidTypeException;
@@ -14,7 +15,23 @@ public class Edge extends Tuple {
     /**
      * Maximum size of any Edge
      */
-    public static final int max_size = 82;
+    public static final int max_size = 40;
+
+    /**
+     * The fields of every edge: the id of its label in the label dictionary,
+     * the source and destination NIDs as page and slot numbers, and the
+     * weight
+     */
+    private static final AttrType[] EDGE_TYPES = { new AttrType(AttrType.attrInteger),
+            new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger),
+            new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger),
+            new AttrType(AttrType.attrInteger) };
+
+    /**
+     * Where the fields of an edge start, after the field count and the seven
+     * field offsets, and where the last one ends
+     */
+    private static final short[] EDGE_LAYOUT = { 16, 20, 24, 28, 32, 36, 40 };
 
     /**
      * Class constructor Create a new Edge with length = max_size,Edge offset =
@@ -52,21 +69,12 @@ public class Edge extends Tuple {
     
     public Edge(byte[] aedge, int offset, int size) throws InvalidTypeException, InvalidTupleSizeException, IOException {
     	super(aedge, offset, size);
-        if(size == 82) setEdgeHdr();
+        if(size == max_size) setEdgeHdr();
         // fldCnt = getShortValue(offset, data);
     }
     
     private void setEdgeHdr() throws InvalidTypeException, InvalidTupleSizeException, IOException{
-        AttrType[] attrs = new AttrType[6];
-        short[] str_sizes = new short[1];
-        attrs[0] = new AttrType(AttrType.attrString);
-        attrs[1] = new AttrType(AttrType.attrInteger); //source pg no.
-        attrs[2] = new AttrType(AttrType.attrInteger);//source slot no.
-        attrs[3] = new AttrType(AttrType.attrInteger);//dest pg no.
-        attrs[4] = new AttrType(AttrType.attrInteger);//dest slot no.
-        attrs[5] = new AttrType(AttrType.attrInteger);
-        str_sizes[0] = (short)44;
-        this.setHdr((short)6, attrs, str_sizes);
+        this.setHdr((short)6, EDGE_TYPES, null);
     }
 
     /**
@@ -117,6 +125,20 @@ public class Edge extends Tuple {
     	tupleInit(aedge, offset, max_size);
     }
 
+    /**
+     * Point this edge at an edge record in place, without copying it or
+     * setting up its header. The edge sees the record only as long as the
+     * array holds it, and must not be modified through.
+     *
+     * @param aedge
+     *            a byte array which contains the edge
+     * @param offset
+     *            the offset of the edge in the byte array
+     */
+    public void edgeView(byte[] aedge, int offset) {
+        tupleView(aedge, offset, max_size, EDGE_LAYOUT);
+    }
+
     /**
      * Set an edge with the given edge length and offset
      *
@@ -155,13 +177,23 @@ public class Edge extends Tuple {
 
 
     /**
-     * To get the Label of the Edge
+     * To get the Label of the Edge, looked up in the label dictionary
      * @return String Label
      * @throws IOException
      * @throws heap.FieldNumberOutOfBoundException
      */
     public String getLabel() throws IOException, heap.FieldNumberOutOfBoundException{
-        return getStrFld(1);
+        return SystemDefs.JavabaseDB.labelDictionary.getLabel(getLabelId());
+    }
+
+    /**
+     * To get the id of the label of the edge in the label dictionary
+     * @return label id
+     * @throws IOException
+     * @throws heap.FieldNumberOutOfBoundException
+     */
+    public int getLabelId() throws IOException, heap.FieldNumberOutOfBoundException{
+        return getIntFld(1);
     }
     
     /**
@@ -216,14 +248,26 @@ public class Edge extends Tuple {
 
 
     /**
-     * To set the label of the edge
+     * To set the label of the edge, adding it to the label dictionary if it
+     * is not there yet
      * @param val
      * @return Edge
      * @throws IOException
      * @throws heap.FieldNumberOutOfBoundException
+     * @throws DiskMgrException
+     */
+    public Edge setLabel(String val) throws IOException, heap.FieldNumberOutOfBoundException, DiskMgrException {
+        return setLabelId(SystemDefs.JavabaseDB.labelDictionary.addLabel(val));
+    }
+    /**
+     * To set the id of the label of the edge in the label dictionary
+     * @param labelId
+     * @return Edge
+     * @throws IOException
+     * @throws heap.FieldNumberOutOfBoundException
      */
-    public Edge setLabel(String val) throws IOException, heap.FieldNumberOutOfBoundException {
-        return (Edge)setStrFld(1, val);
+    public Edge setLabelId(int labelId) throws IOException, heap.FieldNumberOutOfBoundException {
+        return (Edge)setIntFld(1, labelId);
     }
     /**
      * To set the source of the edge
@@ -7,6 +7,7 @@ import diskmgr.*;
 import bufmgr.*;
 import global.*;
 import heap.FieldNumberOutOfBoundException;
+import heap.FreeSpaceMap;
 import heap.InvalidTypeException;
 
 /**  This Edgeheapfile implementation is directory-based. We maintain a
@@ -50,10 +51,22 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	private boolean _file_deleted;
 	private String _fileName;
 	private static int tempfilecount = 0;
+	private AdjacencyFile _adjacency = null;
 	
 	public String get_file_name() {
 		return _fileName;
 	}
+
+	/**
+	 * Attach an adjacency index to this file. Every edge inserted, deleted
+	 * or updated afterwards is also applied to the index.
+	 *
+	 * @param adjacency
+	 *            the adjacency index, or null to detach it
+	 */
+	public void setAdjacencyFile(AdjacencyFile adjacency) {
+		_adjacency = adjacency;
+	}
 	
 
 	/*
@@ -83,6 +96,73 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 
 	} // end of _newDatapage
 
+	/*
+	 * the free space map of the file, built by one pass over the directory
+	 * the first time the file is inserted into
+	 */
+	private FreeSpaceMap _freeSpaceMap() throws InvalidSlotNumberException, InvalidTupleSizeException, HFBufMgrException,
+			IOException, InvalidTypeException, heap.InvalidTupleSizeException {
+		FreeSpaceMap fsm = FreeSpaceMap.get(_firstDirPageId);
+		if (fsm != null)
+			return fsm;
+
+		fsm = new FreeSpaceMap();
+		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
+		EHFPage currentDirPage = new EHFPage();
+		while (currentDirPageId.pid != INVALID_PAGE) {
+			pinPage(currentDirPageId, currentDirPage, false);
+			for (EID eid = currentDirPage.firstEdge(); eid != null; eid = currentDirPage.nextEdge(eid)) {
+				DataPageInfo dpinfo = new DataPageInfo(currentDirPage.getEdge(eid));
+				fsm.add(dpinfo.pageId.pid, currentDirPageId.pid, eid.slotNo, dpinfo.availspace);
+			}
+			if (currentDirPage.available_space() >= DataPageInfo.size)
+				fsm.addDirPage(currentDirPageId.pid);
+			fsm.setLastDirPage(currentDirPageId.pid);
+
+			PageId nextDirPageId = currentDirPage.getNextPage();
+			unpinPage(currentDirPageId, false /* undirty */);
+			currentDirPageId.pid = nextDirPageId.pid;
+		}
+		FreeSpaceMap.register(_firstDirPageId, fsm);
+		return fsm;
+	} // end of _freeSpaceMap
+
+	/*
+	 * pin a directory page with room for a new DataPageInfo, appending one
+	 * to the directory if no page has room
+	 */
+	private void _pinDirPageWithRoom(FreeSpaceMap fsm, PageId dirPageId, EHFPage dirPage)
+			throws HFException, HFBufMgrException, IOException {
+		for (int pid = fsm.dirPageWithRoom(); pid != INVALID_PAGE; pid = fsm.dirPageWithRoom()) {
+			dirPageId.pid = pid;
+			pinPage(dirPageId, dirPage, false);
+			if (dirPage.available_space() >= DataPageInfo.size)
+				return;
+			unpinPage(dirPageId, false /* undirty */);
+			fsm.removeDirPage(pid);
+		}
+
+		// append a new directory page after the last one
+		Page pageinbuffer = new Page();
+		PageId lastDirPageId = new PageId(fsm.lastDirPage());
+		PageId newDirPageId = newPage(pageinbuffer, 1);
+		if (newDirPageId == null)
+			throw new HFException(null, "can't new pae");
+
+		dirPage.init(newDirPageId, pageinbuffer);
+		dirPage.setNextPage(new PageId(INVALID_PAGE));
+		dirPage.setPrevPage(lastDirPageId);
+
+		EHFPage lastDirPage = new EHFPage();
+		pinPage(lastDirPageId, lastDirPage, false);
+		lastDirPage.setNextPage(newDirPageId);
+		unpinPage(lastDirPageId, true /* dirty */);
+
+		dirPageId.pid = newDirPageId.pid;
+		fsm.addDirPage(newDirPageId.pid);
+		fsm.setLastDirPage(newDirPageId.pid);
+	} // end of _pinDirPageWithRoom
+
 	/*
 	 * Internal EdgeHeapFile function (used in getEdge and updateEdge): returns
 	 * pinned directory page and pinned data page of the specified user
@@ -251,6 +331,7 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 				throw new HFException(null, "can't new page");
 
 			add_file_entry(_fileName, _firstDirPageId);
+			FreeSpaceMap.forget(_firstDirPageId);
 			// check error(new exception: Could not add file entry
 
 			EHFPage firstDirPage = new EHFPage();
@@ -362,193 +443,52 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	 */
 	public EID insertEdge(byte[] recPtr) throws InvalidSlotNumberException, InvalidTupleSizeException,
 			SpaceNotAvailableException, HFException, HFBufMgrException, HFDiskMgrException, IOException, InvalidTypeException, heap.InvalidTupleSizeException {
-		int dpinfoLen = 0;
 		int recLen = recPtr.length;
-		boolean found;
-		EID currentDataPageEid = new EID();
-		Page pageinbuffer = new Page();
+		FreeSpaceMap fsm = _freeSpaceMap();
 		EHFPage currentDirPage = new EHFPage();
 		EHFPage currentDataPage = new EHFPage();
-
-		EHFPage nextDirPage = new EHFPage();
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-		PageId nextDirPageId = new PageId(); // OK
-
-		pinPage(currentDirPageId, currentDirPage, false/* Rdisk */);
-
-		found = false;
+		PageId currentDirPageId = new PageId();
+		EID currentDataPageEid;
+		DataPageInfo dpinfo;
 		Edge anEdge;
-		DataPageInfo dpinfo = new DataPageInfo();
-		while (found == false) { // Start While01
-									// look for suitable dpinfo-struct
-			for (currentDataPageEid = currentDirPage
-					.firstEdge(); currentDataPageEid != null; currentDataPageEid = currentDirPage
-							.nextEdge(currentDataPageEid)) {
-				anEdge = currentDirPage.getEdge(currentDataPageEid);
-
-				dpinfo = new DataPageInfo(anEdge);
-
-				// need check the edge length == DataPageInfo'slength
-
-				if (recLen <= dpinfo.availspace) {
-					found = true;
-					break;
-				}
-			}
-
-			// two cases:
-			// (1) found == true:
-			// currentDirPage has a datapagerecord which can accomodate
-			// the record which we have to insert
-			// (2) found == false:
-			// there is no datapagerecord on the current directory page
-			// whose corresponding datapage has enough space free
-			// several subcases: see below
-			if (found == false) { // Start IF01
-									// case (2)
-
-				// System.out.println("no datapagerecord on the current
-				// directory is OK");
-				// System.out.println("dirpage availspace
-				// "+currentDirPage.available_space());
-
-				// on the current directory page is no datapagerecord which has
-				// enough free space
-				//
-				// two cases:
-				//
-				// - (2.1) (currentDirPage->available_space() >=
-				// sizeof(DataPageInfo):
-				// if there is enough space on the current directory page
-				// to accomodate a new datapagerecord (type DataPageInfo),
-				// then insert a new DataPageInfo on the current directory
-				// page
-				// - (2.2) (currentDirPage->available_space() <=
-				// sizeof(DataPageInfo):
-				// look at the next directory page, if necessary, create it.
-
-				if (currentDirPage.available_space() >= dpinfo.size) {
-					// Start IF02
-					// case (2.1) : add a new data page edge into the
-					// current directory page
-					currentDataPage = _newDatapage(dpinfo);
-					PCounter.writeIncrement();
-					// currentDataPage is pinned! and dpinfo->pageId is also
-					// locked
-					// in the exclusive mode
-
-					// didn't check if currentDataPage==NULL, auto exception
-
-					// currentDataPage is pinned: insert its edge
-					// calling a EHFPage function
-
-					anEdge = dpinfo.convertToEdge();
-
-					byte[] tmpData = anEdge.getTupleByteArray();
-					currentDataPageEid = currentDirPage.insertEdge(tmpData);
-
-					EID tmpeid = currentDirPage.firstEdge();
-
-					// need catch error here!
-					if (currentDataPageEid == null)
-						throw new HFException(null, "no space to insert rec.");
-
-					// end the loop, because a new datapage with its edge
-					// in the current directorypage was created and inserted
-					// into
-					// the heapfile; the new datapage has enough space for the
-					// edge which the user wants to insert
-
-					found = true;
-
-				} // end of IF02
-				else { // Start else 02
-						// case (2.2)
-					nextDirPageId = currentDirPage.getNextPage();
-					// two sub-cases:
-					//
-					// (2.2.1) nextDirPageId != INVALID_PAGE:
-					// get the next directory page from the buffer manager
-					// and do another look
-					// (2.2.2) nextDirPageId == INVALID_PAGE:
-					// append a new directory page at the end of the current
-					// page and then do another loop
-
-					if (nextDirPageId.pid != INVALID_PAGE) { // Start IF03
-																// case (2.2.1):
-																// there is
-																// another
-																// directory
-																// page:
-						unpinPage(currentDirPageId, false);
-
-						currentDirPageId.pid = nextDirPageId.pid;
-
-						pinPage(currentDirPageId, currentDirPage, false);
-
-						// now go back to the beginning of the outer while-loop
-						// and
-						// search on the current directory page for a suitable
-						// datapage
-					} // End of IF03
-					else { // Start Else03
-							// case (2.2): append a new directory page after
-							// currentDirPage
-							// since it is the last directory page
-						nextDirPageId = newPage(pageinbuffer, 1);
-						// need check error!
-						if (nextDirPageId == null)
-							throw new HFException(null, "can't new pae");
-
-						// initialize new directory page
-						nextDirPage.init(nextDirPageId, pageinbuffer);
-						PageId temppid = new PageId(INVALID_PAGE);
-						nextDirPage.setNextPage(temppid);
-						nextDirPage.setPrevPage(currentDirPageId);
-
-						// update current directory page and unpin it
-						// currentDirPage is already locked in the Exclusive
-						// mode
-						currentDirPage.setNextPage(nextDirPageId);
-						unpinPage(currentDirPageId, true/* dirty */);
-
-						currentDirPageId.pid = nextDirPageId.pid;
-						currentDirPage = new EHFPage(nextDirPage);
-
-						// remark that MINIBASE_BM->newPage already
-						// pinned the new directory page!
-						// Now back to the beginning of the while-loop, using
-						// the
-						// newly created directory page.
-
-					} // End of else03
-				} // End of else02
-					// ASSERTIONS:
-					// - if found == true: search will end and see assertions
-					// below
-					// - if found == false: currentDirPage, currentDirPageId
-					// valid and pinned
-
-			} // end IF01
-			else { // Start else01
-					// found == true:
-					// we have found a datapage with enough space,
-					// but we have not yet pinned the datapage:
 
-				// ASSERTIONS:
-				// - dpinfo valid
-
-				// System.out.println("find the dirpagerecord on current page");
-
-				pinPage(dpinfo.pageId, currentDataPage, false);
-				// currentDataPage.openEHFpage(pageinbuffer);
-
-			} // End else01
-		} // end of While01
+		int entry = fsm.find(recLen);
+		if (entry >= 0) {
+			// a datapage with enough space: the map knows where its
+			// DataPageInfo is, no need to search the directory
+			currentDirPageId.pid = fsm.dirPage(entry);
+			currentDataPageEid = new EID(new PageId(currentDirPageId.pid), fsm.dirSlot(entry));
+			pinPage(currentDirPageId, currentDirPage, false/* Rdisk */);
+
+			anEdge = currentDirPage.getEdge(currentDataPageEid);
+			dpinfo = new DataPageInfo(anEdge);
+			pinPage(dpinfo.pageId, currentDataPage, false);
+		} else {
+			// no datapage has enough space: add a new one, its
+			// DataPageInfo goes on a directory page with room
+			_pinDirPageWithRoom(fsm, currentDirPageId, currentDirPage);
+
+			dpinfo = new DataPageInfo();
+			PCounter.writeIncrement();
+			currentDataPage = _newDatapage(dpinfo);
+			// currentDataPage is pinned: insert its edge
+			// calling a EHFPage function
+
+			anEdge = dpinfo.convertToEdge();
+			currentDataPageEid = currentDirPage.insertEdge(anEdge.getTupleByteArray());
+
+			// need catch error here!
+			if (currentDataPageEid == null)
+				throw new HFException(null, "no space to insert rec.");
+
+			if (currentDirPage.available_space() < DataPageInfo.size)
+				fsm.removeDirPage(currentDirPageId.pid);
+			entry = fsm.add(dpinfo.pageId.pid, currentDirPageId.pid, currentDataPageEid.slotNo, dpinfo.availspace);
+		}
 
 		// ASSERTIONS:
 		// - currentDirPageId, currentDirPage valid and pinned
-		// - dpinfo.pageId, currentDataPageRid valid
+		// - dpinfo.pageId, currentDataPageEid valid
 		// - currentDataPage is pinned!
 
 		if ((dpinfo.pageId).pid == INVALID_PAGE) // check error!
@@ -578,6 +518,10 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 		dpinfo_ondirpage.flushToTuple();
 
 		unpinPage(currentDirPageId, true /* = DIRTY */);
+		fsm.update(entry, dpinfo.availspace);
+
+		if (_adjacency != null)
+			_adjacency.insertEdge(eid, new Edge(recPtr, 0));
 
 		return eid;
 
@@ -628,6 +572,9 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 		anEdge = currentDirPage.returnEdge(currentDataPageEid);
 		DataPageInfo pdpinfo = new DataPageInfo(anEdge);
 
+		if (_adjacency != null)
+			_adjacency.deleteEdge(eid, currentDataPage.getEdge(eid));
+
 		// delete the edge on the datapage
 		currentDataPage.deleteEdge(eid);
 
@@ -641,6 +588,10 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 			pdpinfo.flushToTuple();
 			unpinPage(currentDataPageId, true /* = DIRTY */);
 
+			FreeSpaceMap fsm = FreeSpaceMap.get(_firstDirPageId);
+			if (fsm != null)
+				fsm.update(fsm.entry(currentDataPageId.pid), pdpinfo.availspace);
+
 			unpinPage(currentDirPageId, true /* = DIRTY */);
 
 		} else {
@@ -661,6 +612,10 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 
 			currentDirPage.deleteEdge(currentDataPageEid);
 
+			FreeSpaceMap fsm = FreeSpaceMap.get(_firstDirPageId);
+			if (fsm != null)
+				fsm.remove(fsm.entry(currentDataPageId.pid));
+
 			// ASSERTIONS:
 			// - currentDataPage, currentDataPageId invalid
 			// - empty datapage unpinned and deleted
@@ -704,6 +659,12 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 
 				}
 
+				if (fsm != null) {
+					fsm.removeDirPage(currentDirPageId.pid);
+					if (fsm.lastDirPage() == currentDirPageId.pid)
+						fsm.setLastDirPage(currentDirPage.getPrevPage().pid);
+				}
+
 				// delete empty directory page: (automatically unpinned?)
 				unpinPage(currentDirPageId, false/* undirty */);
 				freePage(currentDirPageId);
@@ -715,6 +676,8 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 				// in both cases we do not delete it, but we have to unpin it:
 
 				unpinPage(currentDirPageId, true /* == DIRTY */);
+				if (fsm != null)
+					fsm.addDirPage(currentDirPageId.pid);
 
 			}
 		}
@@ -772,6 +735,11 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 
 		}
 
+		if (_adjacency != null) {
+			_adjacency.deleteEdge(eid, dataPage.getEdge(eid));
+			_adjacency.insertEdge(eid, newEdge);
+		}
+
 		// new copy of this edge fits in old space;
 		anEdge.tupleCopy(newEdge);
 		unpinPage(currentDataPageId, true /* = DIRTY */);
@@ -849,6 +817,22 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 		return newscan;
 	}
 
+	/**
+	 * Initiate a sequential scan that reads the pages through a buffer ring.
+	 * 
+	 * @param ring
+	 *            the buffer ring of the scan
+	 * @exception InvalidTupleSizeException
+	 *                Invalid edge size
+	 * @exception IOException
+	 *                I/O errors
+	 *
+	 */
+	public EScan openScan(BufferRing ring) throws InvalidTupleSizeException, IOException {
+		EScan newscan = new EScan(this, ring);
+		return newscan;
+	}
+
 	/**
 	 * Delete the file from the database.
 	 *
@@ -912,6 +896,7 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 		}
 
 		delete_file_entry(_fileName);
+		FreeSpaceMap.forget(_firstDirPageId);
 	}
 
 	/**
@@ -1135,7 +1120,7 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 	 * @throws InvalidTypeException 
 	 */
 	public int getLabelCnt() throws HFBufMgrException, InvalidSlotNumberException, FieldNumberOutOfBoundException, InvalidTupleSizeException, IOException, InvalidTypeException, heap.InvalidTupleSizeException{
-		HashSet<String> LabelSet = new HashSet<String>();
+		HashSet<Integer> LabelSet = new HashSet<Integer>();
 		
 		int answer = 0;
 		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
@@ -1155,7 +1140,7 @@ public class EdgeHeapfile implements Filetype, GlobalConst {
 																	// edge
 					eid = currentDirPage.nextEdge(eid)) {
 				enEdge = currentDirPage.getEdge(eid);
-				LabelSet.add(enEdge.getLabel());
+				LabelSet.add(enEdge.getLabelId());
 			}
 	
 			// ASSERTIONS: no more edge
@@ -5,6 +5,13 @@ package global;
 import java.io.*;
 import java.lang.*;
 
+/**
+ * Reads and writes values in a byte array in the big-endian layout of
+ * DataInputStream and DataOutputStream, strings in its modified UTF-8. The
+ * bytes are assembled and taken apart in place, so reading a number or a
+ * descriptor does not allocate, and a string field can be compared with
+ * another without being decoded into a String.
+ */
 public class Convert {
 
 	/**
@@ -20,23 +27,7 @@ public class Convert {
 	 * @return the integer
 	 */
 	public static int getIntValue(int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		int value;
-		byte tmp[] = new byte[4];
-
-		// copy the value from data array out to a tmp byte array
-		System.arraycopy(data, position, tmp, 0, 4);
-
-		/*
-		 * creates a new data input stream to read data from the specified input
-		 * stream
-		 */
-		in = new ByteArrayInputStream(tmp);
-		instr = new DataInputStream(in);
-		value = instr.readInt();
-
-		return value;
+		return readInt(position, data);
 	}
 
 	/**
@@ -52,23 +43,7 @@ public class Convert {
 	 * @return the float value
 	 */
 	public static float getFloValue(int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		float value;
-		byte tmp[] = new byte[4];
-
-		// copy the value from data array out to a tmp byte array
-		System.arraycopy(data, position, tmp, 0, 4);
-
-		/*
-		 * creates a new data input stream to read data from the specified input
-		 * stream
-		 */
-		in = new ByteArrayInputStream(tmp);
-		instr = new DataInputStream(in);
-		value = instr.readFloat();
-
-		return value;
+		return Float.intBitsToFloat(readInt(position, data));
 	}
 
 	/**
@@ -84,23 +59,7 @@ public class Convert {
 	 * @return the short integer
 	 */
 	public static short getShortValue(int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		short value;
-		byte tmp[] = new byte[2];
-
-		// copy the value from data array out to a tmp byte array
-		System.arraycopy(data, position, tmp, 0, 2);
-
-		/*
-		 * creates a new data input stream to read data from the specified input
-		 * stream
-		 */
-		in = new ByteArrayInputStream(tmp);
-		instr = new DataInputStream(in);
-		value = instr.readShort();
-
-		return value;
+		return (short) ((data[position] << 8) | (data[position + 1] & 0xff));
 	}
 
 	/**
@@ -113,27 +72,122 @@ public class Convert {
 	 *            the position in data[]
 	 * @param length
 	 *            the length of the string in bytes (=strlength +2)
+	 * @exception java.io.EOFException
+	 *                the encoded string runs past length bytes
+	 * @exception java.io.UTFDataFormatException
+	 *                the bytes are not valid modified UTF-8
 	 * @exception java.io.IOException
 	 *                I/O errors
 	 * @return the string
 	 */
 	public static String getStrValue(int position, byte[] data, int length) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		String value;
-		byte tmp[] = new byte[length];
-
-		// copy the value from data array out to a tmp byte array
-		System.arraycopy(data, position, tmp, 0, length);
-
-		/*
-		 * creates a new data input stream to read data from the specified input
-		 * stream
-		 */
-		in = new ByteArrayInputStream(tmp);
-		instr = new DataInputStream(in);
-		value = instr.readUTF();
-		return value;
+		int utflen = readUnsignedShort(position, data);
+		if (utflen + 2 > length)
+			throw new EOFException();
+
+		char[] chars = new char[utflen];
+		int count = 0;
+		int i = position + 2;
+		int end = i + utflen;
+		while (i < end) {
+			int n = charLength(data, i, end);
+			chars[count++] = charAt(data, i, n);
+			i += n;
+		}
+		return new String(chars, 0, count);
+	}
+
+	/**
+	 * Compares the modified UTF-8 string at the specified position with a
+	 * string, without decoding the stored one.
+	 * 
+	 * @param position
+	 *            the position of the stored string in data[]
+	 * @param data
+	 *            a byte array
+	 * @param value
+	 *            the string to compare with
+	 * @exception java.io.UTFDataFormatException
+	 *                the bytes are not valid modified UTF-8
+	 * @return what the stored string's compareTo(value) would return
+	 */
+	public static int compareStrValue(int position, byte[] data, String value) throws java.io.IOException {
+		int i = position + 2;
+		int end = i + readUnsignedShort(position, data);
+		int len = value.length();
+		int k = 0;
+		while (i < end && k < len) {
+			int n = charLength(data, i, end);
+			char c = charAt(data, i, n);
+			char v = value.charAt(k++);
+			if (c != v)
+				return c - v;
+			i += n;
+		}
+		if (i < end)
+			return remaining(data, i, end);
+		return k - len;
+	}
+
+	/**
+	 * Compares two modified UTF-8 strings in place.
+	 * 
+	 * @param position1
+	 *            the position of the first string in data1[]
+	 * @param data1
+	 *            the byte array of the first string
+	 * @param position2
+	 *            the position of the second string in data2[]
+	 * @param data2
+	 *            the byte array of the second string
+	 * @exception java.io.UTFDataFormatException
+	 *                the bytes are not valid modified UTF-8
+	 * @return what the first string's compareTo(second) would return
+	 */
+	public static int compareStrValue(int position1, byte[] data1, int position2, byte[] data2)
+			throws java.io.IOException {
+		int i = position1 + 2;
+		int end1 = i + readUnsignedShort(position1, data1);
+		int j = position2 + 2;
+		int end2 = j + readUnsignedShort(position2, data2);
+		while (i < end1 && j < end2) {
+			// equal ASCII bytes need no decoding
+			if (data1[i] == data2[j] && data1[i] >= 0) {
+				i++;
+				j++;
+				continue;
+			}
+			int n1 = charLength(data1, i, end1);
+			int n2 = charLength(data2, j, end2);
+			char c1 = charAt(data1, i, n1);
+			char c2 = charAt(data2, j, n2);
+			if (c1 != c2)
+				return c1 - c2;
+			i += n1;
+			j += n2;
+		}
+		return remaining(data1, i, end1) - remaining(data2, j, end2);
+	}
+
+	/**
+	 * The number of bytes a string takes once written by setStrValue.
+	 * 
+	 * @param value
+	 *            the string
+	 * @return the length of its modified UTF-8 encoding, plus 2
+	 */
+	public static int getStrLength(String value) {
+		int utflen = 0;
+		for (int k = 0; k < value.length(); k++) {
+			char c = value.charAt(k);
+			if (c >= 0x0001 && c <= 0x007f)
+				utflen++;
+			else if (c > 0x07ff)
+				utflen += 3;
+			else
+				utflen += 2;
+		}
+		return utflen + 2;
 	}
 
 	/**
@@ -149,21 +203,7 @@ public class Convert {
 	 * @return the character
 	 */
 	public static char getCharValue(int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		char value;
-		byte tmp[] = new byte[2];
-		// copy the value from data array out to a tmp byte array
-		System.arraycopy(data, position, tmp, 0, 2);
-
-		/*
-		 * creates a new data input stream to read data from the specified input
-		 * stream
-		 */
-		in = new ByteArrayInputStream(tmp);
-		instr = new DataInputStream(in);
-		value = instr.readChar();
-		return value;
+		return (char) readUnsignedShort(position, data);
 	}
 
 
@@ -180,32 +220,9 @@ public class Convert {
 	 * @return the RID object
 	 */
 	public static RID getRIDValue (int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		int value[];
-		value = new int[2];
-
-		for (int i = 0; i < 2; i++) {
-
-			byte tmp[] = new byte[4];
-			System.arraycopy(data, position, tmp, 0, 4);
-			/*
-			 * creates a new data input stream to read data from the specified
-			 * input stream
-			 */
-			in = new ByteArrayInputStream(tmp);
-			instr = new DataInputStream(in);
-			value[i] = instr.readInt();
-
-		}
-		int pageNo = value[0];
-		int slotNo = value[1];
-		PageId page = new PageId(pageNo);
-		RID retRID = new RID(page, slotNo);
-
-		//retDesc.set(value[0], value[1], value[2], value[3], value[4]);
-		return retRID;
-
+		int pageNo = readInt(position, data);
+		int slotNo = readInt(position + 4, data);
+		return new RID(new PageId(pageNo), slotNo);
 	}
 
 
@@ -224,29 +241,81 @@ public class Convert {
 	 * @return the Descriptor object
 	 */
 	public static Descriptor getDescValue(int position, byte[] data) throws java.io.IOException {
-		InputStream in;
-		DataInputStream instr;
-		Descriptor retDesc = new Descriptor();
-		int value[];
-		value = new int[5];
+		return getDescValue(position, data, new Descriptor());
+	}
 
+	/**
+	 * reads a Descriptor from the given byte array at the specified position
+	 * into an existing Descriptor
+	 * 
+	 * @param position
+	 *            the position in data[]
+	 * @param data
+	 *            a byte array
+	 * @param desc
+	 *            the Descriptor to overwrite
+	 * @exception java.io.IOException
+	 *                I/O errors
+	 * @return desc
+	 */
+	public static Descriptor getDescValue(int position, byte[] data, Descriptor desc) throws java.io.IOException {
 		for (int i = 0; i < 5; i++) {
-
-			byte tmp[] = new byte[4];
-			System.arraycopy(data, position, tmp, 0 , 4);
-			/*
-			 * creates a new data input stream to read data from the specified
-			 * input stream
-			 */
-			in = new ByteArrayInputStream(tmp);
-			instr = new DataInputStream(in);
-			value[i] = instr.readInt();
+			desc.value[i] = readInt(position, data);
 			position += 4;
+		}
+		return desc;
+	}
 
+	/**
+	 * The distance between the Descriptor at the specified position and
+	 * another, as Descriptor.distance computes it.
+	 * 
+	 * @param position
+	 *            the position of the Descriptor in data[]
+	 * @param data
+	 *            a byte array
+	 * @param desc
+	 *            the other Descriptor
+	 * @exception java.io.IOException
+	 *                I/O errors
+	 * @return the distance
+	 */
+	public static double getDescDistance(int position, byte[] data, Descriptor desc) throws java.io.IOException {
+		double sum = 0;
+		for (int i = 0; i < 5; i++) {
+			int d = readInt(position, data) - desc.value[i];
+			sum += d * d;
+			position += 4;
 		}
-		retDesc.set(value[0], value[1], value[2], value[3], value[4]);
-		return retDesc;
+		return Math.sqrt(sum);
+	}
 
+	/**
+	 * The distance between two Descriptors stored in byte arrays, as
+	 * Descriptor.distance computes it.
+	 * 
+	 * @param position1
+	 *            the position of the first Descriptor in data1[]
+	 * @param data1
+	 *            the byte array of the first Descriptor
+	 * @param position2
+	 *            the position of the second Descriptor in data2[]
+	 * @param data2
+	 *            the byte array of the second Descriptor
+	 * @exception java.io.IOException
+	 *                I/O errors
+	 * @return the distance
+	 */
+	public static double getDescDistance(int position1, byte[] data1, int position2, byte[] data2)
+			throws java.io.IOException {
+		double sum = 0;
+		for (int i = 0; i < 5; i++) {
+			int d = readInt(position1, data1) - readInt(position2, data2);
+			sum += d * d;
+			position1 += 4;
+			position2 += 4;
+		}
+		return Math.sqrt(sum);
 	}
 
 	/**
@@ -262,32 +331,10 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setDescValue(Descriptor descValue, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
 		for (int i = 0; i < 5; i++) {
-			int value = descValue.get(i);
-
-			// write the value to the output stream
-			outstr.writeInt(value);
-
-			// creates a byte array with this output stream size and the
-			// valid contents of the buffer have been copied into it
-			byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-			if(i == 4){
-			// copies the first 4 bytes of this byte array into data[]
-				System.arraycopy(B, 0, data, position, 20);
-			}
-			//position += 4;
-
+			writeInt(descValue.value[i], position, data);
+			position += 4;
 		}
-
 	}
 
 
@@ -305,41 +352,8 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setRIDValue(RID rid, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		int pageNo = rid.pageNo.pid;
-		int slotNo = rid.slotNo;
-
-		// write the value to the output stream
-		outstr.writeInt(pageNo);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies the first 4 bytes of this byte array into data[]
-		System.arraycopy(B, 0, data, position, 4);
-		position += 4;
-
-		// write the value to the output stream
-		outstr.writeInt(slotNo);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B1 = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies the first 4 bytes of this byte array into data[]
-		System.arraycopy(B1, 0, data, position, 4);
-		position += 4;
-
-
-
+		writeInt(rid.pageNo.pid, position, data);
+		writeInt(rid.slotNo, position + 4, data);
 	}
 
 
@@ -356,25 +370,7 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setIntValue(int value, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		// write the value to the output stream
-
-		outstr.writeInt(value);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies the first 4 bytes of this byte array into data[]
-		System.arraycopy(B, 0, data, position, 4);
-
+		writeInt(value, position, data);
 	}
 
 	/**
@@ -390,25 +386,7 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setFloValue(float value, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		// write the value to the output stream
-
-		outstr.writeFloat(value);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies the first 4 bytes of this byte array into data[]
-		System.arraycopy(B, 0, data, position, 4);
-
+		writeInt(Float.floatToIntBits(value), position, data);
 	}
 
 	/**
@@ -424,25 +402,8 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setShortValue(short value, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		// write the value to the output stream
-
-		outstr.writeShort(value);
-
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		// copies the first 2 bytes of this byte array into data[]
-		System.arraycopy(B, 0, data, position, 2);
-
+		data[position] = (byte) (value >>> 8);
+		data[position + 1] = (byte) value;
 	}
 
 	/**
@@ -455,29 +416,34 @@ public class Convert {
 	 *            the value to be copied into data[]
 	 * @param position
 	 *            the position of tht value in data[]
+	 * @exception java.io.UTFDataFormatException
+	 *                the encoded string is longer than 65535 bytes
 	 * @exception java.io.IOException
 	 *                I/O errors
 	 */
 	public static void setStrValue(String value, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
-
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
-
-		// write the value to the output stream
-
-		outstr.writeUTF(value);
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
-
-		int sz = outstr.size();
-		// copies the contents of this byte array into data[]
-		System.arraycopy(B, 0, data, position, sz);
-
+		int utflen = getStrLength(value) - 2;
+		if (utflen > 65535)
+			throw new UTFDataFormatException("encoded string too long: " + utflen + " bytes");
+		// nothing is written unless all of it fits
+		if (position < 0 || position + 2 + utflen > data.length)
+			throw new ArrayIndexOutOfBoundsException(position + 2 + utflen);
+
+		data[position++] = (byte) (utflen >>> 8);
+		data[position++] = (byte) utflen;
+		for (int k = 0; k < value.length(); k++) {
+			char c = value.charAt(k);
+			if (c >= 0x0001 && c <= 0x007f) {
+				data[position++] = (byte) c;
+			} else if (c > 0x07ff) {
+				data[position++] = (byte) (0xe0 | ((c >> 12) & 0x0f));
+				data[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				data[position++] = (byte) (0x80 | (c & 0x3f));
+			} else {
+				data[position++] = (byte) (0xc0 | ((c >> 6) & 0x1f));
+				data[position++] = (byte) (0x80 | (c & 0x3f));
+			}
+		}
 	}
 
 	/**
@@ -493,23 +459,66 @@ public class Convert {
 	 *                I/O errors
 	 */
 	public static void setCharValue(char value, int position, byte[] data) throws java.io.IOException {
-		/*
-		 * creates a new data output stream to write data to underlying output
-		 * stream
-		 */
+		data[position] = (byte) (value >>> 8);
+		data[position + 1] = (byte) value;
+	}
+
+	private static int readInt(int position, byte[] data) {
+		return (data[position] << 24) | ((data[position + 1] & 0xff) << 16) | ((data[position + 2] & 0xff) << 8)
+				| (data[position + 3] & 0xff);
+	}
 
-		OutputStream out = new ByteArrayOutputStream();
-		DataOutputStream outstr = new DataOutputStream(out);
+	private static int readUnsignedShort(int position, byte[] data) {
+		return ((data[position] & 0xff) << 8) | (data[position + 1] & 0xff);
+	}
 
-		// write the value to the output stream
-		outstr.writeChar(value);
+	private static void writeInt(int value, int position, byte[] data) {
+		data[position] = (byte) (value >>> 24);
+		data[position + 1] = (byte) (value >>> 16);
+		data[position + 2] = (byte) (value >>> 8);
+		data[position + 3] = (byte) value;
+	}
 
-		// creates a byte array with this output stream size and the
-		// valid contents of the buffer have been copied into it
-		byte[] B = ((ByteArrayOutputStream) out).toByteArray();
+	// the number of bytes of the modified UTF-8 character starting at i
+	private static int charLength(byte[] data, int i, int end) throws UTFDataFormatException {
+		int b = data[i] & 0xff;
+		int n;
+		if (b < 0x80)
+			n = 1;
+		else if ((b & 0xe0) == 0xc0)
+			n = 2;
+		else if ((b & 0xf0) == 0xe0)
+			n = 3;
+		else
+			throw new UTFDataFormatException("malformed input around byte " + i);
+		if (i + n > end)
+			throw new UTFDataFormatException("malformed input: partial character at end");
+		return n;
+	}
 
-		// copies contents of this byte array into data[]
-		System.arraycopy(B, 0, data, position, 2);
+	// the character of n bytes starting at i
+	private static char charAt(byte[] data, int i, int n) throws UTFDataFormatException {
+		switch (n) {
+		case 1:
+			return (char) data[i];
+		case 2:
+			if ((data[i + 1] & 0xc0) != 0x80)
+				throw new UTFDataFormatException("malformed input around byte " + i);
+			return (char) (((data[i] & 0x1f) << 6) | (data[i + 1] & 0x3f));
+		default:
+			if ((data[i + 1] & 0xc0) != 0x80 || (data[i + 2] & 0xc0) != 0x80)
+				throw new UTFDataFormatException("malformed input around byte " + (i + 1));
+			return (char) (((data[i] & 0x0f) << 12) | ((data[i + 1] & 0x3f) << 6) | (data[i + 2] & 0x3f));
+		}
+	}
 
+	// the number of characters left between i and end
+	private static int remaining(byte[] data, int i, int end) throws UTFDataFormatException {
+		int count = 0;
+		while (i < end) {
+			i += charLength(data, i, end);
+			count++;
+		}
+		return count;
 	}
 }
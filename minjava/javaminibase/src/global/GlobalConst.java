@@ -5,12 +5,21 @@ public interface GlobalConst {
 	public static final int MINIBASE_MAXARRSIZE = 50;
 	public static final int NUMBUF = 200;
 
-	/** Size of page. */
+	/**
+	 * Default size of page. A database may be created with larger pages, see
+	 * SystemDefs.JavabasePageSize.
+	 */
 	public static final int MINIBASE_PAGESIZE = 1024; // in bytes
 
+	/**
+	 * Largest size of page: record offsets and lengths on a page are shorts.
+	 */
+	public static final int MINIBASE_MAX_PAGESIZE = 16384; // in bytes
+
 	/** Size of each frame. */
 	public static final int MINIBASE_BUFFER_POOL_SIZE = 1024; // in Frames
 
+	/** Default space on a page, equal to MINIBASE_PAGESIZE. */
 	public static final int MAX_SPACE = 1024; // in Frames
 
 	/**
@@ -14,6 +14,13 @@ public class SystemDefs {
 	public static boolean MINIBASE_RESTART_FLAG = false;
 	public static String MINIBASE_DBNAME;
 
+	/**
+	 * Size of the pages of the open database, one of 1024, 2048, 4096, 8192
+	 * and 16384 bytes. Pages, frames and the sort buffers are allocated with
+	 * this size.
+	 */
+	public static int JavabasePageSize = GlobalConst.MINIBASE_PAGESIZE;
+
 	/**
 	 * Default constructor
 	 */
@@ -24,9 +31,40 @@ public class SystemDefs {
 	 * @param dbname - name of the database
 	 * @param num_pgs - number of pages
 	 * @param bufpoolsize - buffer pool size
-	 * @param replacement_policy - the replacement algorithm used
+	 * @param replacement_policy - the replacement algorithm used: "Clock", "LRU", "MRU",
+	 *        "LRU-K" (LRU-2), "LRU-<k>", "2Q" or "ARC"; if null, the value of the
+	 *        system property minibase.replacer, or "Clock" if it is not set
 	 */
 	public SystemDefs(String dbname, int num_pgs, int bufpoolsize, String replacement_policy) {
+		this(dbname, num_pgs, bufpoolsize, replacement_policy, null);
+	}
+
+	/** Constructor for the class SystemDefs
+	 * @param dbname - name of the database
+	 * @param num_pgs - number of pages
+	 * @param bufpoolsize - buffer pool size
+	 * @param replacement_policy - the replacement algorithm used, as above
+	 * @param page_io - how the database file is read and written: "File",
+	 *        "Channel" or "Mmap"; if null, the value of the system property
+	 *        minibase.pageio, or "File" if it is not set
+	 */
+	public SystemDefs(String dbname, int num_pgs, int bufpoolsize, String replacement_policy, String page_io) {
+		this(dbname, num_pgs, bufpoolsize, replacement_policy, page_io, 0);
+	}
+
+	/** Constructor for the class SystemDefs
+	 * @param dbname - name of the database
+	 * @param num_pgs - number of pages
+	 * @param bufpoolsize - buffer pool size
+	 * @param replacement_policy - the replacement algorithm used, as above
+	 * @param page_io - the page I/O backend, as above
+	 * @param page_size - size of the pages of a new database: 1024, 2048,
+	 *        4096, 8192 or 16384; if 0, the value of the system property
+	 *        minibase.pagesize, or 1024 if it is not set. An existing database
+	 *        keeps the page size it was created with.
+	 */
+	public SystemDefs(String dbname, int num_pgs, int bufpoolsize, String replacement_policy, String page_io,
+			int page_size) {
 		int logsize;
 
 		String real_logname = new String(dbname);
@@ -39,10 +77,18 @@ public class SystemDefs {
 		}
 
 		if (replacement_policy == null) {
-			replacement_policy = new String("Clock");
+			replacement_policy = System.getProperty("minibase.replacer", "Clock");
+		}
+
+		if (page_io == null) {
+			page_io = System.getProperty("minibase.pageio", PageIO.DEFAULT);
+		}
+
+		if (page_size == 0) {
+			page_size = Integer.getInteger("minibase.pagesize", GlobalConst.MINIBASE_PAGESIZE);
 		}
 
-		init(real_dbname, real_logname, num_pgs, logsize, bufpoolsize, replacement_policy);
+		init(real_dbname, real_logname, num_pgs, logsize, bufpoolsize, replacement_policy, page_io, page_size);
 	}
 
 	/** Initialize method
@@ -56,6 +102,23 @@ public class SystemDefs {
 	 */
 	public void init(String dbname, String logname, int num_pgs, int maxlogsize, int bufpoolsize,
 			String replacement_policy) {
+		init(dbname, logname, num_pgs, maxlogsize, bufpoolsize, replacement_policy, PageIO.DEFAULT,
+				GlobalConst.MINIBASE_PAGESIZE);
+	}
+
+	/** Initialize method
+	 * This method initializes the Buffer Manager and the Database
+	 * @param dbname - Database name
+	 * @param logname
+	 * @param num_pgs - Number of pages
+	 * @param maxlogsize 
+	 * @param bufpoolsize - Buffer pool size
+	 * @param replacement_policy - Replacement algorithm
+	 * @param page_io - Page I/O backend of the database file
+	 * @param page_size - Page size of a new database
+	 */
+	public void init(String dbname, String logname, int num_pgs, int maxlogsize, int bufpoolsize,
+			String replacement_policy, String page_io, int page_size) {
 
 		boolean status = true;
 		JavabaseBM = null;
@@ -64,9 +127,19 @@ public class SystemDefs {
 		JavabaseLogName = null;
 		JavabaseCatalog = null;
 
+		boolean restart = (MINIBASE_RESTART_FLAG) || (num_pgs == 0);
+
 		try {
-			JavabaseBM = new BufMgr(bufpoolsize, replacement_policy);
+			// an existing database decides its page size
+			if (restart) {
+				page_size = DB.readPageSize(dbname);
+			}
+			DB.checkPageSize(page_size);
+			JavabasePageSize = page_size;
+
+			JavabaseBM = new BufMgr(bufpoolsize, replacement_policy, page_size);
 			JavabaseDB = new GraphDB(0);
+			JavabaseDB.setPageIO(page_io);
 			/*
 			 * JavabaseCatalog = new Catalog();
 			 */
@@ -82,7 +155,7 @@ public class SystemDefs {
 
 		// create or open the DB
 
-		if ((MINIBASE_RESTART_FLAG) || (num_pgs == 0)) {
+		if (restart) {
 			// open an existing database
 			try {
 				JavabaseDB.openDB(dbname);
@@ -93,7 +166,7 @@ public class SystemDefs {
 			}
 		} else {
 			try {
-				JavabaseDB.openDB(dbname, num_pgs);
+				JavabaseDB.openDB(dbname, num_pgs, page_size);
 			} catch (Exception e) {
 				System.err.println("" + e);
 				e.printStackTrace();
@@ -0,0 +1,316 @@
+/* File FreeSpaceMap.java */
+
+package heap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import global.GlobalConst;
+import global.PageId;
+import global.SystemDefs;
+
+/**
+ * The free space of the data pages of a heap file, kept in memory so that
+ * an insert finds a page with room without reading the directory. The
+ * directory pages stay the persistent record: a map is built from them by
+ * one pass over the directory the first time a file is inserted into, and
+ * the heap file then updates the map along with every DataPageInfo it
+ * writes.
+ * <p>
+ * Data pages are bucketed by their free space in steps of eight bytes, and a
+ * bitmap of the buckets in use leads to the first bucket whose pages all
+ * have room for a record, so finding a page does not depend on the number
+ * of pages in the file. The page the last record went to is tried first,
+ * which keeps a file filled page by page as before. The map also keeps the
+ * directory pages that may have room for another DataPageInfo and the last
+ * directory page of the chain.
+ * <p>
+ * A file may be opened by several Heapfile objects at once, all of which
+ * must see the same map, so the maps are registered by the first directory
+ * page of their file. The heap file classes of the nodeheap and edgeheap
+ * packages use the same maps.
+ */
+public class FreeSpaceMap implements GlobalConst {
+
+	private static final int SHIFT = 3;
+
+	/** the maps of the open database, by first directory page */
+	private static HashMap<Integer, FreeSpaceMap> maps = new HashMap<Integer, FreeSpaceMap>();
+	private static Object mapsDB;
+
+	/** the data pages, by entry */
+	private int dataPage[];
+	private int dirPage[];
+	private int dirSlot[];
+	private int avail[];
+	private int next[];
+	private int prev[];
+	private int size = 0;
+	private int freeEntry = -1;
+
+	/** entry of each data page */
+	private HashMap<Integer, Integer> entries = new HashMap<Integer, Integer>();
+
+	/** first entry of each bucket and the buckets in use */
+	private int head[];
+	private long used[];
+
+	/** the entry the last record went to */
+	private int hint = -1;
+
+	/** directory pages that may have room for a DataPageInfo */
+	private LinkedHashSet<Integer> dirsWithRoom = new LinkedHashSet<Integer>();
+	private int lastDirPage = INVALID_PAGE;
+
+	/**
+	 * Get the map registered for a file.
+	 *
+	 * @param firstDirPageId
+	 *            the first directory page of the file
+	 * @return the map, null if none was built yet
+	 */
+	public static FreeSpaceMap get(PageId firstDirPageId) {
+		if (mapsDB != SystemDefs.JavabaseDB) {
+			// a database was opened since, the maps are not its own
+			maps.clear();
+			mapsDB = SystemDefs.JavabaseDB;
+		}
+		return maps.get(firstDirPageId.pid);
+	}
+
+	/**
+	 * Register the map of a file.
+	 *
+	 * @param firstDirPageId
+	 *            the first directory page of the file
+	 * @param map
+	 *            the map built for it
+	 */
+	public static void register(PageId firstDirPageId, FreeSpaceMap map) {
+		get(firstDirPageId);
+		maps.put(firstDirPageId.pid, map);
+	}
+
+	/**
+	 * Drop the map of a file that is deleted or created anew.
+	 *
+	 * @param firstDirPageId
+	 *            the first directory page of the file
+	 */
+	public static void forget(PageId firstDirPageId) {
+		get(firstDirPageId);
+		maps.remove(firstDirPageId.pid);
+	}
+
+	/**
+	 * Create an empty map for a file of the current page size.
+	 */
+	public FreeSpaceMap() {
+		int capacity = 16;
+		dataPage = new int[capacity];
+		dirPage = new int[capacity];
+		dirSlot = new int[capacity];
+		avail = new int[capacity];
+		next = new int[capacity];
+		prev = new int[capacity];
+
+		int buckets = (SystemDefs.JavabasePageSize >> SHIFT) + 1;
+		head = new int[buckets];
+		used = new long[(buckets + 63) >>> 6];
+		for (int b = 0; b < buckets; b++)
+			head[b] = -1;
+	}
+
+	/**
+	 * Add a data page; it becomes the page tried first by the next find.
+	 *
+	 * @param dataPid
+	 *            the data page
+	 * @param dirPid
+	 *            the directory page holding its DataPageInfo
+	 * @param slot
+	 *            the slot of the DataPageInfo on the directory page
+	 * @param availspace
+	 *            the free space of the data page
+	 * @return the entry of the page
+	 */
+	public int add(int dataPid, int dirPid, int slot, int availspace) {
+		int e = freeEntry;
+		if (e >= 0) {
+			freeEntry = next[e];
+		} else {
+			if (size == dataPage.length)
+				grow();
+			e = size++;
+		}
+		dataPage[e] = dataPid;
+		dirPage[e] = dirPid;
+		dirSlot[e] = slot;
+		avail[e] = availspace;
+		link(e);
+		entries.put(dataPid, e);
+		hint = e;
+		return e;
+	}
+
+	/**
+	 * @param dataPid
+	 *            a data page
+	 * @return the entry of the page, -1 if it is not in the map
+	 */
+	public int entry(int dataPid) {
+		Integer e = entries.get(dataPid);
+		return e == null ? -1 : e.intValue();
+	}
+
+	/**
+	 * Record the new free space of a data page.
+	 *
+	 * @param e
+	 *            the entry of the page
+	 * @param availspace
+	 *            its free space
+	 */
+	public void update(int e, int availspace) {
+		unlink(e);
+		avail[e] = availspace;
+		link(e);
+	}
+
+	/**
+	 * Remove a data page that was freed.
+	 *
+	 * @param e
+	 *            the entry of the page
+	 */
+	public void remove(int e) {
+		unlink(e);
+		entries.remove(dataPage[e]);
+		if (hint == e)
+			hint = -1;
+		next[e] = freeEntry;
+		freeEntry = e;
+	}
+
+	/**
+	 * Find a data page with room for a record; it becomes the page tried
+	 * first by the next find.
+	 *
+	 * @param recLen
+	 *            the length of the record
+	 * @return the entry of the page, -1 if no page has room
+	 */
+	public int find(int recLen) {
+		if (hint >= 0 && avail[hint] >= recLen)
+			return hint;
+
+		// every page of this bucket and above has room
+		int b = (recLen + (1 << SHIFT) - 1) >> SHIFT;
+		if (b >= head.length)
+			return -1;
+		int w = b >>> 6;
+		long word = used[w] & (-1L << (b & 63));
+		while (word == 0) {
+			if (++w == used.length)
+				return -1;
+			word = used[w];
+		}
+		hint = head[(w << 6) + Long.numberOfTrailingZeros(word)];
+		return hint;
+	}
+
+	/** @return the data page of an entry. */
+	public int dataPage(int e) {
+		return dataPage[e];
+	}
+
+	/** @return the directory page holding the DataPageInfo of an entry. */
+	public int dirPage(int e) {
+		return dirPage[e];
+	}
+
+	/** @return the slot of the DataPageInfo of an entry. */
+	public int dirSlot(int e) {
+		return dirSlot[e];
+	}
+
+	/**
+	 * Note a directory page that has room for a DataPageInfo.
+	 *
+	 * @param dirPid
+	 *            the directory page
+	 */
+	public void addDirPage(int dirPid) {
+		dirsWithRoom.add(dirPid);
+	}
+
+	/**
+	 * Note a directory page that has no room left, or was freed.
+	 *
+	 * @param dirPid
+	 *            the directory page
+	 */
+	public void removeDirPage(int dirPid) {
+		dirsWithRoom.remove(dirPid);
+	}
+
+	/**
+	 * @return a directory page that may have room for a DataPageInfo,
+	 *         INVALID_PAGE if there is none
+	 */
+	public int dirPageWithRoom() {
+		Iterator<Integer> it = dirsWithRoom.iterator();
+		return it.hasNext() ? it.next().intValue() : INVALID_PAGE;
+	}
+
+	/** @return the last directory page of the chain. */
+	public int lastDirPage() {
+		return lastDirPage;
+	}
+
+	/**
+	 * @param dirPid
+	 *            the last directory page of the chain
+	 */
+	public void setLastDirPage(int dirPid) {
+		lastDirPage = dirPid;
+	}
+
+	private void link(int e) {
+		int b = Math.max(avail[e], 0) >> SHIFT;
+		if (b >= head.length)
+			b = head.length - 1;
+		prev[e] = -1;
+		next[e] = head[b];
+		if (head[b] >= 0)
+			prev[head[b]] = e;
+		head[b] = e;
+		used[b >>> 6] |= 1L << (b & 63);
+	}
+
+	private void unlink(int e) {
+		int b = Math.max(avail[e], 0) >> SHIFT;
+		if (b >= head.length)
+			b = head.length - 1;
+		if (prev[e] >= 0)
+			next[prev[e]] = next[e];
+		else
+			head[b] = next[e];
+		if (next[e] >= 0)
+			prev[next[e]] = prev[e];
+		if (head[b] < 0)
+			used[b >>> 6] &= ~(1L << (b & 63));
+	}
+
+	private void grow() {
+		int capacity = dataPage.length * 2;
+		dataPage = Arrays.copyOf(dataPage, capacity);
+		dirPage = Arrays.copyOf(dirPage, capacity);
+		dirSlot = Arrays.copyOf(dirSlot, capacity);
+		avail = Arrays.copyOf(avail, capacity);
+		next = Arrays.copyOf(next, capacity);
+		prev = Arrays.copyOf(prev, capacity);
+	}
+}
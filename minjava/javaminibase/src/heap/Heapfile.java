@@ -46,6 +46,26 @@ public class Heapfile implements Filetype, GlobalConst {
 	private boolean _file_deleted;
 	private String _fileName;
 	private static int tempfilecount = 0;
+	private BufferRing _ring; // null: use the whole buffer pool
+
+	/**
+	 * Makes every page of this file be read and allocated through the given
+	 * buffer ring, as do the scans opened on it later. Meant for files that
+	 * are written and read sequentially once, such as sort runs.
+	 *
+	 * @param ring
+	 *            the buffer ring, null to use the whole buffer pool again
+	 */
+	public void setBufferRing(BufferRing ring) {
+		_ring = ring;
+	}
+
+	/**
+	 * @return the buffer ring set by setBufferRing, null if none
+	 */
+	public BufferRing getBufferRing() {
+		return _ring;
+	}
 
 	/*
 	 * get a new datapage from the buffer manager and initialize dpinfo
@@ -74,6 +94,73 @@ public class Heapfile implements Filetype, GlobalConst {
 
 	} // end of _newDatapage
 
+	/*
+	 * the free space map of the file, built by one pass over the directory
+	 * the first time the file is inserted into
+	 */
+	private FreeSpaceMap _freeSpaceMap() throws InvalidSlotNumberException, InvalidTupleSizeException, HFBufMgrException,
+			IOException {
+		FreeSpaceMap fsm = FreeSpaceMap.get(_firstDirPageId);
+		if (fsm != null)
+			return fsm;
+
+		fsm = new FreeSpaceMap();
+		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
+		HFPage currentDirPage = new HFPage();
+		while (currentDirPageId.pid != INVALID_PAGE) {
+			pinPage(currentDirPageId, currentDirPage, false);
+			for (RID rid = currentDirPage.firstRecord(); rid != null; rid = currentDirPage.nextRecord(rid)) {
+				DataPageInfo dpinfo = new DataPageInfo(currentDirPage.getRecord(rid));
+				fsm.add(dpinfo.pageId.pid, currentDirPageId.pid, rid.slotNo, dpinfo.availspace);
+			}
+			if (currentDirPage.available_space() >= DataPageInfo.size)
+				fsm.addDirPage(currentDirPageId.pid);
+			fsm.setLastDirPage(currentDirPageId.pid);
+
+			PageId nextDirPageId = currentDirPage.getNextPage();
+			unpinPage(currentDirPageId, false /* undirty */);
+			currentDirPageId.pid = nextDirPageId.pid;
+		}
+		FreeSpaceMap.register(_firstDirPageId, fsm);
+		return fsm;
+	} // end of _freeSpaceMap
+
+	/*
+	 * pin a directory page with room for a new DataPageInfo, appending one
+	 * to the directory if no page has room
+	 */
+	private void _pinDirPageWithRoom(FreeSpaceMap fsm, PageId dirPageId, HFPage dirPage)
+			throws HFException, HFBufMgrException, IOException {
+		for (int pid = fsm.dirPageWithRoom(); pid != INVALID_PAGE; pid = fsm.dirPageWithRoom()) {
+			dirPageId.pid = pid;
+			pinPage(dirPageId, dirPage, false);
+			if (dirPage.available_space() >= DataPageInfo.size)
+				return;
+			unpinPage(dirPageId, false /* undirty */);
+			fsm.removeDirPage(pid);
+		}
+
+		// append a new directory page after the last one
+		Page pageinbuffer = new Page();
+		PageId lastDirPageId = new PageId(fsm.lastDirPage());
+		PageId newDirPageId = newPage(pageinbuffer, 1);
+		if (newDirPageId == null)
+			throw new HFException(null, "can't new pae");
+
+		dirPage.init(newDirPageId, pageinbuffer);
+		dirPage.setNextPage(new PageId(INVALID_PAGE));
+		dirPage.setPrevPage(lastDirPageId);
+
+		HFPage lastDirPage = new HFPage();
+		pinPage(lastDirPageId, lastDirPage, false);
+		lastDirPage.setNextPage(newDirPageId);
+		unpinPage(lastDirPageId, true /* dirty */);
+
+		dirPageId.pid = newDirPageId.pid;
+		fsm.addDirPage(newDirPageId.pid);
+		fsm.setLastDirPage(newDirPageId.pid);
+	} // end of _pinDirPageWithRoom
+
 	/*
 	 * Internal HeapFile function (used in getRecord and updateRecord): returns
 	 * pinned directory page and pinned data page of the specified user
@@ -242,6 +329,7 @@ public class Heapfile implements Filetype, GlobalConst {
 				throw new HFException(null, "can't new page");
 
 			add_file_entry(_fileName, _firstDirPageId);
+			FreeSpaceMap.forget(_firstDirPageId);
 			// check error(new exception: Could not add file entry
 
 			HFPage firstDirPage = new HFPage();
@@ -349,189 +437,48 @@ public class Heapfile implements Filetype, GlobalConst {
 	 */
 	public RID insertRecord(byte[] recPtr) throws InvalidSlotNumberException, InvalidTupleSizeException,
 			SpaceNotAvailableException, HFException, HFBufMgrException, HFDiskMgrException, IOException {
-		int dpinfoLen = 0;
 		int recLen = recPtr.length;
-		boolean found;
-		RID currentDataPageRid = new RID();
-		Page pageinbuffer = new Page();
+		FreeSpaceMap fsm = _freeSpaceMap();
 		HFPage currentDirPage = new HFPage();
 		HFPage currentDataPage = new HFPage();
-
-		HFPage nextDirPage = new HFPage();
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-		PageId nextDirPageId = new PageId(); // OK
-
-		pinPage(currentDirPageId, currentDirPage, false/* Rdisk */);
-
-		found = false;
+		PageId currentDirPageId = new PageId();
+		RID currentDataPageRid;
+		DataPageInfo dpinfo;
 		Tuple atuple;
-		DataPageInfo dpinfo = new DataPageInfo();
-		while (found == false) { // Start While01
-									// look for suitable dpinfo-struct
-			for (currentDataPageRid = currentDirPage
-					.firstRecord(); currentDataPageRid != null; currentDataPageRid = currentDirPage
-							.nextRecord(currentDataPageRid)) {
-				atuple = currentDirPage.getRecord(currentDataPageRid);
-
-				dpinfo = new DataPageInfo(atuple);
-
-				// need check the record length == DataPageInfo'slength
 
-				if (recLen <= dpinfo.availspace) {
-					found = true;
-					break;
-				}
-			}
-
-			// two cases:
-			// (1) found == true:
-			// currentDirPage has a datapagerecord which can accomodate
-			// the record which we have to insert
-			// (2) found == false:
-			// there is no datapagerecord on the current directory page
-			// whose corresponding datapage has enough space free
-			// several subcases: see below
-			if (found == false) { // Start IF01
-									// case (2)
-
-				// System.out.println("no datapagerecord on the current
-				// directory is OK");
-				// System.out.println("dirpage availspace
-				// "+currentDirPage.available_space());
-
-				// on the current directory page is no datapagerecord which has
-				// enough free space
-				//
-				// two cases:
-				//
-				// - (2.1) (currentDirPage->available_space() >=
-				// sizeof(DataPageInfo):
-				// if there is enough space on the current directory page
-				// to accomodate a new datapagerecord (type DataPageInfo),
-				// then insert a new DataPageInfo on the current directory
-				// page
-				// - (2.2) (currentDirPage->available_space() <=
-				// sizeof(DataPageInfo):
-				// look at the next directory page, if necessary, create it.
-
-				if (currentDirPage.available_space() >= dpinfo.size) {
-					// Start IF02
-					// case (2.1) : add a new data page record into the
-					// current directory page
-					PCounter.writeIncrement();
-					currentDataPage = _newDatapage(dpinfo);
-					// currentDataPage is pinned! and dpinfo->pageId is also
-					// locked
-					// in the exclusive mode
-
-					// didn't check if currentDataPage==NULL, auto exception
-
-					// currentDataPage is pinned: insert its record
-					// calling a HFPage function
-
-					atuple = dpinfo.convertToTuple();
-
-					byte[] tmpData = atuple.getTupleByteArray();
-					currentDataPageRid = currentDirPage.insertRecord(tmpData);
-
-					RID tmprid = currentDirPage.firstRecord();
-
-					// need catch error here!
-					if (currentDataPageRid == null)
-						throw new HFException(null, "no space to insert rec.");
-
-					// end the loop, because a new datapage with its record
-					// in the current directorypage was created and inserted
-					// into
-					// the heapfile; the new datapage has enough space for the
-					// record which the user wants to insert
-
-					found = true;
-
-				} // end of IF02
-				else { // Start else 02
-						// case (2.2)
-					nextDirPageId = currentDirPage.getNextPage();
-					// two sub-cases:
-					//
-					// (2.2.1) nextDirPageId != INVALID_PAGE:
-					// get the next directory page from the buffer manager
-					// and do another look
-					// (2.2.2) nextDirPageId == INVALID_PAGE:
-					// append a new directory page at the end of the current
-					// page and then do another loop
-
-					if (nextDirPageId.pid != INVALID_PAGE) { // Start IF03
-																// case (2.2.1):
-																// there is
-																// another
-																// directory
-																// page:
-						unpinPage(currentDirPageId, false);
-
-						currentDirPageId.pid = nextDirPageId.pid;
-
-						pinPage(currentDirPageId, currentDirPage, false);
-
-						// now go back to the beginning of the outer while-loop
-						// and
-						// search on the current directory page for a suitable
-						// datapage
-					} // End of IF03
-					else { // Start Else03
-							// case (2.2): append a new directory page after
-							// currentDirPage
-							// since it is the last directory page
-						nextDirPageId = newPage(pageinbuffer, 1);
-						// need check error!
-						if (nextDirPageId == null)
-							throw new HFException(null, "can't new pae");
-
-						// initialize new directory page
-						nextDirPage.init(nextDirPageId, pageinbuffer);
-						PageId temppid = new PageId(INVALID_PAGE);
-						nextDirPage.setNextPage(temppid);
-						nextDirPage.setPrevPage(currentDirPageId);
-
-						// update current directory page and unpin it
-						// currentDirPage is already locked in the Exclusive
-						// mode
-						currentDirPage.setNextPage(nextDirPageId);
-						unpinPage(currentDirPageId, true/* dirty */);
-
-						currentDirPageId.pid = nextDirPageId.pid;
-						currentDirPage = new HFPage(nextDirPage);
-
-						// remark that MINIBASE_BM->newPage already
-						// pinned the new directory page!
-						// Now back to the beginning of the while-loop, using
-						// the
-						// newly created directory page.
-
-					} // End of else03
-				} // End of else02
-					// ASSERTIONS:
-					// - if found == true: search will end and see assertions
-					// below
-					// - if found == false: currentDirPage, currentDirPageId
-					// valid and pinned
-
-			} // end IF01
-			else { // Start else01
-					// found == true:
-					// we have found a datapage with enough space,
-					// but we have not yet pinned the datapage:
-
-				// ASSERTIONS:
-				// - dpinfo valid
-
-				// System.out.println("find the dirpagerecord on current page");
-
-				pinPage(dpinfo.pageId, currentDataPage, false);
-				// currentDataPage.openHFpage(pageinbuffer);
-
-			} // End else01
-		} // end of While01
+		int entry = fsm.find(recLen);
+		if (entry >= 0) {
+			// a datapage with enough space: the map knows where its
+			// DataPageInfo is, no need to search the directory
+			currentDirPageId.pid = fsm.dirPage(entry);
+			currentDataPageRid = new RID(new PageId(currentDirPageId.pid), fsm.dirSlot(entry));
+			pinPage(currentDirPageId, currentDirPage, false/* Rdisk */);
+
+			atuple = currentDirPage.getRecord(currentDataPageRid);
+			dpinfo = new DataPageInfo(atuple);
+			pinPage(dpinfo.pageId, currentDataPage, false);
+		} else {
+			// no datapage has enough space: add a new one, its
+			// DataPageInfo goes on a directory page with room
+			_pinDirPageWithRoom(fsm, currentDirPageId, currentDirPage);
+
+			dpinfo = new DataPageInfo();
+			PCounter.writeIncrement();
+			currentDataPage = _newDatapage(dpinfo);
+			// currentDataPage is pinned: insert its record
+			// calling a HFPage function
+
+			atuple = dpinfo.convertToTuple();
+			currentDataPageRid = currentDirPage.insertRecord(atuple.getTupleByteArray());
+
+			// need catch error here!
+			if (currentDataPageRid == null)
+				throw new HFException(null, "no space to insert rec.");
+
+			if (currentDirPage.available_space() < DataPageInfo.size)
+				fsm.removeDirPage(currentDirPageId.pid);
+			entry = fsm.add(dpinfo.pageId.pid, currentDirPageId.pid, currentDataPageRid.slotNo, dpinfo.availspace);
+		}
 
 		// ASSERTIONS:
 		// - currentDirPageId, currentDirPage valid and pinned
@@ -565,6 +512,7 @@ public class Heapfile implements Filetype, GlobalConst {
 		dpinfo_ondirpage.flushToTuple();
 
 		unpinPage(currentDirPageId, true /* = DIRTY */);
+		fsm.update(entry, dpinfo.availspace);
 
 		return rid;
 
@@ -628,6 +576,10 @@ public class Heapfile implements Filetype, GlobalConst {
 			pdpinfo.flushToTuple();
 			unpinPage(currentDataPageId, true /* = DIRTY */);
 
+			FreeSpaceMap fsm = FreeSpaceMap.get(_firstDirPageId);
+			if (fsm != null)
+				fsm.update(fsm.entry(currentDataPageId.pid), pdpinfo.availspace);
+
 			unpinPage(currentDirPageId, true /* = DIRTY */);
 
 		} else {
@@ -648,6 +600,10 @@ public class Heapfile implements Filetype, GlobalConst {
 
 			currentDirPage.deleteRecord(currentDataPageRid);
 
+			FreeSpaceMap fsm = FreeSpaceMap.get(_firstDirPageId);
+			if (fsm != null)
+				fsm.remove(fsm.entry(currentDataPageId.pid));
+
 			// ASSERTIONS:
 			// - currentDataPage, currentDataPageId invalid
 			// - empty datapage unpinned and deleted
@@ -691,6 +647,12 @@ public class Heapfile implements Filetype, GlobalConst {
 
 				}
 
+				if (fsm != null) {
+					fsm.removeDirPage(currentDirPageId.pid);
+					if (fsm.lastDirPage() == currentDirPageId.pid)
+						fsm.setLastDirPage(currentDirPage.getPrevPage().pid);
+				}
+
 				// delete empty directory page: (automatically unpinned?)
 				unpinPage(currentDirPageId, false/* undirty */);
 				freePage(currentDirPageId);
@@ -702,6 +664,8 @@ public class Heapfile implements Filetype, GlobalConst {
 				// in both cases we do not delete it, but we have to unpin it:
 
 				unpinPage(currentDirPageId, true /* == DIRTY */);
+				if (fsm != null)
+					fsm.addDirPage(currentDirPageId.pid);
 
 			}
 		}
@@ -836,6 +800,22 @@ public class Heapfile implements Filetype, GlobalConst {
 		return newscan;
 	}
 
+	/**
+	 * Initiate a sequential scan that reads the pages through a buffer ring.
+	 * 
+	 * @param ring
+	 *            the buffer ring of the scan
+	 * @exception InvalidTupleSizeException
+	 *                Invalid tuple size
+	 * @exception IOException
+	 *                I/O errors
+	 *
+	 */
+	public Scan openScan(BufferRing ring) throws InvalidTupleSizeException, IOException {
+		Scan newscan = new Scan(this, ring);
+		return newscan;
+	}
+
 	/**
 	 * Delete the file from the database.
 	 *
@@ -902,6 +882,7 @@ public class Heapfile implements Filetype, GlobalConst {
 		}
 
 		delete_file_entry(_fileName);
+		FreeSpaceMap.forget(_firstDirPageId);
 	}
 
 	/**
@@ -912,7 +893,7 @@ public class Heapfile implements Filetype, GlobalConst {
 	private void pinPage(PageId pageno, Page page, boolean emptyPage) throws HFBufMgrException {
 
 		try {
-			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage);
+			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage, _ring);
 		} catch (Exception e) {
 			throw new HFBufMgrException(e, "Heapfile.java: pinPage() failed");
 		}
@@ -949,7 +930,7 @@ public class Heapfile implements Filetype, GlobalConst {
 		PageId tmpId = new PageId();
 
 		try {
-			tmpId = SystemDefs.JavabaseBM.newPage(page, num);
+			tmpId = SystemDefs.JavabaseBM.newPage(page, num, _ring);
 		} catch (Exception e) {
 			throw new HFBufMgrException(e, "Heapfile.java: newPage() failed");
 		}
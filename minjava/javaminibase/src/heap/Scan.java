@@ -53,6 +53,9 @@ public class Scan implements GlobalConst {
 	/** Status of next user status */
 	private boolean nextUserStatus;
 
+	/** the buffer ring the pages are read through, null for none */
+	private BufferRing ring;
+
 	/**
 	 * The constructor pins the first directory page in the file and initializes
 	 * its private data members from the private data member from hf
@@ -66,6 +69,27 @@ public class Scan implements GlobalConst {
 	 *            A HeapFile object
 	 */
 	public Scan(Heapfile hf) throws InvalidTupleSizeException, IOException {
+		this(hf, hf.getBufferRing());
+	}
+
+	/**
+	 * The constructor pins the first directory page in the file and initializes
+	 * its private data members from the private data member from hf. The pages
+	 * are read through the given buffer ring, so that a scan of a large file
+	 * recycles a few frames instead of flushing the buffer pool.
+	 *
+	 * @exception InvalidTupleSizeException
+	 *                Invalid tuple size
+	 * @exception IOException
+	 *                I/O errors
+	 *
+	 * @param hf
+	 *            A HeapFile object
+	 * @param ring
+	 *            the buffer ring of the scan, null to use the whole pool
+	 */
+	public Scan(Heapfile hf, BufferRing ring) throws InvalidTupleSizeException, IOException {
+		this.ring = ring;
 		init(hf);
 	}
 
@@ -597,7 +621,7 @@ public class Scan implements GlobalConst {
 	private void pinPage(PageId pageno, Page page, boolean emptyPage) throws HFBufMgrException {
 
 		try {
-			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage);
+			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage, ring);
 		} catch (Exception e) {
 			throw new HFBufMgrException(e, "Scan.java: pinPage() failed");
 		}
@@ -9,9 +9,11 @@ import global.*;
 public class Tuple implements GlobalConst {
 
 	/**
-	 * Maximum size of any tuple
+	 * Maximum size of any tuple, the page size of the database
 	 */
-	public static final int max_size = MINIBASE_PAGESIZE;
+	public static int max_size() {
+		return SystemDefs.JavabasePageSize;
+	}
 
 	/**
 	 * a byte array to hold data
@@ -46,9 +48,9 @@ public class Tuple implements GlobalConst {
 
 	public Tuple() {
 		// Creat a new tuple
-		data = new byte[max_size];
+		data = new byte[max_size()];
 		tuple_offset = 0;
-		tuple_length = max_size;
+		tuple_length = data.length;
 	}
 
 	/**
@@ -82,6 +84,10 @@ public class Tuple implements GlobalConst {
 		tuple_offset = 0;
 		fldCnt = fromTuple.noOfFlds();
 		fldOffset = fromTuple.copyFldOffset();
+		// the copy starts at 0, wherever the tuple sat in its array
+		if (fldOffset != null)
+			for (int i = 0; i <= fldCnt; i++)
+				fldOffset[i] -= fromTuple.getOffset();
 	}
 
 	/**
@@ -126,6 +132,33 @@ public class Tuple implements GlobalConst {
 		tuple_length = length;
 	}
 
+	/**
+	 * Point this tuple at a record in place, with field offsets known in
+	 * advance instead of set up by setHdr. Nothing is copied, and once the
+	 * tuple has held a record with as many fields nothing is allocated
+	 * either. The record is only valid as long as the byte array holds it.
+	 *
+	 * @param atuple
+	 *            a byte array which contains the record
+	 * @param offset
+	 *            the offset of the record in the byte array
+	 * @param length
+	 *            the length of the record
+	 * @param layout
+	 *            the offset of each field from the start of the record,
+	 *            followed by the end of the last field
+	 */
+	public void tupleView(byte[] atuple, int offset, int length, short[] layout) {
+		data = atuple;
+		tuple_offset = offset;
+		tuple_length = length;
+		fldCnt = (short) (layout.length - 1);
+		if (fldOffset == null || fldOffset.length != layout.length)
+			fldOffset = new short[layout.length];
+		for (int i = 0; i < layout.length; i++)
+			fldOffset[i] = (short) (layout[i] + offset);
+	}
+
 	/**
 	 * Set a tuple with the given tuple length and offset
 	 * 
@@ -260,6 +293,55 @@ public class Tuple implements GlobalConst {
 			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
 	}
 
+	/**
+	 * Compare the string in this field with a string, without converting the
+	 * field into a String
+	 *
+	 * @param fldNo
+	 *            the field number
+	 * @param val
+	 *            the string to compare with
+	 * @return getStrFld(fldNo).compareTo(val)
+	 *
+	 * @exception IOException
+	 *                I/O errors
+	 * @exception FieldNumberOutOfBoundException
+	 *                Tuple field number out of bound
+	 */
+
+	public int compareStrFld(int fldNo, String val) throws IOException, FieldNumberOutOfBoundException {
+		if ((fldNo > 0) && (fldNo <= fldCnt))
+			return Convert.compareStrValue(fldOffset[fldNo - 1], data, val);
+		else
+			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
+	}
+
+	/**
+	 * Compare the string in this field with the one in a field of another
+	 * tuple, in place
+	 *
+	 * @param fldNo
+	 *            the field number
+	 * @param other
+	 *            the other tuple
+	 * @param otherFldNo
+	 *            the field number in the other tuple
+	 * @return getStrFld(fldNo).compareTo(other.getStrFld(otherFldNo))
+	 *
+	 * @exception IOException
+	 *                I/O errors
+	 * @exception FieldNumberOutOfBoundException
+	 *                Tuple field number out of bound
+	 */
+
+	public int compareStrFld(int fldNo, Tuple other, int otherFldNo)
+			throws IOException, FieldNumberOutOfBoundException {
+		if ((fldNo > 0) && (fldNo <= fldCnt) && (otherFldNo > 0) && (otherFldNo <= other.fldCnt))
+			return Convert.compareStrValue(fldOffset[fldNo - 1], data, other.fldOffset[otherFldNo - 1], other.data);
+		else
+			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
+	}
+
 	/**
 	 * Convert this field into a character
 	 *
@@ -294,6 +376,77 @@ public class Tuple implements GlobalConst {
 
 	}
 
+	/**
+	 * Read this field into an existing descriptor
+	 *
+	 * @param fldNo
+	 *            the field number
+	 * @param desc
+	 *            the descriptor to overwrite
+	 * @return desc
+	 *
+	 * @exception IOException
+	 *                I/O errors
+	 * @exception FieldNumberOutOfBoundException
+	 *                Tuple field number out of bound
+	 */
+
+	public Descriptor getDescFld(int fldNo, Descriptor desc) throws IOException, FieldNumberOutOfBoundException {
+		if ((fldNo > 0) && (fldNo <= fldCnt))
+			return Convert.getDescValue(fldOffset[fldNo - 1], data, desc);
+		else
+			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
+	}
+
+	/**
+	 * The distance between the descriptor in this field and another
+	 * descriptor, without reading the field into a Descriptor
+	 *
+	 * @param fldNo
+	 *            the field number
+	 * @param desc
+	 *            the other descriptor
+	 * @return the distance
+	 *
+	 * @exception IOException
+	 *                I/O errors
+	 * @exception FieldNumberOutOfBoundException
+	 *                Tuple field number out of bound
+	 */
+
+	public double descDistance(int fldNo, Descriptor desc) throws IOException, FieldNumberOutOfBoundException {
+		if ((fldNo > 0) && (fldNo <= fldCnt))
+			return Convert.getDescDistance(fldOffset[fldNo - 1], data, desc);
+		else
+			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
+	}
+
+	/**
+	 * The distance between the descriptor in this field and the one in a
+	 * field of another tuple
+	 *
+	 * @param fldNo
+	 *            the field number
+	 * @param other
+	 *            the other tuple
+	 * @param otherFldNo
+	 *            the field number in the other tuple
+	 * @return the distance
+	 *
+	 * @exception IOException
+	 *                I/O errors
+	 * @exception FieldNumberOutOfBoundException
+	 *                Tuple field number out of bound
+	 */
+
+	public double descDistance(int fldNo, Tuple other, int otherFldNo)
+			throws IOException, FieldNumberOutOfBoundException {
+		if ((fldNo > 0) && (fldNo <= fldCnt) && (otherFldNo > 0) && (otherFldNo <= other.fldCnt))
+			return Convert.getDescDistance(fldOffset[fldNo - 1], data, other.fldOffset[otherFldNo - 1], other.data);
+		else
+			throw new FieldNumberOutOfBoundException(null, "TUPLE:TUPLE_FLDNO_OUT_OF_BOUND");
+	}
+
 	public Tuple setDescFld(int fldNo, Descriptor desc) throws IOException, FieldNumberOutOfBoundException {
 		if ((fldNo > 0) && (fldNo <= fldCnt)) {
 			Convert.setDescValue(desc, fldOffset[fldNo - 1], data);
@@ -392,7 +545,7 @@ public class Tuple implements GlobalConst {
 
 	public void setHdr(short numFlds, AttrType types[], short strSizes[])
 			throws IOException, InvalidTypeException, InvalidTupleSizeException {
-		if ((numFlds + 2) * 2 > max_size)
+		if ((numFlds + 2) * 2 > max_size())
 			throw new InvalidTupleSizeException(null, "TUPLE: TUPLE_TOOBIG_ERROR");
 
 		fldCnt = numFlds;
@@ -465,7 +618,7 @@ public class Tuple implements GlobalConst {
 
 		tuple_length = fldOffset[numFlds] - tuple_offset;
 
-		if (tuple_length > max_size)
+		if (tuple_length > max_size())
 			throw new InvalidTupleSizeException(null, "TUPLE: TUPLE_TOOBIG_ERROR");
 	}
 
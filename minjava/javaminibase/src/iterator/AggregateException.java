@@ -0,0 +1,15 @@
+package iterator;
+
+import chainexception.*;
+
+import java.lang.*;
+
+public class AggregateException extends ChainException {
+	public AggregateException(String s) {
+		super(null, s);
+	}
+
+	public AggregateException(Exception prev, String s) {
+		super(prev, s);
+	}
+}
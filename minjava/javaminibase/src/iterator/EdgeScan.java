@@ -29,6 +29,7 @@ public class EdgeScan extends Iterator {
 	private EdgeHeapfile f;
 	private EScan scan;
 	private Edge tuple1;
+	private EID eid = new EID();
 	private Edge Jtuple;
 	private int t1_size;
 	private int nOutFlds;
@@ -132,12 +133,10 @@ public class EdgeScan extends Iterator {
 	 */
 	public Edge get_next() throws JoinsException, IOException, InvalidTupleSizeException, InvalidTypeException,
 			PageNotReadException, PredEvalException, UnknowAttrType, FieldNumberOutOfBoundException, WrongPermat, nodeheap.InvalidTupleSizeException {
-		EID eid = new EID();
-		
-
 		while (true) {
 			try {
-				if ((tuple1 = scan.getNext(eid)) == null) {
+				// the edge stays on its page, and already has the edge layout
+				if ((tuple1 = scan.getNextView(eid)) == null) {
 					return null;
 				}
 			} catch (edgeheap.InvalidTupleSizeException e) {
@@ -145,7 +144,6 @@ public class EdgeScan extends Iterator {
 				e.printStackTrace();
 			}
 
-			tuple1.setHdr(in1_len, _in1, s_sizes);
 			if (PredEval.Eval(OutputFilter, tuple1, null, _in1, null) == true) {
 				Projection.Project(tuple1, _in1, Jtuple, perm_mat, nOutFlds);
 				return Jtuple;
@@ -0,0 +1,309 @@
+package iterator;
+
+import heap.*;
+import global.*;
+import bufmgr.*;
+import index.*;
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Groups the input tuples on some of their fields with a hash table and
+ * computes aggregates of every group: the number of tuples, and the
+ * smallest, largest or sum of an integer field, such as the weight of the
+ * edges. The result has the group fields first, with their types, and then
+ * one integer field for every aggregate, for example the out degree of every
+ * node when edges are grouped on the source page and slot numbers.
+ *
+ * The groups are returned once the input is over, in the order they were
+ * first seen. When the groups no longer fit in the memory given, the tuples
+ * of the groups not seen so far are split on their hash into temporary heap
+ * files, each of which is then grouped in turn.
+ */
+public class HashAggregate extends Iterator {
+
+	/** the number of tuples of the group */
+	public static final int COUNT = 0;
+
+	/** the smallest value of the field in the group */
+	public static final int MIN = 1;
+
+	/** the largest value of the field in the group */
+	public static final int MAX = 2;
+
+	/** the sum of the field over the group */
+	public static final int SUM = 3;
+
+	private AttrType _in[];
+	private short in_len;
+	private short str_sizes[];
+	private Iterator _am;
+	private int n_buf_pgs; // # of buffer pages available.
+	private boolean done;
+
+	private int group_flds[];
+	private int agg_ops[];
+	private int agg_flds[];
+
+	private TupleHashTable table;
+
+	/** the aggregates of every group in the table, one row per group */
+	private long acc[] = new long[256];
+
+	/** the next group of the table to return */
+	private int next;
+	private boolean grouped;
+
+	/** the parts of the input put aside, and the one being grouped */
+	private Heapfile parts[];
+	private int part;
+
+	private Tuple Jtuple;
+
+	/**
+	 * Constructor to set up some information.
+	 *
+	 * @param in[]
+	 *            Array containing field types of R.
+	 * @param len_in
+	 *            # of columns in R.
+	 * @param s_sizes[]
+	 *            store the length of string appeared in tuple
+	 * @param am
+	 *            input relation iterator
+	 * @param group_flds
+	 *            the fields the tuples are grouped on
+	 * @param agg_ops
+	 *            the aggregates, COUNT, MIN, MAX or SUM
+	 * @param agg_flds
+	 *            the integer field of every aggregate, ignored for COUNT
+	 * @param amt_of_mem
+	 *            the page numbers required IN PAGES
+	 * @exception IOException
+	 *                some I/O fault
+	 * @exception AggregateException
+	 *                the exception from this class
+	 */
+	public HashAggregate(AttrType in[], short len_in, short s_sizes[], Iterator am, int group_flds[],
+			int agg_ops[], int agg_flds[], int amt_of_mem) throws IOException, AggregateException {
+		_in = new AttrType[in.length];
+		System.arraycopy(in, 0, _in, 0, in.length);
+		in_len = len_in;
+		str_sizes = s_sizes;
+		_am = am;
+		n_buf_pgs = amt_of_mem;
+		done = false;
+		this.group_flds = group_flds;
+		this.agg_ops = agg_ops;
+		this.agg_flds = agg_flds;
+
+		for (int i = 0; i < agg_ops.length; i++)
+			if (agg_ops[i] != COUNT && _in[agg_flds[i] - 1].attrType != AttrType.attrInteger)
+				throw new AggregateException("HashAggregate.java: aggregate of a field that is not an integer");
+
+		// the group fields, with their string sizes, then the aggregates
+		AttrType[] Jtypes = new AttrType[group_flds.length + agg_ops.length];
+		int nstr = 0;
+		for (int i = 0; i < group_flds.length; i++)
+			if (_in[group_flds[i] - 1].attrType == AttrType.attrString)
+				nstr++;
+		short[] Jsizes = new short[nstr];
+		nstr = 0;
+		for (int i = 0; i < group_flds.length; i++) {
+			Jtypes[i] = _in[group_flds[i] - 1];
+			if (Jtypes[i].attrType == AttrType.attrString)
+				Jsizes[nstr++] = strSize(group_flds[i]);
+		}
+		for (int i = 0; i < agg_ops.length; i++)
+			Jtypes[group_flds.length + i] = new AttrType(AttrType.attrInteger);
+		Jtuple = new Tuple();
+		try {
+			Jtuple.setHdr((short) Jtypes.length, Jtypes, Jsizes);
+		} catch (Exception e) {
+			throw new AggregateException(e, "HashAggregate.java: setHdr() failed");
+		}
+
+		table = new TupleHashTable(_in, group_flds);
+	}
+
+	// the size of a string field, the strings being sized in field order
+	private short strSize(int fld) {
+		int n = 0;
+		for (int i = 0; i < fld - 1; i++)
+			if (_in[i].attrType == AttrType.attrString)
+				n++;
+		return str_sizes[n];
+	}
+
+	/**
+	 * The next group is returned.
+	 *
+	 * @return the tuple
+	 * @exception IOException
+	 *                I/O errors
+	 * @exception JoinsException
+	 *                some join exception
+	 * @exception IndexException
+	 *                exception from super class
+	 * @exception InvalidTupleSizeException
+	 *                invalid tuple size
+	 * @exception InvalidTypeException
+	 *                tuple type not valid
+	 * @exception PageNotReadException
+	 *                exception from lower layer
+	 * @exception TupleUtilsException
+	 *                exception from using tuple utilities
+	 * @exception PredEvalException
+	 *                exception from PredEval class
+	 * @exception SortException
+	 *                sort exception
+	 * @exception LowMemException
+	 *                memory error
+	 * @exception UnknowAttrType
+	 *                attribute type unknown
+	 * @exception Exception
+	 *                other exceptions
+	 */
+	public Tuple get_next() throws IOException, JoinsException, IndexException, InvalidTupleSizeException,
+			InvalidTypeException, PageNotReadException, TupleUtilsException, PredEvalException, SortException,
+			LowMemException, UnknowAttrType, UnknownKeyTypeException, Exception {
+		if (done)
+			return null;
+		if (!grouped) {
+			long budget = (long) n_buf_pgs * SystemDefs.JavabasePageSize;
+			Tuple t;
+			while ((t = _am.get_next()) != null)
+				accumulate(t, budget);
+			grouped = true;
+			part = -1;
+		}
+
+		// the groups in memory, then those of every part put aside
+		while (next == table.size()) {
+			if (parts == null || ++part == parts.length) {
+				done = true;
+				return null;
+			}
+			table.clear();
+			next = 0;
+			Scan scan = parts[part].openScan();
+			RID rid = new RID();
+			Tuple t;
+			while ((t = scan.getNext(rid)) != null) {
+				t.setHdr(in_len, _in, str_sizes);
+				accumulate(t, Long.MAX_VALUE);
+			}
+			scan.closescan();
+		}
+
+		int g = next++;
+		Tuple group = table.get(g);
+		for (int i = 0; i < group_flds.length; i++) {
+			int fld = group_flds[i];
+			switch (_in[fld - 1].attrType) {
+			case AttrType.attrInteger:
+				Jtuple.setIntFld(i + 1, group.getIntFld(fld));
+				break;
+			case AttrType.attrReal:
+				Jtuple.setFloFld(i + 1, group.getFloFld(fld));
+				break;
+			case AttrType.attrString:
+				Jtuple.setStrFld(i + 1, group.getStrFld(fld));
+				break;
+			case AttrType.attrDesc:
+				Jtuple.setDescFld(i + 1, group.getDescFld(fld));
+				break;
+			default:
+				throw new UnknowAttrType("Don't know how to handle attrSymbol, attrNull");
+			}
+		}
+		for (int i = 0; i < agg_ops.length; i++)
+			Jtuple.setIntFld(group_flds.length + i + 1, (int) acc[g * agg_ops.length + i]);
+		return Jtuple;
+	}
+
+	// add a tuple to its group, or put it aside if its group is new and
+	// there is no room for it
+	private void accumulate(Tuple t, long budget) throws Exception {
+		int hash = TupleUtils.HashValue(t, _in, group_flds);
+		int g = table.find(t, hash);
+		if (g < 0) {
+			long size = t.getLength() + TupleHashTable.TUPLE_OVERHEAD + 8 * agg_ops.length;
+			if (parts == null && table.bytes() + size > budget)
+				split();
+			if (parts != null && budget != Long.MAX_VALUE) {
+				parts[partOf(hash)].insertRecord(t.getTupleByteArray());
+				return;
+			}
+			g = table.add(new Tuple(t), hash);
+			if ((g + 1) * agg_ops.length > acc.length)
+				acc = Arrays.copyOf(acc, Math.max(acc.length * 2, (g + 1) * agg_ops.length));
+			for (int i = 0; i < agg_ops.length; i++)
+				acc[g * agg_ops.length + i] = agg_ops[i] == MIN ? Long.MAX_VALUE
+						: agg_ops[i] == MAX ? Long.MIN_VALUE : 0;
+		}
+		for (int i = 0; i < agg_ops.length; i++) {
+			int at = g * agg_ops.length + i;
+			switch (agg_ops[i]) {
+			case COUNT:
+				acc[at]++;
+				break;
+			case MIN:
+				acc[at] = Math.min(acc[at], t.getIntFld(agg_flds[i]));
+				break;
+			case MAX:
+				acc[at] = Math.max(acc[at], t.getIntFld(agg_flds[i]));
+				break;
+			default:
+				acc[at] += t.getIntFld(agg_flds[i]);
+				break;
+			}
+		}
+	}
+
+	// the groups seen so far stay in memory, the new ones go to the parts
+	private void split() throws Exception {
+		parts = new Heapfile[Math.max(2, n_buf_pgs)];
+		for (int i = 0; i < parts.length; i++)
+			parts[i] = new Heapfile(null);
+	}
+
+	// the part of a hash, from other bits than the table uses
+	private int partOf(int hash) {
+		return ((hash * 0x9E3779B9) >>> 16) % parts.length;
+	}
+
+	/**
+	 * @return the number of parts the input was split into, 0 if it fit in
+	 *         memory
+	 */
+	public int getParts() {
+		return parts == null ? 0 : parts.length;
+	}
+
+	/**
+	 * implement the abstract method close() from super class Iterator to
+	 * finish cleaning up
+	 *
+	 * @exception IOException
+	 *                I/O error from lower layers
+	 * @exception JoinsException
+	 *                join error from lower layers
+	 * @exception IndexException
+	 *                index access error
+	 */
+	public void close() throws JoinsException, IOException, IndexException {
+		if (!closeFlag) {
+			try {
+				if (parts != null)
+					for (int i = 0; i < parts.length; i++)
+						parts[i].deleteFile();
+				_am.close();
+			} catch (Exception e) {
+				throw new JoinsException(e, "HashAggregate.java: error in closing iterator.");
+			}
+			table.clear();
+			closeFlag = true;
+		}
+	}
+}
@@ -0,0 +1,200 @@
+package iterator;
+
+import heap.*;
+import global.*;
+import bufmgr.*;
+import index.*;
+import java.io.*;
+
+/**
+ * Eliminates duplicate tuples with a hash table, so that the input need not
+ * be sorted. Every tuple is returned as soon as it is read for the first
+ * time, in the order of the input. When the distinct tuples no longer fit
+ * in the memory given, the tuples not seen so far are split on their hash
+ * into temporary heap files, and each of those is made distinct in turn
+ * once the input is over.
+ */
+public class HashDistinct extends Iterator {
+	private AttrType _in[];
+	private short in_len;
+	private short str_sizes[];
+	private Iterator _am;
+	private int n_buf_pgs; // # of buffer pages available.
+	private boolean done, inputDone;
+
+	/** all the fields, the tuples are compared on all of them */
+	private int flds[];
+
+	private TupleHashTable table;
+
+	/** the parts of the input put aside, and the one being read */
+	private Heapfile parts[];
+	private int part;
+	private Scan partScan;
+
+	/**
+	 * Constructor to set up some information.
+	 *
+	 * @param in[]
+	 *            Array containing field types of R.
+	 * @param len_in
+	 *            # of columns in R.
+	 * @param s_sizes[]
+	 *            store the length of string appeared in tuple
+	 * @param am
+	 *            input relation iterator, access method for left input to
+	 *            join,
+	 * @param amt_of_mem
+	 *            the page numbers required IN PAGES
+	 * @exception IOException
+	 *                some I/O fault
+	 * @exception DuplElimException
+	 *                the exception from DuplElim.java
+	 */
+	public HashDistinct(AttrType in[], short len_in, short s_sizes[], Iterator am, int amt_of_mem)
+			throws IOException, DuplElimException {
+		_in = new AttrType[in.length];
+		System.arraycopy(in, 0, _in, 0, in.length);
+		in_len = len_in;
+		str_sizes = s_sizes;
+		_am = am;
+		n_buf_pgs = amt_of_mem;
+		done = false;
+
+		flds = new int[len_in];
+		for (int i = 0; i < len_in; i++)
+			flds[i] = i + 1;
+		table = new TupleHashTable(_in, flds);
+	}
+
+	/**
+	 * The tuple is returned.
+	 *
+	 * @return the tuple
+	 * @exception IOException
+	 *                I/O errors
+	 * @exception JoinsException
+	 *                some join exception
+	 * @exception IndexException
+	 *                exception from super class
+	 * @exception InvalidTupleSizeException
+	 *                invalid tuple size
+	 * @exception InvalidTypeException
+	 *                tuple type not valid
+	 * @exception PageNotReadException
+	 *                exception from lower layer
+	 * @exception TupleUtilsException
+	 *                exception from using tuple utilities
+	 * @exception PredEvalException
+	 *                exception from PredEval class
+	 * @exception SortException
+	 *                sort exception
+	 * @exception LowMemException
+	 *                memory error
+	 * @exception UnknowAttrType
+	 *                attribute type unknown
+	 * @exception Exception
+	 *                other exceptions
+	 */
+	public Tuple get_next() throws IOException, JoinsException, IndexException, InvalidTupleSizeException,
+			InvalidTypeException, PageNotReadException, TupleUtilsException, PredEvalException, SortException,
+			LowMemException, UnknowAttrType, UnknownKeyTypeException, Exception {
+		if (done)
+			return null;
+
+		long budget = (long) n_buf_pgs * SystemDefs.JavabasePageSize;
+		Tuple t;
+		while (!inputDone) {
+			if ((t = _am.get_next()) == null) {
+				inputDone = true;
+				break;
+			}
+			int hash = TupleUtils.HashValue(t, _in, flds);
+			if (table.find(t, hash) >= 0)
+				continue;
+			if (parts == null && table.bytes() + t.getLength() + TupleHashTable.TUPLE_OVERHEAD > budget)
+				split();
+			if (parts != null) {
+				parts[partOf(hash)].insertRecord(t.getTupleByteArray());
+				continue;
+			}
+			Tuple copy = new Tuple(t);
+			table.add(copy, hash);
+			return copy;
+		}
+
+		// the input is over, the parts put aside one at a time
+		while (parts != null) {
+			if (partScan == null) {
+				table.clear();
+				if (++part == parts.length)
+					break;
+				partScan = parts[part].openScan();
+			}
+			RID rid = new RID();
+			while ((t = partScan.getNext(rid)) != null) {
+				t.setHdr(in_len, _in, str_sizes);
+				int hash = TupleUtils.HashValue(t, _in, flds);
+				if (table.find(t, hash) >= 0)
+					continue;
+				Tuple copy = new Tuple(t);
+				table.add(copy, hash);
+				return copy;
+			}
+			partScan.closescan();
+			partScan = null;
+		}
+
+		done = true;
+		return null;
+	}
+
+	// the tuples seen so far stay in memory, the new ones go to the parts
+	private void split() throws Exception {
+		parts = new Heapfile[Math.max(2, n_buf_pgs)];
+		for (int i = 0; i < parts.length; i++)
+			parts[i] = new Heapfile(null);
+		part = -1;
+	}
+
+	// the part of a hash, from other bits than the table uses
+	private int partOf(int hash) {
+		return ((hash * 0x9E3779B9) >>> 16) % parts.length;
+	}
+
+	/**
+	 * @return the number of parts the input was split into, 0 if it fit in
+	 *         memory
+	 */
+	public int getParts() {
+		return parts == null ? 0 : parts.length;
+	}
+
+	/**
+	 * implement the abstract method close() from super class Iterator to
+	 * finish cleaning up
+	 *
+	 * @exception IOException
+	 *                I/O error from lower layers
+	 * @exception JoinsException
+	 *                join error from lower layers
+	 * @exception IndexException
+	 *                index access error
+	 */
+	public void close() throws JoinsException, IOException, IndexException {
+		if (!closeFlag) {
+			try {
+				if (partScan != null)
+					partScan.closescan();
+				if (parts != null)
+					for (int i = 0; i < parts.length; i++)
+						parts[i].deleteFile();
+				_am.close();
+			} catch (Exception e) {
+				throw new JoinsException(e, "HashDistinct.java: error in closing iterator.");
+			}
+			table.clear();
+			closeFlag = true;
+		}
+	}
+}
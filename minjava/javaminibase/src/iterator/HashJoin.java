@@ -0,0 +1,388 @@
+package iterator;
+
+import heap.*;
+import global.*;
+import bufmgr.*;
+import index.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *
+ * This file contains an implementation of the hash join algorithm. The
+ * equality conditions of the join expression between a field of the outer
+ * and a field of the inner relation are the join key, with as many fields as
+ * there are such conditions, so that a join on a node id can be made on the
+ * page and the slot numbers together.
+ *
+ * The inner relation is read first and kept in memory in a hash table on
+ * the key. The outer tuples are then read one at a time and matched against
+ * the inner tuples with the same hash, the whole join expression deciding.
+ * If the inner relation does not fit in the memory given, both relations
+ * are split on the hash of the key into temporary heap files, and every
+ * inner part is then joined with the outer part of the same hash in turn
+ * (grace hash join). A part that is still too large is joined in memory all
+ * the same.
+ */
+
+public class HashJoin extends Iterator {
+	private AttrType _in1[], _in2[];
+	private int in1_len, in2_len;
+	private short t1_str_sizescopy[], t2_str_sizescopy[];
+	private Iterator outer, inner;
+	private CondExpr OutputFilter[];
+	private CondExpr RightFilter[];
+	private int n_buf_pgs; // # of buffer pages available.
+	private boolean done, built;
+	private Tuple Jtuple; // Joined tuple
+	private FldSpec perm_mat[];
+	private int nOutFlds;
+
+	/** the key fields of the outer and the inner tuples */
+	private int outerKey[], innerKey[];
+
+	/** the inner tuples in memory, their hashes, and the chain of each */
+	private ArrayList<Tuple> table = new ArrayList<Tuple>();
+	private int hashes[] = new int[256];
+	private int chain[];
+	private int heads[];
+	private long tableBytes;
+
+	/** the parts of both relations when they are split, and the current one */
+	private Heapfile innerParts[], outerParts[];
+	private int part;
+	private Scan partScan;
+
+	/** the outer tuple being matched, its hash and the next inner to try */
+	private Tuple outer_tuple;
+	private int outerHash;
+	private int cursor = -1;
+
+	/** bytes counted for a tuple in memory beyond its data */
+	private static final int TUPLE_OVERHEAD = 64;
+
+	/**
+	 * constructor Initialize the two relations which are joined, including
+	 * relation type,
+	 *
+	 * @param in1
+	 *            Array containing field types of R.
+	 * @param len_in1
+	 *            # of columns in R.
+	 * @param t1_str_sizes
+	 *            shows the length of the string fields.
+	 * @param in2
+	 *            Array containing field types of S
+	 * @param len_in2
+	 *            # of columns in S
+	 * @param t2_str_sizes
+	 *            shows the length of the string fields.
+	 * @param amt_of_mem
+	 *            IN PAGES, for the hash table of S
+	 * @param am1
+	 *            access method for left i/p to join, the outer
+	 * @param am2
+	 *            access method for right i/p to join, the inner kept in
+	 *            memory
+	 * @param outFilter
+	 *            select expressions, with at least one equality of a field of
+	 *            R and a field of S
+	 * @param rightFilter
+	 *            reference to filter applied on right i/p
+	 * @param proj_list
+	 *            shows what input fields go where in the output tuple
+	 * @param n_out_flds
+	 *            number of outer relation fileds
+	 * @exception IOException
+	 *                some I/O fault
+	 * @exception HashJoinException
+	 *                exception from this class
+	 */
+	public HashJoin(AttrType in1[], int len_in1, short t1_str_sizes[], AttrType in2[], int len_in2,
+			short t2_str_sizes[], int amt_of_mem, Iterator am1, Iterator am2, CondExpr outFilter[],
+			CondExpr rightFilter[], FldSpec proj_list[], int n_out_flds) throws IOException, HashJoinException {
+
+		_in1 = new AttrType[in1.length];
+		_in2 = new AttrType[in2.length];
+		System.arraycopy(in1, 0, _in1, 0, in1.length);
+		System.arraycopy(in2, 0, _in2, 0, in2.length);
+		in1_len = len_in1;
+		in2_len = len_in2;
+
+		outer = am1;
+		inner = am2;
+		t1_str_sizescopy = t1_str_sizes;
+		t2_str_sizescopy = t2_str_sizes;
+		Jtuple = new Tuple();
+		OutputFilter = outFilter;
+		RightFilter = rightFilter;
+
+		n_buf_pgs = amt_of_mem;
+		done = false;
+		built = false;
+
+		AttrType[] Jtypes = new AttrType[n_out_flds];
+
+		perm_mat = proj_list;
+		nOutFlds = n_out_flds;
+		try {
+			TupleUtils.setup_op_tuple(Jtuple, Jtypes, in1, len_in1, in2, len_in2, t1_str_sizes, t2_str_sizes,
+					proj_list, nOutFlds);
+		} catch (TupleUtilsException e) {
+			throw new HashJoinException(e, "TupleUtilsException is caught by HashJoin.java");
+		}
+
+		findKey();
+	}
+
+	// the conditions outer field = inner field that are not part of an OR
+	private void findKey() throws HashJoinException {
+		ArrayList<int[]> pairs = new ArrayList<int[]>();
+		for (int i = 0; OutputFilter != null && OutputFilter[i] != null; i++) {
+			CondExpr c = OutputFilter[i];
+			if (c.next != null || c.op.attrOperator != AttrOperator.aopEQ
+					|| c.type1.attrType != AttrType.attrSymbol || c.type2.attrType != AttrType.attrSymbol)
+				continue;
+			FldSpec f1 = c.operand1.symbol;
+			FldSpec f2 = c.operand2.symbol;
+			if (f1.relation.key == RelSpec.innerRel) {
+				FldSpec t = f1;
+				f1 = f2;
+				f2 = t;
+			}
+			if (f1.relation.key != RelSpec.outer || f2.relation.key != RelSpec.innerRel)
+				continue;
+			int type = _in1[f1.offset - 1].attrType;
+			if (type != _in2[f2.offset - 1].attrType || (type != AttrType.attrInteger
+					&& type != AttrType.attrReal && type != AttrType.attrString))
+				continue;
+			pairs.add(new int[] { f1.offset, f2.offset });
+		}
+		if (pairs.isEmpty())
+			throw new HashJoinException("HashJoin.java: no equality of an outer and an inner field to hash on");
+
+		outerKey = new int[pairs.size()];
+		innerKey = new int[pairs.size()];
+		for (int i = 0; i < pairs.size(); i++) {
+			outerKey[i] = pairs.get(i)[0];
+			innerKey[i] = pairs.get(i)[1];
+		}
+	}
+
+	/**
+	 * @return The joined tuple is returned
+	 * @exception IOException
+	 *                I/O errors
+	 * @exception JoinsException
+	 *                some join exception
+	 * @exception IndexException
+	 *                exception from super class
+	 * @exception InvalidTupleSizeException
+	 *                invalid tuple size
+	 * @exception InvalidTypeException
+	 *                tuple type not valid
+	 * @exception PageNotReadException
+	 *                exception from lower layer
+	 * @exception TupleUtilsException
+	 *                exception from using tuple utilities
+	 * @exception PredEvalException
+	 *                exception from PredEval class
+	 * @exception SortException
+	 *                sort exception
+	 * @exception LowMemException
+	 *                memory error
+	 * @exception UnknowAttrType
+	 *                attribute type unknown
+	 * @exception UnknownKeyTypeException
+	 *                key type unknown
+	 * @exception Exception
+	 *                other exceptions
+	 *
+	 */
+	public Tuple get_next() throws IOException, JoinsException, IndexException, InvalidTupleSizeException,
+			InvalidTypeException, PageNotReadException, TupleUtilsException, PredEvalException, SortException,
+			LowMemException, UnknowAttrType, UnknownKeyTypeException, Exception {
+		if (done)
+			return null;
+		if (!built) {
+			build();
+			built = true;
+		}
+
+		while (true) {
+			// the rest of the inner tuples with the hash of the outer one
+			while (cursor >= 0) {
+				Tuple inner_tuple = table.get(cursor);
+				int at = cursor;
+				cursor = chain[cursor];
+				if (hashes[at] == outerHash
+						&& PredEval.Eval(OutputFilter, outer_tuple, inner_tuple, _in1, _in2) == true) {
+					// Apply a projection on the outer and inner tuples.
+					Projection.Join(outer_tuple, _in1, inner_tuple, _in2, Jtuple, perm_mat, nOutFlds);
+					return Jtuple;
+				}
+			}
+
+			if ((outer_tuple = nextOuter()) == null) {
+				done = true;
+				return null;
+			}
+			outerHash = TupleUtils.HashValue(outer_tuple, _in1, outerKey);
+			cursor = heads.length == 0 ? -1 : heads[outerHash & (heads.length - 1)];
+		}
+	}
+
+	// read the inner relation into memory, or split both if it does not fit
+	private void build() throws Exception {
+		long budget = (long) n_buf_pgs * SystemDefs.JavabasePageSize;
+		Tuple t;
+		while ((t = inner.get_next()) != null) {
+			if (PredEval.Eval(RightFilter, t, null, _in2, null) == false)
+				continue;
+			if (innerParts == null && tableBytes + t.getLength() + TUPLE_OVERHEAD > budget)
+				split();
+			if (innerParts != null)
+				innerParts[partOf(TupleUtils.HashValue(t, _in2, innerKey))].insertRecord(t.getTupleByteArray());
+			else
+				add(new Tuple(t), TupleUtils.HashValue(t, _in2, innerKey));
+		}
+
+		if (innerParts == null) {
+			index();
+			return;
+		}
+		while ((t = outer.get_next()) != null)
+			outerParts[partOf(TupleUtils.HashValue(t, _in1, outerKey))].insertRecord(t.getTupleByteArray());
+		part = -1;
+		nextPart();
+	}
+
+	// move to temporary files, one pair for every part
+	private void split() throws Exception {
+		int nparts = Math.max(2, n_buf_pgs);
+		innerParts = new Heapfile[nparts];
+		outerParts = new Heapfile[nparts];
+		for (int i = 0; i < nparts; i++) {
+			innerParts[i] = new Heapfile(null);
+			outerParts[i] = new Heapfile(null);
+		}
+		for (int i = 0; i < table.size(); i++)
+			innerParts[partOf(hashes[i])].insertRecord(table.get(i).getTupleByteArray());
+		clearTable();
+	}
+
+	// the inner part of the next pair in memory, and a scan on the outer
+	private boolean nextPart() throws Exception {
+		if (partScan != null) {
+			partScan.closescan();
+			partScan = null;
+		}
+		clearTable();
+		if (++part == innerParts.length)
+			return false;
+
+		Scan scan = innerParts[part].openScan();
+		RID rid = new RID();
+		Tuple t;
+		while ((t = scan.getNext(rid)) != null) {
+			t.setHdr((short) in2_len, _in2, t2_str_sizescopy);
+			add(new Tuple(t), TupleUtils.HashValue(t, _in2, innerKey));
+		}
+		scan.closescan();
+		index();
+		partScan = outerParts[part].openScan();
+		return true;
+	}
+
+	private Tuple nextOuter() throws Exception {
+		if (innerParts == null)
+			return outer.get_next();
+
+		RID rid = new RID();
+		while (part < innerParts.length) {
+			Tuple t = partScan.getNext(rid);
+			if (t != null) {
+				t.setHdr((short) in1_len, _in1, t1_str_sizescopy);
+				return t;
+			}
+			if (!nextPart())
+				break;
+		}
+		return null;
+	}
+
+	private void add(Tuple t, int hash) {
+		if (table.size() == hashes.length)
+			hashes = Arrays.copyOf(hashes, hashes.length * 2);
+		hashes[table.size()] = hash;
+		table.add(t);
+		tableBytes += t.getLength() + TUPLE_OVERHEAD;
+	}
+
+	// chain the tuples in memory on their hash
+	private void index() {
+		int size = Integer.highestOneBit(Math.max(1, table.size()) * 2);
+		heads = new int[size];
+		Arrays.fill(heads, -1);
+		chain = new int[table.size()];
+		for (int i = table.size() - 1; i >= 0; i--) {
+			int b = hashes[i] & (size - 1);
+			chain[i] = heads[b];
+			heads[b] = i;
+		}
+	}
+
+	private void clearTable() {
+		table.clear();
+		tableBytes = 0;
+		heads = new int[0];
+		cursor = -1;
+	}
+
+	// the part of a hash, from other bits than the table uses
+	private int partOf(int hash) {
+		return ((hash * 0x9E3779B9) >>> 16) % innerParts.length;
+	}
+
+	/**
+	 * @return the number of parts both relations were split into, 0 if the
+	 *         inner relation fit in memory
+	 */
+	public int getParts() {
+		return innerParts == null ? 0 : innerParts.length;
+	}
+
+	/**
+	 * implement the abstract method close() from super class Iterator to finish
+	 * cleaning up
+	 *
+	 * @exception IOException
+	 *                I/O error from lower layers
+	 * @exception JoinsException
+	 *                join error from lower layers
+	 * @exception IndexException
+	 *                index access error
+	 */
+	public void close() throws JoinsException, IOException, IndexException {
+		if (!closeFlag) {
+
+			try {
+				if (partScan != null)
+					partScan.closescan();
+				if (innerParts != null) {
+					for (int i = 0; i < innerParts.length; i++) {
+						innerParts[i].deleteFile();
+						outerParts[i].deleteFile();
+					}
+				}
+				outer.close();
+				inner.close();
+			} catch (Exception e) {
+				throw new JoinsException(e, "HashJoin.java: error in closing iterator.");
+			}
+			clearTable();
+			closeFlag = true;
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package iterator;
+
+import chainexception.*;
+import java.lang.*;
+
+public class HashJoinException extends ChainException {
+	public HashJoinException(String s) {
+		super(null, s);
+	}
+
+	public HashJoinException(Exception prev, String s) {
+		super(prev, s);
+	}
+}
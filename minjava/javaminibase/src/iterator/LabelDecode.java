@@ -0,0 +1,138 @@
+package iterator;
+
+import heap.*;
+import global.*;
+import diskmgr.GraphDB;
+import diskmgr.LabelDictionary;
+import java.io.*;
+
+/**
+ * Turns the label ids of the input tuples back into their labels, looked up
+ * in the label dictionary. Nodes and edges keep the id of their label, which
+ * orders as the labels were first seen; an operator that needs the labels
+ * themselves, such as a sort in label order, reads them through this one.
+ *
+ * The result has the fields of the input in the same order, the label fields
+ * being strings of GraphDB.LABEL_SIZE characters and the others as they are.
+ */
+public class LabelDecode extends Iterator {
+	private AttrType _in[];
+	private Iterator _am;
+	private boolean label[];
+	private LabelDictionary labels;
+
+	private Tuple Jtuple;
+
+	/**
+	 * Constructor to set up some information.
+	 *
+	 * @param in[]
+	 *            Array containing field types of R.
+	 * @param len_in
+	 *            # of columns in R.
+	 * @param s_sizes[]
+	 *            store the length of string appeared in tuple
+	 * @param am
+	 *            input relation iterator
+	 * @param label_flds
+	 *            the integer fields that hold label ids
+	 * @exception IOException
+	 *                some I/O fault
+	 * @exception TupleUtilsException
+	 *                a label field that is not an integer, or the result
+	 *                can not be set up
+	 */
+	public LabelDecode(AttrType in[], short len_in, short s_sizes[], Iterator am, int label_flds[])
+			throws IOException, TupleUtilsException {
+		_in = new AttrType[len_in];
+		System.arraycopy(in, 0, _in, 0, len_in);
+		_am = am;
+		labels = SystemDefs.JavabaseDB.labelDictionary;
+
+		label = new boolean[len_in];
+		for (int fld : label_flds) {
+			if (_in[fld - 1].attrType != AttrType.attrInteger)
+				throw new TupleUtilsException(null, "LabelDecode.java: a label id field is not an integer");
+			label[fld - 1] = true;
+		}
+
+		// the input strings keep their sizes, the labels come in between
+		int nstr = 0;
+		for (int i = 0; i < len_in; i++)
+			if (label[i] || _in[i].attrType == AttrType.attrString)
+				nstr++;
+		AttrType[] Jtypes = new AttrType[len_in];
+		short[] Jsizes = new short[nstr];
+		nstr = 0;
+		int instr = 0;
+		for (int i = 0; i < len_in; i++) {
+			if (label[i]) {
+				Jtypes[i] = new AttrType(AttrType.attrString);
+				Jsizes[nstr++] = GraphDB.LABEL_SIZE;
+			} else {
+				Jtypes[i] = _in[i];
+				if (_in[i].attrType == AttrType.attrString)
+					Jsizes[nstr++] = s_sizes[instr++];
+			}
+		}
+		Jtuple = new Tuple();
+		try {
+			Jtuple.setHdr(len_in, Jtypes, Jsizes);
+		} catch (Exception e) {
+			throw new TupleUtilsException(e, "LabelDecode.java: setHdr() failed");
+		}
+	}
+
+	/**
+	 * @return the next tuple, with its labels, null at the end of the input
+	 * @exception Exception
+	 *                error from the input or the label dictionary
+	 */
+	public Tuple get_next() throws Exception {
+		Tuple t = _am.get_next();
+		if (t == null)
+			return null;
+		for (int i = 0; i < _in.length; i++) {
+			int fld = i + 1;
+			if (label[i]) {
+				Jtuple.setStrFld(fld, labels.getLabel(t.getIntFld(fld)));
+				continue;
+			}
+			switch (_in[i].attrType) {
+			case AttrType.attrInteger:
+				Jtuple.setIntFld(fld, t.getIntFld(fld));
+				break;
+			case AttrType.attrReal:
+				Jtuple.setFloFld(fld, t.getFloFld(fld));
+				break;
+			case AttrType.attrString:
+				Jtuple.setStrFld(fld, t.getStrFld(fld));
+				break;
+			case AttrType.attrDesc:
+				Jtuple.setDescFld(fld, t.getDescFld(fld));
+				break;
+			default:
+				throw new UnknowAttrType("Don't know how to handle attrSymbol, attrNull");
+			}
+		}
+		return Jtuple;
+	}
+
+	/**
+	 * implement the abstract method close() from super class Iterator to
+	 * finish cleaning up
+	 *
+	 * @exception IOException
+	 *                I/O error from lower layers
+	 * @exception JoinsException
+	 *                join error from lower layers
+	 * @exception IndexException
+	 *                index access error
+	 */
+	public void close() throws IOException, JoinsException, SortException, index.IndexException {
+		if (!closeFlag) {
+			_am.close();
+			closeFlag = true;
+		}
+	}
+}
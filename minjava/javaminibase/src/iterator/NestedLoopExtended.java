@@ -2,6 +2,9 @@ package iterator;
 
 import diskmgr.GraphDB;
 import diskmgr.PCounter;
+import edgeheap.AdjacencyEntry;
+import edgeheap.AdjacencyFile;
+import edgeheap.AdjacencyScan;
 import edgeheap.Edge;
 import edgeheap.EdgeHeapfile;
 import global.AttrType;
@@ -43,14 +46,16 @@ public class NestedLoopExtended extends Iterator {
 			get_from_outer; // if TRUE, a tuple is got from outer
 	private Tuple outer_tuple;
 	private Edge edge;
+	private NID current = new NID(); // node whose edges are being read
 
 	KeyDataEntry inner_tuple;
 	private Tuple Jtuple; // Joined tuple
 	private FldSpec perm_mat[];
 	private int nOutFlds;
 	private NodeHeapfile nhf;
-	BTreeFile esif;
-	private BTFileScan inner;
+	private int direction;
+	private BTFileScan inner; // nodes carrying the outer label
+	private AdjacencyScan adjScan; // edges of the current node
 
 	/**
 	 * constructor Initialize the two relations which are joined, including
@@ -122,17 +127,19 @@ public class NestedLoopExtended extends Iterator {
 			throw new NestedLoopException(e, "TupleUtilsException is caught by NestedLoopsJoins.java");
 		}
 
-		try {
-			//pass relationName as "nodeheapfile" or "edgeheapfile"
-			if(relationName.equals("edgeSourceIndexFile"))
-			{esif = db.edgeSourceIndexFile;}
-			if(relationName.equals("edgeDestinationIndexFile"))
-			{esif = db.edgeDestinationIndexFile;}
-			//inner = esif.new_scan(hi,hi);
-			
+		// the inner relation is named after the edge index it used to
+		// probe; the edges are now read from the adjacency runs instead
+		if (relationName.equals("edgeSourceIndexFile"))
+			direction = AdjacencyFile.OUTGOING;
+		else if (relationName.equals("edgeDestinationIndexFile"))
+			direction = AdjacencyFile.INCOMING;
+		else
+			throw new NestedLoopException(null, "Unknown edge relation " + relationName);
 
+		try {
+			edge = new Edge();
 		} catch (Exception e) {
-			throw new NestedLoopException(e, "Open index failed.");
+			throw new NestedLoopException(e, "Create new edge failed.");
 		}
 	}
 
@@ -178,85 +185,85 @@ public class NestedLoopExtended extends Iterator {
 		PCounter.preadIncrement();
 
 		do {
-			// If get_from_outer is true, Get a tuple from the outer, delete
-			// an existing scan on the file, and reopen a new scan on the file.
-			// If a get_next on the outer returns DONE?, then the nested loops
-			// join is done too.
-			//Jtuple = new Tuple();
+			// If get_from_outer is true, Get a tuple from the outer, close
+			// the scans of the previous one, and look up the nodes that
+			// carry its label. If a get_next on the outer returns DONE?,
+			// then the nested loops join is done too.
 			if (get_from_outer == true) {
 				get_from_outer = false;
-				if (inner != null) // If this not the first time,
-				{
-					// close scan
-					//esif.close();
-					inner.DestroyBTreeFileScan();
-					inner = null;
-				}
-				
-
-				
+				closeInner();
 
 				if ((outer_tuple = outer.get_next()) == null) {
 					done = true;
-					if (inner != null) {
-						inner.DestroyBTreeFileScan();
-						inner = null;
-					}
-
 					return null;
 				}
+				if (PredEval.Eval(OutputFilter, outer_tuple, null, _in1, null) == false) {
+					get_from_outer = true;
+					continue;
+				}
 				try {
-					StringKey low = new StringKey(outer_tuple.getStrFld(1));
-					StringKey hi = new StringKey("5");
-					
-					inner = esif.new_scan(low,low);
-					
+					StringKey key = new StringKey(db.labelDictionary.getLabel(outer_tuple.getIntFld(1)));
+					inner = db.nodeLabelIndexFile.new_scan(key, key);
 				} catch (Exception e) {
 					throw new NestedLoopException(e, "openScan failed");
 				}
 			} // ENDS: if (get_from_outer == TRUE)
-			
-			// The next step is to get a tuple from the inner,
-			// while the inner is not completely scanned && there
-			// is no match (with pred),get a tuple from the inner.
 
-			EID eid = new EID();
-			while ((inner_tuple = inner.get_next()) != null) {
-				LeafData leafData = (LeafData) inner_tuple.data;
-				eid.copyRid(leafData.getData());
-				edge = db.edgeHeapfile.getEdge(eid);
-				//System.out.println(outer_tuple.getStrFld(1));
-				Descriptor desc = outer_tuple.getDescFld(2);
-//				for(int j= 0; j<5;j++){
-//		            System.out.print(desc.get(j)+"  ");
-//		        }
-				//edge.print();
-				//nodeList.add(node);
-				String labelofNode = ((StringKey)inner_tuple.key).getKey();
-				//entry = scan.get_next();
-				//inner_tuple.setHdr((short) in2_len, _in2, t2_str_sizescopy);
-				//System.out.println("SourceLabel"+labelofSource);
-				//System.out.println(outer_tuple.getStrFld(1));
+			// The next step is to get an edge from the adjacency run of
+			// the current node, moving on to the next node with the outer
+			// label when the run is exhausted.
+			AdjacencyEntry entry;
+			while (true) {
+				if (adjScan == null) {
+					if ((inner_tuple = inner.get_next()) == null)
+						break;
+					NID nid = new NID();
+					nid.copyRid(((LeafData) inner_tuple.data).getData());
+					adjScan = db.adjacencyFile.openScan(nid, direction);
+					current.copyNid(nid);
+				}
+				if ((entry = adjScan.getNext()) == null) {
+					adjScan.closescan();
+					adjScan = null;
+					continue;
+				}
+
+				edge.setLabelId(entry.labelId);
+				if (direction == AdjacencyFile.OUTGOING) {
+					edge.setSource(current);
+					edge.setDestination(entry.neighbor);
+				} else {
+					edge.setSource(entry.neighbor);
+					edge.setDestination(current);
+				}
+				edge.setWeight(entry.weight);
+
 				if (PredEval.Eval(RightFilter, null, edge, null, _in2) == true) {
-					if (PredEval.Eval(OutputFilter, outer_tuple, null, _in1, null) == true) {
-					//if (outer_tuple.getStrFld(1).equals(labelofNode)) {
-						// Apply a projection on the outer and inner tuples.
-						Projection.Join(outer_tuple, _in1, edge, _in2, Jtuple, perm_mat, nOutFlds);
-						//get_from_outer = true;
-						return Jtuple;
-					}
+					// Apply a projection on the outer and inner tuples.
+					Projection.Join(outer_tuple, _in1, edge, _in2, Jtuple, perm_mat, nOutFlds);
+					return Jtuple;
 				}
 			}
-			
 
 			// There has been no match. (otherwise, we would have
-			// returned from t//he while loop. Hence, inner is
+			// returned from the while loop. Hence, inner is
 			// exhausted, => set get_from_outer = TRUE, go to top of loop
 			get_from_outer = true;
-			 // Loop back to top and get next outer tuple.
+			// Loop back to top and get next outer tuple.
 		} while (true);
 	}
 
+	private void closeInner() throws Exception {
+		if (adjScan != null) {
+			adjScan.closescan();
+			adjScan = null;
+		}
+		if (inner != null) {
+			inner.DestroyBTreeFileScan();
+			inner = null;
+		}
+	}
+
 	/**
 	 * implement the abstract method close() fr7om super class Iterator to finish
 	 * cleaning up
@@ -273,7 +280,7 @@ public class NestedLoopExtended extends Iterator {
 
 			try {
 				outer.close();
-				if(inner != null) inner.DestroyBTreeFileScan();
+				closeInner();
 			} catch (Exception e) {
 				throw new JoinsException(e, "NestedLoopsJoin.java: error in closing iterator.");
 			}
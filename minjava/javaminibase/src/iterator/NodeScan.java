@@ -26,6 +26,7 @@ public class NodeScan extends Iterator {
 	private NodeHeapfile f;
 	private NScan scan;
 	private Node tuple1;
+	private NID nid = new NID();
 	private Node Jtuple;
 	private int t1_size;
 	private int nOutFlds;
@@ -129,14 +130,11 @@ public class NodeScan extends Iterator {
 	 */
 	public Node get_next() throws JoinsException, IOException, InvalidTupleSizeException, InvalidTypeException,
 			PageNotReadException, PredEvalException, UnknowAttrType, FieldNumberOutOfBoundException, WrongPermat, nodeheap.InvalidTupleSizeException {
-		NID nid = new NID();
-		
-
 		while (true) {
-			if ((tuple1 = scan.getNext(nid)) == null) {
+			// the node stays on its page, and already has the node layout
+			if ((tuple1 = scan.getNextView(nid)) == null) {
 				return null;
 			}
-			tuple1.setHdr(in1_len, _in1, s_sizes);
 			if (PredEval.Eval(OutputFilter, tuple1, null, _in1, null) == true) {
 				Projection.Project(tuple1, _in1, Jtuple, perm_mat, nOutFlds);
 				return Jtuple;
@@ -0,0 +1,271 @@
+package iterator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import btree.BTFileScan;
+import btree.KeyDataEntry;
+import btree.LeafData;
+import catalog.Utility;
+import diskmgr.GraphDB;
+import edgeheap.AdjacencyEntry;
+import edgeheap.AdjacencyFile;
+import edgeheap.AdjacencyScan;
+import global.Descriptor;
+import global.NID;
+import global.PageId;
+import global.SystemDefs;
+import heap.Tuple;
+import nodeheap.Node;
+import zIndex.DescriptorKey;
+
+/**
+ * Evaluates a path expression from a set of head nodes one hop at a time.
+ * The nodes reached so far from every head form the frontier. At each hop
+ * the frontier is sorted on the node ids, so that every node has its
+ * adjacency run read once whatever the number of heads that reached it,
+ * and the runs are read in page order. The neighbours it leads to are
+ * then kept only if they match the node pattern of the hop, which is
+ * looked up once, in the label hash index or the descriptor index, as a
+ * set of node ids. So each hop makes one pass over the adjacency file for
+ * all the heads together.
+ *
+ * A node reached from a head over several paths is kept once, with the
+ * number of paths, and handed out that many times by the tail iterator,
+ * so the results are the same as one per path.
+ */
+public class PathExpand {
+
+	private GraphDB db = SystemDefs.JavabaseDB;
+
+	/** the node ids matching the pattern of each hop */
+	private ArrayList<HashSet<Long>> steps = new ArrayList<HashSet<Long>>();
+
+	/** the nodes reached at the last hop, sorted on head then node */
+	private ArrayList<Reach> tails;
+
+	/** where the tails of each head start in tails, and end */
+	private int[] tailStart;
+
+	// a node reached from a head, and over how many paths
+	private static class Reach {
+		int head;
+		int pid;
+		int slot;
+		long paths;
+
+		Reach(int head, int pid, int slot, long paths) {
+			this.head = head;
+			this.pid = pid;
+			this.slot = slot;
+			this.paths = paths;
+		}
+	}
+
+	private static final Comparator<Reach> BY_NODE = new Comparator<Reach>() {
+		public int compare(Reach a, Reach b) {
+			if (a.pid != b.pid)
+				return a.pid < b.pid ? -1 : 1;
+			if (a.slot != b.slot)
+				return a.slot < b.slot ? -1 : 1;
+			return a.head < b.head ? -1 : (a.head == b.head ? 0 : 1);
+		}
+	};
+
+	private static final Comparator<Reach> BY_HEAD = new Comparator<Reach>() {
+		public int compare(Reach a, Reach b) {
+			if (a.head != b.head)
+				return a.head < b.head ? -1 : 1;
+			return BY_NODE.compare(a, b);
+		}
+	};
+
+	/**
+	 * Look up the node patterns of the hops.
+	 *
+	 * @param patterns
+	 *            the node pattern of every hop after the head, "L" and a
+	 *            label or "D" and a descriptor as five comma separated values
+	 * @exception PathExpandException
+	 *                a pattern that is neither, or an index that cannot be
+	 *                read
+	 */
+	public PathExpand(String[] patterns) throws PathExpandException {
+		for (String pattern : patterns) {
+			pattern = pattern.trim();
+			try {
+				if (pattern.startsWith("L"))
+					steps.add(withLabel(pattern.substring(1).trim()));
+				else if (pattern.startsWith("D"))
+					steps.add(withDescriptor(Utility.convertToDescriptor(pattern.substring(1).trim())));
+				else
+					throw new PathExpandException("PathExpand.java: unknown node pattern " + pattern);
+			} catch (PathExpandException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new PathExpandException(e, "PathExpand.java: looking up " + pattern + " failed");
+			}
+		}
+	}
+
+	/**
+	 * Find the nodes at the end of the path from every head. The tails of
+	 * head i are then read with tails(i).
+	 *
+	 * @param heads
+	 *            the head nodes
+	 * @exception PathExpandException
+	 *                error reading the adjacency file
+	 */
+	public void expand(List<NID> heads) throws PathExpandException {
+		ArrayList<Reach> frontier = new ArrayList<Reach>(heads.size());
+		for (int i = 0; i < heads.size(); i++) {
+			NID nid = heads.get(i);
+			frontier.add(new Reach(i, nid.pageNo.pid, nid.slotNo, 1));
+		}
+
+		try {
+			for (HashSet<Long> step : steps) {
+				frontier = hop(frontier, step);
+				if (frontier.isEmpty())
+					break;
+			}
+		} catch (Exception e) {
+			throw new PathExpandException(e, "PathExpand.java: expand() failed");
+		}
+
+		// read back head by head, the nodes of each head in page order
+		Collections.sort(frontier, BY_HEAD);
+		tails = frontier;
+		tailStart = new int[heads.size() + 1];
+		int t = 0;
+		for (int i = 0; i <= heads.size(); i++) {
+			while (t < tails.size() && tails.get(t).head < i)
+				t++;
+			tailStart[i] = t;
+		}
+	}
+
+	/**
+	 * The nodes at the end of the path from a head, once per path. The node
+	 * returned is the same object on every call.
+	 *
+	 * @param head
+	 *            the index of the head in the list given to expand
+	 * @return an iterator over the tail nodes
+	 */
+	public Iterator tails(int head) {
+		return new Tails(tailStart[head], tailStart[head + 1]);
+	}
+
+	// one hop: the neighbours of the frontier that match the step
+	private ArrayList<Reach> hop(ArrayList<Reach> frontier, HashSet<Long> step) throws Exception {
+		Collections.sort(frontier, BY_NODE);
+		ArrayList<Reach> next = new ArrayList<Reach>();
+		NID nid = new NID(new PageId(), 0);
+		int i = 0;
+		while (i < frontier.size()) {
+			// every head that reached this node
+			Reach first = frontier.get(i);
+			int end = i + 1;
+			while (end < frontier.size() && frontier.get(end).pid == first.pid
+					&& frontier.get(end).slot == first.slot)
+				end++;
+
+			nid.pageNo.pid = first.pid;
+			nid.slotNo = first.slot;
+			AdjacencyScan scan = db.adjacencyFile.openScan(nid, AdjacencyFile.OUTGOING);
+			try {
+				AdjacencyEntry entry;
+				while ((entry = scan.getNext()) != null) {
+					if (!step.contains(key(entry.neighbor.pageNo.pid, entry.neighbor.slotNo)))
+						continue;
+					for (int r = i; r < end; r++)
+						next.add(new Reach(frontier.get(r).head, entry.neighbor.pageNo.pid, entry.neighbor.slotNo,
+								frontier.get(r).paths));
+				}
+			} finally {
+				scan.closescan();
+			}
+			i = end;
+		}
+		return merge(next);
+	}
+
+	// sort on node then head and add up the paths of duplicates
+	private static ArrayList<Reach> merge(ArrayList<Reach> reached) {
+		Collections.sort(reached, BY_NODE);
+		ArrayList<Reach> merged = new ArrayList<Reach>(reached.size());
+		for (Reach r : reached) {
+			Reach last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+			if (last != null && BY_NODE.compare(last, r) == 0)
+				last.paths += r.paths;
+			else
+				merged.add(r);
+		}
+		return merged;
+	}
+
+	private HashSet<Long> withLabel(String label) throws Exception {
+		HashSet<Long> nids = new HashSet<Long>();
+		for (NID nid : db.nodeLabelHashFile.lookupAll(label))
+			nids.add(key(nid.pageNo.pid, nid.slotNo));
+		return nids;
+	}
+
+	private HashSet<Long> withDescriptor(Descriptor desc) throws Exception {
+		HashSet<Long> nids = new HashSet<Long>();
+		BTFileScan scan = db.nodeDescriptorIndexFile.new_scan(new DescriptorKey(desc), new DescriptorKey(desc));
+		try {
+			KeyDataEntry entry;
+			while ((entry = scan.get_next()) != null) {
+				NID nid = new NID();
+				nid.copyRid(((LeafData) entry.data).getData());
+				nids.add(key(nid.pageNo.pid, nid.slotNo));
+			}
+		} finally {
+			scan.DestroyBTreeFileScan();
+		}
+		return nids;
+	}
+
+	private static long key(int pid, int slot) {
+		return ((long) pid << 32) | (slot & 0xffffffffL);
+	}
+
+	// the tails of one head, each node as many times as it has paths
+	private class Tails extends Iterator {
+		private int next;
+		private int end;
+		private long left;
+		private Node node;
+		private NID nid = new NID(new PageId(), 0);
+
+		Tails(int start, int end) {
+			this.next = start;
+			this.end = end;
+		}
+
+		public Tuple get_next() throws Exception {
+			if (left == 0) {
+				if (next >= end)
+					return null;
+				Reach r = tails.get(next++);
+				nid.pageNo.pid = r.pid;
+				nid.slotNo = r.slot;
+				node = db.nodeHeapfile.getNode(nid);
+				left = r.paths;
+			}
+			left--;
+			return node;
+		}
+
+		public void close() throws IOException, JoinsException, SortException, index.IndexException {
+			closeFlag = true;
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package iterator;
+
+import chainexception.*;
+
+import java.lang.*;
+
+public class PathExpandException extends ChainException {
+	public PathExpandException(String s) {
+		super(null, s);
+	}
+
+	public PathExpandException(Exception prev, String s) {
+		super(prev, s);
+	}
+}
@@ -47,6 +47,7 @@ public class PredEval {
 
 		AttrType comparison_type = new AttrType(AttrType.attrInteger);
 		int comp_res;
+		boolean int_value;
 		boolean op_res = false, row_res = false, col_res = true;
 
 		if (p == null) {
@@ -101,8 +102,15 @@ public class PredEval {
 				// Setup second argument for comparison.
 				val_type[0] = new AttrType(temp_ptr.type2.attrType);
 				fld2 = 1;
+				int_value = false;
 				switch (temp_ptr.type2.attrType) {
 				case AttrType.attrInteger:
+					// an integer field, such as a label id, is compared with
+					// the value as it is, without a tuple for the value
+					if (tuple1 != value && comparison_type.attrType == AttrType.attrInteger) {
+						int_value = true;
+						break;
+					}
 					value.setHdr((short) 1, val_type, null);
 					value.setIntFld(1, temp_ptr.operand2.integer);
 					tuple2 = value;
@@ -135,13 +143,17 @@ public class PredEval {
 				}
 
 				// Got the arguments, now perform a comparison.
-				try {
-					Descriptor dummyTar = new Descriptor();
-					dummyTar.set(-1, -1, -1, -1, -1);
-					comp_res = TupleUtils.CompareTupleWithTuple(comparison_type, tuple1, fld1, tuple2, fld2,
-							temp_ptr.distance, dummyTar);
-				} catch (TupleUtilsException e) {
-					throw new PredEvalException(e, "TupleUtilsException is caught by PredEval.java");
+				if (int_value) {
+					comp_res = Integer.compare(tuple1.getIntFld(fld1), temp_ptr.operand2.integer);
+				} else {
+					try {
+						Descriptor dummyTar = new Descriptor();
+						dummyTar.set(-1, -1, -1, -1, -1);
+						comp_res = TupleUtils.CompareTupleWithTuple(comparison_type, tuple1, fld1, tuple2, fld2,
+								temp_ptr.distance, dummyTar);
+					} catch (TupleUtilsException e) {
+						throw new PredEvalException(e, "TupleUtilsException is caught by PredEval.java");
+					}
 				}
 				op_res = false;
 
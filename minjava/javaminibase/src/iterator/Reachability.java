@@ -0,0 +1,296 @@
+package iterator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import edgeheap.AdjacencyEntry;
+import edgeheap.AdjacencyFile;
+import edgeheap.AdjacencyScan;
+import global.AttrType;
+import global.NID;
+import global.PageId;
+import global.SystemDefs;
+import heap.Tuple;
+
+/**
+ * Finds whether a target node can be reached from a source node, within a
+ * number of hops or not, by a breadth first search from both ends: forward
+ * from the source over the out edges and backward from the target over the
+ * in edges, both read from the adjacency file. Each step expands every node
+ * of the smaller of the two frontiers by one hop, and the search ends at the
+ * first level where the two meet. On a graph where a one sided search
+ * touches n nodes, the two searches touch about the square root of n each.
+ *
+ * The nodes of one path with the fewest hops are returned in order from
+ * the source to the target, each as two integer fields, its page and slot
+ * numbers. Nothing is returned if there is no such path.
+ */
+public class Reachability extends Iterator {
+
+	private static final AttrType[] NODE_ID_TYPES = { new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger) };
+
+	private AdjacencyFile adjacencyFile = SystemDefs.JavabaseDB.adjacencyFile;
+
+	/** the nodes reached from the source, and from the target backward */
+	private Visited forward = new Visited();
+	private Visited backward = new Visited();
+
+	/** the hops of the shortest path found, -1 for none */
+	private int hops = -1;
+
+	/** the number of nodes the two searches reached */
+	private int visited;
+
+	/** the edge where the searches met, the best one so far */
+	private long meetFrom, meetTo;
+
+	/** the nodes of the path, from the source to the target */
+	private long[] path = new long[0];
+	private int next;
+
+	private NID nid = new NID(new PageId(), 0);
+
+	private Tuple Jtuple = new Tuple();
+
+	/**
+	 * constructor, runs the search
+	 *
+	 * @param source
+	 *            the node the path starts at
+	 * @param target
+	 *            the node the path ends at
+	 * @param maxHops
+	 *            the most hops the path may have, -1 for no bound
+	 * @exception JoinsException
+	 *                error reading the adjacency file
+	 */
+	public Reachability(NID source, NID target, int maxHops) throws JoinsException {
+		try {
+			Jtuple.setHdr((short) 2, NODE_ID_TYPES, null);
+			if (source != null && target != null)
+				search(key(source.pageNo.pid, source.slotNo), key(target.pageNo.pid, target.slotNo), maxHops);
+		} catch (Exception e) {
+			throw new JoinsException(e, "Reachability.java: search failed");
+		}
+		if (hops >= 0)
+			path = buildPath();
+		visited = forward.size + backward.size;
+	}
+
+	/**
+	 * Same as the constructor on NIDs, with the nodes given by label.
+	 *
+	 * @param sourceLabel
+	 *            the label of the node the path starts at
+	 * @param targetLabel
+	 *            the label of the node the path ends at
+	 * @param maxHops
+	 *            the most hops the path may have, -1 for no bound
+	 * @exception JoinsException
+	 *                error looking up the labels or reading the adjacency
+	 *                file
+	 */
+	public Reachability(String sourceLabel, String targetLabel, int maxHops) throws JoinsException {
+		this(lookup(sourceLabel), lookup(targetLabel), maxHops);
+	}
+
+	private static NID lookup(String label) throws JoinsException {
+		try {
+			return SystemDefs.JavabaseDB.nodeLabelHashFile.lookup(label);
+		} catch (Exception e) {
+			throw new JoinsException(e, "Reachability.java: looking up " + label + " failed");
+		}
+	}
+
+	/**
+	 * @return the number of hops of the shortest path, -1 if the target
+	 *         cannot be reached within the bound
+	 */
+	public int getHops() {
+		return hops;
+	}
+
+	/**
+	 * @return the number of nodes the two searches reached together
+	 */
+	public int getNodesVisited() {
+		return visited;
+	}
+
+	private void search(long source, long target, int maxHops) throws Exception {
+		forward.add(source, -1, 0);
+		backward.add(target, -1, 0);
+		if (source == target) {
+			hops = 0;
+			meetFrom = meetTo = source;
+			return;
+		}
+
+		long[] fFrontier = { source };
+		long[] bFrontier = { target };
+		int fCount = 1, bCount = 1;
+		int fLevel = 0, bLevel = 0;
+		while (fCount > 0 && bCount > 0 && (maxHops < 0 || fLevel + bLevel < maxHops)) {
+			if (fCount <= bCount) {
+				fFrontier = expand(fFrontier, fCount, forward, backward, AdjacencyFile.OUTGOING);
+				fCount = expanded;
+				fLevel++;
+			} else {
+				bFrontier = expand(bFrontier, bCount, backward, forward, AdjacencyFile.INCOMING);
+				bCount = expanded;
+				bLevel++;
+			}
+			if (hops >= 0)
+				return;
+		}
+	}
+
+	/** the size of the frontier expand returned */
+	private int expanded;
+
+	// one level of one of the searches, noting the shortest meeting
+	private long[] expand(long[] frontier, int count, Visited mine, Visited other, int direction)
+			throws Exception {
+		long[] next = new long[Math.max(16, count)];
+		expanded = 0;
+		for (int i = 0; i < count; i++) {
+			long node = frontier[i];
+			int depth = mine.depth[mine.find(node)];
+			nid.pageNo.pid = (int) (node >>> 32);
+			nid.slotNo = (int) node;
+			AdjacencyScan scan = adjacencyFile.openScan(nid, direction);
+			try {
+				AdjacencyEntry entry;
+				while ((entry = scan.getNext()) != null) {
+					long neighbor = key(entry.neighbor.pageNo.pid, entry.neighbor.slotNo);
+					int o = other.find(neighbor);
+					if (o >= 0) {
+						int total = depth + 1 + other.depth[o];
+						if (hops < 0 || total < hops) {
+							hops = total;
+							meetFrom = direction == AdjacencyFile.OUTGOING ? node : neighbor;
+							meetTo = direction == AdjacencyFile.OUTGOING ? neighbor : node;
+						}
+					}
+					if (mine.find(neighbor) >= 0)
+						continue;
+					mine.add(neighbor, node, depth + 1);
+					if (expanded == next.length)
+						next = Arrays.copyOf(next, expanded * 2);
+					next[expanded++] = neighbor;
+				}
+			} finally {
+				scan.closescan();
+			}
+		}
+		return next;
+	}
+
+	// source to meetFrom by the forward parents, then meetTo to target by
+	// the backward ones
+	private long[] buildPath() {
+		long[] nodes = new long[hops + 1];
+		int n = 0;
+		for (long node = meetFrom; node != -1; node = forward.parent[forward.find(node)])
+			nodes[n++] = node;
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			long t = nodes[i];
+			nodes[i] = nodes[j];
+			nodes[j] = t;
+		}
+		if (meetTo != meetFrom)
+			for (long node = meetTo; node != -1; node = backward.parent[backward.find(node)])
+				nodes[n++] = node;
+		return nodes;
+	}
+
+	/**
+	 * @return the next node of the path, null at the end
+	 * @exception JoinsException
+	 *                error building the result
+	 */
+	public Tuple get_next() throws JoinsException {
+		if (next == path.length)
+			return null;
+		long node = path[next++];
+		try {
+			Jtuple.setIntFld(1, (int) (node >>> 32));
+			Jtuple.setIntFld(2, (int) node);
+		} catch (Exception e) {
+			throw new JoinsException(e, "Reachability.java: get_next() failed");
+		}
+		return Jtuple;
+	}
+
+	private static long key(int pid, int slot) {
+		return ((long) pid << 32) | (slot & 0xffffffffL);
+	}
+
+	/**
+	 * implement the abstract method close() from super class Iterator to
+	 * finish cleaning up
+	 */
+	public void close() throws IOException, JoinsException, SortException, index.IndexException {
+		if (!closeFlag) {
+			forward = null;
+			backward = null;
+			closeFlag = true;
+		}
+	}
+
+	// the nodes one search reached, in an open addressing table of
+	// primitive keys, with the node each was reached from and its depth
+	private static class Visited {
+		long[] keys = new long[1024];
+		long[] parent = new long[1024];
+		int[] depth = new int[1024];
+		int size;
+
+		Visited() {
+			Arrays.fill(keys, -1);
+		}
+
+		int find(long node) {
+			int mask = keys.length - 1;
+			for (int i = hash(node) & mask;; i = (i + 1) & mask) {
+				if (keys[i] == node)
+					return i;
+				if (keys[i] == -1)
+					return -1;
+			}
+		}
+
+		void add(long node, long from, int d) {
+			if (2 * (size + 1) > keys.length)
+				grow();
+			int mask = keys.length - 1;
+			int i = hash(node) & mask;
+			while (keys[i] != -1)
+				i = (i + 1) & mask;
+			keys[i] = node;
+			parent[i] = from;
+			depth[i] = d;
+			size++;
+		}
+
+		private void grow() {
+			long[] oldKeys = keys;
+			long[] oldParent = parent;
+			int[] oldDepth = depth;
+			keys = new long[oldKeys.length * 2];
+			parent = new long[keys.length];
+			depth = new int[keys.length];
+			Arrays.fill(keys, -1);
+			size = 0;
+			for (int i = 0; i < oldKeys.length; i++)
+				if (oldKeys[i] != -1)
+					add(oldKeys[i], oldParent[i], oldDepth[i]);
+		}
+
+		private static int hash(long node) {
+			long h = node * 0x9E3779B97F4A7C15L;
+			return (int) (h >>> 32);
+		}
+	}
+}
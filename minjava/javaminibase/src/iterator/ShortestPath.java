@@ -0,0 +1,270 @@
+package iterator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import edgeheap.AdjacencyEntry;
+import edgeheap.AdjacencyFile;
+import edgeheap.AdjacencyScan;
+import global.AttrType;
+import global.NID;
+import global.PageId;
+import global.SystemDefs;
+import heap.Tuple;
+
+/**
+ * Finds the shortest paths from a source node over the edge weights, with
+ * Dijkstra's algorithm. The nodes are returned in the order of their
+ * distance as they are settled, each as five integer fields: the page and
+ * slot numbers of the node, its distance from the source, and the page and
+ * slot numbers of the node before it on a shortest path, -1 for the
+ * source. The weights are taken to be non negative.
+ *
+ * The out edges of a node are read from the adjacency file when it is
+ * settled. The nodes waiting to be settled are kept in a binary heap of
+ * primitive keys, with a node pushed again whenever a shorter path to it is
+ * found, and the settled nodes in a bitmap indexed by page and slot
+ * number, so that no object is made per node or edge.
+ */
+public class ShortestPath extends Iterator {
+
+	private static final AttrType[] PATH_TYPES = { new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger) };
+
+	private AdjacencyFile adjacencyFile = SystemDefs.JavabaseDB.adjacencyFile;
+
+	/** the node to stop at, -1 for none */
+	private long target;
+
+	/** the largest distance returned, -1 for none */
+	private long maxCost;
+
+	/** the settled nodes */
+	private Settled settled = new Settled();
+
+	/** the heap: distance, node and node before it of every entry */
+	private long[] heapDist = new long[256];
+	private long[] heapNode = new long[256];
+	private long[] heapPred = new long[256];
+	private int heapSize;
+
+	private NID nid = new NID(new PageId(), 0);
+
+	private Tuple Jtuple = new Tuple();
+
+	private boolean done;
+
+	/**
+	 * constructor
+	 *
+	 * @param source
+	 *            the node the paths start at
+	 * @param target
+	 *            the node to stop at once its distance is known, null for
+	 *            none
+	 * @param maxCost
+	 *            the largest distance to return, -1 for none
+	 * @exception JoinsException
+	 *                error setting up the result
+	 */
+	public ShortestPath(NID source, NID target, int maxCost) throws JoinsException {
+		try {
+			Jtuple.setHdr((short) 5, PATH_TYPES, null);
+		} catch (Exception e) {
+			throw new JoinsException(e, "ShortestPath.java: setHdr() failed");
+		}
+		this.target = target == null ? -1 : key(target.pageNo.pid, target.slotNo);
+		this.maxCost = maxCost;
+		if (source == null)
+			done = true;
+		else
+			push(0, key(source.pageNo.pid, source.slotNo), -1);
+	}
+
+	/**
+	 * Same as the constructor on NIDs, with the nodes given by label.
+	 *
+	 * @param sourceLabel
+	 *            the label of the node the paths start at
+	 * @param targetLabel
+	 *            the label of the node to stop at, null for none
+	 * @param maxCost
+	 *            the largest distance to return, -1 for none
+	 * @exception JoinsException
+	 *                error looking up the labels
+	 */
+	public ShortestPath(String sourceLabel, String targetLabel, int maxCost) throws JoinsException {
+		this(lookup(sourceLabel), lookup(targetLabel), maxCost);
+		if (targetLabel != null && target == -1)
+			done = true;
+	}
+
+	private static NID lookup(String label) throws JoinsException {
+		if (label == null)
+			return null;
+		try {
+			return SystemDefs.JavabaseDB.nodeLabelHashFile.lookup(label);
+		} catch (Exception e) {
+			throw new JoinsException(e, "ShortestPath.java: looking up " + label + " failed");
+		}
+	}
+
+	/**
+	 * @return the next node settled, null when there are no more
+	 * @exception JoinsException
+	 *                error reading the adjacency file
+	 */
+	public Tuple get_next() throws JoinsException {
+		while (!done && heapSize > 0) {
+			long dist = heapDist[0];
+			long node = heapNode[0];
+			long pred = heapPred[0];
+			pop();
+			if (maxCost >= 0 && dist > maxCost) {
+				done = true;
+				break;
+			}
+			if (!settled.add(node))
+				continue;
+			if (node == target)
+				done = true;
+			else
+				relax(node, dist);
+
+			try {
+				Jtuple.setIntFld(1, (int) (node >>> 32));
+				Jtuple.setIntFld(2, (int) node);
+				Jtuple.setIntFld(3, (int) dist);
+				Jtuple.setIntFld(4, pred == -1 ? -1 : (int) (pred >>> 32));
+				Jtuple.setIntFld(5, pred == -1 ? -1 : (int) pred);
+			} catch (Exception e) {
+				throw new JoinsException(e, "ShortestPath.java: get_next() failed");
+			}
+			return Jtuple;
+		}
+		return null;
+	}
+
+	// push the neighbours of a settled node that are not settled yet
+	private void relax(long node, long dist) throws JoinsException {
+		nid.pageNo.pid = (int) (node >>> 32);
+		nid.slotNo = (int) node;
+		AdjacencyScan scan = null;
+		try {
+			scan = adjacencyFile.openScan(nid, AdjacencyFile.OUTGOING);
+			AdjacencyEntry entry;
+			while ((entry = scan.getNext()) != null) {
+				long next = key(entry.neighbor.pageNo.pid, entry.neighbor.slotNo);
+				if (!settled.contains(next))
+					push(dist + entry.weight, next, node);
+			}
+		} catch (Exception e) {
+			throw new JoinsException(e, "ShortestPath.java: relax() failed");
+		} finally {
+			if (scan != null)
+				scan.closescan();
+		}
+	}
+
+	private void push(long dist, long node, long pred) {
+		if (heapSize == heapDist.length) {
+			heapDist = Arrays.copyOf(heapDist, heapSize * 2);
+			heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+			heapPred = Arrays.copyOf(heapPred, heapSize * 2);
+		}
+		int i = heapSize++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (heapDist[parent] <= dist)
+				break;
+			move(parent, i);
+			i = parent;
+		}
+		heapDist[i] = dist;
+		heapNode[i] = node;
+		heapPred[i] = pred;
+	}
+
+	private void pop() {
+		heapSize--;
+		long dist = heapDist[heapSize];
+		long node = heapNode[heapSize];
+		long pred = heapPred[heapSize];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize)
+				break;
+			if (child + 1 < heapSize && heapDist[child + 1] < heapDist[child])
+				child++;
+			if (heapDist[child] >= dist)
+				break;
+			move(child, i);
+			i = child;
+		}
+		heapDist[i] = dist;
+		heapNode[i] = node;
+		heapPred[i] = pred;
+	}
+
+	private void move(int from, int to) {
+		heapDist[to] = heapDist[from];
+		heapNode[to] = heapNode[from];
+		heapPred[to] = heapPred[from];
+	}
+
+	private static long key(int pid, int slot) {
+		return ((long) pid << 32) | (slot & 0xffffffffL);
+	}
+
+
+	/**
+	 * implement the abstract method close() from super class Iterator to
+	 * finish cleaning up
+	 */
+	public void close() throws IOException, JoinsException, SortException, index.IndexException {
+		if (!closeFlag) {
+			settled = null;
+			heapDist = null;
+			heapNode = null;
+			heapPred = null;
+			closeFlag = true;
+		}
+	}
+
+	/**
+	 * A bitmap of packed NIDs, with a row of bits for every node data page,
+	 * indexed by the page number, and a bit for every slot of the page in
+	 * its row. A row is made when a node of its page is first added.
+	 */
+	private static class Settled {
+		long[][] rows = new long[1024][];
+
+		boolean contains(long node) {
+			int pid = (int) (node >>> 32);
+			int word = (int) node >>> 6;
+			if (pid >= rows.length || rows[pid] == null || word >= rows[pid].length)
+				return false;
+			return (rows[pid][word] & (1L << node)) != 0;
+		}
+
+		/** @return false if the node was in the set already */
+		boolean add(long node) {
+			int pid = (int) (node >>> 32);
+			int word = (int) node >>> 6;
+			if (pid >= rows.length)
+				rows = Arrays.copyOf(rows, Math.max(pid + 1, 2 * rows.length));
+			long[] row = rows[pid];
+			if (row == null)
+				row = rows[pid] = new long[word + 1];
+			else if (word >= row.length)
+				row = rows[pid] = Arrays.copyOf(row, Math.max(word + 1, 2 * row.length));
+			long bit = 1L << node;
+			if ((row[word] & bit) != 0)
+				return false;
+			row[word] |= bit;
+			return true;
+		}
+	}
+}
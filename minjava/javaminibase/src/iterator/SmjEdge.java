@@ -2,9 +2,11 @@ package iterator;
 
 import java.io.IOException;
 
+import bufmgr.BufferRing;
 import global.AttrOperator;
 import global.AttrType;
 import global.RID;
+import global.SystemDefs;
 import global.TupleOrder;
 import heap.FieldNumberOutOfBoundException;
 import heap.FileAlreadyDeletedException;
@@ -40,7 +42,7 @@ public class SmjEdge {
 		attrs = new AttrType[numOfAttrs];
 		switch(joinRelationsType) {
 		case 0:
-			attrs[0] = new AttrType(AttrType.attrString);
+			attrs[0] = new AttrType(AttrType.attrInteger);
 			attrs[1] = new AttrType(AttrType.attrInteger); //source pg no.
 			attrs[2] = new AttrType(AttrType.attrInteger);//source slot no.
 			attrs[3] = new AttrType(AttrType.attrInteger);//dest pg no.
@@ -48,13 +50,13 @@ public class SmjEdge {
 			attrs[5] = new AttrType(AttrType.attrInteger);
 			break;
 		case 1:
-			attrs[0] = new AttrType(AttrType.attrString);
+			attrs[0] = new AttrType(AttrType.attrInteger);
 			attrs[1] = new AttrType(AttrType.attrInteger); //source pg no.
 			attrs[2] = new AttrType(AttrType.attrInteger);//source slot no.
 			attrs[3] = new AttrType(AttrType.attrInteger);//dest pg no.
 			attrs[4] = new AttrType(AttrType.attrInteger);//dest slot no.
 			attrs[5] = new AttrType(AttrType.attrInteger);
-			attrs[6] = new AttrType(AttrType.attrString);
+			attrs[6] = new AttrType(AttrType.attrInteger);
 			attrs[7] = new AttrType(AttrType.attrInteger); //source pg no.
 			attrs[8] = new AttrType(AttrType.attrInteger);//source slot no.
 			attrs[9] = new AttrType(AttrType.attrInteger);//dest pg no.
@@ -67,19 +69,8 @@ public class SmjEdge {
 	}
 
 	private short[] setAttrSizes(int joinRelationsType) {
-		short[] attrSize = null;
-		switch(joinRelationsType) {
-		case 0:
-			attrSize = new short[1];
-			attrSize[0] = 44;
-			break;
-		case 1:
-			attrSize = new short[2];
-			attrSize[0] = 44;
-			attrSize[1] = 44;
-			break;
-		}
-		return attrSize;
+		// the labels are ids, an edge has no string field
+		return new short[0];
 	}
 
 	private FldSpec[] setFieldSpecs(int joinRelationsType, boolean is_res) {
@@ -145,33 +136,27 @@ public class SmjEdge {
 
 	private Tuple setJTupleHdr(Tuple t, int joinType) throws InvalidTypeException, InvalidTupleSizeException, IOException {
 		int numAttrs = 0;
-		int numStr = 0;
 		if (joinType == 0) {
 			numAttrs = 12;
-			numStr = 2;
 		} else if (joinType == 1) {
 			numAttrs = 18;
-			numStr = 3;
 		}
 		AttrType[] attrs = new AttrType[numAttrs];
-        short[] str_sizes = new short[numStr];
-        attrs[0] = new AttrType(AttrType.attrString);
+        short[] str_sizes = new short[0];
+        attrs[0] = new AttrType(AttrType.attrInteger);
         attrs[1] = new AttrType(AttrType.attrInteger); //source pg no.
         attrs[2] = new AttrType(AttrType.attrInteger); //source slot no.
         attrs[3] = new AttrType(AttrType.attrInteger); //dest pg no.
         attrs[4] = new AttrType(AttrType.attrInteger); //dest slot no.
         attrs[5] = new AttrType(AttrType.attrInteger);
-        attrs[6] = new AttrType(AttrType.attrString);
+        attrs[6] = new AttrType(AttrType.attrInteger);
         attrs[7] = new AttrType(AttrType.attrInteger); //source pg no.
         attrs[8] = new AttrType(AttrType.attrInteger); //source slot no.
         attrs[9] = new AttrType(AttrType.attrInteger); //dest pg no.
         attrs[10] = new AttrType(AttrType.attrInteger); //dest slot no.
         attrs[11] = new AttrType(AttrType.attrInteger);
-        str_sizes[0] = (short)44;
-        str_sizes[1] = (short)44;
         if (joinType == 1) {
-			str_sizes[2] = (short)44;
-			attrs[12] = new AttrType(AttrType.attrString);
+			attrs[12] = new AttrType(AttrType.attrInteger);
 			attrs[13] = new AttrType(AttrType.attrInteger); //source pg no.
 			attrs[14] = new AttrType(AttrType.attrInteger); //source slot no.
 			attrs[15] = new AttrType(AttrType.attrInteger); //dest pg no.
@@ -186,7 +171,7 @@ public class SmjEdge {
 		System.out.print("[ ");
 		for (int i = 1; i <= resNumCols; i++) {
 			if (i == 1 || i == 7 || i == 13)
-				System.out.print(tuple.getStrFld(i) + " ");
+				System.out.print(SystemDefs.JavabaseDB.labelDictionary.getLabel(tuple.getIntFld(i)) + " ");
 			else
 				System.out.print(tuple.getIntFld(i) + " ");
 			if ((i % 6 == 0) && (i != resNumCols))
@@ -199,7 +184,7 @@ public class SmjEdge {
 		IOException, InvalidTupleSizeException, HFException, HFBufMgrException, 
 		HFDiskMgrException, InvalidTypeException {
 		Heapfile hf = new Heapfile(heapfilename);
-		Scan fscan = new Scan(hf);
+		Scan fscan = new Scan(hf, new BufferRing());
 		RID rid = new RID();
 		Tuple t = fscan.getNext(rid);
 		int counter = 0;
@@ -252,6 +237,7 @@ public class SmjEdge {
 		TupleOrder order = new TupleOrder((asc_order ? TupleOrder.Ascending : TupleOrder.Descending));
 		SortMerge sm = null;
 		joinHeapfile = new Heapfile(res_filename);
+		joinHeapfile.setBufferRing(new BufferRing());
 		
 //		CondExpr[] outFilter = new CondExpr[3];
 //		outFilter[0] = new CondExpr();
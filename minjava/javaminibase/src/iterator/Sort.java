@@ -13,6 +13,10 @@ import chainexception.*;
  * arguments to the constructor. After the constructor call, the user can
  * repeatly call <code>get_next()</code> to get tuples in sorted order. After
  * the sorting is done, the user should call <code>close()</code> to clean up.
+ *
+ * The sort key of every tuple is taken once, when it is read, so tuples are
+ * compared on a long and not field by field. The runs are generated by
+ * replacement selection and merged with a loser tree.
  */
 public class Sort extends Iterator implements GlobalConst {
 	private static final int ARBIT_RUNS = 10;
@@ -30,13 +34,23 @@ public class Sort extends Iterator implements GlobalConst {
 	private int max_elems_in_heap;
 	private int sortFldLen;
 	private int tuple_size;
-	private double distance; 
 	private Descriptor target;
 
-	private pnodeSplayPQ Q;
+	private boolean has_target;
+
+	/**
+	 * the tuples and their sort keys, in the heap while generating the runs
+	 * and the head of every run while merging them
+	 */
+	private Tuple[] slots;
+	private long[] keys;
+	private int[] slot_run;
+	private int[] heap;
+
+	/** the loser tree of the merge, with the winning run at 0 */
+	private int[] tree;
 	private Heapfile[] temp_files;
 	private int n_tempfiles;
-	private Tuple output_tuple;
 	private int[] n_tuples;
 	private int n_runs;
 	private Tuple op_buf;
@@ -44,12 +58,13 @@ public class Sort extends Iterator implements GlobalConst {
 	private SpoofIbuf[] i_buf;
 	private PageId[] bufs_pids;
 	private boolean useBM = true; // flag for whether to use buffer manager
+	private BufferRing ring = new BufferRing(); // frames shared by the runs
 
 	/**
-	 * Set up for merging the runs. Open an input buffer for each run, and
-	 * insert the first element (min) from each run into a heap.
-	 * <code>delete_min() </code> will then get the minimum of all runs.
-	 * 
+	 * Set up for merging the runs. Open an input buffer for each run, read
+	 * the first tuple of each and play them against each other in a loser
+	 * tree, whose root is then the smallest of all the runs.
+	 *
 	 * @param tuple_size
 	 *            size (in bytes) of each tuple
 	 * @param n_R_runs
@@ -70,61 +85,53 @@ public class Sort extends Iterator implements GlobalConst {
 		if (n_R_runs > _n_pages)
 			throw new LowMemException("Sort.java: Not enough memory to sort in two passes.");
 
-		int i;
-		pnode cur_node; // need pq_defs.java
-
 		i_buf = new SpoofIbuf[n_R_runs]; // need io_bufs.java
-		for (int j = 0; j < n_R_runs; j++)
-			i_buf[j] = new SpoofIbuf();
-
-		// construct the lists, ignore TEST for now
-		// this is a patch, I am not sure whether it works well -- bingjie
-		// 4/20/98
+		slots = new Tuple[n_R_runs];
+		keys = new long[n_R_runs];
 
-		for (i = 0; i < n_R_runs; i++) {
+		for (int i = 0; i < n_R_runs; i++) {
 			byte[][] apage = new byte[1][];
 			apage[0] = bufs[i];
 
-			// need iobufs.java
+			i_buf[i] = new SpoofIbuf();
 			i_buf[i].init(temp_files[i], apage, 1, tuple_size, n_tuples[i]);
 
-			cur_node = new pnode();
-			cur_node.run_num = i;
-
-			// may need change depending on whether Get() returns the original
-			// or make a copy of the tuple, need io_bufs.java ???
-			Tuple temp_tuple = new Tuple(tuple_size);
-
+			slots[i] = new Tuple(tuple_size);
 			try {
-				temp_tuple.setHdr(n_cols, _in, str_lens);
+				slots[i].setHdr(n_cols, _in, str_lens);
 			} catch (Exception e) {
 				throw new SortException(e, "Sort.java: Tuple.setHdr() failed");
 			}
+			next_of_run(i);
+		}
 
-			temp_tuple = i_buf[i].Get(temp_tuple); // need io_bufs.java
-
-			if (temp_tuple != null) {
-				/*
-				 * System.out.print("Get tuple from run " + i);
-				 * temp_tuple.print(_in);
-				 */
-				cur_node.tuple = temp_tuple; // no copy needed
-				try {
-					Q.enq(cur_node);
-				} catch (UnknowAttrType e) {
-					throw new SortException(e, "Sort.java: UnknowAttrType caught from Q.enq()");
-				} catch (TupleUtilsException e) {
-					throw new SortException(e, "Sort.java: TupleUtilsException caught from Q.enq()");
-				}
-
+		// play the runs up from the leaves, the node i having the children
+		// 2i and 2i+1 and the run r being the leaf n_R_runs+r; every node
+		// keeps the loser and passes the winner up
+		tree = new int[n_R_runs];
+		int[] winner = new int[2 * n_R_runs];
+		for (int i = 0; i < n_R_runs; i++)
+			winner[n_R_runs + i] = i;
+		for (int i = n_R_runs - 1; i > 0; i--) {
+			int a = winner[2 * i], b = winner[2 * i + 1];
+			if (beats(b, a)) {
+				winner[i] = b;
+				tree[i] = a;
+			} else {
+				winner[i] = a;
+				tree[i] = b;
 			}
 		}
-		return;
+		tree[0] = winner[1];
 	}
 
 	/**
-	 * Generate sorted runs. Using heap sort.
-	 * 
+	 * Generate sorted runs by replacement selection. The heap holds up to
+	 * max_elems tuples ordered on the run they go to and then on their sort
+	 * key. The smallest is written out and replaced by the next input tuple,
+	 * which goes to the next run if it is smaller than the one written, so a
+	 * run is about twice as long as the heap on unsorted input.
+	 *
 	 * @param max_elems
 	 *            maximum number of elements in heap
 	 * @param sortFldType
@@ -142,407 +149,212 @@ public class Sort extends Iterator implements GlobalConst {
 	private int generate_runs(int max_elems, AttrType sortFldType, int sortFldLen)
 			throws IOException, SortException, UnknowAttrType, TupleUtilsException, JoinsException, Exception {
 		Tuple tuple;
-		pnode cur_node;
-		pnodeSplayPQ Q1 = new pnodeSplayPQ(_sort_fld, sortFldType, order, distance, target);
-		pnodeSplayPQ Q2 = new pnodeSplayPQ(_sort_fld, sortFldType, order, distance, target);
-		pnodeSplayPQ pcurr_Q = Q1;
-		pnodeSplayPQ pother_Q = Q2;
-		Tuple lastElem = new Tuple(tuple_size); // need tuple.java
-		try {
-			lastElem.setHdr(n_cols, _in, str_lens);
-		} catch (Exception e) {
-			throw new SortException(e, "Sort.java: setHdr() failed");
-		}
-
-		int run_num = 0; // keeps track of the number of runs
-
-		// number of elements in Q
-		// int nelems_Q1 = 0;
-		// int nelems_Q2 = 0;
-		int p_elems_curr_Q = 0;
-		int p_elems_other_Q = 0;
-
-		int comp_res;
-
-		// set the lastElem to be the minimum value for the sort field
-		if (order.tupleOrder == TupleOrder.Ascending) {
+		slots = new Tuple[max_elems];
+		keys = new long[max_elems];
+		slot_run = new int[max_elems];
+		heap = new int[max_elems];
+		int n_elems = 0;
+
+		while (n_elems < max_elems && (tuple = next_input()) != null) {
+			slots[n_elems] = new Tuple(tuple_size); // tuple copy needed
 			try {
-				MIN_VAL(lastElem, sortFldType);
-			} catch (UnknowAttrType e) {
-				throw new SortException(e, "Sort.java: UnknowAttrType caught from MIN_VAL()");
+				slots[n_elems].setHdr(n_cols, _in, str_lens);
 			} catch (Exception e) {
-				throw new SortException(e, "MIN_VAL failed");
-			}
-		} else {
-			try {
-				MAX_VAL(lastElem, sortFldType);
-			} catch (UnknowAttrType e) {
-				throw new SortException(e, "Sort.java: UnknowAttrType caught from MAX_VAL()");
-			} catch (Exception e) {
-				throw new SortException(e, "MIN_VAL failed");
-			}
-		}
-
-		// maintain a fixed maximum number of elements in the heap
-		while ((p_elems_curr_Q + p_elems_other_Q) < max_elems) {
-			try {
-				tuple = _am.get_next(); // according to Iterator.java
-			} catch (Exception e) {
-				e.printStackTrace();
-				throw new SortException(e, "Sort.java: get_next() failed");
-			}
-
-			if (tuple == null) {
-				break;
+				throw new SortException(e, "Sort.java: setHdr() failed");
 			}
-			cur_node = new pnode();
-			cur_node.tuple = new Tuple(tuple); // tuple copy needed -- Bingjie
-												// 4/29/98
-
-			pcurr_Q.enq(cur_node);
-			p_elems_curr_Q++;
+			slots[n_elems].tupleSet(tuple.returnTupleByteArray(), tuple.getOffset(), tuple_size);
+			keys[n_elems] = sort_key(slots[n_elems]);
+			heap[n_elems] = n_elems;
+			sift_up(n_elems++);
 		}
 
-		// now the queue is full, starting writing to file while keep trying
-		// to add new tuples to the queue. The ones that does not fit are put
-		// on the other queue temperarily
-		while (true) {
-			cur_node = pcurr_Q.deq();
-			if (cur_node == null)
-				break;
-			p_elems_curr_Q--;
-
-			comp_res = TupleUtils.CompareTupleWithValue(sortFldType, cur_node.tuple, _sort_fld, lastElem, distance, target); // need
-																											// tuple_utils.java
-
-			if ((comp_res < 0 && order.tupleOrder == TupleOrder.Ascending)
-					|| (comp_res > 0 && order.tupleOrder == TupleOrder.Descending)) {
-				// doesn't fit in current run, put into the other queue
-				try {
-					pother_Q.enq(cur_node);
-				} catch (UnknowAttrType e) {
-					throw new SortException(e, "Sort.java: UnknowAttrType caught from Q.enq()");
-				}
-				p_elems_other_Q++;
-			} else {
-				// set lastElem to have the value of the current tuple,
-				// need tuple_utils.java
-				TupleUtils.SetValue(lastElem, cur_node.tuple, _sort_fld, sortFldType);
-				// write tuple to output file, need io_bufs.java, type cast???
-				// System.out.println("Putting tuple into run " + (run_num +
-				// 1));
-				// cur_node.tuple.print(_in);
-
-				o_buf.Put(cur_node.tuple);
-			}
-
-			// check whether the other queue is full
-			if (p_elems_other_Q == max_elems) {
+		int run_num = 0; // keeps track of the number of runs
+		int curr_run = 0; // the run of the heap the one being written is
+		while (n_elems > 0) {
+			int s = heap[0];
+			if (slot_run[s] != curr_run) {
 				// close current run and start next run
 				n_tuples[run_num] = (int) o_buf.flush(); // need io_bufs.java
 				run_num++;
-
-				// check to see whether need to expand the array
-				if (run_num == n_tempfiles) {
-					Heapfile[] temp1 = new Heapfile[2 * n_tempfiles];
-					for (int i = 0; i < n_tempfiles; i++) {
-						temp1[i] = temp_files[i];
-					}
-					temp_files = temp1;
-					n_tempfiles *= 2;
-
-					int[] temp2 = new int[2 * n_runs];
-					for (int j = 0; j < n_runs; j++) {
-						temp2[j] = n_tuples[j];
-					}
-					n_tuples = temp2;
-					n_runs *= 2;
-				}
-
-				try {
-					temp_files[run_num] = new Heapfile(null);
-				} catch (Exception e) {
-					throw new SortException(e, "Sort.java: create Heapfile failed");
-				}
-
-				// need io_bufs.java
-				o_buf.init(bufs, _n_pages, tuple_size, temp_files[run_num], false);
-
-				// set the last Elem to be the minimum value for the sort field
-				if (order.tupleOrder == TupleOrder.Ascending) {
-					try {
-						MIN_VAL(lastElem, sortFldType);
-					} catch (UnknowAttrType e) {
-						throw new SortException(e, "Sort.java: UnknowAttrType caught from MIN_VAL()");
-					} catch (Exception e) {
-						throw new SortException(e, "MIN_VAL failed");
-					}
-				} else {
-					try {
-						MAX_VAL(lastElem, sortFldType);
-					} catch (UnknowAttrType e) {
-						throw new SortException(e, "Sort.java: UnknowAttrType caught from MAX_VAL()");
-					} catch (Exception e) {
-						throw new SortException(e, "MIN_VAL failed");
-					}
-				}
-
-				// switch the current heap and the other heap
-				pnodeSplayPQ tempQ = pcurr_Q;
-				pcurr_Q = pother_Q;
-				pother_Q = tempQ;
-				int tempelems = p_elems_curr_Q;
-				p_elems_curr_Q = p_elems_other_Q;
-				p_elems_other_Q = tempelems;
+				start_run(run_num);
+				curr_run = slot_run[s];
 			}
+			o_buf.Put(slots[s]);
 
-			// now check whether the current queue is empty
-			else if (p_elems_curr_Q == 0) {
-				while ((p_elems_curr_Q + p_elems_other_Q) < max_elems) {
-					try {
-						tuple = _am.get_next(); // according to Iterator.java
-					} catch (Exception e) {
-						throw new SortException(e, "get_next() failed");
-					}
-
-					if (tuple == null) {
-						break;
-					}
-					cur_node = new pnode();
-					cur_node.tuple = new Tuple(tuple); // tuple copy needed --
-														// Bingjie 4/29/98
-
-					try {
-						pcurr_Q.enq(cur_node);
-					} catch (UnknowAttrType e) {
-						throw new SortException(e, "Sort.java: UnknowAttrType caught from Q.enq()");
-					}
-					p_elems_curr_Q++;
-				}
+			if ((tuple = next_input()) == null) {
+				heap[0] = heap[--n_elems];
+			} else {
+				// the new tuple stays in the run if it is not smaller than
+				// the one just written
+				long key = sort_key(tuple);
+				slot_run[s] = compare(key, tuple, keys[s], slots[s]) < 0 ? curr_run + 1 : curr_run;
+				slots[s].tupleSet(tuple.returnTupleByteArray(), tuple.getOffset(), tuple_size);
+				keys[s] = key;
 			}
-
-			// Check if we are done
-			if (p_elems_curr_Q == 0) {
-				// current queue empty despite our attemps to fill in
-				// indicating no more tuples from input
-				if (p_elems_other_Q == 0) {
-					// other queue is also empty, no more tuples to write out,
-					// done
-					break; // of the while(true) loop
-				} else {
-					// generate one more run for all tuples in the other queue
-					// close current run and start next run
-					n_tuples[run_num] = (int) o_buf.flush(); // need
-																// io_bufs.java
-					run_num++;
-
-					// check to see whether need to expand the array
-					if (run_num == n_tempfiles) {
-						Heapfile[] temp1 = new Heapfile[2 * n_tempfiles];
-						for (int i = 0; i < n_tempfiles; i++) {
-							temp1[i] = temp_files[i];
-						}
-						temp_files = temp1;
-						n_tempfiles *= 2;
-
-						int[] temp2 = new int[2 * n_runs];
-						for (int j = 0; j < n_runs; j++) {
-							temp2[j] = n_tuples[j];
-						}
-						n_tuples = temp2;
-						n_runs *= 2;
-					}
-
-					try {
-						temp_files[run_num] = new Heapfile(null);
-					} catch (Exception e) {
-						throw new SortException(e, "Sort.java: create Heapfile failed");
-					}
-
-					// need io_bufs.java
-					o_buf.init(bufs, _n_pages, tuple_size, temp_files[run_num], false);
-
-					// set the last Elem to be the minimum value for the sort
-					// field
-					if (order.tupleOrder == TupleOrder.Ascending) {
-						try {
-							MIN_VAL(lastElem, sortFldType);
-						} catch (UnknowAttrType e) {
-							throw new SortException(e, "Sort.java: UnknowAttrType caught from MIN_VAL()");
-						} catch (Exception e) {
-							throw new SortException(e, "MIN_VAL failed");
-						}
-					} else {
-						try {
-							MAX_VAL(lastElem, sortFldType);
-						} catch (UnknowAttrType e) {
-							throw new SortException(e, "Sort.java: UnknowAttrType caught from MAX_VAL()");
-						} catch (Exception e) {
-							throw new SortException(e, "MIN_VAL failed");
-						}
-					}
-
-					// switch the current heap and the other heap
-					pnodeSplayPQ tempQ = pcurr_Q;
-					pcurr_Q = pother_Q;
-					pother_Q = tempQ;
-					int tempelems = p_elems_curr_Q;
-					p_elems_curr_Q = p_elems_other_Q;
-					p_elems_other_Q = tempelems;
-				}
-			} // end of if (p_elems_curr_Q == 0)
-		} // end of while (true)
+			sift_down(n_elems);
+		}
 
 		// close the last run
 		n_tuples[run_num] = (int) o_buf.flush();
 		run_num++;
 
+		slots = null;
+		slot_run = null;
+		heap = null;
 		return run_num;
 	}
 
 	/**
-	 * Remove the minimum value among all the runs.
-	 * 
-	 * @return the minimum tuple removed
-	 * @exception IOException
-	 *                from lower layers
+	 * Open a new temporary file for a run, and point the output buffer at it.
+	 *
+	 * @param run_num
+	 *            the number of the run
 	 * @exception SortException
 	 *                something went wrong in the lower layer.
 	 */
-	private Tuple delete_min() throws IOException, SortException, Exception {
-		pnode cur_node; // needs pq_defs.java
-		Tuple new_tuple, old_tuple;
-
-		cur_node = Q.deq();
-		old_tuple = cur_node.tuple;
-		/*
-		 * System.out.print("Get "); old_tuple.print(_in);
-		 */
-		// we just removed one tuple from one run, now we need to put another
-		// tuple of the same run into the queue
-		if (i_buf[cur_node.run_num].empty() != true) {
-			// run not exhausted
-			new_tuple = new Tuple(tuple_size); // need tuple.java??
-
-			try {
-				new_tuple.setHdr(n_cols, _in, str_lens);
-			} catch (Exception e) {
-				throw new SortException(e, "Sort.java: setHdr() failed");
+	private void start_run(int run_num) throws SortException {
+		// check to see whether need to expand the array
+		if (run_num == n_tempfiles) {
+			Heapfile[] temp1 = new Heapfile[2 * n_tempfiles];
+			for (int i = 0; i < n_tempfiles; i++) {
+				temp1[i] = temp_files[i];
 			}
+			temp_files = temp1;
+			n_tempfiles *= 2;
 
-			new_tuple = i_buf[cur_node.run_num].Get(new_tuple);
-			if (new_tuple != null) {
-				/*
-				 * System.out.print(" fill in from run " + cur_node.run_num);
-				 * new_tuple.print(_in);
-				 */
-				cur_node.tuple = new_tuple; // no copy needed -- I think Bingjie
-											// 4/22/98
-				try {
-					Q.enq(cur_node);
-				} catch (UnknowAttrType e) {
-					throw new SortException(e, "Sort.java: UnknowAttrType caught from Q.enq()");
-				} catch (TupleUtilsException e) {
-					throw new SortException(e, "Sort.java: TupleUtilsException caught from Q.enq()");
-				}
-			} else {
-				throw new SortException("********** Wait a minute, I thought input is not empty ***************");
+			int[] temp2 = new int[2 * n_runs];
+			for (int j = 0; j < n_runs; j++) {
+				temp2[j] = n_tuples[j];
 			}
+			n_tuples = temp2;
+			n_runs *= 2;
+		}
 
+		try {
+			temp_files[run_num] = new Heapfile(null);
+			temp_files[run_num].setBufferRing(ring);
+		} catch (Exception e) {
+			throw new SortException(e, "Sort.java: create Heapfile failed");
 		}
 
-		// changed to return Tuple instead of return char array ????
-		return old_tuple;
+		// need io_bufs.java
+		o_buf.init(bufs, _n_pages, tuple_size, temp_files[run_num], false);
 	}
 
-	/**
-	 * Set lastElem to be the minimum value of the appropriate type
-	 * 
-	 * @param lastElem
-	 *            the tuple
-	 * @param sortFldType
-	 *            the sort field type
-	 * @exception IOException
-	 *                from lower layers
-	 * @exception UnknowAttrType
-	 *                attrSymbol or attrNull encountered
-	 */
-	private void MIN_VAL(Tuple lastElem, AttrType sortFldType)
-			throws IOException, FieldNumberOutOfBoundException, UnknowAttrType {
-
-		// short[] s_size = new short[Tuple.max_size]; // need Tuple.java
-		// AttrType[] junk = new AttrType[1];
-		// junk[0] = new AttrType(sortFldType.attrType);
-		char[] c = new char[1];
-		c[0] = Character.MIN_VALUE;
-		String s = new String(c);
-		// short fld_no = 1;
-
-		switch (sortFldType.attrType) {
-		case AttrType.attrInteger:
-			// lastElem.setHdr(fld_no, junk, null);
-			lastElem.setIntFld(_sort_fld, Integer.MIN_VALUE);
-			break;
-		case AttrType.attrReal:
-			// lastElem.setHdr(fld-no, junk, null);
-			lastElem.setFloFld(_sort_fld, Float.MIN_VALUE);
-			break;
-		case AttrType.attrString:
-			// lastElem.setHdr(fld_no, junk, s_size);
-			lastElem.setStrFld(_sort_fld, s);
-			break;
-		default:
-			// don't know how to handle attrSymbol, attrNull
-			// System.err.println("error in sort.java");
-			throw new UnknowAttrType("Sort.java: don't know how to handle attrSymbol, attrNull");
+	// the next input tuple, null once the input is over
+	private Tuple next_input() throws SortException {
+		try {
+			return _am.get_next(); // according to Iterator.java
+		} catch (Exception e) {
+			throw new SortException(e, "Sort.java: get_next() failed");
 		}
+	}
 
-		return;
+	// whether the heap slot a comes before b, on the run and then the key
+	private boolean heap_less(int a, int b) throws IOException, FieldNumberOutOfBoundException {
+		if (slot_run[a] != slot_run[b])
+			return slot_run[a] < slot_run[b];
+		return compare(keys[a], slots[a], keys[b], slots[b]) < 0;
+	}
+
+	private void sift_up(int i) throws IOException, FieldNumberOutOfBoundException {
+		int s = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >> 1;
+			if (!heap_less(s, heap[parent]))
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = s;
+	}
+
+	// move the root of the heap of n_elems slots down to its place
+	private void sift_down(int n_elems) throws IOException, FieldNumberOutOfBoundException {
+		if (n_elems == 0)
+			return;
+		int s = heap[0];
+		int i = 0;
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= n_elems)
+				break;
+			if (child + 1 < n_elems && heap_less(heap[child + 1], heap[child]))
+				child++;
+			if (!heap_less(heap[child], s))
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = s;
 	}
 
 	/**
-	 * Set lastElem to be the maximum value of the appropriate type
-	 * 
-	 * @param lastElem
+	 * The sort key of a tuple, which orders as its sort field does. Integers
+	 * are their own key, and floats and the distances to the target their
+	 * bits turned to order as signed longs, the closer descriptor being the
+	 * greater one. Strings are keyed on their first four characters and
+	 * compared whole when those are the same. Descriptors without a target
+	 * have no order, and all get the same key.
+	 *
+	 * @param t
 	 *            the tuple
-	 * @param sortFldType
-	 *            the sort field type
+	 * @return the key
 	 * @exception IOException
 	 *                from lower layers
-	 * @exception UnknowAttrType
-	 *                attrSymbol or attrNull encountered
+	 * @exception FieldNumberOutOfBoundException
+	 *                the sort field is not in the tuple
 	 */
-	private void MAX_VAL(Tuple lastElem, AttrType sortFldType)
-			throws IOException, FieldNumberOutOfBoundException, UnknowAttrType {
-
-		// short[] s_size = new short[Tuple.max_size]; // need Tuple.java
-		// AttrType[] junk = new AttrType[1];
-		// junk[0] = new AttrType(sortFldType.attrType);
-		char[] c = new char[1];
-		c[0] = Character.MAX_VALUE;
-		String s = new String(c);
-		// short fld_no = 1;
-
-		switch (sortFldType.attrType) {
+	private long sort_key(Tuple t) throws IOException, FieldNumberOutOfBoundException {
+		switch (_in[_sort_fld - 1].attrType) {
 		case AttrType.attrInteger:
-			// lastElem.setHdr(fld_no, junk, null);
-			lastElem.setIntFld(_sort_fld, Integer.MAX_VALUE);
-			break;
+			return t.getIntFld(_sort_fld);
 		case AttrType.attrReal:
-			// lastElem.setHdr(fld_no, junk, null);
-			lastElem.setFloFld(_sort_fld, Float.MAX_VALUE);
-			break;
+			int bits = Float.floatToIntBits(t.getFloFld(_sort_fld));
+			return bits ^ ((bits >> 31) & 0x7fffffff);
 		case AttrType.attrString:
-			// lastElem.setHdr(fld_no, junk, s_size);
-			lastElem.setStrFld(_sort_fld, s);
-			break;
+			String s = t.getStrFld(_sort_fld);
+			long key = 0;
+			for (int i = 0; i < 4; i++)
+				key = (key << 16) | (i < s.length() ? s.charAt(i) : 0);
+			return key ^ Long.MIN_VALUE;
+		case AttrType.attrDesc:
+			if (!has_target)
+				return 0;
+			// a distance is never negative, so its bits order as it does
+			return -Double.doubleToLongBits(t.descDistance(_sort_fld, target));
 		default:
-			// don't know how to handle attrSymbol, attrNull
-			// System.err.println("error in sort.java");
-			throw new UnknowAttrType("Sort.java: don't know how to handle attrSymbol, attrNull");
+			return 0;
 		}
+	}
+
+	// compare two tuples on their keys, in the sort order
+	private int compare(long key1, Tuple t1, long key2, Tuple t2)
+			throws IOException, FieldNumberOutOfBoundException {
+		int c = key1 < key2 ? -1 : key1 == key2 ? 0 : 1;
+		if (c == 0 && _in[_sort_fld - 1].attrType == AttrType.attrString)
+			c = t1.compareStrFld(_sort_fld, t2, _sort_fld);
+		return order.tupleOrder == TupleOrder.Ascending ? c : -c;
+	}
 
-		return;
+	// whether the head of run a comes before that of run b, the runs that
+	// are over coming last and a tie going to the earlier run
+	private boolean beats(int a, int b) throws IOException, FieldNumberOutOfBoundException {
+		if (slots[a] == null)
+			return false;
+		if (slots[b] == null)
+			return true;
+		int c = compare(keys[a], slots[a], keys[b], slots[b]);
+		return c < 0 || (c == 0 && a < b);
+	}
+
+	// read the next tuple of a run into its slot, which is emptied at the end
+	private void next_of_run(int r) throws IOException, SortException, Exception {
+		if (i_buf[r].empty() || i_buf[r].Get(slots[r]) == null) {
+			slots[r] = null;
+			return;
+		}
+		keys[r] = sort_key(slots[r]);
 	}
 
 	/**
@@ -565,6 +377,15 @@ public class Sort extends Iterator implements GlobalConst {
 	 *            the length of the sort field
 	 * @param n_pages
 	 *            amount of memory (in pages) available for sorting
+	 * @param distance
+	 *            ignored. Descriptors are ordered by their distance to the
+	 *            target alone; two of them closer than this to each other
+	 *            are no longer taken to be equal while sorting. DuplElim
+	 *            and SortMerge, which pass it, still apply it themselves
+	 *            when they compare the sorted tuples
+	 * @param target
+	 *            the descriptor whose distance descriptors are sorted on;
+	 *            with null, descriptors are left in no particular order
 	 * @exception IOException
 	 *                from lower layers
 	 * @exception SortException
@@ -572,7 +393,6 @@ public class Sort extends Iterator implements GlobalConst {
 	 */
 	public Sort(AttrType[] in, short len_in, short[] str_sizes, Iterator am, int sort_fld, TupleOrder sort_order,
 			int sort_fld_len, int n_pages, double distance, Descriptor target) throws IOException, SortException {
-		this.distance = distance;
 		this.target = target;
 		
 		_in = new AttrType[len_in];
@@ -622,7 +442,7 @@ public class Sort extends Iterator implements GlobalConst {
 			}
 		} else {
 			for (int k = 0; k < _n_pages; k++)
-				bufs[k] = new byte[MAX_SPACE];
+				bufs[k] = new byte[SystemDefs.JavabasePageSize];
 		}
 
 		first_time = true;
@@ -636,6 +456,7 @@ public class Sort extends Iterator implements GlobalConst {
 
 		try {
 			temp_files[0] = new Heapfile(null);
+			temp_files[0].setBufferRing(ring);
 		} catch (Exception e) {
 			throw new SortException(e, "Sort.java: Heapfile error");
 		}
@@ -648,7 +469,11 @@ public class Sort extends Iterator implements GlobalConst {
 		max_elems_in_heap = 2000;
 		sortFldLen = sort_fld_len;
 
-		Q = new pnodeSplayPQ(sort_fld, in[sort_fld - 1], order, distance, target);
+		if (target != null) {
+			for (int i = 0; i < 5; i++)
+				if (target.get(i) != -1)
+					has_target = true;
+		}
 
 		op_buf = new Tuple(tuple_size); // need Tuple.java
 		try {
@@ -692,17 +517,26 @@ public class Sort extends Iterator implements GlobalConst {
 			setup_for_merge(tuple_size, Nruns);
 		}
 
-		if (Q.empty()) {
+		int winner = tree[0];
+		if (slots[winner] == null) {
 			// no more tuples availble
 			return null;
 		}
-
-		output_tuple = delete_min();
-		if (output_tuple != null) {
-			op_buf.tupleCopy(output_tuple);
-			return op_buf;
-		} else
-			return null;
+		op_buf.tupleCopy(slots[winner]);
+
+		// replace the winner by the next tuple of its run, and play it up
+		// against the losers on its way to the root
+		next_of_run(winner);
+		int k = tree.length;
+		for (int t = (winner + k) >> 1; t > 0; t >>= 1) {
+			if (beats(tree[t], winner)) {
+				int loser = winner;
+				winner = tree[t];
+				tree[t] = loser;
+			}
+		}
+		tree[0] = winner;
+		return op_buf;
 	}
 
 	/**
@@ -48,7 +48,7 @@ public class SpoofIbuf implements GlobalConst {
 		curr_page = 0;
 		t_rd_from_pg = 0;
 		done = false;
-		t_per_pg = MINIBASE_PAGESIZE / t_size;
+		t_per_pg = bufs[0].length / t_size;
 
 		n_tuples = Ntuples;
 
@@ -78,7 +78,7 @@ public class SpoofIbuf implements GlobalConst {
 	 */
 	public Tuple Get(Tuple buf) throws IOException, Exception {
 		if (tot_t_proc == n_tuples)
-			done = true;
+			finish();
 
 		if (done == true) {
 			buf = null;
@@ -97,7 +97,7 @@ public class SpoofIbuf implements GlobalConst {
 
 		if (t_in_buf == 0) // No tuples read in?
 		{
-			done = true;
+			finish();
 			buf = null;
 			return null;
 		}
@@ -120,10 +120,20 @@ public class SpoofIbuf implements GlobalConst {
 	 */
 	public boolean empty() {
 		if (tot_t_proc == n_tuples)
-			done = true;
+			finish();
 		return done;
 	}
 
+	// the run is read: release the pages the scan still has pinned, it
+	// stops short of the end of the file when the run fills the buffer
+	private void finish() {
+		done = true;
+		if (hf_scan != null) {
+			hf_scan.closescan();
+			hf_scan = null;
+		}
+	}
+
 	/**
 	 *
 	 * @return the numbers of tuples in the buffer
@@ -0,0 +1,273 @@
+package iterator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import bufmgr.BufferRing;
+import edgeheap.EScan;
+import edgeheap.Edge;
+import global.AttrType;
+import global.EID;
+import global.SystemDefs;
+import heap.Tuple;
+
+/**
+ * Finds the triangles a -> b -> c -> a of the graph whose first edge
+ * satisfies one condition, the second edge a second one and the third edge
+ * a third one. The edge heap file is read once. The end points of the
+ * edges satisfying each condition are kept in memory as NID sorted
+ * adjacency lists, out of and into every node, and the triangles are found
+ * by intersecting them: for every edge x -> y of the condition with the
+ * fewest edges, the nodes z that y leads to over the next condition are
+ * intersected with the nodes leading to x over the last one, by walking
+ * the shorter list and searching the longer one. Nothing is written to
+ * disk.
+ *
+ * Every triangle is returned as six integer fields, the page and slot
+ * numbers of a, b and c, once for every combination of parallel edges
+ * that makes it.
+ */
+public class TriangleJoin extends Iterator {
+
+	private static final AttrType[] EDGE_TYPES = { new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger) };
+
+	private static final AttrType[] TRIANGLE_TYPES = { new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger) };
+
+	/** the nodes at the end of any edge, sorted: a node is its index here */
+	private long[] nodes;
+
+	/** the edges of each condition, as from << 32 | to, sorted */
+	private long[][] out = new long[3][];
+
+	/** the edges of each condition, as to << 32 | from, sorted */
+	private long[][] in = new long[3][];
+
+	/** the condition the edges x -> y are read from */
+	private int first;
+
+	/** the next edge x -> y */
+	private int next;
+
+	/** the nodes z found for the current edge, and how many are left */
+	private int[] found = new int[16];
+	private int nfound;
+	private int foundAt;
+	private int x, y;
+
+	/** the nodes a, b and c of the triangle returned */
+	private int[] abc = new int[3];
+
+	private Tuple Jtuple = new Tuple();
+
+	/**
+	 * constructor
+	 *
+	 * @param filter1
+	 *            the condition on the edge a -> b, over the fields of an
+	 *            edge, null for every edge
+	 * @param filter2
+	 *            the condition on the edge b -> c
+	 * @param filter3
+	 *            the condition on the edge c -> a
+	 * @exception JoinsException
+	 *                error reading the edges
+	 */
+	public TriangleJoin(CondExpr[] filter1, CondExpr[] filter2, CondExpr[] filter3) throws JoinsException {
+		CondExpr[][] filters = { filter1, filter2, filter3 };
+		try {
+			Jtuple.setHdr((short) 6, TRIANGLE_TYPES, null);
+			readEdges(filters);
+		} catch (Exception e) {
+			throw new JoinsException(e, "TriangleJoin.java: reading the edges failed");
+		}
+
+		// start from the condition with the fewest edges
+		for (int k = 1; k < 3; k++)
+			if (out[k].length < out[first].length)
+				first = k;
+	}
+
+	// one scan of the edge heap file, the edges of each condition collected
+	private void readEdges(CondExpr[][] filters) throws Exception {
+		long[][] from = new long[3][];
+		long[][] to = new long[3][];
+		int[] count = new int[3];
+		for (int k = 0; k < 3; k++) {
+			from[k] = new long[1024];
+			to[k] = new long[1024];
+		}
+
+		EScan scan = new EScan(SystemDefs.JavabaseDB.edgeHeapfile, new BufferRing());
+		try {
+			EID eid = new EID();
+			Edge edge;
+			while ((edge = scan.getNextView(eid)) != null) {
+				for (int k = 0; k < 3; k++) {
+					if (!PredEval.Eval(filters[k], edge, null, EDGE_TYPES, null))
+						continue;
+					if (count[k] == from[k].length) {
+						from[k] = Arrays.copyOf(from[k], count[k] * 2);
+						to[k] = Arrays.copyOf(to[k], count[k] * 2);
+					}
+					from[k][count[k]] = key(edge.getIntFld(2), edge.getIntFld(3));
+					to[k][count[k]] = key(edge.getIntFld(4), edge.getIntFld(5));
+					count[k]++;
+				}
+			}
+		} finally {
+			scan.closescan();
+		}
+
+		// number the nodes, then sort the edges on them both ways
+		int total = count[0] + count[1] + count[2];
+		long[] all = new long[2 * total];
+		int n = 0;
+		for (int k = 0; k < 3; k++) {
+			System.arraycopy(from[k], 0, all, n, count[k]);
+			n += count[k];
+			System.arraycopy(to[k], 0, all, n, count[k]);
+			n += count[k];
+		}
+		Arrays.sort(all);
+		n = 0;
+		for (int i = 0; i < all.length; i++)
+			if (n == 0 || all[i] != all[n - 1])
+				all[n++] = all[i];
+		nodes = Arrays.copyOf(all, n);
+
+		for (int k = 0; k < 3; k++) {
+			out[k] = new long[count[k]];
+			in[k] = new long[count[k]];
+			for (int i = 0; i < count[k]; i++) {
+				long f = Arrays.binarySearch(nodes, from[k][i]);
+				long t = Arrays.binarySearch(nodes, to[k][i]);
+				out[k][i] = f << 32 | t;
+				in[k][i] = t << 32 | f;
+			}
+			Arrays.sort(out[k]);
+			Arrays.sort(in[k]);
+		}
+	}
+
+	/**
+	 * @return the next triangle, null when there are no more
+	 * @exception JoinsException
+	 *                error building the result
+	 */
+	public Tuple get_next() throws JoinsException {
+		while (foundAt == nfound) {
+			if (next == out[first].length)
+				return null;
+			x = (int) (out[first][next] >>> 32);
+			y = (int) out[first][next];
+			next++;
+			intersect(out[(first + 1) % 3], y, in[(first + 2) % 3], x);
+		}
+		int z = found[foundAt++];
+
+		// back from x -> y -> z to a -> b -> c
+		abc[first] = x;
+		abc[(first + 1) % 3] = y;
+		abc[(first + 2) % 3] = z;
+		try {
+			for (int i = 0; i < 3; i++) {
+				Jtuple.setIntFld(2 * i + 1, (int) (nodes[abc[i]] >>> 32));
+				Jtuple.setIntFld(2 * i + 2, (int) nodes[abc[i]]);
+			}
+		} catch (Exception e) {
+			throw new JoinsException(e, "TriangleJoin.java: get_next() failed");
+		}
+		return Jtuple;
+	}
+
+	// the nodes that both u leads to in list a and lead to v in list b
+	private void intersect(long[] a, int u, long[] b, int v) {
+		nfound = 0;
+		foundAt = 0;
+		int aStart = lowerBound(a, 0, a.length, (long) u << 32);
+		int aEnd = lowerBound(a, aStart, a.length, (long) (u + 1) << 32);
+		int bStart = lowerBound(b, 0, b.length, (long) v << 32);
+		int bEnd = lowerBound(b, bStart, b.length, (long) (v + 1) << 32);
+		if (aStart == aEnd || bStart == bEnd)
+			return;
+
+		// walk the shorter list, search the longer one
+		if (aEnd - aStart > bEnd - bStart) {
+			long[] t = a;
+			a = b;
+			b = t;
+			int s = aStart;
+			aStart = bStart;
+			bStart = s;
+			s = aEnd;
+			aEnd = bEnd;
+			bEnd = s;
+		}
+		long bKey = b[bStart] & 0xffffffff00000000L;
+		int i = aStart;
+		int j = bStart;
+		while (i < aEnd && j < bEnd) {
+			int z = (int) a[i];
+			int iEnd = i + 1;
+			while (iEnd < aEnd && (int) a[iEnd] == z)
+				iEnd++;
+			j = gallop(b, j, bEnd, bKey | z);
+			int jEnd = j;
+			while (jEnd < bEnd && (int) b[jEnd] == z)
+				jEnd++;
+			for (long copies = (long) (iEnd - i) * (jEnd - j); copies > 0; copies--) {
+				if (nfound == found.length)
+					found = Arrays.copyOf(found, nfound * 2);
+				found[nfound++] = z;
+			}
+			i = iEnd;
+			j = jEnd;
+		}
+	}
+
+	// the first index in [from, to) whose value is not below key
+	private static int lowerBound(long[] a, int from, int to, long key) {
+		while (from < to) {
+			int mid = (from + to) >>> 1;
+			if (a[mid] < key)
+				from = mid + 1;
+			else
+				to = mid;
+		}
+		return from;
+	}
+
+	// lowerBound, looking near from first since the keys come in order
+	private static int gallop(long[] a, int from, int to, long key) {
+		int step = 1;
+		int lo = from;
+		int hi = from;
+		while (hi < to && a[hi] < key) {
+			lo = hi + 1;
+			hi += step;
+			step <<= 1;
+		}
+		return lowerBound(a, lo, Math.min(hi, to), key);
+	}
+
+	private static long key(int pid, int slot) {
+		return ((long) pid << 32) | (slot & 0xffffffffL);
+	}
+
+	/**
+	 * implement the abstract method close() from super class Iterator to
+	 * finish cleaning up
+	 */
+	public void close() throws IOException, JoinsException, SortException, index.IndexException {
+		if (!closeFlag) {
+			out = null;
+			in = null;
+			nodes = null;
+			closeFlag = true;
+		}
+	}
+}
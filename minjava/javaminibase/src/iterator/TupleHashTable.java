@@ -0,0 +1,104 @@
+package iterator;
+
+import heap.*;
+import global.*;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * An in-memory hash table of tuples on some of their fields, for the hash
+ * based operators. The tuples are numbered in the order they are added, and
+ * chained on their hash. The caller computes the hashes with
+ * TupleUtils.HashValue, so that it can also split its input on them.
+ */
+class TupleHashTable {
+
+	/** bytes counted for a tuple in memory beyond its data */
+	static final int TUPLE_OVERHEAD = 64;
+
+	private AttrType types[];
+	private int flds[];
+
+	private ArrayList<Tuple> tuples = new ArrayList<Tuple>();
+	private int hashes[] = new int[256];
+	private int chain[] = new int[256];
+	private int heads[];
+	private long bytes;
+
+	/**
+	 * @param types
+	 *            the field types of the tuples
+	 * @param flds
+	 *            the fields the tuples are hashed and compared on
+	 */
+	TupleHashTable(AttrType types[], int flds[]) {
+		this.types = types;
+		this.flds = flds;
+		heads = new int[512];
+		Arrays.fill(heads, -1);
+	}
+
+	/**
+	 * @return the number of the tuple equal to t in the fields, -1 if none
+	 */
+	int find(Tuple t, int hash) throws IOException, UnknowAttrType, TupleUtilsException {
+		for (int i = heads[hash & (heads.length - 1)]; i >= 0; i = chain[i])
+			if (hashes[i] == hash && TupleUtils.EqualFields(tuples.get(i), t, types, flds))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Add a tuple, which is kept as it is, so it should be a copy.
+	 *
+	 * @return the number of the tuple
+	 */
+	int add(Tuple t, int hash) {
+		int n = tuples.size();
+		if (n == hashes.length) {
+			hashes = Arrays.copyOf(hashes, n * 2);
+			chain = Arrays.copyOf(chain, n * 2);
+		}
+		if (n == heads.length / 2)
+			rehash(heads.length * 2);
+		tuples.add(t);
+		hashes[n] = hash;
+		int b = hash & (heads.length - 1);
+		chain[n] = heads[b];
+		heads[b] = n;
+		bytes += t.getLength() + TUPLE_OVERHEAD;
+		return n;
+	}
+
+	Tuple get(int i) {
+		return tuples.get(i);
+	}
+
+	int size() {
+		return tuples.size();
+	}
+
+	/**
+	 * @return about the memory the tuples take
+	 */
+	long bytes() {
+		return bytes;
+	}
+
+	void clear() {
+		tuples.clear();
+		Arrays.fill(heads, -1);
+		bytes = 0;
+	}
+
+	private void rehash(int size) {
+		heads = new int[size];
+		Arrays.fill(heads, -1);
+		for (int i = 0; i < tuples.size(); i++) {
+			int b = hashes[i] & (size - 1);
+			chain[i] = heads[b];
+			heads[b] = i;
+		}
+	}
+}
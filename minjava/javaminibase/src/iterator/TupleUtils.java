@@ -42,8 +42,6 @@ public class TupleUtils {
 			double distance, Descriptor target) throws IOException, UnknowAttrType, TupleUtilsException {
 		int t1_i, t2_i;
 		float t1_r, t2_r;
-		String t1_s, t2_s;
-		Descriptor t1_d, t2_d;
 
 		switch (fldType.attrType) {
 		case AttrType.attrInteger: // Compare two integers.
@@ -75,43 +73,40 @@ public class TupleUtils {
 				return 1;
 
 		case AttrType.attrString: // Compare two strings
+			int cmp;
 			try {
-				t1_s = t1.getStrFld(t1_fld_no);
-				t2_s = t2.getStrFld(t2_fld_no);
+				// compared in place, neither field becomes a String
+				cmp = t1.compareStrFld(t1_fld_no, t2, t2_fld_no);
 			} catch (FieldNumberOutOfBoundException e) {
 				throw new TupleUtilsException(e, "FieldNumberOutOfBoundException is caught by TupleUtils.java");
 			}
 
 			// Now handle the special case that is posed by the max_values for
 			// strings...
-			if (t1_s.compareTo(t2_s) > 0)
+			if (cmp > 0)
 				return 1;
-			if (t1_s.compareTo(t2_s) < 0)
+			if (cmp < 0)
 				return -1;
 			return 0;
 		case AttrType.attrDesc:
 			try {
-				t1_d = t1.getDescFld(t1_fld_no);
-				t2_d = t2.getDescFld(t2_fld_no);
+				// if target is [-1,-1,-1,-1,-1] just cmpre t1_d,t2_d dist
+				if (target == null || isNoTarget(target)) {
+					if (t1.descDistance(t1_fld_no, t2, t2_fld_no) <= distance)
+						return 0;
+					return 1;
+				}
+
+				double t1_dist = t1.descDistance(t1_fld_no, target);
+				double t2_dist = t2.descDistance(t2_fld_no, target);
+				if (t1_dist == t2_dist)
+					return 0;
+				if (t1_dist < t2_dist)
+					return 1;
+				return -1;
 			} catch (FieldNumberOutOfBoundException e) {
 				throw new TupleUtilsException(e, "FieldNumberOutOfBoundException is caught by TupleUtils.java");
 			}
-			
-			Descriptor dummyTar = new Descriptor();
-			dummyTar.set(-1, -1, -1, -1, -1);
-			// if target is [-1,-1,-1,-1,-1] just cmpre t1_d,t2_d dist
-			
-			if (target==null||target.equal(dummyTar) == 1) {
-				if (t1_d.distance(t2_d) <= distance)
-					return 0;
-				return 1;
-			}
-
-			if (target.distance(t1_d) == target.distance(t2_d))
-				return 0;
-			if (target.distance(t1_d) < target.distance(t2_d))
-				return 1;
-			return -1;
 		default:
 
 			throw new UnknowAttrType(null, "Don't know how to handle attrSymbol, attrNull");
@@ -119,6 +114,14 @@ public class TupleUtils {
 		}
 	}
 
+	// whether a target descriptor is the [-1,-1,-1,-1,-1] that means none
+	private static boolean isNoTarget(Descriptor target) {
+		for (int i = 0; i < 5; i++)
+			if (target.get(i) != -1)
+				return false;
+		return true;
+	}
+
 	/**
 	 * This function compares tuple1 with another tuple2 whose field number is
 	 * same as the tuple1
@@ -180,6 +183,85 @@ public class TupleUtils {
 		return true;
 	}
 
+	/**
+	 * Whether two tuples hold the same values in the given fields.
+	 *
+	 * @param t1
+	 *            the first tuple
+	 * @param t2
+	 *            the second tuple
+	 * @param types
+	 *            the field types of both tuples
+	 * @param flds
+	 *            the field numbers to compare
+	 * @return true if all the fields are equal
+	 * @exception UnknowAttrType
+	 *                don't know the attribute type
+	 * @exception IOException
+	 *                some I/O fault
+	 * @exception TupleUtilsException
+	 *                exception from this class
+	 */
+	public static boolean EqualFields(Tuple t1, Tuple t2, AttrType types[], int flds[])
+			throws IOException, UnknowAttrType, TupleUtilsException {
+		for (int i = 0; i < flds.length; i++)
+			if (CompareTupleWithTuple(types[flds[i] - 1], t1, flds[i], t2, flds[i], 0, null) != 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Hash the values of the given fields, so that tuples that are equal in
+	 * them hash alike.
+	 *
+	 * @param t
+	 *            the tuple
+	 * @param types
+	 *            the field types of the tuple
+	 * @param flds
+	 *            the field numbers to hash
+	 * @return the hash code
+	 * @exception UnknowAttrType
+	 *                don't know the attribute type
+	 * @exception IOException
+	 *                some I/O fault
+	 * @exception TupleUtilsException
+	 *                exception from this class
+	 */
+	public static int HashValue(Tuple t, AttrType types[], int flds[])
+			throws IOException, UnknowAttrType, TupleUtilsException {
+		int h = 1;
+		try {
+			for (int i = 0; i < flds.length; i++) {
+				int v;
+				switch (types[flds[i] - 1].attrType) {
+				case AttrType.attrInteger:
+					v = t.getIntFld(flds[i]);
+					break;
+				case AttrType.attrReal:
+					float f = t.getFloFld(flds[i]);
+					v = f == 0 ? 0 : Float.floatToIntBits(f);
+					break;
+				case AttrType.attrString:
+					v = t.getStrFld(flds[i]).hashCode();
+					break;
+				case AttrType.attrDesc:
+					Descriptor d = t.getDescFld(flds[i]);
+					v = 0;
+					for (int j = 0; j < 5; j++)
+						v = 31 * v + d.get(j);
+					break;
+				default:
+					throw new UnknowAttrType(null, "Don't know how to handle attrSymbol, attrNull");
+				}
+				h = 31 * h + v;
+			}
+		} catch (FieldNumberOutOfBoundException e) {
+			throw new TupleUtilsException(e, "FieldNumberOutOfBoundException is caught by TupleUtils.java");
+		}
+		return h ^ (h >>> 16);
+	}
+
 	/**
 	 * get the string specified by the field number
 	 * 
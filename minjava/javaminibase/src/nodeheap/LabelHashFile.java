@@ -0,0 +1,545 @@
+/* File LabelHashFile.java */
+
+package nodeheap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import diskmgr.Page;
+import global.Convert;
+import global.GlobalConst;
+import global.NID;
+import global.PageId;
+import global.SystemDefs;
+
+/**
+ * A persistent hash index from node labels to NIDs, organized by linear
+ * hashing. Finding the nodes with a label reads the primary page of one
+ * bucket, and its overflow pages if it has any, instead of scanning the
+ * node heap file or descending the label B-tree.
+ * <p>
+ * The file is made of two kinds of pages. The file entry points to the first
+ * table page; the table pages hold the page ids of the primary bucket pages,
+ * in bucket order, and the first one also holds the state of the hash (its
+ * level, the next bucket to split and the number of bytes of entries). The
+ * table is small and is loaded into memory when the file is opened. The
+ * file is only created when the first node is added to it. A bucket
+ * page starts with the id of its next overflow page and the number of bytes
+ * in use; the entries follow, each one holding the hash of the label, the
+ * NID of the node and the label as a modified UTF-8 string.
+ * <p>
+ * There are 2^level + split buckets. A label whose hash h gives a bucket
+ * h mod 2^level below split goes to bucket h mod 2^(level+1) instead. When
+ * the entries would fill more than SPLIT_LOAD of the primary pages, bucket
+ * split is split in two by rehashing its entries on one more bit; split
+ * moves on to the next bucket, and level goes up once every bucket of the
+ * level is split. Buckets are never merged.
+ */
+public class LabelHashFile implements GlobalConst {
+
+	/** how full the buckets get, on average, before one is split */
+	public static final double SPLIT_LOAD = 0.75;
+
+	// table pages
+	private static final int NEXT_PAGE = 0;
+	private static final int COUNT = 4;
+	private static final int LEVEL = 8;
+	private static final int SPLIT = 12;
+	private static final int BYTES = 16;
+	private static final int TABLE_START = 20;
+
+	// bucket pages
+	private static final int USED_PTR = 4;
+	private static final int DPFIXED = 8;
+
+	// an entry
+	private static final int HASH = 0;
+	private static final int NODE_PAGE = 4;
+	private static final int NODE_SLOT = 8;
+	private static final int LABEL = 10;
+
+	private String _fileName;
+	private PageId _firstPageId;
+	private PageId _lastTablePageId;
+	private int _lastTableCount;
+
+	private int level;
+	private int split;
+	private int bytes;
+
+	// primary page of each bucket
+	private int buckets[] = new int[16];
+	private int numBuckets = 0;
+
+	/**
+	 * Open the hash file with the given name. If it does not exist yet it is
+	 * empty, and it is created when the first node is added.
+	 *
+	 * @param name
+	 *            the file name
+	 * @exception HFException
+	 *                hash file exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public LabelHashFile(String name) throws HFException, HFBufMgrException, HFDiskMgrException, IOException {
+		_fileName = name;
+		_firstPageId = get_file_entry(_fileName);
+		if (_firstPageId == null)
+			return;
+
+		// load the state and the bucket table
+		Page apage = new Page();
+		PageId pageId = new PageId(_firstPageId.pid);
+		pinPage(pageId, apage);
+		byte[] data = apage.getpage();
+		level = Convert.getIntValue(LEVEL, data);
+		split = Convert.getIntValue(SPLIT, data);
+		bytes = Convert.getIntValue(BYTES, data);
+		while (true) {
+			int count = Convert.getIntValue(COUNT, data);
+			for (int i = 0; i < count; i++)
+				addBucket(Convert.getIntValue(TABLE_START + 4 * i, data));
+			int next = Convert.getIntValue(NEXT_PAGE, data);
+			unpinPage(pageId, false /* undirty */);
+
+			if (next == INVALID_PAGE) {
+				_lastTablePageId = pageId;
+				_lastTableCount = count;
+				break;
+			}
+			pageId = new PageId(next);
+			pinPage(pageId, apage);
+			data = apage.getpage();
+		}
+	}
+
+	/**
+	 * Find a node with the given label.
+	 *
+	 * @param label
+	 *            the label
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 * @return the NID of a node with the label, null if there is none
+	 */
+	public NID lookup(String label) throws HFBufMgrException, IOException {
+		ArrayList<NID> nids = new ArrayList<NID>(1);
+		find(label, nids, 1);
+		return nids.isEmpty() ? null : nids.get(0);
+	}
+
+	/**
+	 * Find all the nodes with the given label.
+	 *
+	 * @param label
+	 *            the label
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 * @return the NIDs of the nodes with the label, in no particular order
+	 */
+	public ArrayList<NID> lookupAll(String label) throws HFBufMgrException, IOException {
+		ArrayList<NID> nids = new ArrayList<NID>();
+		find(label, nids, Integer.MAX_VALUE);
+		return nids;
+	}
+
+	/**
+	 * Add a node under its label.
+	 *
+	 * @param label
+	 *            the label of the node
+	 * @param nid
+	 *            the node
+	 * @exception HFException
+	 *                hash file exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception HFDiskMgrException
+	 *                exception thrown from diskmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 */
+	public void insert(String label, NID nid)
+			throws HFException, HFBufMgrException, HFDiskMgrException, IOException {
+		if (_firstPageId == null)
+			create();
+
+		byte[] entry = entry(label, nid);
+		addEntry(bucket(hash(label)), entry);
+		bytes += entry.length;
+
+		if (bytes > SPLIT_LOAD * numBuckets * (SystemDefs.JavabasePageSize - DPFIXED))
+			splitBucket();
+		else
+			writeState();
+	}
+
+	/**
+	 * Remove a node from under its label.
+	 *
+	 * @param label
+	 *            the label of the node
+	 * @param nid
+	 *            the node
+	 * @exception HFException
+	 *                hash file exception
+	 * @exception HFBufMgrException
+	 *                exception thrown from bufmgr layer
+	 * @exception IOException
+	 *                I/O errors
+	 * @return true if the node was found under the label
+	 */
+	public boolean delete(String label, NID nid) throws HFException, HFBufMgrException, IOException {
+		if (_firstPageId == null)
+			return false;
+
+		byte[] entry = entry(label, nid);
+		Page apage = new Page();
+		Page prevPage = new Page();
+		PageId prevId = new PageId(INVALID_PAGE);
+		PageId curId = new PageId(buckets[bucket(hash(label))]);
+		while (curId.pid != INVALID_PAGE) {
+			pinPage(curId, apage);
+			byte[] data = apage.getpage();
+			int used = Convert.getIntValue(USED_PTR, data);
+			for (int pos = DPFIXED; pos < used; pos += entryLength(data, pos)) {
+				if (!sameEntry(data, pos, entry))
+					continue;
+
+				// close the gap
+				System.arraycopy(data, pos + entry.length, data, pos, used - pos - entry.length);
+				used -= entry.length;
+				Convert.setIntValue(used, USED_PTR, data);
+				bytes -= entry.length;
+
+				PageId nextId = new PageId(Convert.getIntValue(NEXT_PAGE, data));
+				if (used > DPFIXED || prevId.pid == INVALID_PAGE) {
+					unpinPage(curId, true /* dirty */);
+				} else {
+					// an empty overflow page: unlink and free it
+					unpinPage(curId, false /* undirty */);
+					freePage(curId);
+					pinPage(prevId, prevPage);
+					Convert.setIntValue(nextId.pid, NEXT_PAGE, prevPage.getpage());
+					unpinPage(prevId, true /* dirty */);
+				}
+				writeState();
+				return true;
+			}
+			PageId nextId = new PageId(Convert.getIntValue(NEXT_PAGE, data));
+			unpinPage(curId, false /* undirty */);
+			prevId = curId;
+			curId = nextId;
+		}
+		return false;
+	}
+
+	// collect up to max NIDs of the entries with the label
+	private void find(String label, ArrayList<NID> nids, int max) throws HFBufMgrException, IOException {
+		if (_firstPageId == null)
+			return;
+
+		byte[] entry = entry(label, new NID(new PageId(INVALID_PAGE), 0));
+		Page apage = new Page();
+		PageId pageId = new PageId(buckets[bucket(hash(label))]);
+		while (pageId.pid != INVALID_PAGE) {
+			pinPage(pageId, apage);
+			byte[] data = apage.getpage();
+			int used = Convert.getIntValue(USED_PTR, data);
+			for (int pos = DPFIXED; pos < used && nids.size() < max; pos += entryLength(data, pos)) {
+				if (sameLabel(data, pos, entry))
+					nids.add(new NID(new PageId(Convert.getIntValue(pos + NODE_PAGE, data)),
+							Convert.getShortValue(pos + NODE_SLOT, data)));
+			}
+			int next = Convert.getIntValue(NEXT_PAGE, data);
+			unpinPage(pageId, false /* undirty */);
+			if (nids.size() >= max)
+				break;
+			pageId.pid = next;
+		}
+	}
+
+	// the file with one empty bucket
+	private void create() throws HFBufMgrException, HFDiskMgrException, IOException {
+		Page apage = new Page();
+		PageId bucketId = newPage(apage);
+		initBucket(apage.getpage());
+		unpinPage(bucketId, true /* dirty */);
+
+		_firstPageId = newPage(apage);
+		byte[] data = apage.getpage();
+		initTable(data);
+		Convert.setIntValue(1, COUNT, data);
+		Convert.setIntValue(bucketId.pid, TABLE_START, data);
+		unpinPage(_firstPageId, true /* dirty */);
+		add_file_entry(_fileName, _firstPageId);
+
+		_lastTablePageId = _firstPageId;
+		_lastTableCount = 1;
+		addBucket(bucketId.pid);
+	}
+
+	// put an entry on the first page of a bucket with room for it
+	private void addEntry(int bucket, byte[] entry) throws HFException, HFBufMgrException, IOException {
+		if (DPFIXED + entry.length > SystemDefs.JavabasePageSize)
+			throw new HFException(null, "LabelHashFile.java: label too long");
+
+		Page apage = new Page();
+		PageId pageId = new PageId(buckets[bucket]);
+		while (true) {
+			pinPage(pageId, apage);
+			byte[] data = apage.getpage();
+			int used = Convert.getIntValue(USED_PTR, data);
+			if (used + entry.length <= data.length) {
+				System.arraycopy(entry, 0, data, used, entry.length);
+				Convert.setIntValue(used + entry.length, USED_PTR, data);
+				unpinPage(pageId, true /* dirty */);
+				return;
+			}
+
+			int next = Convert.getIntValue(NEXT_PAGE, data);
+			if (next == INVALID_PAGE) {
+				// every page of the bucket is full: chain an overflow page
+				Page newPage = new Page();
+				PageId newId = newPage(newPage);
+				initBucket(newPage.getpage());
+				unpinPage(newId, true /* dirty */);
+				Convert.setIntValue(newId.pid, NEXT_PAGE, data);
+				unpinPage(pageId, true /* dirty */);
+				pageId = newId;
+			} else {
+				unpinPage(pageId, false /* undirty */);
+				pageId = new PageId(next);
+			}
+		}
+	}
+
+	/*
+	 * Split bucket split into itself and bucket split + 2^level: empty its
+	 * chain, keeping the primary page and freeing the overflow pages, and add
+	 * its entries again with the new bucket in place.
+	 */
+	private void splitBucket() throws HFException, HFBufMgrException, IOException {
+		ArrayList<byte[]> entries = new ArrayList<byte[]>();
+		Page apage = new Page();
+		PageId pageId = new PageId(buckets[split]);
+		while (pageId.pid != INVALID_PAGE) {
+			pinPage(pageId, apage);
+			byte[] data = apage.getpage();
+			int used = Convert.getIntValue(USED_PTR, data);
+			for (int pos = DPFIXED; pos < used;) {
+				int len = entryLength(data, pos);
+				entries.add(Arrays.copyOfRange(data, pos, pos + len));
+				pos += len;
+			}
+			int next = Convert.getIntValue(NEXT_PAGE, data);
+			if (pageId.pid == buckets[split]) {
+				initBucket(data);
+				unpinPage(pageId, true /* dirty */);
+			} else {
+				unpinPage(pageId, false /* undirty */);
+				freePage(pageId);
+			}
+			pageId = new PageId(next);
+		}
+
+		PageId newId = newPage(apage);
+		initBucket(apage.getpage());
+		unpinPage(newId, true /* dirty */);
+		appendTable(newId.pid);
+
+		if (++split == 1 << level) {
+			level++;
+			split = 0;
+		}
+		writeState();
+
+		for (byte[] entry : entries)
+			addEntry(bucket(Convert.getIntValue(HASH, entry)), entry);
+	}
+
+	// record a new bucket in the table, on disk and in memory
+	private void appendTable(int bucketPid) throws HFBufMgrException, IOException {
+		Page apage = new Page();
+		if (TABLE_START + 4 * (_lastTableCount + 1) > SystemDefs.JavabasePageSize) {
+			// last table page is full, chain a new one behind it
+			PageId newId = newPage(apage);
+			initTable(apage.getpage());
+			unpinPage(newId, true /* dirty */);
+
+			pinPage(_lastTablePageId, apage);
+			Convert.setIntValue(newId.pid, NEXT_PAGE, apage.getpage());
+			unpinPage(_lastTablePageId, true /* dirty */);
+
+			_lastTablePageId = newId;
+			_lastTableCount = 0;
+		}
+
+		pinPage(_lastTablePageId, apage);
+		byte[] data = apage.getpage();
+		Convert.setIntValue(bucketPid, TABLE_START + 4 * _lastTableCount, data);
+		Convert.setIntValue(++_lastTableCount, COUNT, data);
+		unpinPage(_lastTablePageId, true /* dirty */);
+
+		addBucket(bucketPid);
+	}
+
+	private void writeState() throws HFBufMgrException, IOException {
+		Page apage = new Page();
+		pinPage(_firstPageId, apage);
+		byte[] data = apage.getpage();
+		Convert.setIntValue(level, LEVEL, data);
+		Convert.setIntValue(split, SPLIT, data);
+		Convert.setIntValue(bytes, BYTES, data);
+		unpinPage(_firstPageId, true /* dirty */);
+	}
+
+	private void addBucket(int bucketPid) {
+		if (numBuckets == buckets.length)
+			buckets = Arrays.copyOf(buckets, 2 * numBuckets);
+		buckets[numBuckets++] = bucketPid;
+	}
+
+	private int bucket(int hash) {
+		int b = hash & ((1 << level) - 1);
+		if (b < split)
+			b = hash & ((2 << level) - 1);
+		return b;
+	}
+
+	// the hash of a label, its bits mixed so that the low ones are usable
+	private static int hash(String label) {
+		int h = label.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static byte[] entry(String label, NID nid) throws IOException {
+		byte[] entry = new byte[LABEL + Convert.getStrLength(label)];
+		Convert.setIntValue(hash(label), HASH, entry);
+		Convert.setIntValue(nid.pageNo.pid, NODE_PAGE, entry);
+		Convert.setShortValue((short) nid.slotNo, NODE_SLOT, entry);
+		Convert.setStrValue(label, LABEL, entry);
+		return entry;
+	}
+
+	private static int entryLength(byte[] data, int pos) throws IOException {
+		return LABEL + 2 + Convert.getShortValue(pos + LABEL, data);
+	}
+
+	// the entry at pos is the same as entry
+	private static boolean sameEntry(byte[] data, int pos, byte[] entry) throws IOException {
+		return entryLength(data, pos) == entry.length && matchesRange(data, pos, entry, 0, entry.length);
+	}
+
+	// the entry at pos has the same hash and label as entry
+	private static boolean sameLabel(byte[] data, int pos, byte[] entry) throws IOException {
+		return entryLength(data, pos) == entry.length && matchesRange(data, pos, entry, HASH, NODE_PAGE)
+				&& matchesRange(data, pos, entry, LABEL, entry.length);
+	}
+
+	private static boolean matchesRange(byte[] data, int pos, byte[] entry, int from, int to) {
+		for (int i = from; i < to; i++)
+			if (data[pos + i] != entry[i])
+				return false;
+		return true;
+	}
+
+	private static void initTable(byte[] data) throws IOException {
+		Convert.setIntValue(INVALID_PAGE, NEXT_PAGE, data);
+		Convert.setIntValue(0, COUNT, data);
+		Convert.setIntValue(0, LEVEL, data);
+		Convert.setIntValue(0, SPLIT, data);
+		Convert.setIntValue(0, BYTES, data);
+	}
+
+	private static void initBucket(byte[] data) throws IOException {
+		Convert.setIntValue(INVALID_PAGE, NEXT_PAGE, data);
+		Convert.setIntValue(DPFIXED, USED_PTR, data);
+	}
+
+	/**
+	 * short cut to access the pinPage function in bufmgr package.
+	 *
+	 * @see bufmgr.pinPage
+	 */
+	private void pinPage(PageId pageno, Page page) throws HFBufMgrException {
+
+		try {
+			SystemDefs.JavabaseBM.pinPage(pageno, page, false /* Rdisk */);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "LabelHashFile.java: pinPage() failed");
+		}
+
+	} // end of pinPage
+
+	/**
+	 * short cut to access the unpinPage function in bufmgr package.
+	 *
+	 * @see bufmgr.unpinPage
+	 */
+	private void unpinPage(PageId pageno, boolean dirty) throws HFBufMgrException {
+
+		try {
+			SystemDefs.JavabaseBM.unpinPage(pageno, dirty);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "LabelHashFile.java: unpinPage() failed");
+		}
+
+	} // end of unpinPage
+
+	private void freePage(PageId pageno) throws HFBufMgrException {
+
+		try {
+			SystemDefs.JavabaseBM.freePage(pageno);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "LabelHashFile.java: freePage() failed");
+		}
+
+	} // end of freePage
+
+	private PageId newPage(Page page) throws HFBufMgrException {
+
+		PageId tmpId;
+
+		try {
+			tmpId = SystemDefs.JavabaseBM.newPage(page, 1);
+		} catch (Exception e) {
+			throw new HFBufMgrException(e, "LabelHashFile.java: newPage() failed");
+		}
+
+		if (tmpId == null)
+			throw new HFBufMgrException(null, "LabelHashFile.java: can't new page");
+		return tmpId;
+
+	} // end of newPage
+
+	private PageId get_file_entry(String filename) throws HFDiskMgrException {
+
+		try {
+			return SystemDefs.JavabaseDB.get_file_entry(filename);
+		} catch (Exception e) {
+			throw new HFDiskMgrException(e, "LabelHashFile.java: get_file_entry() failed");
+		}
+
+	} // end of get_file_entry
+
+	private void add_file_entry(String filename, PageId pageno) throws HFDiskMgrException {
+
+		try {
+			SystemDefs.JavabaseDB.add_file_entry(filename, pageno);
+		} catch (Exception e) {
+			throw new HFDiskMgrException(e, "LabelHashFile.java: add_file_entry() failed");
+		}
+
+	} // end of add_file_entry
+}
@@ -9,6 +9,7 @@ package nodeheap;
 import java.io.*;
 import global.*;
 import diskmgr.*;
+import bufmgr.BufferRing;
 
 /**
  * A Scan object is created ONLY through the function openScan of a NodeHeapFile. It
@@ -46,12 +47,21 @@ public class NScan implements GlobalConst {
 	/** in-core copy (pinned) of the same */
 	private NHFPage datapage = new NHFPage();
 
+	/** the page object datapage is pinned into, reused from page to page */
+	private NHFPage datapageFrame = datapage;
+
 	/** record ID of the current record (from the current data page) */
 	private NID usernid = new NID();
 
 	/** Status of next user status */
 	private boolean nextUserStatus;
 
+	/** the buffer ring the pages are read through, null for none */
+	private BufferRing ring;
+
+	/** the node getNextView points at each record in turn */
+	private Node view;
+
 	/**
 	 * The constructor pins the first directory page in the file and initializes
 	 * its private data members from the private data member from nhf
@@ -68,6 +78,26 @@ public class NScan implements GlobalConst {
 		init(hf);
 	}
 
+	/**
+	 * Same as the constructor without a ring, except that the pages are read
+	 * through the given buffer ring, so that a scan of a large file recycles a
+	 * few frames instead of flushing the buffer pool.
+	 *
+	 * @exception InvalidTupleSizeException
+	 *                Invalid tuple size
+	 * @exception IOException
+	 *                I/O errors
+	 *
+	 * @param hf
+	 *            A NodeHeapfile object
+	 * @param ring
+	 *            the buffer ring of the scan, null to use the whole pool
+	 */
+	public NScan(NodeHeapfile hf, BufferRing ring) throws InvalidTupleSizeException, IOException {
+		this.ring = ring;
+		init(hf);
+	}
+
 	/**
 	 * Retrieve the next node in a sequential scan
 	 *
@@ -113,6 +143,58 @@ public class NScan implements GlobalConst {
 		return recptrtuple;
 	}
 
+	/**
+	 * Retrieve the next node in a sequential scan without copying it. The
+	 * node returned is the same object on every call, pointed at the record
+	 * in place on the pinned data page, so it is only valid until the next
+	 * call or closescan, and must not be modified. The scan allocates nothing
+	 * per record this way.
+	 *
+	 * @exception InvalidTupleSizeException
+	 *                a record that is not a node, or a page that cannot be
+	 *                read
+	 * @exception IOException
+	 *                I/O errors
+	 *
+	 * @param nid
+	 *            Node ID of the node
+	 * @return the node, null at the end of the scan
+	 */
+	public Node getNextView(NID nid) throws InvalidTupleSizeException, IOException {
+		if (nextUserStatus != true) {
+			nextDataPage();
+		}
+
+		if (datapage == null)
+			return null;
+
+		PCounter.preadIncrement();
+
+		nid.pageNo.pid = usernid.pageNo.pid;
+		nid.slotNo = usernid.slotNo;
+
+		try {
+			if (view == null)
+				view = new Node();
+			datapage.viewNode(nid.slotNo, view);
+		} catch (Exception e) {
+			throw new InvalidTupleSizeException(e, "Scan.java: getNextView() failed");
+		}
+
+		// step to the next slot in place, the page id stays the same
+		int next = datapage.nextSlot(nid.slotNo);
+		if (next < 0) {
+			nextUserStatus = false;
+		} else {
+			if (usernid == null)
+				usernid = new NID(new PageId(nid.pageNo.pid), next);
+			usernid.slotNo = next;
+			nextUserStatus = true;
+		}
+
+		return view;
+	}
+
 	/**
 	 * Position the scan cursor to the record with the given nid.
 	 * 
@@ -421,7 +503,7 @@ public class NScan implements GlobalConst {
 
 				// pin first data page
 				try {
-					datapage = new NHFPage();
+					datapage = datapageFrame;
 					pinPage(datapageId, (Page) datapage, false);
 				} catch (Exception e) {
 					e.printStackTrace();
@@ -530,7 +612,7 @@ public class NScan implements GlobalConst {
 		datapageId.pid = dpinfo.pageId.pid;
 
 		try {
-			datapage = new NHFPage();
+			datapage = datapageFrame;
 			pinPage(dpinfo.pageId, (Page) datapage, false);
 		}
 
@@ -599,7 +681,7 @@ public class NScan implements GlobalConst {
 	private void pinPage(PageId pageno, Page page, boolean emptyPage) throws HFBufMgrException {
 
 		try {
-			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage);
+			SystemDefs.JavabaseBM.pinPage(pageno, page, emptyPage, ring);
 		} catch (Exception e) {
 			throw new HFBufMgrException(e, "Scan.java: pinPage() failed");
 		}
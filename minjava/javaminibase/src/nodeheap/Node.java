@@ -2,6 +2,7 @@
 
 package nodeheap;
 
+import diskmgr.DiskMgrException;
 import heap.InvalidTupleSizeException;
 import heap.InvalidTypeException;
 import heap.Tuple;
@@ -15,7 +16,20 @@ public class Node extends Tuple {
     /**
      * Maximum size of any node
      */
-    public static final int max_size = 74;
+    public static final int max_size = 32;
+
+    /**
+     * The fields of every node: the id of its label in the label dictionary
+     * and the descriptor
+     */
+    private static final AttrType[] NODE_TYPES = { new AttrType(AttrType.attrInteger),
+            new AttrType(AttrType.attrDesc) };
+
+    /**
+     * Where the fields of a node start, after the field count and the three
+     * field offsets, and where the last one ends
+     */
+    private static final short[] NODE_LAYOUT = { 8, 8 + 4, 8 + 4 + 20 };
 
     /**
      * length of this node
@@ -34,12 +48,7 @@ public class Node extends Tuple {
         // Creat a new tuple
     	super(max_size);
         node_length = max_size;
-        AttrType[] attrs = new AttrType[2];
-        short[] str_sizes = new short[1];
-        attrs[0] = new AttrType(AttrType.attrString);
-        attrs[1] = new AttrType(AttrType.attrDesc);
-        str_sizes[0] = (short) 44;
-        this.setHdr((short)2, attrs, str_sizes);
+        this.setHdr((short)2, NODE_TYPES, null);
     }
 
 
@@ -62,13 +71,8 @@ public class Node extends Tuple {
         super(anode,offset,max_size);
         node_length = max_size;
         // fldCnt = getShortValue(offset, data);
-        AttrType[] attrs = new AttrType[2];
-        short[] str_sizes = new short[1];
-        attrs[0] = new AttrType(AttrType.attrString);
-        attrs[1] = new AttrType(AttrType.attrDesc);
-        str_sizes[0] = (short) 44;
         try {
-			this.setHdr((short)2, attrs, str_sizes);
+			this.setHdr((short)2, NODE_TYPES, null);
 		} catch (InvalidTypeException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -87,14 +91,9 @@ public class Node extends Tuple {
         super(anode,offset,size);
         node_length = size;
         // fldCnt = getShortValue(offset, data);
-        if (size==74){
-            AttrType[] attrs = new AttrType[2];
-            short[] str_sizes = new short[1];
-            attrs[0] = new AttrType(AttrType.attrString);
-            attrs[1] = new AttrType(AttrType.attrDesc);
-            str_sizes[0] = (short) 44;
+        if (size==max_size){
             try {
-                this.setHdr((short)2, attrs, str_sizes);
+                this.setHdr((short)2, NODE_TYPES, null);
             } catch (InvalidTypeException e) {
                 // TODO Auto-generated catch block
                 e.printStackTrace();
@@ -159,6 +158,21 @@ public class Node extends Tuple {
     public void nodeInit(byte[] anode, int offset) {
         tupleInit(anode, offset, max_size);node_length = max_size;
     }
+
+    /**
+     * Point this node at a node record in place, without copying it or
+     * setting up its header. The node sees the record only as long as the
+     * array holds it, and must not be modified through.
+     *
+     * @param anode
+     *            a byte array which contains the node
+     * @param offset
+     *            the offset of the node in the byte array
+     */
+    public void nodeView(byte[] anode, int offset) {
+        tupleView(anode, offset, max_size, NODE_LAYOUT);
+        node_length = max_size;
+    }
     
     
 	/**
@@ -224,8 +238,24 @@ public class Node extends Tuple {
 
 
 
+    /**
+     * To get the label of the node, looked up in the label dictionary
+     * @return String label
+     * @throws IOException
+     * @throws heap.FieldNumberOutOfBoundException
+     */
     public String getLabel() throws IOException, heap.FieldNumberOutOfBoundException {
-            return getStrFld(1);
+            return SystemDefs.JavabaseDB.labelDictionary.getLabel(getLabelId());
+    }
+
+    /**
+     * To get the id of the label of the node in the label dictionary
+     * @return label id
+     * @throws IOException
+     * @throws heap.FieldNumberOutOfBoundException
+     */
+    public int getLabelId() throws IOException, heap.FieldNumberOutOfBoundException {
+            return getIntFld(1);
     }
 
     public Descriptor getDesc() throws IOException, heap.FieldNumberOutOfBoundException {
@@ -236,8 +266,28 @@ public class Node extends Tuple {
 
 
 
-    public Node setLabel(String val) throws IOException, heap.FieldNumberOutOfBoundException {
-        return (Node)setStrFld(1, val);
+    /**
+     * To set the label of the node, adding it to the label dictionary if it
+     * is not there yet
+     * @param val
+     * @return Node
+     * @throws IOException
+     * @throws heap.FieldNumberOutOfBoundException
+     * @throws DiskMgrException
+     */
+    public Node setLabel(String val) throws IOException, heap.FieldNumberOutOfBoundException, DiskMgrException {
+        return setLabelId(SystemDefs.JavabaseDB.labelDictionary.addLabel(val));
+    }
+
+    /**
+     * To set the id of the label of the node in the label dictionary
+     * @param labelId
+     * @return Node
+     * @throws IOException
+     * @throws heap.FieldNumberOutOfBoundException
+     */
+    public Node setLabelId(int labelId) throws IOException, heap.FieldNumberOutOfBoundException {
+        return (Node)setIntFld(1, labelId);
     }
 
     public Node setDesc(Descriptor desc) throws IOException, heap.FieldNumberOutOfBoundException {
@@ -3,6 +3,7 @@ package nodeheap;
 import java.io.IOException;
 import java.util.HashSet;
 
+import bufmgr.BufferRing;
 import diskmgr.PCounter;
 import diskmgr.Page;
 import global.GlobalConst;
@@ -11,6 +12,7 @@ import global.PageId;
 import global.RID;
 import global.SystemDefs;
 import heap.FieldNumberOutOfBoundException;
+import heap.FreeSpaceMap;
 import heap.InvalidTypeException;
 import heap.Tuple;
 
@@ -55,6 +57,18 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 	private boolean _file_deleted;
 	private String _fileName;
 	private static int tempfilecount = 0;
+	private LabelHashFile _labelHash = null;
+
+	/**
+	 * Attach a label hash index to this file. Every node inserted, deleted
+	 * or updated afterwards is also applied to the index.
+	 *
+	 * @param labelHash
+	 *            the label hash index, or null to detach it
+	 */
+	public void setLabelHashFile(LabelHashFile labelHash) {
+		_labelHash = labelHash;
+	}
 
 	/*
 	 * get a new datapage from the buffer manager and initialize dpinfo
@@ -83,6 +97,73 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 
 	} // end of _newDatapage
 
+	/*
+	 * the free space map of the file, built by one pass over the directory
+	 * the first time the file is inserted into
+	 */
+	private FreeSpaceMap _freeSpaceMap() throws InvalidSlotNumberException, InvalidTupleSizeException, HFBufMgrException,
+			IOException, InvalidTypeException, heap.InvalidTupleSizeException {
+		FreeSpaceMap fsm = FreeSpaceMap.get(_firstDirPageId);
+		if (fsm != null)
+			return fsm;
+
+		fsm = new FreeSpaceMap();
+		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
+		NHFPage currentDirPage = new NHFPage();
+		while (currentDirPageId.pid != INVALID_PAGE) {
+			pinPage(currentDirPageId, currentDirPage, false);
+			for (NID nid = currentDirPage.firstNode(); nid != null; nid = currentDirPage.nextNode(nid)) {
+				DataPageInfo dpinfo = new DataPageInfo(currentDirPage.getNode(nid));
+				fsm.add(dpinfo.pageId.pid, currentDirPageId.pid, nid.slotNo, dpinfo.availspace);
+			}
+			if (currentDirPage.available_space() >= DataPageInfo.size)
+				fsm.addDirPage(currentDirPageId.pid);
+			fsm.setLastDirPage(currentDirPageId.pid);
+
+			PageId nextDirPageId = currentDirPage.getNextPage();
+			unpinPage(currentDirPageId, false /* undirty */);
+			currentDirPageId.pid = nextDirPageId.pid;
+		}
+		FreeSpaceMap.register(_firstDirPageId, fsm);
+		return fsm;
+	} // end of _freeSpaceMap
+
+	/*
+	 * pin a directory page with room for a new DataPageInfo, appending one
+	 * to the directory if no page has room
+	 */
+	private void _pinDirPageWithRoom(FreeSpaceMap fsm, PageId dirPageId, NHFPage dirPage)
+			throws HFException, HFBufMgrException, IOException {
+		for (int pid = fsm.dirPageWithRoom(); pid != INVALID_PAGE; pid = fsm.dirPageWithRoom()) {
+			dirPageId.pid = pid;
+			pinPage(dirPageId, dirPage, false);
+			if (dirPage.available_space() >= DataPageInfo.size)
+				return;
+			unpinPage(dirPageId, false /* undirty */);
+			fsm.removeDirPage(pid);
+		}
+
+		// append a new directory page after the last one
+		Page pageinbuffer = new Page();
+		PageId lastDirPageId = new PageId(fsm.lastDirPage());
+		PageId newDirPageId = newPage(pageinbuffer, 1);
+		if (newDirPageId == null)
+			throw new HFException(null, "can't new pae");
+
+		dirPage.init(newDirPageId, pageinbuffer);
+		dirPage.setNextPage(new PageId(INVALID_PAGE));
+		dirPage.setPrevPage(lastDirPageId);
+
+		NHFPage lastDirPage = new NHFPage();
+		pinPage(lastDirPageId, lastDirPage, false);
+		lastDirPage.setNextPage(newDirPageId);
+		unpinPage(lastDirPageId, true /* dirty */);
+
+		dirPageId.pid = newDirPageId.pid;
+		fsm.addDirPage(newDirPageId.pid);
+		fsm.setLastDirPage(newDirPageId.pid);
+	} // end of _pinDirPageWithRoom
+
 	/*
 	 * Internal HeapFile function (used in getNode and updateNode): returns
 	 * pinned directory page and pinned data page of the specified user
@@ -251,6 +332,7 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 				throw new HFException(null, "can't new page");
 
 			add_file_entry(_fileName, _firstDirPageId);
+			FreeSpaceMap.forget(_firstDirPageId);
 			// check error(new exception: Could not add file entry
 
 			NHFPage firstDirPage = new NHFPage();
@@ -362,191 +444,52 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 	 */
 	public NID insertNode(byte[] recPtr) throws InvalidSlotNumberException, InvalidTupleSizeException,
 			SpaceNotAvailableException, HFException, HFBufMgrException, HFDiskMgrException, IOException, InvalidTypeException, heap.InvalidTupleSizeException {
-		int dpinfoLen = 0;
 		int recLen = recPtr.length;
-		boolean found;
-		NID currentDataPageNid = new NID();
-		Page pageinbuffer = new Page();
+		FreeSpaceMap fsm = _freeSpaceMap();
 		NHFPage currentDirPage = new NHFPage();
 		NHFPage currentDataPage = new NHFPage();
-
-		NHFPage nextDirPage = new NHFPage();
-		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
-		PageId nextDirPageId = new PageId(); // OK
-		pinPage(currentDirPageId, currentDirPage, false/* Rdisk */);
-
-		found = false;
+		PageId currentDirPageId = new PageId();
+		NID currentDataPageNid;
+		DataPageInfo dpinfo;
 		Node node;
 
-		DataPageInfo dpinfo = new DataPageInfo();
-		while (found == false) { // Start While01
-									// look for suitable dpinfo-struct
-		for (currentDataPageNid = currentDirPage.firstNode(); currentDataPageNid != null; currentDataPageNid = currentDirPage.nextNode(currentDataPageNid)) {
-				node = currentDirPage.getNode(currentDataPageNid);
-
-				dpinfo = new DataPageInfo(node);
-
-				// need check the node length == DataPageInfo'slength
-
-				if (recLen <= dpinfo.availspace) {
-					found = true;
-					break;
-				}
-			}
-
-			// two cases:
-			// (1) found == true:
-			// currentDirPage has a datapagenode which can accomodate
-			// the node which we have to insert
-			// (2) found == false:
-			// there is no datapagenode on the current directory page
-			// whose corresponding datapage has enough space free
-			// several subcases: see below
-			if (found == false) { // Start IF01
-									// case (2)
-
-				// System.out.println("no datapagenode on the current
-				// directory is OK");
-				// System.out.println("dirpage availspace
-				// "+currentDirPage.available_space());
-
-				// on the current directory page is no datapagenode which has
-				// enough free space
-				//
-				// two cases:
-				//
-				// - (2.1) (currentDirPage->available_space() >=
-				// sizeof(DataPageInfo):
-				// if there is enough space on the current directory page
-				// to accomodate a new datapagenode (type DataPageInfo),
-				// then insert a new DataPageInfo on the current directory
-				// page
-				// - (2.2) (currentDirPage->available_space() <=
-				// sizeof(DataPageInfo):
-				// look at the next directory page, if necessary, create it.
-
-				if (currentDirPage.available_space() >= dpinfo.size) {
-					// Start IF02
-					// case (2.1) : add a new data page node into the
-					// current directory page
-					currentDataPage = _newDatapage(dpinfo);
-					PCounter.writeIncrement();
-					// currentDataPage is pinned! and dpinfo->pageId is also
-					// locked
-					// in the exclusive mode
-
-					// didn't check if currentDataPage==NULL, auto exception
-
-					// currentDataPage is pinned: insert its node
-					// calling a HFPage function
-
-					node = dpinfo.convertToNode();
-
-					byte[] tmpData = node.getNodeByteArray();
-					currentDataPageNid = currentDirPage.insertNode(tmpData);
-
-					NID tmpnid = currentDirPage.firstNode();
-
-					// need catch error here!
-					if (currentDataPageNid == null)
-						throw new HFException(null, "no space to insert rec.");
-
-					// end the loop, because a new datapage with its node
-					// in the current directorypage was created and inserted
-					// into
-					// the heapfile; the new datapage has enough space for the
-					// node which the user wants to insert
-
-					found = true;
-
-				} // end of IF02
-				else { // Start else 02
-						// case (2.2)
-					nextDirPageId = currentDirPage.getNextPage();
-					// two sub-cases:
-					//
-					// (2.2.1) nextDirPageId != INVALID_PAGE:
-					// get the next directory page from the buffer manager
-					// and do another look
-					// (2.2.2) nextDirPageId == INVALID_PAGE:
-					// append a new directory page at the end of the current
-					// page and then do another loop
-
-					if (nextDirPageId.pid != INVALID_PAGE) { // Start IF03
-																// case (2.2.1):
-																// there is
-																// another
-																// directory
-																// page:
-						unpinPage(currentDirPageId, false);
-
-						currentDirPageId.pid = nextDirPageId.pid;
-
-						pinPage(currentDirPageId, currentDirPage, false);
-
-						// now go back to the beginning of the outer while-loop
-						// and
-						// search on the current directory page for a suitable
-						// datapage
-					} // End of IF03
-					else { // Start Else03
-							// case (2.2): append a new directory page after
-							// currentDirPage
-							// since it is the last directory page
-						nextDirPageId = newPage(pageinbuffer, 1);
-						// need check error!
-						if (nextDirPageId == null)
-							throw new HFException(null, "can't new pae");
-
-						// initialize new directory page
-						nextDirPage.init(nextDirPageId, pageinbuffer);
-						PageId temppid = new PageId(INVALID_PAGE);
-						nextDirPage.setNextPage(temppid);
-						nextDirPage.setPrevPage(currentDirPageId);
-
-						// update current directory page and unpin it
-						// currentDirPage is already locked in the Exclusive
-						// mode
-						currentDirPage.setNextPage(nextDirPageId);
-						unpinPage(currentDirPageId, true/* dirty */);
-
-						currentDirPageId.pid = nextDirPageId.pid;
-						currentDirPage = new NHFPage(nextDirPage);
-
-						// remark that MINIBASE_BM->newPage already
-						// pinned the new directory page!
-						// Now back to the beginning of the while-loop, using
-						// the
-						// newly created directory page.
-
-					} // End of else03
-				} // End of else02
-					// ASSERTIONS:
-					// - if found == true: search will end and see assertions
-					// below
-					// - if found == false: currentDirPage, currentDirPageId
-					// valid and pinned
-
-			} // end IF01
-			else { // Start else01
-					// found == true:
-					// we have found a datapage with enough space,
-					// but we have not yet pinned the datapage:
-
-				// ASSERTIONS:
-				// - dpinfo valid
-
-				// System.out.println("find the dirpagenode on current page");
-
-				pinPage(dpinfo.pageId, currentDataPage, false);
-				// currentDataPage.openHFpage(pageinbuffer);
-
-			} // End else01
-		} // end of While01
+		int entry = fsm.find(recLen);
+		if (entry >= 0) {
+			// a datapage with enough space: the map knows where its
+			// DataPageInfo is, no need to search the directory
+			currentDirPageId.pid = fsm.dirPage(entry);
+			currentDataPageNid = new NID(new PageId(currentDirPageId.pid), fsm.dirSlot(entry));
+			pinPage(currentDirPageId, currentDirPage, false/* Rdisk */);
+
+			node = currentDirPage.getNode(currentDataPageNid);
+			dpinfo = new DataPageInfo(node);
+			pinPage(dpinfo.pageId, currentDataPage, false);
+		} else {
+			// no datapage has enough space: add a new one, its
+			// DataPageInfo goes on a directory page with room
+			_pinDirPageWithRoom(fsm, currentDirPageId, currentDirPage);
+
+			dpinfo = new DataPageInfo();
+			PCounter.writeIncrement();
+			currentDataPage = _newDatapage(dpinfo);
+			// currentDataPage is pinned: insert its node
+			// calling a NHFPage function
+
+			node = dpinfo.convertToNode();
+			currentDataPageNid = currentDirPage.insertNode(node.getNodeByteArray());
+
+			// need catch error here!
+			if (currentDataPageNid == null)
+				throw new HFException(null, "no space to insert rec.");
+
+			if (currentDirPage.available_space() < DataPageInfo.size)
+				fsm.removeDirPage(currentDirPageId.pid);
+			entry = fsm.add(dpinfo.pageId.pid, currentDirPageId.pid, currentDataPageNid.slotNo, dpinfo.availspace);
+		}
 
 		// ASSERTIONS:
 		// - currentDirPageId, currentDirPage valid and pinned
-		// - dpinfo.pageId, currentDataPageRid valid
+		// - dpinfo.pageId, currentDataPageNid valid
 		// - currentDataPage is pinned!
 
 		if ((dpinfo.pageId).pid == INVALID_PAGE) // check error!
@@ -576,6 +519,10 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 		dpinfo_ondirpage.flushToTuple();
 
 		unpinPage(currentDirPageId, true /* = DIRTY */);
+		fsm.update(entry, dpinfo.availspace);
+
+		if (_labelHash != null)
+			_labelHash.insert(labelOf(new Node(recPtr, 0)), nid);
 
 		return nid;
 
@@ -626,6 +573,9 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 		atuple = currentDirPage.returnNode(currentDataPageNid);
 		DataPageInfo pdpinfo = new DataPageInfo(atuple);
 
+		if (_labelHash != null)
+			_labelHash.delete(labelOf(currentDataPage.getNode(nid)), nid);
+
 		// delete the node on the datapage
 		currentDataPage.deleteNode(nid);
 
@@ -639,6 +589,10 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 			pdpinfo.flushToTuple();
 			unpinPage(currentDataPageId, true /* = DIRTY */);
 
+			FreeSpaceMap fsm = FreeSpaceMap.get(_firstDirPageId);
+			if (fsm != null)
+				fsm.update(fsm.entry(currentDataPageId.pid), pdpinfo.availspace);
+
 			unpinPage(currentDirPageId, true /* = DIRTY */);
 
 		} else {
@@ -660,6 +614,10 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 
 			currentDirPage.deleteNode(currentDataPageNid);
 
+			FreeSpaceMap fsm = FreeSpaceMap.get(_firstDirPageId);
+			if (fsm != null)
+				fsm.remove(fsm.entry(currentDataPageId.pid));
+
 			// ASSERTIONS:
 			// - currentDataPage, currentDataPageId invalid
 			// - empty datapage unpinned and deleted
@@ -703,6 +661,12 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 
 				}
 
+				if (fsm != null) {
+					fsm.removeDirPage(currentDirPageId.pid);
+					if (fsm.lastDirPage() == currentDirPageId.pid)
+						fsm.setLastDirPage(currentDirPage.getPrevPage().pid);
+				}
+
 				// delete empty directory page: (automatically unpinned?)
 				unpinPage(currentDirPageId, false/* undirty */);
 				freePage(currentDirPageId);
@@ -714,6 +678,8 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 				// in both cases we do not delete it, but we have to unpin it:
 
 				unpinPage(currentDirPageId, true /* == DIRTY */);
+				if (fsm != null)
+					fsm.addDirPage(currentDirPageId.pid);
 
 			}
 		}
@@ -771,6 +737,15 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 
 		}
 
+		if (_labelHash != null) {
+			String oldLabel = labelOf(dataPage.getNode(nid));
+			String newLabel = labelOf(newtuple);
+			if (!oldLabel.equals(newLabel)) {
+				_labelHash.delete(oldLabel, nid);
+				_labelHash.insert(newLabel, nid);
+			}
+		}
+
 		// new copy of this node fits in old space;
 		atuple.tupleCopy(newtuple);
 		unpinPage(currentDataPageId, true /* = DIRTY */);
@@ -848,6 +823,22 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 		return newscan;
 	}
 
+	/**
+	 * Initiate a sequential scan that reads the pages through a buffer ring.
+	 * 
+	 * @param ring
+	 *            the buffer ring of the scan
+	 * @exception InvalidTupleSizeException
+	 *                Invalid tuple size
+	 * @exception IOException
+	 *                I/O errors
+	 *
+	 */
+	public NScan openScan(BufferRing ring) throws InvalidTupleSizeException, IOException {
+		NScan newscan = new NScan(this, ring);
+		return newscan;
+	}
+
 	/**
 	 * Delete the file from the database.
 	 *
@@ -911,6 +902,16 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 		}
 
 		delete_file_entry(_fileName);
+		FreeSpaceMap.forget(_firstDirPageId);
+	}
+
+	// the label of a node, for the label hash index
+	private String labelOf(Node node) throws HFException {
+		try {
+			return node.getLabel();
+		} catch (Exception e) {
+			throw new HFException(e, "NodeHeapfile.java: can't read node label");
+		}
 	}
 
 	/**
@@ -1022,7 +1023,7 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 			HFBufMgrException, IOException, FieldNumberOutOfBoundException, InvalidTypeException, heap.InvalidTupleSizeException
 
 	{
-		HashSet<String> LabelSet = new HashSet<String>();
+		HashSet<Integer> LabelSet = new HashSet<Integer>();
 		int answer = 0;
 		PageId currentDirPageId = new PageId(_firstDirPageId.pid);
 
@@ -1042,7 +1043,7 @@ public class NodeHeapfile implements Filetype, GlobalConst {
 																	// nodes
 					nid = currentDirPage.nextNode(nid)) {
 				atuple = currentDirPage.getNode(nid);
-				LabelSet.add(atuple.getLabel());
+				LabelSet.add(atuple.getLabelId());
 //				DataPageInfo dpinfo = new DataPageInfo(atuple);
 //
 //				answer += dpinfo.nodect;
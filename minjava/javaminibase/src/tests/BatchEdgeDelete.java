@@ -26,6 +26,7 @@ public class BatchEdgeDelete {
     }
 
     public EID getEdge(String edgeLabel) throws edgeheap.InvalidTupleSizeException, IOException, FieldNumberOutOfBoundException {
+        int labelId = SystemDefs.JavabaseDB.labelDictionary.getId(edgeLabel);
         EScan escan = new EScan(SystemDefs.JavabaseDB.edgeHeapfile);
         EID eid = new EID();
         boolean done = true;
@@ -36,7 +37,7 @@ public class BatchEdgeDelete {
                 escan.closescan();
                 break;
             }
-            if(e.getLabel().equals(edgeLabel)){
+            if(e.getLabelId() == labelId){
             	escan.closescan();
                 return eid;
             }
@@ -62,8 +63,8 @@ public class BatchEdgeDelete {
 	        if(edgeSource.equals(sourceLabel) && edgeDest.equals(destLabel)){
 				SystemDefs.JavabaseDB.edgeLabelIndexFile.Delete(new StringKey(edge.getLabel()), eid);
 				SystemDefs.JavabaseDB.edgeWeightIndexFile.Delete(new IntegerKey(edge.getWeight()), eid);
-				SystemDefs.JavabaseDB.edgeSourceIndexFile.Delete(new StringKey(sourceLabel), eid);
-	            SystemDefs.JavabaseDB.edgeDestinationIndexFile.Delete(new StringKey(destLabel), eid);
+				SystemDefs.JavabaseDB.edgeSourceIndexFile.Delete(SystemDefs.JavabaseDB.endpointKey(sourceLabel), eid);
+	            SystemDefs.JavabaseDB.edgeDestinationIndexFile.Delete(SystemDefs.JavabaseDB.endpointKey(destLabel), eid);
 				SystemDefs.JavabaseDB.edgeHeapfile.deleteEdge(eid);
 	        }
 	    } else{
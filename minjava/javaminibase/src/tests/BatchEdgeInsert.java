@@ -7,8 +7,6 @@ import global.EID;
 import global.NID;
 import global.SystemDefs;
 import heap.FieldNumberOutOfBoundException;
-import nodeheap.NScan;
-import nodeheap.Node;
 
 import java.io.IOException;
 
@@ -25,26 +23,12 @@ boolean FAIL = false;
     BatchEdgeInsert(){
 
     }
-    public NID getNode(String nodeLabel) throws InvalidTupleSizeException, IOException, edgeheap.FieldNumberOutOfBoundException, nodeheap.InvalidTupleSizeException, heap.FieldNumberOutOfBoundException{
-        NScan nScan = new NScan(SystemDefs.JavabaseDB.nodeHeapfile);
-        NID nid = new NID();
-        boolean done = true;
-        while(done){
-            Node n  = nScan.getNext(nid);
-            if(n == null){
-                done = false;
-                break;
-            }
-            if(n.getLabel().equals(nodeLabel)){
-                nScan.closescan();
-                return nid;
-            }
-        }
-        nScan.closescan();
-        return null;
+    public NID getNode(String nodeLabel) throws IOException, nodeheap.HFBufMgrException {
+        return SystemDefs.JavabaseDB.nodeLabelHashFile.lookup(nodeLabel);
     }
 
     public EID getEdge(String edgeLabel) throws edgeheap.InvalidTupleSizeException, IOException, FieldNumberOutOfBoundException {
+        int labelId = SystemDefs.JavabaseDB.labelDictionary.getId(edgeLabel);
         EScan escan = new EScan(SystemDefs.JavabaseDB.edgeHeapfile);
         EID eid = new EID();
         boolean done = true;
@@ -55,7 +39,7 @@ boolean FAIL = false;
                 escan.closescan();
                 break;
             }
-            if(e.getLabel().equals(edgeLabel)){
+            if(e.getLabelId() == labelId){
                 escan.closescan();
                 return eid;
             }
@@ -86,8 +70,8 @@ boolean FAIL = false;
         //SystemDefs.JavabaseDB.edgeHeapfile.insertEdge(edge.getEdgeByteArray());
         SystemDefs.JavabaseDB.edgeLabelIndexFile.insert(new StringKey(edge.getLabel()), eid);
         SystemDefs.JavabaseDB.edgeWeightIndexFile.insert(new IntegerKey(edge.getWeight()), eid);
-        SystemDefs.JavabaseDB.edgeSourceIndexFile.insert(new StringKey(sourceLabel), eid);
-        SystemDefs.JavabaseDB.edgeDestinationIndexFile.insert(new StringKey(destLabel), eid);
+        SystemDefs.JavabaseDB.edgeSourceIndexFile.insert(SystemDefs.JavabaseDB.newEndpointKey(sourceLabel), eid);
+        SystemDefs.JavabaseDB.edgeDestinationIndexFile.insert(SystemDefs.JavabaseDB.newEndpointKey(destLabel), eid);
         
 
     }
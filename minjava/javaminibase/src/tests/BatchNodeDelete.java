@@ -47,25 +47,8 @@ public class BatchNodeDelete implements GlobalConst{
         return null;
     }
     
-    public NID getNode(String nodeLabel) throws InvalidTupleSizeException, IOException, FieldNumberOutOfBoundException, nodeheap.InvalidTupleSizeException, heap.FieldNumberOutOfBoundException{
-    	NScan nScan = new NScan(SystemDefs.JavabaseDB.nodeHeapfile);
-    	NID nid = new NID();
-        boolean done = true;
-        while(done){
-            Node n  = nScan.getNext(nid);
-            if(n == null){
-                done = false;
-                
-                break;
-            }
-            System.out.println(nodeLabel);
-            if(n.getLabel().equals(nodeLabel)){
-            	nScan.closescan();
-                return nid;
-            }
-        }
-        nScan.closescan();
-        return null;
+    public NID getNode(String nodeLabel) throws IOException, HFBufMgrException {
+        return SystemDefs.JavabaseDB.nodeLabelHashFile.lookup(nodeLabel);
     }
     
     public EID getEdgeSourceDest(NID nid) throws InvalidTupleSizeException, IOException, heap.FieldNumberOutOfBoundException{
@@ -95,7 +78,7 @@ public class BatchNodeDelete implements GlobalConst{
 		if (nid == null)
 			return;
     	
-		Node node = new Node();
+		Node node = SystemDefs.JavabaseDB.nodeHeapfile.getNode(nid);
         EID eid = new EID();
         // loop and get all eid
         while(true){
@@ -21,6 +21,7 @@ import global.SystemDefs;
 import heap.FieldNumberOutOfBoundException;
 import heap.InvalidTupleSizeException;
 import heap.InvalidTypeException;
+import diskmgr.DiskMgrException;
 import diskmgr.GraphDB;
 import nodeheap.Node;
 import nodeheap.NodeHeapfile;
@@ -88,7 +89,7 @@ public class BatchNodeInsert {
 	 * 
 	 */
 	
-	public void doSingleBatchNodeInsert(String line, NodeHeapfile nhf, GraphDB db) throws InvalidTypeException, InvalidTupleSizeException, IOException, FieldNumberOutOfBoundException{
+	public void doSingleBatchNodeInsert(String line, NodeHeapfile nhf, GraphDB db) throws InvalidTypeException, InvalidTupleSizeException, IOException, FieldNumberOutOfBoundException, DiskMgrException{
 		boolean status = OK;
 		String [] vals = new String[5];
 		Descriptor temp_desc = new Descriptor();
@@ -0,0 +1,57 @@
+package tests;
+
+import java.util.Random;
+
+import bufmgr.BufMgr;
+import diskmgr.Page;
+import global.PageId;
+
+/**
+ * Measures the cost of a buffer pool hit as the pool grows. For every pool
+ * size the pool is filled with empty pages, which never touches the disk,
+ * and then pages already in the pool are pinned and unpinned at random. A
+ * hit is a page table lookup on the pin and another on the unpin, so the
+ * time per pin/unpin pair should stay flat from the smallest to the largest
+ * pool.
+ */
+public class BufHashBench {
+
+	private static final int[] POOL_SIZES = { 200, 1000, 5000, 30000, 100000 };
+
+	private static final int OPS = 2000000;
+
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("frames\tns per pin/unpin");
+		for (int numbufs : POOL_SIZES) {
+			BufMgr bm = new BufMgr(numbufs, "Clock");
+			Page page = new Page();
+			PageId pid = new PageId();
+
+			for (int i = 0; i < numbufs; i++) {
+				pid.pid = i;
+				bm.pinPage(pid, page, true);
+				bm.unpinPage(pid, false);
+			}
+
+			// page ids drawn up front so the timed loop only does the hits
+			Random random = new Random(numbufs);
+			int[] pids = new int[OPS];
+			for (int i = 0; i < OPS; i++)
+				pids[i] = random.nextInt(numbufs);
+
+			long best = Long.MAX_VALUE;
+			for (int round = 0; round < ROUNDS; round++) {
+				long start = System.nanoTime();
+				for (int i = 0; i < OPS; i++) {
+					pid.pid = pids[i];
+					bm.pinPage(pid, page, false);
+					bm.unpinPage(pid, false);
+				}
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			System.out.printf("%d\t%.1f%n", numbufs, (double) best / OPS);
+		}
+	}
+}
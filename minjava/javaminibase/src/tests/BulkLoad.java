@@ -0,0 +1,57 @@
+package tests;
+
+import java.io.File;
+
+import diskmgr.GraphDB;
+import diskmgr.PCounter;
+import global.GlobalConst;
+import global.SystemDefs;
+
+/**
+ * Load a graph database from a node file and an edge file in the format of
+ * the batch insert tests, through the bulk load of GraphDB, then build the
+ * indexes.
+ *
+ * usage: java tests.BulkLoad graphdb nodefile [edgefile]
+ */
+public class BulkLoad implements GlobalConst {
+	public static void main(String[] args) {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("usage: java tests.BulkLoad graphdb nodefile [edgefile]");
+			Runtime.getRuntime().exit(1);
+		}
+
+		try {
+			if (new File(args[0]).exists())
+				SystemDefs.MINIBASE_RESTART_FLAG = true;
+			new SystemDefs(args[0], 500000, 30000, null);
+			GraphDB db = SystemDefs.JavabaseDB;
+			db.resetPageCounter();
+
+			long start = System.currentTimeMillis();
+			int nodes = db.bulkLoadNodes(args[1]);
+			int edges = args.length > 2 ? db.bulkLoadEdges(args[2]) : 0;
+			long loaded = System.currentTimeMillis();
+			db.rebuildIndexes();
+			long indexed = System.currentTimeMillis();
+
+			System.out.println("Nodes loaded: " + nodes + "\nEdges loaded: " + edges);
+			System.out.println("Load time: " + (loaded - start) + " ms\nIndex time: " + (indexed - loaded) + " ms");
+			System.out.println("Node count: " + db.getNodeCnt() + "\nEdge count:" + db.getEdgeCnt());
+			System.out.println("No of pages read: " + PCounter.rcounter + "\nNo of pages written: " + PCounter.wcounter);
+
+			db.nodeDescriptorIndexFile.close();
+			db.nodeLabelIndexFile.close();
+			db.edgeLabelIndexFile.close();
+			db.edgeWeightIndexFile.close();
+			db.edgeSourceIndexFile.close();
+			db.edgeDestinationIndexFile.close();
+			SystemDefs.JavabaseBM.flushAllPages();
+			db.closeDB();
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.err.println("Error encountered during the load:\n");
+			Runtime.getRuntime().exit(1);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import global.AttrType;
+import global.Convert;
+import global.Descriptor;
+import heap.Tuple;
+import iterator.TupleUtils;
+
+/**
+ * Measures field access on a node tuple, a label and a descriptor, the way
+ * the sort and the joins read them: reading the label, reading the
+ * descriptor, and comparing two tuples on each field. Every operation is
+ * also timed through DataInputStream, the way Convert used to read the
+ * bytes, for comparison.
+ */
+public class ConvertBench {
+
+	private static final int TUPLES = 1024;
+
+	private static final int OPS = 4000000;
+
+	private static final int ROUNDS = 5;
+
+	private static long sink;
+
+	public static void main(String[] args) throws Exception {
+		AttrType[] types = { new AttrType(AttrType.attrString), new AttrType(AttrType.attrDesc) };
+		short[] sizes = { 44 };
+		Tuple[] tuples = new Tuple[TUPLES];
+		for (int i = 0; i < TUPLES; i++) {
+			Tuple t = new Tuple();
+			t.setHdr((short) 2, types, sizes);
+			Descriptor desc = new Descriptor();
+			desc.set(i % 7, i % 11, i % 13, i % 17, i % 19);
+			t.setStrFld(1, "node" + Integer.toString(i * 7919 % 100000));
+			t.setDescFld(2, desc);
+			tuples[i] = t;
+		}
+		Descriptor target = new Descriptor();
+		target.set(3, 5, 7, 9, 11);
+
+		System.out.println("operation\tns now\tns streams");
+		report("read int", readInt(tuples), readIntStreams(tuples));
+		report("read label", readLabel(tuples), readLabelStreams(tuples));
+		report("read descriptor", readDesc(tuples), readDescStreams(tuples));
+		report("compare labels", compare(tuples, types[0], 1, null), compareLabelsStreams(tuples));
+		report("compare descriptors", compare(tuples, types[1], 2, target), compareDescStreams(tuples, target));
+		if (sink == 42)
+			System.out.println();
+	}
+
+	private static void report(String name, long now, long streams) {
+		System.out.printf("%s\t%.1f\t%.1f%n", name, (double) now / OPS, (double) streams / OPS);
+	}
+
+	private static long readInt(Tuple[] tuples) throws IOException {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < OPS; i++)
+				sink += Convert.getIntValue(4, tuples[i & (TUPLES - 1)].getTupleByteArray());
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static long readLabel(Tuple[] tuples) throws Exception {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < OPS; i++)
+				sink += tuples[i & (TUPLES - 1)].getStrFld(1).length();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static long readDesc(Tuple[] tuples) throws Exception {
+		Descriptor desc = new Descriptor();
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < OPS; i++)
+				sink += tuples[i & (TUPLES - 1)].getDescFld(2, desc).get(4);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static long compare(Tuple[] tuples, AttrType type, int fldNo, Descriptor target) throws Exception {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < OPS; i++)
+				sink += TupleUtils.CompareTupleWithTuple(type, tuples[i & (TUPLES - 1)], fldNo,
+						tuples[(i + 1) & (TUPLES - 1)], fldNo, 0, target);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	// the same operations the way Convert used to do them
+
+	private static int streamInt(int position, byte[] data) throws IOException {
+		byte[] tmp = new byte[4];
+		System.arraycopy(data, position, tmp, 0, 4);
+		return new DataInputStream(new ByteArrayInputStream(tmp)).readInt();
+	}
+
+	private static String streamStr(int position, byte[] data, int length) throws IOException {
+		byte[] tmp = new byte[length];
+		System.arraycopy(data, position, tmp, 0, length);
+		return new DataInputStream(new ByteArrayInputStream(tmp)).readUTF();
+	}
+
+	private static Descriptor streamDesc(int position, byte[] data) throws IOException {
+		Descriptor desc = new Descriptor();
+		desc.set(streamInt(position, data), streamInt(position + 4, data), streamInt(position + 8, data),
+				streamInt(position + 12, data), streamInt(position + 16, data));
+		return desc;
+	}
+
+	// where the fields start: the header is the field count and 3 offsets
+	private static final int LABEL_OFFSET = 8;
+
+	private static final int DESC_OFFSET = LABEL_OFFSET + 44 + 2;
+
+	private static long readIntStreams(Tuple[] tuples) throws IOException {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < OPS; i++)
+				sink += streamInt(4, tuples[i & (TUPLES - 1)].getTupleByteArray());
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static long readLabelStreams(Tuple[] tuples) throws IOException {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < OPS; i++)
+				sink += streamStr(LABEL_OFFSET, tuples[i & (TUPLES - 1)].getTupleByteArray(), 46).length();
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static long readDescStreams(Tuple[] tuples) throws IOException {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < OPS; i++)
+				sink += streamDesc(DESC_OFFSET, tuples[i & (TUPLES - 1)].getTupleByteArray()).get(4);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static long compareLabelsStreams(Tuple[] tuples) throws IOException {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < OPS; i++) {
+				String s1 = streamStr(LABEL_OFFSET, tuples[i & (TUPLES - 1)].getTupleByteArray(), 46);
+				String s2 = streamStr(LABEL_OFFSET, tuples[(i + 1) & (TUPLES - 1)].getTupleByteArray(), 46);
+				sink += Integer.signum(s1.compareTo(s2));
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static long compareDescStreams(Tuple[] tuples, Descriptor target) throws IOException {
+		long best = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < OPS; i++) {
+				Descriptor d1 = streamDesc(DESC_OFFSET, tuples[i & (TUPLES - 1)].getTupleByteArray());
+				Descriptor d2 = streamDesc(DESC_OFFSET, tuples[(i + 1) & (TUPLES - 1)].getTupleByteArray());
+				Descriptor none = new Descriptor();
+				none.set(-1, -1, -1, -1, -1);
+				if (target.equal(none) != 1)
+					sink += Double.compare(target.distance(d2), target.distance(d1));
+			}
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+}
@@ -270,7 +270,7 @@ public class EdgeQuery {
         	while(edge2 != null){
 	        	// Check if its duplicate edges using the labels and
         		// if the source node of first edge is same as destination node of second edge
-	        	if ((!edge1.getLabel().equals(edge2.getLabel())) && 
+	        	if ((edge1.getLabelId() != edge2.getLabelId()) && 
 	        		(edge1.getSource().equals(edge2.getDestination()))) {
 	        		hash = new HashMap<Edge,Edge>();
 	        		hash.put(edge1, edge2);
@@ -0,0 +1,284 @@
+package tests;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import global.*;
+import heap.Tuple;
+import iterator.*;
+import nodeheap.Node;
+import edgeheap.Edge;
+
+/**
+ * This class tests the HashAggregate and HashDistinct iterators on the edges
+ * of a small graph, with room for all the groups and with one page, so that
+ * the input is split. Every edge is there twice. The aggregates of the edges
+ * leaving every node are compared with those the driver finds itself, and
+ * the distinct edges with those of Sort and DuplElim.
+ */
+class HashAggregateDriver extends TestDriver implements GlobalConst {
+
+	private static final int NODES = 40;
+
+	private static final int EDGES = 200;
+
+	private static final int DISTINCT = 100;
+
+	private NID[] nids = new NID[NODES];
+
+	// the edges: from, to, weight
+	private int[][] edges = new int[EDGES][];
+
+	private AttrType[] Etypes = { new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger) };
+
+	private short[] sizes = new short[0];
+
+	/**
+	 * HashAggregateDriver Constructor, inherited from TestDriver
+	 */
+	public HashAggregateDriver() {
+		super("hatest");
+	}
+
+	/**
+	 * opens the database and calls the runTests function in TestDriver
+	 */
+	public boolean runTests() {
+		try {
+			SystemDefs sysdef = new SystemDefs(dbpath, 1000, NUMBUF, "Clock");
+		} catch (Exception e) {
+			Runtime.getRuntime().exit(1);
+		}
+		return super.runTests();
+	}
+
+	/**
+	 * builds the graph
+	 */
+	protected boolean test1() {
+		System.out.print("\n  Test 1 builds the graph\n");
+		try {
+			for (int i = 0; i < NODES; i++) {
+				Node node = new Node();
+				node.setLabel("N" + i);
+				node.setDesc(new Descriptor());
+				nids[i] = SystemDefs.JavabaseDB.nodeHeapfile.insertNode(node.getNodeByteArray());
+			}
+			for (int i = 0; i < EDGES; i++) {
+				int j = i % DISTINCT;
+				edges[i] = new int[] { j % NODES, (j * 7 + 1) % NODES, (j * 37) % 61 + 1 };
+				Edge edge = new Edge();
+				edge.setLabel("E" + j);
+				edge.setSource(nids[edges[i][0]]);
+				edge.setDestination(nids[edges[i][1]]);
+				edge.setWeight(edges[i][2]);
+				SystemDefs.JavabaseDB.edgeHeapfile.insertEdge(edge.getEdgeByteArray());
+			}
+		} catch (Exception e) {
+			System.err.println("*** Error building the graph");
+			e.printStackTrace();
+			return FAIL;
+		}
+		System.out.print("  Test 1 completed successfully.\n");
+		return OK;
+	}
+
+	/**
+	 * all the groups fit in memory, and come in the order they were seen
+	 */
+	protected boolean test2() {
+		System.out.print("\n  Test 2 aggregates the edges leaving every node in memory\n");
+		boolean status = OK;
+		try {
+			HashAggregate ha = aggregate(50);
+			ArrayList<String> result = collect(ha, false);
+			if (ha.getParts() != 0) {
+				System.err.println("*** The edges were split into " + ha.getParts() + " parts");
+				status = FAIL;
+			}
+			if (!check(result, expected(), "HashAggregate"))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 2 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * the groups do not fit in one page, so the input is split
+	 */
+	protected boolean test3() {
+		System.out.print("\n  Test 3 aggregates the edges leaving every node in one page\n");
+		boolean status = OK;
+		try {
+			HashAggregate ha = aggregate(1);
+			ArrayList<String> result = collect(ha, true);
+			if (ha.getParts() != 2) {
+				System.err.println("*** The edges were split into " + ha.getParts() + " parts, expected 2");
+				status = FAIL;
+			}
+			ArrayList<String> expected = expected();
+			Collections.sort(expected);
+			if (!check(result, expected, "HashAggregate"))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 3 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * the distinct edges fit in memory
+	 */
+	protected boolean test4() {
+		System.out.print("\n  Test 4 finds the distinct edges in memory\n");
+		boolean status = OK;
+		try {
+			HashDistinct hd = new HashDistinct(Etypes, (short) 6, sizes, scan(), 50);
+			ArrayList<String> result = collect(hd, true);
+			if (hd.getParts() != 0) {
+				System.err.println("*** The edges were split into " + hd.getParts() + " parts");
+				status = FAIL;
+			}
+			if (result.size() != DISTINCT) {
+				System.err.println("*** " + result.size() + " distinct edges, expected " + DISTINCT);
+				status = FAIL;
+			}
+			if (!check(result, duplElim(), "HashDistinct"))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 4 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * the distinct edges do not fit in one page, so the input is split
+	 */
+	protected boolean test5() {
+		System.out.print("\n  Test 5 finds the distinct edges in one page\n");
+		boolean status = OK;
+		try {
+			HashDistinct hd = new HashDistinct(Etypes, (short) 6, sizes, scan(), 1);
+			ArrayList<String> result = collect(hd, true);
+			if (hd.getParts() != 2) {
+				System.err.println("*** The edges were split into " + hd.getParts() + " parts, expected 2");
+				status = FAIL;
+			}
+			if (result.size() != DISTINCT) {
+				System.err.println("*** " + result.size() + " distinct edges, expected " + DISTINCT);
+				status = FAIL;
+			}
+			if (!check(result, duplElim(), "HashDistinct"))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 5 completed successfully.\n");
+		return status;
+	}
+
+	// the number, smallest, largest and sum of the weights of the edges
+	// grouped on their source
+	private HashAggregate aggregate(int pages) throws Exception {
+		return new HashAggregate(Etypes, (short) 6, sizes, scan(), new int[] { 2, 3 },
+				new int[] { HashAggregate.COUNT, HashAggregate.MIN, HashAggregate.MAX, HashAggregate.SUM },
+				new int[] { 0, 6, 6, 6 }, pages);
+	}
+
+	private EdgeScan scan() throws Exception {
+		FldSpec[] proj = new FldSpec[6];
+		for (int i = 0; i < 6; i++)
+			proj[i] = new FldSpec(new RelSpec(RelSpec.outer), i + 1);
+		return new EdgeScan("edgeheapfile", Etypes, sizes, (short) 6, (short) 6, proj, null);
+	}
+
+	// the distinct edges, sorted on their label first, which the rest of an
+	// edge follows from
+	private ArrayList<String> duplElim() throws Exception {
+		Sort sort = new Sort(Etypes, (short) 6, sizes, scan(), 1, new TupleOrder(TupleOrder.Ascending), 4, 10,
+				-1.0, null);
+		return collect(new DuplElim(Etypes, (short) 6, sizes, sort, 10, true, -1.0, null), true);
+	}
+
+	// the fields of the results, in order or sorted
+	private ArrayList<String> collect(Iterator it, boolean sorted) throws Exception {
+		ArrayList<String> result = new ArrayList<String>();
+		Tuple t;
+		while ((t = it.get_next()) != null) {
+			String s = "" + t.getIntFld(1);
+			for (int i = 2; i <= 6; i++)
+				s += " " + t.getIntFld(i);
+			result.add(s);
+		}
+		it.close();
+		if (sorted)
+			Collections.sort(result);
+		return result;
+	}
+
+	// the aggregates of the edges leaving every node, in the order of the
+	// nodes, which is that of the first edge of each
+	private ArrayList<String> expected() {
+		ArrayList<String> result = new ArrayList<String>();
+		for (int n = 0; n < NODES; n++) {
+			int count = 0, min = Integer.MAX_VALUE, max = Integer.MIN_VALUE, sum = 0;
+			for (int[] e : edges)
+				if (e[0] == n) {
+					count++;
+					min = Math.min(min, e[2]);
+					max = Math.max(max, e[2]);
+					sum += e[2];
+				}
+			result.add(nids[n].pageNo.pid + " " + nids[n].slotNo + " " + count + " " + min + " " + max + " " + sum);
+		}
+		return result;
+	}
+
+	private boolean check(ArrayList<String> result, ArrayList<String> expected, String op) {
+		if (result.equals(expected))
+			return OK;
+		System.err.println("*** " + op + " returned " + result + ", expected " + expected);
+		return FAIL;
+	}
+
+	/**
+	 * overrides the testName function in TestDriver
+	 *
+	 * @return the name of the test
+	 */
+	protected String testName() {
+		return "Hash Aggregate";
+	}
+}
+
+public class HashAggregateTest {
+
+	public static void main(String argv[]) {
+
+		HashAggregateDriver hat = new HashAggregateDriver();
+		boolean dbstatus;
+
+		dbstatus = hat.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during hash aggregate tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
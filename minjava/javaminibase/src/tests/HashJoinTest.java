@@ -0,0 +1,302 @@
+package tests;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import global.*;
+import heap.Tuple;
+import iterator.*;
+import nodeheap.Node;
+import edgeheap.Edge;
+
+/**
+ * This class tests the HashJoin iterator on the edges of a small graph joined
+ * with themselves, an edge with the edges leaving its destination, with room
+ * for the whole inner relation and with too little, so that both relations
+ * are split. The results are compared with those of SortMerge, and with the
+ * pairs of edges the driver finds itself.
+ */
+class HashJoinDriver extends TestDriver implements GlobalConst {
+
+	private static final int NODES = 20;
+
+	private static final int EDGES = 60;
+
+	private NID[] nids = new NID[NODES];
+
+	// the edges: from, to, weight
+	private int[][] edges = new int[EDGES][];
+
+	private AttrType[] Etypes = { new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger),
+			new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger) };
+
+	private short[] Esizes = new short[0];
+
+	/**
+	 * HashJoinDriver Constructor, inherited from TestDriver
+	 */
+	public HashJoinDriver() {
+		super("hjtest");
+	}
+
+	/**
+	 * opens the database and calls the runTests function in TestDriver
+	 */
+	public boolean runTests() {
+		try {
+			SystemDefs sysdef = new SystemDefs(dbpath, 1000, NUMBUF, "Clock");
+		} catch (Exception e) {
+			Runtime.getRuntime().exit(1);
+		}
+		return super.runTests();
+	}
+
+	/**
+	 * builds the graph
+	 */
+	protected boolean test1() {
+		System.out.print("\n  Test 1 builds the graph\n");
+		try {
+			for (int i = 0; i < NODES; i++) {
+				Node node = new Node();
+				node.setLabel("N" + i);
+				node.setDesc(new Descriptor());
+				nids[i] = SystemDefs.JavabaseDB.nodeHeapfile.insertNode(node.getNodeByteArray());
+			}
+			for (int i = 0; i < EDGES; i++) {
+				edges[i] = new int[] { i % NODES, (i * 7 + 3) % NODES, i % 5 + 1 };
+				Edge edge = new Edge();
+				edge.setLabel("E" + i);
+				edge.setSource(nids[edges[i][0]]);
+				edge.setDestination(nids[edges[i][1]]);
+				edge.setWeight(edges[i][2]);
+				SystemDefs.JavabaseDB.edgeHeapfile.insertEdge(edge.getEdgeByteArray());
+			}
+		} catch (Exception e) {
+			System.err.println("*** Error building the graph");
+			e.printStackTrace();
+			return FAIL;
+		}
+		System.out.print("  Test 1 completed successfully.\n");
+		return OK;
+	}
+
+	/**
+	 * the inner relation fits in memory
+	 */
+	protected boolean test2() {
+		System.out.print("\n  Test 2 joins the edges in memory\n");
+		boolean status = OK;
+		try {
+			HashJoin hj = pathJoin(50, null);
+			status = check(collect(hj), expected(false, 0), "HashJoin");
+			if (hj.getParts() != 0) {
+				System.err.println("*** The edges were split into " + hj.getParts() + " parts");
+				status = FAIL;
+			}
+			if (!check(collect(sortMerge(null)), expected(false, 0), "SortMerge"))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 2 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * the inner relation does not fit in one page, so both are split
+	 */
+	protected boolean test3() {
+		System.out.print("\n  Test 3 joins the edges in one page, splitting them\n");
+		boolean status = OK;
+		try {
+			HashJoin hj = pathJoin(1, null);
+			ArrayList<String> result = collect(hj);
+			if (hj.getParts() != 2) {
+				System.err.println("*** The edges were split into " + hj.getParts() + " parts, expected 2");
+				status = FAIL;
+			}
+			if (!check(result, collect(sortMerge(null)), "HashJoin"))
+				status = FAIL;
+			if (!check(result, expected(false, 0), "HashJoin"))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 3 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * only the inner edges heavier than 3, split
+	 */
+	protected boolean test4() {
+		System.out.print("\n  Test 4 joins the edges with inner ones heavier than 3, splitting them\n");
+		boolean status = OK;
+		try {
+			// the right filter is evaluated on the inner tuple alone, as the
+			// outer relation
+			CondExpr[] rightFilter = { heavier(RelSpec.outer, 3), null };
+			CondExpr[] smFilter = { heavier(RelSpec.innerRel, 3), null };
+			HashJoin hj = pathJoin(1, rightFilter);
+			ArrayList<String> result = collect(hj);
+			if (hj.getParts() == 0) {
+				System.err.println("*** The edges were not split");
+				status = FAIL;
+			}
+			if (!check(result, collect(sortMerge(smFilter)), "HashJoin"))
+				status = FAIL;
+			if (!check(result, expected(false, 3), "HashJoin"))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 4 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * a join on the weight alone, whose parts are still too large for memory
+	 */
+	protected boolean test5() {
+		System.out.print("\n  Test 5 joins the edges on their weight in one page\n");
+		boolean status = OK;
+		try {
+			CondExpr[] outFilter = { equal(6, 6), null };
+			HashJoin hj = new HashJoin(Etypes, 6, Esizes, Etypes, 6, Esizes, 1, scan(), scan(), outFilter, null,
+					projection(), 6);
+			status = check(collect(hj), expected(true, 0), "HashJoin");
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 5 completed successfully.\n");
+		return status;
+	}
+
+	// an edge with the edges leaving its destination
+	private HashJoin pathJoin(int pages, CondExpr[] rightFilter) throws Exception {
+		CondExpr[] outFilter = { equal(4, 2), equal(5, 3), null };
+		return new HashJoin(Etypes, 6, Esizes, Etypes, 6, Esizes, pages, scan(), scan(), outFilter, rightFilter,
+				projection(), 6);
+	}
+
+	// the same join, on the slot and then the page numbers of the node ids
+	private SortMerge sortMerge(CondExpr[] outFilter) throws Exception {
+		return new SortMerge(Etypes, 6, Esizes, Etypes, 6, Esizes, 5, 4, 3, 4, 10, scan(), scan(), false, false,
+				new TupleOrder(TupleOrder.Ascending), outFilter, projection(), 6, -1.0, null);
+	}
+
+	private EdgeScan scan() throws Exception {
+		FldSpec[] proj = new FldSpec[6];
+		for (int i = 0; i < 6; i++)
+			proj[i] = new FldSpec(new RelSpec(RelSpec.outer), i + 1);
+		return new EdgeScan("edgeheapfile", Etypes, Esizes, (short) 6, (short) 6, proj, null);
+	}
+
+	// the source and destination of the outer edge and the destination of
+	// the inner one
+	private FldSpec[] projection() {
+		return new FldSpec[] { new FldSpec(new RelSpec(RelSpec.outer), 2), new FldSpec(new RelSpec(RelSpec.outer), 3),
+				new FldSpec(new RelSpec(RelSpec.outer), 4), new FldSpec(new RelSpec(RelSpec.outer), 5),
+				new FldSpec(new RelSpec(RelSpec.innerRel), 4), new FldSpec(new RelSpec(RelSpec.innerRel), 5) };
+	}
+
+	// outer field = inner field
+	private CondExpr equal(int outer, int inner) {
+		CondExpr c = new CondExpr();
+		c.next = null;
+		c.op = new AttrOperator(AttrOperator.aopEQ);
+		c.type1 = new AttrType(AttrType.attrSymbol);
+		c.type2 = new AttrType(AttrType.attrSymbol);
+		c.operand1.symbol = new FldSpec(new RelSpec(RelSpec.outer), outer);
+		c.operand2.symbol = new FldSpec(new RelSpec(RelSpec.innerRel), inner);
+		return c;
+	}
+
+	// the weight of the edge of a relation > weight
+	private CondExpr heavier(int relation, int weight) {
+		CondExpr c = new CondExpr();
+		c.next = null;
+		c.op = new AttrOperator(AttrOperator.aopGT);
+		c.type1 = new AttrType(AttrType.attrSymbol);
+		c.type2 = new AttrType(AttrType.attrInteger);
+		c.operand1.symbol = new FldSpec(new RelSpec(relation), 6);
+		c.operand2.integer = weight;
+		return c;
+	}
+
+	// the results of a join as node triples, sorted
+	private ArrayList<String> collect(Iterator it) throws Exception {
+		ArrayList<String> result = new ArrayList<String>();
+		Tuple t;
+		while ((t = it.get_next()) != null)
+			result.add(nodeOf(t.getIntFld(1), t.getIntFld(2)) + " " + nodeOf(t.getIntFld(3), t.getIntFld(4)) + " "
+					+ nodeOf(t.getIntFld(5), t.getIntFld(6)));
+		it.close();
+		Collections.sort(result);
+		return result;
+	}
+
+	// the pairs of edges either on the same weight or joined at a node, the
+	// inner edge heavier than the given weight
+	private ArrayList<String> expected(boolean onWeight, int weight) {
+		ArrayList<String> result = new ArrayList<String>();
+		for (int[] a : edges)
+			for (int[] b : edges)
+				if ((onWeight ? a[2] == b[2] : a[1] == b[0]) && b[2] > weight)
+					result.add(a[0] + " " + a[1] + " " + b[1]);
+		Collections.sort(result);
+		return result;
+	}
+
+	private boolean check(ArrayList<String> result, ArrayList<String> expected, String join) {
+		if (result.equals(expected))
+			return OK;
+		System.err.println("*** " + join + " returned " + result.size() + " results, expected " + expected.size());
+		return FAIL;
+	}
+
+	// the index of the node with the given page and slot, -1 for none
+	private int nodeOf(int pid, int slot) {
+		for (int i = 0; i < nids.length; i++)
+			if (nids[i].pageNo.pid == pid && nids[i].slotNo == slot)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * overrides the testName function in TestDriver
+	 *
+	 * @return the name of the test
+	 */
+	protected String testName() {
+		return "Hash Join";
+	}
+}
+
+public class HashJoinTest {
+
+	public static void main(String argv[]) {
+
+		HashJoinDriver hjt = new HashJoinDriver();
+		boolean dbstatus;
+
+		dbstatus = hjt.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during hash join tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
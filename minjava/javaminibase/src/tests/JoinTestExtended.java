@@ -69,12 +69,11 @@ class JoinsDriver implements GlobalConst {
 		}
 
 		AttrType[] Ntypes = new AttrType[2];
-		Ntypes[0] = new AttrType(AttrType.attrString);
+		Ntypes[0] = new AttrType(AttrType.attrInteger);
 		Ntypes[1] = new AttrType(AttrType.attrDesc);
 		
 		// SOS
-		short[] Nsizes = new short[2];
-		Nsizes[0] = 44;
+		short[] Nsizes = new short[0];
 		//Nsizes[1] = 20;// first elt. is 30
 
 		FldSpec[] Nprojection = new FldSpec[2];
@@ -98,7 +97,7 @@ class JoinsDriver implements GlobalConst {
 			Runtime.getRuntime().exit(1);
 		}
 		AttrType[] jtype12 = new AttrType[2];
-		jtype12[0] = new AttrType(AttrType.attrString);
+		jtype12[0] = new AttrType(AttrType.attrInteger);
 		jtype12[1] = new AttrType(AttrType.attrDesc);
 //		try {
 //			while ((n = am.get_next()) != null) {
@@ -113,15 +112,14 @@ class JoinsDriver implements GlobalConst {
 //		}
 
 		AttrType[] Etypes = new AttrType[6];
-		Etypes[0] = new AttrType(AttrType.attrString);//label
+		Etypes[0] = new AttrType(AttrType.attrInteger);//label
 		Etypes[1] = new AttrType(AttrType.attrInteger);//pgidsource
 		Etypes[2] = new AttrType(AttrType.attrInteger);//slotidsource
 		Etypes[3] = new AttrType(AttrType.attrInteger);//pgiddest
 		Etypes[4] = new AttrType(AttrType.attrInteger);//slotiddest
 		Etypes[5] = new AttrType(AttrType.attrInteger);//weight
 
-		short[] Esizes = new short[1];
-		Esizes[0] = 44;
+		short[] Esizes = new short[0];
 		FldSpec[] Eprojection = new FldSpec[6];
 		Eprojection[0] = new FldSpec(new RelSpec(RelSpec.innerRel), 1);
 		Eprojection[1] = new FldSpec(new RelSpec(RelSpec.innerRel), 2);
@@ -130,11 +128,9 @@ class JoinsDriver implements GlobalConst {
 		Eprojection[4] = new FldSpec(new RelSpec(RelSpec.innerRel), 5);
 		Eprojection[5] = new FldSpec(new RelSpec(RelSpec.innerRel), 6);
 		
-		AttrType[] JJtype = { new AttrType(AttrType.attrString),new AttrType(AttrType.attrDesc), new AttrType(AttrType.attrString), new AttrType(AttrType.attrInteger)};
+		AttrType[] JJtype = { new AttrType(AttrType.attrInteger),new AttrType(AttrType.attrDesc), new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger)};
 
-		short[] JJsize = new short[4];
-		JJsize[0] = 44;
-		JJsize[2] = 44;
+		short[] JJsize = new short[0];
 
 //		FileScan am2 = null;
 //		try {
@@ -200,7 +196,7 @@ class JoinsDriver implements GlobalConst {
 		TupleOrder ascending1 = new TupleOrder(TupleOrder.Ascending);
 		Sort sort_names = null;
 		try {
-			sort_names = new Sort(JJtype, (short) 1, JJsize, (iterator.Iterator) inl, 1, ascending1, JJsize[0], 10, 0, null);
+			sort_names = new Sort(JJtype, (short) 1, JJsize, (iterator.Iterator) inl, 1, ascending1, 4, 10, 0, null);
 		} catch (Exception e) {
 			System.err.println("*** Error preparing for nested_loop_join");
 			System.err.println("" + e);
@@ -267,12 +263,11 @@ class JoinsDriver implements GlobalConst {
 		}
 
 		AttrType[] Ntypes = new AttrType[2];
-		Ntypes[0] = new AttrType(AttrType.attrString);
+		Ntypes[0] = new AttrType(AttrType.attrInteger);
 		Ntypes[1] = new AttrType(AttrType.attrDesc);
 		
 		// SOS
-		short[] Nsizes = new short[2];
-		Nsizes[0] = 44;
+		short[] Nsizes = new short[0];
 		//Nsizes[1] = 20;// first elt. is 30
 
 		FldSpec[] Nprojection = new FldSpec[2];
@@ -296,7 +291,7 @@ class JoinsDriver implements GlobalConst {
 			Runtime.getRuntime().exit(1);
 		}
 		AttrType[] jtype12 = new AttrType[2];
-		jtype12[0] = new AttrType(AttrType.attrString);
+		jtype12[0] = new AttrType(AttrType.attrInteger);
 		jtype12[1] = new AttrType(AttrType.attrDesc);
 //		try {
 //			while ((n = am.get_next()) != null) {
@@ -311,15 +306,14 @@ class JoinsDriver implements GlobalConst {
 //		}
 
 		AttrType[] Etypes = new AttrType[6];
-		Etypes[0] = new AttrType(AttrType.attrString);//label
+		Etypes[0] = new AttrType(AttrType.attrInteger);//label
 		Etypes[1] = new AttrType(AttrType.attrInteger);//pgidsource
 		Etypes[2] = new AttrType(AttrType.attrInteger);//slotidsource
 		Etypes[3] = new AttrType(AttrType.attrInteger);//pgiddest
 		Etypes[4] = new AttrType(AttrType.attrInteger);//slotiddest
 		Etypes[5] = new AttrType(AttrType.attrInteger);//weight
 
-		short[] Esizes = new short[1];
-		Esizes[0] = 44;
+		short[] Esizes = new short[0];
 		FldSpec[] Eprojection = new FldSpec[6];
 		Eprojection[0] = new FldSpec(new RelSpec(RelSpec.innerRel), 1);
 		Eprojection[1] = new FldSpec(new RelSpec(RelSpec.innerRel), 2);
@@ -328,11 +322,9 @@ class JoinsDriver implements GlobalConst {
 		Eprojection[4] = new FldSpec(new RelSpec(RelSpec.innerRel), 5);
 		Eprojection[5] = new FldSpec(new RelSpec(RelSpec.innerRel), 6);
 		
-		AttrType[] JJtype = { new AttrType(AttrType.attrString),new AttrType(AttrType.attrDesc), new AttrType(AttrType.attrString), new AttrType(AttrType.attrInteger)};
+		AttrType[] JJtype = { new AttrType(AttrType.attrInteger),new AttrType(AttrType.attrDesc), new AttrType(AttrType.attrInteger), new AttrType(AttrType.attrInteger)};
 
-		short[] JJsize = new short[4];
-		JJsize[0] = 44;
-		JJsize[2] = 44;
+		short[] JJsize = new short[0];
 
 //		FileScan am2 = null;
 //		try {
@@ -398,7 +390,7 @@ class JoinsDriver implements GlobalConst {
 		TupleOrder ascending1 = new TupleOrder(TupleOrder.Ascending);
 		Sort sort_names = null;
 		try {
-			sort_names = new Sort(JJtype, (short) 1, JJsize, (iterator.Iterator) inl, 1, ascending1, JJsize[0], 10, 0, null);
+			sort_names = new Sort(JJtype, (short) 1, JJsize, (iterator.Iterator) inl, 1, ascending1, 4, 10, 0, null);
 		} catch (Exception e) {
 			System.err.println("*** Error preparing for nested_loop_join");
 			System.err.println("" + e);
@@ -468,15 +460,14 @@ class JoinsDriver implements GlobalConst {
 
 
 		AttrType[] Etypes = new AttrType[6];
-		Etypes[0] = new AttrType(AttrType.attrString);//label
+		Etypes[0] = new AttrType(AttrType.attrInteger);//label
 		Etypes[1] = new AttrType(AttrType.attrInteger);//pgidsource
 		Etypes[2] = new AttrType(AttrType.attrInteger);//slotidsource
 		Etypes[3] = new AttrType(AttrType.attrInteger);//pgiddest
 		Etypes[4] = new AttrType(AttrType.attrInteger);//slotiddest
 		Etypes[5] = new AttrType(AttrType.attrInteger);//weight
 
-		short[] Esizes = new short[1];
-		Esizes[0] = 44;
+		short[] Esizes = new short[0];
 		FldSpec[] Eprojection = new FldSpec[6];
 		Eprojection[0] = new FldSpec(new RelSpec(RelSpec.outer), 1);
 		Eprojection[1] = new FldSpec(new RelSpec(RelSpec.outer), 2);
@@ -504,16 +495,15 @@ class JoinsDriver implements GlobalConst {
 			Runtime.getRuntime().exit(1);
 		}
 		AttrType[] Ntypes = new AttrType[2];
-		Ntypes[0] = new AttrType(AttrType.attrString);
+		Ntypes[0] = new AttrType(AttrType.attrInteger);
 		Ntypes[1] = new AttrType(AttrType.attrDesc);
 		
 		// SOS
-		short[] Nsizes = new short[2];
-		Nsizes[0] = 44;
+		short[] Nsizes = new short[0];
 		//Nsizes[1] = 20;// first elt. is 30
 
 		AttrType[] jtype12 = new AttrType[2];
-		jtype12[0] = new AttrType(AttrType.attrString);
+		jtype12[0] = new AttrType(AttrType.attrInteger);
 		jtype12[1] = new AttrType(AttrType.attrDesc);
 //		try {
 //			while ((n = am.get_next()) != null) {
@@ -528,10 +518,9 @@ class JoinsDriver implements GlobalConst {
 //		}
 
 				
-		AttrType[] JJtype = { new AttrType(AttrType.attrString),new AttrType(AttrType.attrDesc)};
+		AttrType[] JJtype = { new AttrType(AttrType.attrInteger),new AttrType(AttrType.attrDesc)};
 
-		short[] JJsize = new short[1];
-		JJsize[0] = 44;
+		short[] JJsize = new short[0];
 		
 
 //		FileScan am2 = null;
@@ -666,15 +655,14 @@ class JoinsDriver implements GlobalConst {
 
 
 		AttrType[] Etypes = new AttrType[6];
-		Etypes[0] = new AttrType(AttrType.attrString);//label
+		Etypes[0] = new AttrType(AttrType.attrInteger);//label
 		Etypes[1] = new AttrType(AttrType.attrInteger);//pgidsource
 		Etypes[2] = new AttrType(AttrType.attrInteger);//slotidsource
 		Etypes[3] = new AttrType(AttrType.attrInteger);//pgiddest
 		Etypes[4] = new AttrType(AttrType.attrInteger);//slotiddest
 		Etypes[5] = new AttrType(AttrType.attrInteger);//weight
 
-		short[] Esizes = new short[1];
-		Esizes[0] = 44;
+		short[] Esizes = new short[0];
 		FldSpec[] Eprojection = new FldSpec[6];
 		Eprojection[0] = new FldSpec(new RelSpec(RelSpec.outer), 1);
 		Eprojection[1] = new FldSpec(new RelSpec(RelSpec.outer), 2);
@@ -702,16 +690,15 @@ class JoinsDriver implements GlobalConst {
 			Runtime.getRuntime().exit(1);
 		}
 		AttrType[] Ntypes = new AttrType[2];
-		Ntypes[0] = new AttrType(AttrType.attrString);
+		Ntypes[0] = new AttrType(AttrType.attrInteger);
 		Ntypes[1] = new AttrType(AttrType.attrDesc);
 		
 		// SOS
-		short[] Nsizes = new short[2];
-		Nsizes[0] = 44;
+		short[] Nsizes = new short[0];
 		//Nsizes[1] = 20;// first elt. is 30
 
 		AttrType[] jtype12 = new AttrType[2];
-		jtype12[0] = new AttrType(AttrType.attrString);
+		jtype12[0] = new AttrType(AttrType.attrInteger);
 		jtype12[1] = new AttrType(AttrType.attrDesc);
 //		try {
 //			while ((n = am.get_next()) != null) {
@@ -726,10 +713,9 @@ class JoinsDriver implements GlobalConst {
 //		}
 
 				
-		AttrType[] JJtype = { new AttrType(AttrType.attrString),new AttrType(AttrType.attrDesc)};
+		AttrType[] JJtype = { new AttrType(AttrType.attrInteger),new AttrType(AttrType.attrDesc)};
 
-		short[] JJsize = new short[1];
-		JJsize[0] = 44;
+		short[] JJsize = new short[0];
 		
 
 //		FileScan am2 = null;
@@ -872,15 +858,14 @@ class JoinsDriver implements GlobalConst {
 
 
 		AttrType[] Etypes = new AttrType[6];
-		Etypes[0] = new AttrType(AttrType.attrString);//label
+		Etypes[0] = new AttrType(AttrType.attrInteger);//label
 		Etypes[1] = new AttrType(AttrType.attrInteger);//pgidsource
 		Etypes[2] = new AttrType(AttrType.attrInteger);//slotidsource
 		Etypes[3] = new AttrType(AttrType.attrInteger);//pgiddest
 		Etypes[4] = new AttrType(AttrType.attrInteger);//slotiddest
 		Etypes[5] = new AttrType(AttrType.attrInteger);//weight
 
-		short[] Esizes = new short[1];
-		Esizes[0] = 44;
+		short[] Esizes = new short[0];
 		FldSpec[] Eprojection = new FldSpec[6];
 		Eprojection[0] = new FldSpec(new RelSpec(RelSpec.outer), 1);
 		Eprojection[1] = new FldSpec(new RelSpec(RelSpec.outer), 2);
@@ -908,16 +893,15 @@ class JoinsDriver implements GlobalConst {
 			Runtime.getRuntime().exit(1);
 		}
 		AttrType[] Ntypes = new AttrType[2];
-		Ntypes[0] = new AttrType(AttrType.attrString);
+		Ntypes[0] = new AttrType(AttrType.attrInteger);
 		Ntypes[1] = new AttrType(AttrType.attrDesc);
 		
 		// SOS
-		short[] Nsizes = new short[2];
-		Nsizes[0] = 44;
+		short[] Nsizes = new short[0];
 		//Nsizes[1] = 20;// first elt. is 30
 
 		AttrType[] jtype12 = new AttrType[2];
-		jtype12[0] = new AttrType(AttrType.attrString);
+		jtype12[0] = new AttrType(AttrType.attrInteger);
 		jtype12[1] = new AttrType(AttrType.attrDesc);
 //		try {
 //			while ((n = am.get_next()) != null) {
@@ -932,10 +916,9 @@ class JoinsDriver implements GlobalConst {
 //		}
 
 				
-		AttrType[] JJtype = { new AttrType(AttrType.attrString),new AttrType(AttrType.attrDesc)};
+		AttrType[] JJtype = { new AttrType(AttrType.attrInteger),new AttrType(AttrType.attrDesc)};
 
-		short[] JJsize = new short[1];
-		JJsize[0] = 44;
+		short[] JJsize = new short[0];
 		
 
 //		FileScan am2 = null;
@@ -3,15 +3,16 @@ package tests;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.PriorityQueue;
 
 import btree.BTFileScan;
 import btree.BTreeFile;
 import btree.KeyDataEntry;
 import btree.LeafData;
-import btree.StringKey;
 import catalog.Utility;
 import diskmgr.GraphDB;
 import edgeheap.EScan;
@@ -26,6 +27,7 @@ import heap.FieldNumberOutOfBoundException;
 import heap.Tuple;
 import iterator.FileScan;
 import iterator.FldSpec;
+import iterator.LabelDecode;
 import iterator.RelSpec;
 import iterator.Sort;
 import nodeheap.HFBufMgrException;
@@ -78,17 +80,22 @@ public class NodeQuery {
 		} else {
 			System.out.println("Printing node labels in alphanumerical order using node heap file");
 			AttrType[] attrType = new AttrType[2];
-			attrType[0] = new AttrType(AttrType.attrString);
+			attrType[0] = new AttrType(AttrType.attrInteger);
 			attrType[1] = new AttrType(AttrType.attrDesc);
-			short[] attrSize = new short[1];
-			attrSize[0] = 44;
-			//attrSize[1] = 20;
+			short[] attrSize = new short[0];
 			RelSpec rel = new RelSpec(RelSpec.outer);
 			FldSpec[] projlist = new FldSpec[2];
 			projlist[0] = new FldSpec(rel, 1);
 			projlist[1] = new FldSpec(rel, 2);
 			FileScan fscan = new FileScan("nodeheapfile", attrType, attrSize, (short) 2, 2, projlist, null);	        
-			Sort sort = new Sort(attrType, (short) 2, attrSize, fscan, 1, new TupleOrder(TupleOrder.Descending), 44, 12, 3.0, null);
+			// the nodes hold label ids, the sort is on the labels they stand for
+			LabelDecode labels = new LabelDecode(attrType, (short) 2, attrSize, fscan, new int[] { 1 });
+			AttrType[] labelType = new AttrType[2];
+			labelType[0] = new AttrType(AttrType.attrString);
+			labelType[1] = new AttrType(AttrType.attrDesc);
+			short[] labelSize = new short[1];
+			labelSize[0] = GraphDB.LABEL_SIZE;
+			Sort sort = new Sort(labelType, (short) 2, labelSize, labels, 1, new TupleOrder(TupleOrder.Descending), GraphDB.LABEL_SIZE, 12, 3.0, null);
 			Tuple t = sort.get_next();
 			while (t != null) {
 				try {
@@ -135,63 +142,65 @@ public class NodeQuery {
 //		}
 	}
 
-	private void printNodeDataFromTarget(int index, String desc) throws InvalidSlotNumberException, HFException, 
+	private void printNodeDataFromTarget(int index, String desc, int k) throws InvalidSlotNumberException, HFException, 
 		HFDiskMgrException, HFBufMgrException, Exception {
 		Descriptor descriptor = Utility.convertToDescriptor(desc);		
 		double dist;
 		if (index == 1) {
 			System.out.println("Printing node data in order using index file");
 			ZTreeFile indexFile = db.nodeDescriptorIndexFile;
-			List<NID> nidList = indexFile.zTreeFileScan();
-			List<NID> tempList;
-			TreeMap<Double,List<NID>> hash = new TreeMap<Double,List<NID>>();
-        	// Make sorted list of NID
-			for (NID nid : nidList) {
+			if (k <= 0)
+				k = db.nodeHeapfile.getNodeCnt();
+			// nearest first, read straight off the index
+			for (NID nid : indexFile.kNearest(descriptor, k)) {
 				Node node = db.nodeHeapfile.getNode(nid);
-				dist = node.getDesc().distance(descriptor);
-				if (hash.containsKey(dist)) {
-					tempList = hash.get(dist);
-				} else {
-					tempList = new ArrayList<NID>();
-				}
-				tempList.add(nid);
-				hash.put(dist, tempList);
-			}
-			
-			for (Map.Entry<Double, List<NID>> entry : hash.entrySet()) {
-				nidList = entry.getValue();
-				for (NID nid : nidList) {
-					Node node = db.nodeHeapfile.getNode(nid);
-					node.print();
-				}
+				node.print();
 			}
 		} else {
 			System.out.println("Printing node data in order using node heap file");
+			if (k <= 0)
+				k = db.nodeHeapfile.getNodeCnt();
+			// keep the k nearest seen so far in a heap with the farthest on
+			// top, a tie going to the node seen first
+			PriorityQueue<Nearest> nearest = new PriorityQueue<Nearest>(Math.max(1, k),
+					new Comparator<Nearest>() {
+						public int compare(Nearest a, Nearest b) {
+							return a.dist != b.dist ? Double.compare(b.dist, a.dist) : Long.compare(b.seq, a.seq);
+						}
+					});
 			NScan nScan = new NScan(db.nodeHeapfile);
-	        NID nid = new NID();
-	        TreeMap<Double,List<Node>> hash = new TreeMap<Double,List<Node>>();
-	        List<Node> tempList;
-	        Node node = nScan.getNext(nid);
-	        while(node != null){
-	        	// Make sorted list of Nodes
-	        	dist = node.getDesc().distance(descriptor);
-	        	if (hash.containsKey(dist)) {
-					tempList = hash.get(dist);
-				} else {
-					tempList = new ArrayList<Node>();
-				}
-	        	tempList.add(node);
-	        	hash.put(dist, tempList);
-	        	node = nScan.getNext(nid);
-	        }
-	        nScan.closescan();
-	        List<Node> nidList = new ArrayList<Node>();
-	        for (Map.Entry<Double, List<Node>> entry : hash.entrySet()) {
-				nidList = entry.getValue();
-				for (Node each_node : nidList) {
-					each_node.print();
+			NID nid = new NID();
+			long seq = 0;
+			Node node = nScan.getNext(nid);
+			while (node != null) {
+				dist = node.getDesc().distance(descriptor);
+				if (nearest.size() < k)
+					nearest.add(new Nearest(dist, seq, node));
+				else if (dist < nearest.peek().dist) {
+					nearest.poll();
+					nearest.add(new Nearest(dist, seq, node));
 				}
+				seq++;
+				node = nScan.getNext(nid);
 			}
+			nScan.closescan();
+			Nearest[] sorted = nearest.toArray(new Nearest[nearest.size()]);
+			Arrays.sort(sorted, Collections.reverseOrder(nearest.comparator()));
+			for (Nearest each : sorted)
+				each.node.print();
+		}
+	}
+
+	// a node of the heap scan with its distance to the target
+	private static class Nearest {
+		final double dist;
+		final long seq;
+		final Node node;
+
+		Nearest(double dist, long seq, Node node) {
+			this.dist = dist;
+			this.seq = seq;
+			this.node = node;
 		}
 	}
 	
@@ -233,21 +242,11 @@ public class NodeQuery {
 		boolean printed = false;
 		if (index == 1) {
 			System.out.println("Printing node information and assosciated edges for nodes with same label using index file");
-			BTreeFile indexFile = db.nodeLabelIndexFile;
-			//low == high for doing exact match in btree.
-			BTFileScan scan = indexFile.new_scan(new StringKey(label),new StringKey(label));
-			KeyDataEntry entry = scan.get_next();
-			while (entry != null) {
-				// Collect node data
-				LeafData leafData = (LeafData) entry.data;
-				NID nid = new NID();
-				nid.copyRid(leafData.getData());
+			for (NID nid : db.nodeLabelHashFile.lookupAll(label)) {
 				Node node = db.nodeHeapfile.getNode(nid);
 				printNodeAndEdgesContainingNode(node, nid);
-				entry = scan.get_next();
 				printed = true;
 			}
-			scan.DestroyBTreeFileScan();
 		} else {
 			System.out.println("Printing node information and assosciated edges for nodes with same label using node heap file");
 			NScan nScan = new NScan(db.nodeHeapfile);
@@ -352,7 +351,8 @@ public class NodeQuery {
 					case 1: this.printNodeLabels(index);
 							break;
 					case 2: descriptor = args[0]; // expecting descriptor as CSV values
-							this.printNodeDataFromTarget(index, descriptor);
+							int k = args.length > 1 && args[1] != null ? Integer.parseInt(args[1]) : 0;
+							this.printNodeDataFromTarget(index, descriptor, k);
 							break;
 					case 3: descriptor = args[0]; // expecting descriptor as CSV values
 							int dist = Integer.parseInt(args[1]);
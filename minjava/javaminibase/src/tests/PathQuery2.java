@@ -20,7 +20,6 @@ import btree.KeyNotMatchException;
 import btree.LeafData;
 import btree.PinPageException;
 import btree.ScanIteratorException;
-import btree.StringKey;
 import btree.UnpinPageException;
 import bufmgr.HashEntryNotFoundException;
 import bufmgr.InvalidFrameNumberException;
@@ -95,16 +94,10 @@ public class PathQuery2 {
 			iscan.DestroyBTreeFileScan();
 		}else if(edge_path[0].startsWith("L")){
 			String label = edge_path[0].substring(1).trim();
-			iscan = SystemDefs.JavabaseDB.nodeLabelIndexFile.new_scan(new StringKey(label), new StringKey(label));
-			if (iscan != null) {
-				KeyDataEntry entry = iscan.get_next();
-				// Collect node data
-				LeafData leafData = (LeafData) entry.data;
-				NID nidlabel = new NID();
-				nidlabel.copyRid(leafData.getData());
+			NID nidlabel = SystemDefs.JavabaseDB.nodeLabelHashFile.lookup(label);
+			if (nidlabel != null) {
 				// print node
-				descLabel.add(SystemDefs.JavabaseDB.nodeHeapfile.getNode(nidlabel).getLabel());		
-				iscan.DestroyBTreeFileScan();
+				descLabel.add(SystemDefs.JavabaseDB.nodeHeapfile.getNode(nidlabel).getLabel());
 			}
 		}
 	}
@@ -122,7 +115,7 @@ public class PathQuery2 {
 		if (edgeLabel == null )
 			return e;
 
-		if (edgeLabel.equals(e.getLabel())){
+		if (e.getLabelId() == SystemDefs.JavabaseDB.labelDictionary.getId(edgeLabel)){
 			return e;
 		} else {
 			return getNextindexFilterSource(iscan, edgeLabel);
@@ -284,8 +277,8 @@ public class PathQuery2 {
 		
 		Heapfile hf = new Heapfile(outhf);
 		BTreeFile sourceNodeIndexFile = SystemDefs.JavabaseDB.edgeSourceIndexFile;
-		BTFileScan iscan = sourceNodeIndexFile.new_scan(new StringKey(sourceNodeLabel),
-				new StringKey(sourceNodeLabel));
+		BTFileScan iscan = sourceNodeIndexFile.new_scan(SystemDefs.JavabaseDB.endpointKey(sourceNodeLabel),
+				SystemDefs.JavabaseDB.endpointKey(sourceNodeLabel));
 		Edge e = new Edge();
 		if (edge_path[edgeLabelIndex].startsWith("L")){
 			String label = edge_path[edgeLabelIndex].substring(1).trim();
@@ -320,7 +313,7 @@ public class PathQuery2 {
 				t.setHdr((short)3, attrs, str_sizes);
 				
 				//System.out.println("!!!!!!!");
-				String destnode = SystemDefs.JavabaseDB.nodeHeapfile.getNode(e.getDestination()).getStrFld(1);
+				String destnode = SystemDefs.JavabaseDB.nodeHeapfile.getNode(e.getDestination()).getLabel();
 				t.setStrFld(1, firstLabel);
 				t.setStrFld(2, destnode);
 				t.setStrFld(3, firstLabel+destnode);
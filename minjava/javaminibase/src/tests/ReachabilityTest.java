@@ -0,0 +1,212 @@
+package tests;
+
+import java.io.*;
+import global.*;
+import heap.Tuple;
+import iterator.Reachability;
+import nodeheap.Node;
+import edgeheap.Edge;
+
+/**
+ * This class tests the Reachability iterator on a small graph. N0 reaches N4
+ * in 4 hops over N1, N2 and N3, and in 6 over N5 to N9; N2 and N11 hang off
+ * the first path, and N12 has no edges at all.
+ */
+class ReachabilityDriver extends TestDriver implements GlobalConst {
+
+	private static final int NODES = 13;
+
+	// the edges: from, to
+	private static final int[][] EDGES = { { 0, 1 }, { 1, 2 }, { 2, 3 }, { 3, 4 }, { 0, 5 }, { 5, 6 }, { 6, 7 },
+			{ 7, 8 }, { 8, 9 }, { 9, 4 }, { 2, 10 }, { 11, 3 } };
+
+	private NID[] nids = new NID[NODES];
+
+	/**
+	 * ReachabilityDriver Constructor, inherited from TestDriver
+	 */
+	public ReachabilityDriver() {
+		super("reachtest");
+	}
+
+	/**
+	 * opens the database and calls the runTests function in TestDriver
+	 */
+	public boolean runTests() {
+		try {
+			SystemDefs sysdef = new SystemDefs(dbpath, 1000, NUMBUF, "Clock");
+		} catch (Exception e) {
+			Runtime.getRuntime().exit(1);
+		}
+		return super.runTests();
+	}
+
+	/**
+	 * builds the graph
+	 */
+	protected boolean test1() {
+		System.out.print("\n  Test 1 builds the graph\n");
+		try {
+			for (int i = 0; i < NODES; i++) {
+				Node node = new Node();
+				node.setLabel("N" + i);
+				node.setDesc(new Descriptor());
+				nids[i] = SystemDefs.JavabaseDB.nodeHeapfile.insertNode(node.getNodeByteArray());
+			}
+			for (int[] e : EDGES) {
+				Edge edge = new Edge();
+				edge.setLabel("N" + e[0] + "_N" + e[1]);
+				edge.setSource(nids[e[0]]);
+				edge.setDestination(nids[e[1]]);
+				edge.setWeight(1);
+				SystemDefs.JavabaseDB.edgeHeapfile.insertEdge(edge.getEdgeByteArray());
+			}
+		} catch (Exception e) {
+			System.err.println("*** Error building the graph");
+			e.printStackTrace();
+			return FAIL;
+		}
+		System.out.print("  Test 1 completed successfully.\n");
+		return OK;
+	}
+
+	/**
+	 * the path with the fewest hops, without a bound
+	 */
+	protected boolean test2() {
+		System.out.print("\n  Test 2 finds N4 from N0 without a bound\n");
+		boolean status = OK;
+		try {
+			status = check(new Reachability(nids[0], nids[4], -1), new int[] { 0, 1, 2, 3, 4 });
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 2 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * a bound of as many hops as the path has, and of one less
+	 */
+	protected boolean test3() {
+		System.out.print("\n  Test 3 finds N4 from N0 within 4 hops, and not within 3\n");
+		boolean status = OK;
+		try {
+			if (!check(new Reachability(nids[0], nids[4], 4), new int[] { 0, 1, 2, 3, 4 }))
+				status = FAIL;
+			if (!check(new Reachability(nids[0], nids[4], 3), null))
+				status = FAIL;
+			if (!check(new Reachability("N1", "N3", 2), new int[] { 1, 2, 3 }))
+				status = FAIL;
+			if (!check(new Reachability("N1", "N3", 1), null))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 3 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * nodes that can not be reached at all
+	 */
+	protected boolean test4() {
+		System.out.print("\n  Test 4 does not find N0 from N4, nor N12 from N0\n");
+		boolean status = OK;
+		try {
+			if (!check(new Reachability(nids[4], nids[0], -1), null))
+				status = FAIL;
+			if (!check(new Reachability(nids[0], nids[12], -1), null))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 4 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * a node reaches itself in no hops
+	 */
+	protected boolean test5() {
+		System.out.print("\n  Test 5 finds N12 from N12 within 0 hops\n");
+		boolean status = OK;
+		try {
+			status = check(new Reachability(nids[12], nids[12], 0), new int[] { 12 });
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 5 completed successfully.\n");
+		return status;
+	}
+
+	// compare the path a search returns with the expected nodes, null if the
+	// target should not be reached
+	private boolean check(Reachability r, int[] path) throws Exception {
+		boolean status = OK;
+		int hops = path == null ? -1 : path.length - 1;
+		if (r.getHops() != hops) {
+			System.err.println("*** " + r.getHops() + " hops, expected " + hops);
+			status = FAIL;
+		}
+		int n = 0;
+		Tuple t;
+		while ((t = r.get_next()) != null) {
+			int node = nodeOf(t.getIntFld(1), t.getIntFld(2));
+			if (path == null || n >= path.length || node != path[n]) {
+				System.err.println("*** Node " + n + " of the path is N" + node);
+				status = FAIL;
+			}
+			n++;
+		}
+		r.close();
+		if (n != hops + 1) {
+			System.err.println("*** " + n + " nodes on the path, expected " + (hops + 1));
+			status = FAIL;
+		}
+		return status;
+	}
+
+	// the index of the node with the given page and slot, -1 for none
+	private int nodeOf(int pid, int slot) {
+		for (int i = 0; i < nids.length; i++)
+			if (nids[i].pageNo.pid == pid && nids[i].slotNo == slot)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * overrides the testName function in TestDriver
+	 *
+	 * @return the name of the test
+	 */
+	protected String testName() {
+		return "Reachability";
+	}
+}
+
+public class ReachabilityTest {
+
+	public static void main(String argv[]) {
+
+		ReachabilityDriver rt = new ReachabilityDriver();
+		boolean dbstatus;
+
+		dbstatus = rt.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during reachability tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
@@ -0,0 +1,108 @@
+package tests;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import bufmgr.BufferRing;
+import edgeheap.EScan;
+import global.EID;
+import global.SystemDefs;
+
+/**
+ * Compares the buffer hit ratio of the replacement policies on a batch
+ * insert plus path query workload. For every policy a new database is built
+ * with a small buffer pool from a node file and an edge file, then path
+ * queries along random edges are run with a full scan of the edge heap file
+ * between every few of them. The scans are what push the index pages out
+ * of a pool run by a policy that is not scan resistant. Every policy is run
+ * twice, once with the scans taking frames from the whole pool and once
+ * with the scans reading through a BufferRing.
+ * <p>
+ * Usage: java tests.ReplacerBench [nodefile [edgefile [numbuf]]]
+ */
+public class ReplacerBench {
+
+	private static final String[] POLICIES = { "Clock", "LRU", "MRU", "LRU-K", "2Q", "ARC" };
+
+	private static final String DBPATH = "replacerbench.minibase-db";
+
+	private static final int QUERIES = 200;
+
+	private static final int QUERIES_PER_SCAN = 10;
+
+	public static void main(String[] args) throws Exception {
+		String nodeFile = args.length > 0 ? args[0] : "NodeInsertData.txt";
+		String edgeFile = args.length > 1 ? args[1] : "EdgeInsertData.txt";
+		int numbuf = args.length > 2 ? Integer.parseInt(args[2]) : 400;
+
+		List<String> nodes = Files.readAllLines(Paths.get(nodeFile), StandardCharsets.US_ASCII);
+		List<String> edges = Files.readAllLines(Paths.get(edgeFile), StandardCharsets.US_ASCII);
+
+		PrintStream out = System.out;
+		PrintStream quiet = new PrintStream(new OutputStream() {
+			public void write(int b) {
+			}
+		});
+
+		out.println("numbuf = " + numbuf);
+		out.println("policy\tscan ring\tload hit%\tquery hit%\tquery misses");
+		for (String policy : POLICIES)
+			for (int pass = 0; pass < 2; pass++) {
+				boolean useRing = pass == 1;
+				new File(DBPATH).delete();
+				System.setOut(quiet);
+				try {
+					SystemDefs.MINIBASE_RESTART_FLAG = false;
+					new SystemDefs(DBPATH, 20000, numbuf, policy);
+
+					BatchNodeInsert nodeInsert = new BatchNodeInsert();
+					for (String line : nodes)
+						nodeInsert.doSingleBatchNodeInsert(line, SystemDefs.JavabaseDB.nodeHeapfile,
+								SystemDefs.JavabaseDB);
+					BatchEdgeInsert edgeInsert = new BatchEdgeInsert();
+					for (String line : edges) {
+						String[] vals = line.trim().split(" ");
+						edgeInsert.doSingleBatchEdgInsert(vals[0], vals[1], vals[2], vals[3]);
+					}
+					long loadHits = SystemDefs.JavabaseBM.getNumHits();
+					long loadMisses = SystemDefs.JavabaseBM.getNumMisses();
+
+					Random random = new Random(42);
+					for (int q = 0; q < QUERIES; q++) {
+						if (q % QUERIES_PER_SCAN == 0)
+							scanEdges(useRing ? new BufferRing() : null);
+						String[] vals = edges.get(random.nextInt(edges.size())).trim().split(" ");
+						new PathQuery("L" + vals[0] + "/L" + vals[1]).evaluate("a");
+					}
+					long queryHits = SystemDefs.JavabaseBM.getNumHits() - loadHits;
+					long queryMisses = SystemDefs.JavabaseBM.getNumMisses() - loadMisses;
+
+					new BatchDriver().exitClean();
+
+					out.printf("%s\t%s\t\t%.2f\t\t%.2f\t\t%d%n", policy, useRing ? "yes" : "no",
+							ratio(loadHits, loadMisses), ratio(queryHits, queryMisses), queryMisses);
+				} finally {
+					System.setOut(out);
+				}
+			}
+		new File(DBPATH).delete();
+	}
+
+	private static void scanEdges(BufferRing ring) throws Exception {
+		EScan scan = new EScan(SystemDefs.JavabaseDB.edgeHeapfile, ring);
+		EID eid = new EID();
+		while (scan.getNext(eid) != null)
+			;
+		scan.closescan();
+	}
+
+	private static double ratio(long hits, long misses) {
+		return hits + misses == 0 ? 0 : 100.0 * hits / (hits + misses);
+	}
+}
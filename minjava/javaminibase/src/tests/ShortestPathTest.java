@@ -0,0 +1,220 @@
+package tests;
+
+import java.io.*;
+import global.*;
+import heap.Tuple;
+import iterator.ShortestPath;
+import nodeheap.Node;
+import edgeheap.Edge;
+
+/**
+ * This class tests the ShortestPath iterator on a small graph whose shortest
+ * paths are known. From A they are, with the node before each one:
+ *
+ * <pre>
+ * A 0, C 1 (A), B 3 (C), D 8 (B), E 11 (D), F 12 (E)
+ * </pre>
+ *
+ * and G has no edges at all.
+ */
+class ShortestPathDriver extends TestDriver implements GlobalConst {
+
+	private static final String[] LABELS = { "A", "B", "C", "D", "E", "F", "G" };
+
+	private static final int A = 0, B = 1, C = 2, D = 3, E = 4, F = 5, G = 6;
+
+	// the edges: from, to, weight
+	private static final int[][] EDGES = { { A, B, 4 }, { A, C, 1 }, { C, B, 2 }, { B, D, 5 }, { C, D, 8 },
+			{ D, E, 3 }, { E, F, 1 }, { F, A, 1 } };
+
+	private NID[] nids = new NID[LABELS.length];
+
+	/**
+	 * ShortestPathDriver Constructor, inherited from TestDriver
+	 */
+	public ShortestPathDriver() {
+		super("sptest");
+	}
+
+	/**
+	 * opens the database and calls the runTests function in TestDriver
+	 */
+	public boolean runTests() {
+		try {
+			SystemDefs sysdef = new SystemDefs(dbpath, 1000, NUMBUF, "Clock");
+		} catch (Exception e) {
+			Runtime.getRuntime().exit(1);
+		}
+		return super.runTests();
+	}
+
+	/**
+	 * builds the graph
+	 */
+	protected boolean test1() {
+		System.out.print("\n  Test 1 builds the graph\n");
+		try {
+			for (int i = 0; i < LABELS.length; i++) {
+				Node node = new Node();
+				node.setLabel(LABELS[i]);
+				node.setDesc(new Descriptor());
+				nids[i] = SystemDefs.JavabaseDB.nodeHeapfile.insertNode(node.getNodeByteArray());
+			}
+			for (int[] e : EDGES) {
+				Edge edge = new Edge();
+				edge.setLabel(LABELS[e[0]] + LABELS[e[1]]);
+				edge.setSource(nids[e[0]]);
+				edge.setDestination(nids[e[1]]);
+				edge.setWeight(e[2]);
+				SystemDefs.JavabaseDB.edgeHeapfile.insertEdge(edge.getEdgeByteArray());
+			}
+		} catch (Exception e) {
+			System.err.println("*** Error building the graph");
+			e.printStackTrace();
+			return FAIL;
+		}
+		System.out.print("  Test 1 completed successfully.\n");
+		return OK;
+	}
+
+	/**
+	 * all the shortest paths from A
+	 */
+	protected boolean test2() {
+		System.out.print("\n  Test 2 finds all the shortest paths from A\n");
+		boolean status = OK;
+		try {
+			status = check(new ShortestPath(nids[A], null, -1), new int[] { A, C, B, D, E, F },
+					new int[] { 0, 1, 3, 8, 11, 12 }, new int[] { -1, A, C, B, D, E });
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 2 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * the search stops at the target
+	 */
+	protected boolean test3() {
+		System.out.print("\n  Test 3 stops at target D, given by label\n");
+		boolean status = OK;
+		try {
+			status = check(new ShortestPath("A", "D", -1), new int[] { A, C, B, D }, new int[] { 0, 1, 3, 8 },
+					new int[] { -1, A, C, B });
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 3 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * the search stops at the largest cost, which is returned
+	 */
+	protected boolean test4() {
+		System.out.print("\n  Test 4 stops at a cost of 8, then of 7\n");
+		boolean status = OK;
+		try {
+			if (!check(new ShortestPath(nids[A], null, 8), new int[] { A, C, B, D }, new int[] { 0, 1, 3, 8 },
+					new int[] { -1, A, C, B }))
+				status = FAIL;
+			if (!check(new ShortestPath(nids[A], null, 7), new int[] { A, C, B }, new int[] { 0, 1, 3 },
+					new int[] { -1, A, C }))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 4 completed successfully.\n");
+		return status;
+	}
+
+	/**
+	 * a node without edges, and a target that does not exist
+	 */
+	protected boolean test5() {
+		System.out.print("\n  Test 5 starts at G, then aims at a label no node has\n");
+		boolean status = OK;
+		try {
+			if (!check(new ShortestPath(nids[G], null, -1), new int[] { G }, new int[] { 0 }, new int[] { -1 }))
+				status = FAIL;
+			if (!check(new ShortestPath("A", "Z", -1), new int[0], new int[0], new int[0]))
+				status = FAIL;
+		} catch (Exception e) {
+			e.printStackTrace();
+			status = FAIL;
+		}
+		if (status == OK)
+			System.out.print("  Test 5 completed successfully.\n");
+		return status;
+	}
+
+	// compare the nodes a search returns, in order, with the expected ones:
+	// the nodes, their distances and the nodes before them, -1 for none
+	private boolean check(ShortestPath sp, int[] nodes, int[] dists, int[] preds) throws Exception {
+		boolean status = OK;
+		int n = 0;
+		Tuple t;
+		while ((t = sp.get_next()) != null) {
+			int node = nodeOf(t.getIntFld(1), t.getIntFld(2));
+			int pred = nodeOf(t.getIntFld(4), t.getIntFld(5));
+			int dist = t.getIntFld(3);
+			if (n >= nodes.length || node != nodes[n] || dist != dists[n] || pred != preds[n]) {
+				System.err.println("*** Result " + n + " is " + name(node) + " at " + dist + " after " + name(pred));
+				status = FAIL;
+			}
+			n++;
+		}
+		sp.close();
+		if (n != nodes.length) {
+			System.err.println("*** " + n + " nodes returned, expected " + nodes.length);
+			status = FAIL;
+		}
+		return status;
+	}
+
+	// the index of the node with the given page and slot, -1 for none
+	private int nodeOf(int pid, int slot) {
+		for (int i = 0; i < nids.length; i++)
+			if (nids[i].pageNo.pid == pid && nids[i].slotNo == slot)
+				return i;
+		return -1;
+	}
+
+	private String name(int node) {
+		return node == -1 ? "-" : LABELS[node];
+	}
+
+	/**
+	 * overrides the testName function in TestDriver
+	 *
+	 * @return the name of the test
+	 */
+	protected String testName() {
+		return "Shortest Path";
+	}
+}
+
+public class ShortestPathTest {
+
+	public static void main(String argv[]) {
+
+		ShortestPathDriver spt = new ShortestPathDriver();
+		boolean dbstatus;
+
+		dbstatus = spt.runTests();
+
+		if (dbstatus != true) {
+			System.err.println("Error encountered during shortest path tests:\n");
+			Runtime.getRuntime().exit(1);
+		}
+
+		Runtime.getRuntime().exit(0);
+	}
+}
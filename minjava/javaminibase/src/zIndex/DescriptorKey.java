@@ -3,107 +3,195 @@ package zIndex;
 import btree.KeyClass;
 import global.Descriptor;
 
-public class DescriptorKey extends KeyClass{
-
-	private Descriptor key;
-	
-	public DescriptorKey(Descriptor desc){
-		this.key = desc;
-		desc_str = this.getZVal(desc);
-	}
-
-	public DescriptorKey(String descStr){
-		this.desc_str = descStr;
-		this.key = this.getDescKey(descStr);
-	}
-	public String desc_str;
-	public Long zorder;
-
-	public static Long getZorder(String zString){
-		int index = 0;
-		Long currVal = (long)0;
-		for(int j = 0; j<zString.length(); j++){
-			currVal = currVal*2;
-			if(zString.charAt(j) == '1'){
-				currVal += 1;
-			}
+/**
+ * A Z-order (Morton) key for a descriptor.
+ * <p>
+ * The five 32 bit descriptor values are bit-interleaved into a 160 bit
+ * Morton code, most significant bit first, in the order value 0, value 1,
+ * ..., value 4 for every bit position. Bit j of value k lands on bit
+ * 5j + 4 - k of the code. The code is kept as four 40 bit words, z3 holding
+ * the most significant bits; word m is built from byte m of the five values
+ * only, which lets both encoding and decoding work a byte at a time without
+ * allocating anything.
+ * <p>
+ * Keys are ordered by unsigned comparison of the words from z3 down to z0.
+ * The words never use more than 40 bits, so a plain long compare is an
+ * unsigned compare. In a B-tree page the key is stored as the 20 byte big
+ * endian code, which preserves the order.
+ */
+public class DescriptorKey extends KeyClass {
+
+	/** size in bytes of a key stored in a B-tree page */
+	public static final int KEY_SIZE = 20;
+
+	// SPREAD[b] has bit t of b at bit 5t
+	private static final long[] SPREAD = new long[256];
+
+	static {
+		for (int b = 0; b < 256; b++) {
+			long s = 0;
+			for (int t = 0; t < 8; t++)
+				s |= (long) ((b >>> t) & 1) << (5 * t);
+			SPREAD[b] = s;
 		}
-		//value[i] = currVal;
-		return currVal;
+	}
 
+	private long z3, z2, z1, z0;
+
+	/**
+	 * Create the key of a descriptor.
+	 */
+	public DescriptorKey(Descriptor desc) {
+		encode(desc.get(0), desc.get(1), desc.get(2), desc.get(3), desc.get(4));
 	}
-	
-	public String toString(){
-		StringBuilder result = new StringBuilder();
-		result.append(key.get(0));
-		result.append(key.get(1));
-		result.append(key.get(2));
-		result.append(key.get(3));
-		result.append(key.get(4));
-		return result.toString();
+
+	/**
+	 * Create the key of a descriptor given by its five values.
+	 */
+	public DescriptorKey(int v0, int v1, int v2, int v3, int v4) {
+		encode(v0, v1, v2, v3, v4);
 	}
 
-	public Descriptor getKey() {
-		return key;
+	/**
+	 * Copy a key.
+	 */
+	public DescriptorKey(DescriptorKey other) {
+		z3 = other.z3;
+		z2 = other.z2;
+		z1 = other.z1;
+		z0 = other.z0;
+	}
+
+	/**
+	 * Read a key stored in a byte array by writeTo.
+	 *
+	 * @param data
+	 *            the byte array
+	 * @param offset
+	 *            the position of the key in the array
+	 */
+	public DescriptorKey(byte[] data, int offset) {
+		z3 = readWord(data, offset);
+		z2 = readWord(data, offset + 5);
+		z1 = readWord(data, offset + 10);
+		z0 = readWord(data, offset + 15);
+	}
+
+	/**
+	 * Set this key to the code of the given descriptor values.
+	 */
+	public void encode(int v0, int v1, int v2, int v3, int v4) {
+		z3 = word(v0 >>> 24, v1 >>> 24, v2 >>> 24, v3 >>> 24, v4 >>> 24);
+		z2 = word(v0 >>> 16, v1 >>> 16, v2 >>> 16, v3 >>> 16, v4 >>> 16);
+		z1 = word(v0 >>> 8, v1 >>> 8, v2 >>> 8, v3 >>> 8, v4 >>> 8);
+		z0 = word(v0, v1, v2, v3, v4);
+	}
+
+	private static long word(int b0, int b1, int b2, int b3, int b4) {
+		return SPREAD[b0 & 0xff] << 4 | SPREAD[b1 & 0xff] << 3 | SPREAD[b2 & 0xff] << 2 | SPREAD[b3 & 0xff] << 1
+				| SPREAD[b4 & 0xff];
 	}
-	
-	public String getDescString() {
-		return desc_str;
+
+	/**
+	 * @return value i of the descriptor this key was built from
+	 */
+	public int getValue(int i) {
+		int shift = 4 - i;
+		return gather(z3 >>> shift) << 24 | gather(z2 >>> shift) << 16 | gather(z1 >>> shift) << 8
+				| gather(z0 >>> shift);
+	}
+
+	// collect the bits at 0, 5, 10, ..., 35 into a byte
+	private static int gather(long w) {
+		int b = 0;
+		for (int t = 0; t < 8; t++)
+			b |= (int) ((w >>> (5 * t)) & 1) << t;
+		return b;
+	}
+
+	/**
+	 * @return the descriptor this key was built from
+	 */
+	public Descriptor getKey() {
+		Descriptor desc = new Descriptor();
+		desc.set(getValue(0), getValue(1), getValue(2), getValue(3), getValue(4));
+		return desc;
 	}
 
 	public void setKey(Descriptor key) {
-		this.key = key;
+		encode(key.get(0), key.get(1), key.get(2), key.get(3), key.get(4));
 	}
 
+	/**
+	 * Compare two keys in Z-order.
+	 *
+	 * @return negative, zero or positive as this key is less than, equal to
+	 *         or greater than the other one
+	 */
+	public int compareTo(DescriptorKey other) {
+		if (z3 != other.z3)
+			return z3 < other.z3 ? -1 : 1;
+		if (z2 != other.z2)
+			return z2 < other.z2 ? -1 : 1;
+		if (z1 != other.z1)
+			return z1 < other.z1 ? -1 : 1;
+		if (z0 != other.z0)
+			return z0 < other.z0 ? -1 : 1;
+		return 0;
+	}
 
-	public static Descriptor getDescKey(String descStr){
-		Descriptor constKey = new Descriptor();
-		StringBuilder[] val = new StringBuilder[5];
-		for (int i = 0; i < val.length; i++) {
-			val[i] = new StringBuilder("");
-		}
-		for(int i = 0; i < 32; i++) {
-			val[0].append(descStr.charAt(i*5));
-			val[1].append(descStr.charAt(i*5+1));
-			val[2].append(descStr.charAt(i*5+2));
-			val[3].append(descStr.charAt(i*5+3));
-			val[4].append(descStr.charAt(i*5+4));
-		}
+	/**
+	 * @return the number of leading bits the Z-values of the two keys have
+	 *         in common, from 0 to 160
+	 */
+	public int commonPrefix(DescriptorKey other) {
+		if (z3 != other.z3)
+			return Long.numberOfLeadingZeros(z3 ^ other.z3) - 24;
+		if (z2 != other.z2)
+			return 40 + Long.numberOfLeadingZeros(z2 ^ other.z2) - 24;
+		if (z1 != other.z1)
+			return 80 + Long.numberOfLeadingZeros(z1 ^ other.z1) - 24;
+		if (z0 != other.z0)
+			return 120 + Long.numberOfLeadingZeros(z0 ^ other.z0) - 24;
+		return 160;
+	}
+
+	/**
+	 * Write the 20 byte big endian code into a byte array.
+	 *
+	 * @param data
+	 *            the byte array
+	 * @param offset
+	 *            the position of the key in the array
+	 */
+	public void writeTo(byte[] data, int offset) {
+		writeWord(z3, data, offset);
+		writeWord(z2, data, offset + 5);
+		writeWord(z1, data, offset + 10);
+		writeWord(z0, data, offset + 15);
+	}
 
-		int value[] = new int[5];
+	private static long readWord(byte[] data, int offset) {
+		long w = 0;
+		for (int i = 0; i < 5; i++)
+			w = w << 8 | (data[offset + i] & 0xff);
+		return w;
+	}
 
-		for(int i=0; i< val.length; i++){
-			value[i] = (int)(long)getZorder(val[i].toString());
+	private static void writeWord(long w, byte[] data, int offset) {
+		for (int i = 4; i >= 0; i--) {
+			data[offset + i] = (byte) w;
+			w >>>= 8;
 		}
-		constKey.set(value[0], value[1], value[2], value[3], value[4]);
-		return constKey;
 	}
-	
-	public static String getZVal(Descriptor desc){
+
+	public String toString() {
 		StringBuilder result = new StringBuilder();
-		
-		int val0 = desc.get(0);
-		int val1 = desc.get(1);
-		int val2 = desc.get(2);
-		int val3 = desc.get(3);
-		int val4 = desc.get(4);
-		
-		for(int i = 0; i < 32; i++){
-			//TODO take out prefix of 0's.
-			result.append(val4%2);
-			result.append(val3%2);
-			result.append(val2%2);
-			result.append(val1%2);
-			result.append(val0%2);
-			
-			val0 /= 2;
-			val1 /= 2;
-			val2 /= 2;
-			val3 /= 2;
-			val4 /= 2;
-		}
-		
-		return result.reverse().toString();
-		
+		result.append(getValue(0));
+		result.append(getValue(1));
+		result.append(getValue(2));
+		result.append(getValue(3));
+		result.append(getValue(4));
+		return result.toString();
 	}
-}
\ No newline at end of file
+}
@@ -6,13 +6,19 @@ import bufmgr.InvalidFrameNumberException;
 import bufmgr.PageUnpinnedException;
 import bufmgr.ReplacerException;
 
+import global.AttrType;
 import global.Descriptor;
 import global.NID;
+import global.PageId;
+import global.RID;
+import global.SystemDefs;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.PriorityQueue;
 
 public class ZTreeFile extends BTreeFile{
 
@@ -44,139 +50,292 @@ public class ZTreeFile extends BTreeFile{
 		return nidList;
 	}
 
+	/**
+	 * Return the nodes whose descriptor lies in the box of the given
+	 * distance around a key, i.e. every value within distance of the value
+	 * of the key. The caller still has to filter the result on the real
+	 * (euclidean) distance.
+	 * <p>
+	 * The scan walks the Z-curve between the two corners of the box with a
+	 * single B-tree cursor. Keys inside the box are returned; when the cursor
+	 * hits a key outside the box, BIGMIN gives the next Z-value that is
+	 * inside it and the cursor jumps there. Memory use is constant and the
+	 * cost depends on the number of keys met, not on the volume of the box.
+	 *
+	 * @param key
+	 *            the center of the box
+	 * @param distance
+	 *            half the width of the box in every dimension
+	 * @return the nodes in the box
+	 */
 	public  List<NID> zFileRangeScan(Descriptor key, int distance) throws PinPageException, KeyNotMatchException, IteratorException, IOException, ConstructPageException, UnpinPageException, ScanIteratorException, PageUnpinnedException, InvalidFrameNumberException, HashEntryNotFoundException, ReplacerException {
-		ArrayList<Descriptor> retDescriptors = new ArrayList<Descriptor> ();
-		//First find the lowerbound for the given key.
 		int lowKeyVal[] = new int[5];
+		int highKeyVal[] = new int[5];
+		for(int i = 0; i < 5; i++){
+			//Make sure that the box stays between 0 and maxInt
+			lowKeyVal[i] = Math.max(key.get(i) - distance, 0);
+			highKeyVal[i] = key.get(i) + distance;
+			if(highKeyVal[i] < 0){
+				highKeyVal[i] = Integer.MAX_VALUE;
+			}
+		}
+
 		List<NID> nidList = new ArrayList<NID>();
+		DescriptorKey lowKey = new DescriptorKey(lowKeyVal[0], lowKeyVal[1], lowKeyVal[2], lowKeyVal[3], lowKeyVal[4]);
+		DescriptorKey highKey = new DescriptorKey(highKeyVal[0], highKeyVal[1], highKeyVal[2], highKeyVal[3], highKeyVal[4]);
+		BTFileScan scan = this.new_scan(lowKey, highKey);
+
+		int next[] = new int[5];
+		KeyDataEntry entry = scan.get_next();
+		LeafData leafData;
+		while(entry != null) {
+			DescriptorKey zkey = (DescriptorKey) entry.key;
+			if(inBox(zkey, lowKeyVal, highKeyVal)) {
+				NID nid = new NID();
+				leafData = (LeafData) entry.data;
+				nid.copyRid(leafData.getData());
+				nidList.add(nid);
+			} else {
+				if(!bigmin(zkey, lowKeyVal, highKeyVal, next)) {
+					break;
+				}
+				scan.skip_to(new DescriptorKey(next[0], next[1], next[2], next[3], next[4]));
+			}
+			entry = scan.get_next();
+		}
+		scan.DestroyBTreeFileScan();
 
-		lowKeyVal[0] = key.get(0) - distance;
-		lowKeyVal[1] = key.get(1) - distance;
-		lowKeyVal[2] = key.get(2) - distance;
-		lowKeyVal[3] = key.get(3) - distance;
-		lowKeyVal[4] = key.get(4) - distance;
+		return nidList;
+	}
 
-		//Make sure that the lowKey does not cross 0;
-		for(int i = 0;i<lowKeyVal.length;i++){
-			if(lowKeyVal[i]<0){
-				lowKeyVal[i] = 0;
+	private static boolean inBox(DescriptorKey zkey, int[] low, int[] high) {
+		for(int i = 0; i < 5; i++){
+			int v = zkey.getValue(i);
+			if(v < low[i] || v > high[i]){
+				return false;
 			}
 		}
-		System.out.println("lowKeyVals are" + lowKeyVal[0] + " "+
-				lowKeyVal[1]+" "+
-				lowKeyVal[2]+ " "+
-				lowKeyVal[3]+ " "+
-				lowKeyVal[4]);
-		int highKeyVal[] = new int[5];
-		highKeyVal[0] = key.get(0) + distance;
-		highKeyVal[1] = key.get(1) + distance;
-		highKeyVal[2] = key.get(2) + distance;
-		highKeyVal[3] = key.get(3) + distance;
-		highKeyVal[4] = key.get(4) + distance;
-
-		//Make sure that the highKey does not cross the maxInt
-		for(int i = 0;i<highKeyVal.length;i++){
-			if(highKeyVal[i]<0){
-				highKeyVal[i] = Integer.MAX_VALUE;
+		return true;
+	}
+
+	/**
+	 * BIGMIN (Tropf and Herzog): compute the smallest Z-value greater than
+	 * zkey that lies in the box [low, high]. The bits of the key and of the
+	 * two corners are compared from the most significant bit of the Z-value
+	 * down; the corners are narrowed to the half of the box that can still
+	 * hold the answer as the walk goes.
+	 *
+	 * @param zkey
+	 *            a key outside the box, between its corners in Z-order
+	 * @param low
+	 *            lower corner of the box
+	 * @param high
+	 *            upper corner of the box
+	 * @param result
+	 *            the values of the BIGMIN key. Output parameter.
+	 * @return false if no key of the box is greater than zkey
+	 */
+	static boolean bigmin(DescriptorKey zkey, int[] low, int[] high, int[] result) {
+		int min[] = new int[5];
+		int max[] = new int[5];
+		int z[] = new int[5];
+		for(int i = 0; i < 5; i++){
+			min[i] = low[i];
+			max[i] = high[i];
+			z[i] = zkey.getValue(i);
+		}
+
+		boolean found = false;
+		for(int bit = 31; bit >= 0; bit--){
+			int mask = 1 << bit;
+			// bits below this one within a value
+			int lower = mask - 1;
+			for(int dim = 0; dim < 5; dim++){
+				boolean zb = (z[dim] & mask) != 0;
+				boolean minb = (min[dim] & mask) != 0;
+				boolean maxb = (max[dim] & mask) != 0;
+				if(!zb && !minb && maxb){
+					// the answer is at least the low corner of the upper
+					// half; go on looking in the lower half
+					System.arraycopy(min, 0, result, 0, 5);
+					result[dim] = (min[dim] | mask) & ~lower;
+					found = true;
+					max[dim] = (max[dim] & ~mask) | lower;
+				}else if(!zb && minb && maxb){
+					// the whole remaining box is above zkey
+					System.arraycopy(min, 0, result, 0, 5);
+					return true;
+				}else if(zb && !minb && !maxb){
+					// the whole remaining box is below zkey
+					return found;
+				}else if(zb && !minb && maxb){
+					// only the upper half can be above zkey
+					min[dim] = (min[dim] | mask) & ~lower;
+				}
+				// (0,0,0) and (1,1,1): keep going
 			}
 		}
-		System.out.println("highKeyVal are" + highKeyVal[0] + " "+
-				highKeyVal[1]+" "+
-				highKeyVal[2]+ " "+
-				highKeyVal[3]+ " "+
-				highKeyVal[4]);
-
-		Descriptor lowKey = new Descriptor();
-		Descriptor highKey = new Descriptor();
-		lowKey.set(lowKeyVal[0],lowKeyVal[1],lowKeyVal[2],lowKeyVal[3],lowKeyVal[4]);
-		highKey.set(highKeyVal[0], highKeyVal[1], highKeyVal[2], highKeyVal[3], highKeyVal[4]);
-
-
-		ArrayList<String> allPossible = new ArrayList<String>();
-
-		System.out.println("all possible are ");
-		for(int i = lowKeyVal[0]; i< highKeyVal[0];i++){
-			for(int j = lowKeyVal[1]; j< highKeyVal[1];j++) {
-				for(int k = lowKeyVal[2]; k< highKeyVal[2];k++) {
-					for(int l = lowKeyVal[3]; l< highKeyVal[3];l++) {
-						for(int m = lowKeyVal[4]; m< highKeyVal[4];m++) {
-							//System.out.println(i+" "+ j+" "+ k+" "+l+" "+m);
-							Descriptor desc = new Descriptor();
-							desc.set(i,j,k,l,m);
-							DescriptorKey descKey = new DescriptorKey(desc);
-							String descStr = descKey.desc_str;
-							allPossible.add(descStr);
-							//System.out.println(" " + descStr);
+		return found;
+	}
+
+	/**
+	 * Return the k nodes whose descriptor is closest to a target, nearest
+	 * first.
+	 * <p>
+	 * The search is best-first over the pages of the tree. Every page covers
+	 * an interval of Z-values; all keys in the interval share the leading
+	 * bits of its two ends, which fixes the high bits of every value and
+	 * gives a bounding box. The distance from the target to that box is a
+	 * lower bound for every key under the page. Pages are visited in order
+	 * of their bound; leaf entries are measured exactly from the key itself,
+	 * without reading the node, and kept in a max-heap of the k best. The
+	 * search stops when the k-th best distance is no greater than the bound
+	 * of every page not yet visited.
+	 *
+	 * @param target
+	 *            the target descriptor
+	 * @param k
+	 *            number of nodes to return
+	 * @return the nids of the nearest nodes, in ascending order of distance
+	 */
+	public List<NID> kNearest(Descriptor target, int k) throws IOException, ConstructPageException,
+		IteratorException, UnpinPageException {
+		List<NID> nidList = new ArrayList<NID>();
+		PageId rootId = getRootId();
+		if(k <= 0 || rootId.pid == INVALID_PAGE){
+			return nidList;
+		}
+
+		PriorityQueue<Region> regions = new PriorityQueue<Region>();
+		PriorityQueue<Candidate> best = new PriorityQueue<Candidate>(k, Collections.reverseOrder());
+		regions.add(new Region(rootId, new DescriptorKey(0, 0, 0, 0, 0), new DescriptorKey(-1, -1, -1, -1, -1), 0));
+
+		RID rid = new RID();
+		while(!regions.isEmpty()){
+			Region region = regions.poll();
+			if(best.size() == k && best.peek().dist <= region.bound){
+				break;
+			}
+
+			BTSortedPage page = new BTSortedPage(region.pageId, AttrType.attrDesc);
+			try{
+				if(page.getType() == NodeType.INDEX){
+					BTIndexPage indexPage = new BTIndexPage(page, AttrType.attrDesc);
+					// child i holds the keys between separator i and i+1;
+					// duplicates may sit on either side of a separator
+					PageId child = indexPage.getPrevPage();
+					DescriptorKey low = region.low;
+					for(KeyDataEntry entry = indexPage.getFirst(rid); entry != null; entry = indexPage.getNext(rid)){
+						DescriptorKey high = (DescriptorKey) entry.key;
+						regions.add(new Region(child, low, high, boxDistance(target, low, high)));
+						child = ((IndexData) entry.data).getData();
+						low = high;
+					}
+					regions.add(new Region(child, low, region.high, boxDistance(target, low, region.high)));
+				}else{
+					BTLeafPage leafPage = new BTLeafPage(page, AttrType.attrDesc);
+					for(KeyDataEntry entry = leafPage.getFirst(rid); entry != null; entry = leafPage.getNext(rid)){
+						double dist = distance(target, (DescriptorKey) entry.key);
+						if(best.size() == k){
+							if(dist >= best.peek().dist){
+								continue;
+							}
+							best.poll();
 						}
+						NID nid = new NID();
+						nid.copyRid(((LeafData) entry.data).getData());
+						best.add(new Candidate(dist, nid));
 					}
 				}
+			}finally{
+				try{
+					SystemDefs.JavabaseBM.unpinPage(region.pageId, false);
+				}catch(Exception e){
+					throw new UnpinPageException(e, "");
+				}
 			}
 		}
 
+		Candidate sorted[] = best.toArray(new Candidate[best.size()]);
+		Arrays.sort(sorted);
+		for(Candidate c : sorted){
+			nidList.add(c.nid);
+		}
+		return nidList;
+	}
 
-		//Sort all possible zorders
-		Collections.sort(allPossible);
-		for(int r =0; r< allPossible.size(); r++){
-			int zorder = (int)(long)DescriptorKey.getZorder(allPossible.get(r));
-
-			//System.out.print(zorder+ "  ");
+	// squared euclidean distance from a target to the key
+	private static double distance(Descriptor target, DescriptorKey key) {
+		double sum = 0;
+		for(int i = 0; i < 5; i++){
+			double d = (double) key.getValue(i) - target.get(i);
+			sum += d * d;
 		}
-		int a = 0;
-		//System.exit(1);
-		String lowZorder = allPossible.get(0);
-		int lZorder = (int)(long)DescriptorKey.getZorder(allPossible.get(0));
-		String hiZorder = allPossible.get(0);
-		while( a< allPossible.size()){
-			hiZorder = allPossible.get(a);
-			int zorder = (int)(long)DescriptorKey.getZorder(allPossible.get(a));
-			//System.out.println("zorder is "+zorder);
-			//Check if the next element exists
-			//System.out.print(zorder+" ");
-
-			if(a+1< allPossible.size()){
-				//peek next
-				int nextZorder = (int)(long)DescriptorKey.getZorder(allPossible.get(a+1));
-				if(nextZorder != zorder+1){
-					//System.out.println("lowZorder "+lZorder + "hiZorder "+zorder);
-					DescriptorKey lowDescriptor = new DescriptorKey(lowZorder);
-					DescriptorKey highDescriptor = new DescriptorKey(hiZorder);
-
-					BTFileScan scan = this.new_scan(lowDescriptor, highDescriptor);
-
-					KeyDataEntry entry = scan.get_next();
-					LeafData leafData;
-					while(entry != null) {
-						NID nid = new NID();
-						leafData = (LeafData) entry.data;
-						nid.copyRid(leafData.getData());
-						nidList.add(nid);
-						entry = scan.get_next();
-					}
-					scan.DestroyBTreeFileScan();
+		return sum;
+	}
 
-					lowZorder = allPossible.get(a+1);
-					lZorder = (int)(long)DescriptorKey.getZorder(allPossible.get(a+1));
-				}
+	// squared euclidean distance from a target to the bounding box of the
+	// Z-interval [low, high]
+	private static double boxDistance(Descriptor target, DescriptorKey low, DescriptorKey high) {
+		int prefix = low.commonPrefix(high);
+		double sum = 0;
+		for(int i = 0; i < 5; i++){
+			// bit j of value i is bit 5j + 4 - i of the Z-value, counted
+			// from the right; it is fixed if it falls in the common prefix
+			long mask = 0;
+			for(int j = 31; j >= 0 && 159 - (5 * j + 4 - i) < prefix; j--){
+				mask |= 1L << j;
+			}
+			long v = low.getValue(i) & 0xffffffffL;
+			long lo = v & mask;
+			long hi = v | (~mask & 0xffffffffL);
+			if(lo < 0x80000000L && hi >= 0x80000000L){
+				// the box spans the sign change, no bound in this dimension
+				continue;
 			}
-			a+=1;
+			int t = target.get(i);
+			double d = 0;
+			if(t < (int) lo){
+				d = (double) (int) lo - t;
+			}else if(t > (int) hi){
+				d = (double) t - (int) hi;
+			}
+			sum += d * d;
 		}
-		DescriptorKey lowDescriptor = new DescriptorKey(lowZorder);
-		DescriptorKey highDescriptor = new DescriptorKey(hiZorder);
+		return sum;
+	}
 
-		BTFileScan scan = this.new_scan(lowDescriptor, highDescriptor);
+	// a page of the tree waiting to be visited
+	private static class Region implements Comparable<Region> {
+		PageId pageId;
+		DescriptorKey low, high;
+		double bound;
 
-		KeyDataEntry entry = scan.get_next();
-		LeafData leafData;
-		while(entry != null) {
-			NID nid = new NID();
-			leafData = (LeafData) entry.data;
-			nid.copyRid(leafData.getData());
-			nidList.add(nid);
-			entry = scan.get_next();
+		Region(PageId pageId, DescriptorKey low, DescriptorKey high, double bound) {
+			this.pageId = pageId;
+			this.low = low;
+			this.high = high;
+			this.bound = bound;
 		}
-		scan.DestroyBTreeFileScan();
 
-		return nidList;
+		public int compareTo(Region other) {
+			return Double.compare(bound, other.bound);
+		}
+	}
+
+	// a node found so far
+	private static class Candidate implements Comparable<Candidate> {
+		double dist;
+		NID nid;
+
+		Candidate(double dist, NID nid) {
+			this.dist = dist;
+			this.nid = nid;
+		}
+
+		public int compareTo(Candidate other) {
+			return Double.compare(dist, other.dist);
+		}
 	}
 
 	public void main(String[] args) throws KeyNotMatchException, IteratorException, IOException,